@@ -10,6 +10,7 @@ import jp.kusumotolab.kgenprog.ga.crossover.Crossover;
 import jp.kusumotolab.kgenprog.ga.validation.DefaultCodeValidation;
 import jp.kusumotolab.kgenprog.ga.codegeneration.DefaultSourceCodeGeneration;
 import jp.kusumotolab.kgenprog.ga.selection.DefaultVariantSelection;
+import jp.kusumotolab.kgenprog.ga.selection.IslandVariantSelection;
 import jp.kusumotolab.kgenprog.ga.mutation.Mutation;
 import jp.kusumotolab.kgenprog.ga.mutation.RandomMutation;
 import jp.kusumotolab.kgenprog.ga.mutation.selection.RouletteStatementSelection;
@@ -18,7 +19,10 @@ import jp.kusumotolab.kgenprog.ga.codegeneration.SourceCodeGeneration;
 import jp.kusumotolab.kgenprog.ga.validation.SourceCodeValidation;
 import jp.kusumotolab.kgenprog.ga.selection.VariantSelection;
 import jp.kusumotolab.kgenprog.output.PatchGenerator;
+import jp.kusumotolab.kgenprog.project.test.ForkedTestExecutor;
 import jp.kusumotolab.kgenprog.project.test.LocalTestExecutor;
+import jp.kusumotolab.kgenprog.project.test.ParallelTestExecutor;
+import jp.kusumotolab.kgenprog.project.test.RemoteTestExecutor;
 import jp.kusumotolab.kgenprog.project.test.TestExecutor;
 
 public class CUILauncher {
@@ -46,8 +50,8 @@ public class CUILauncher {
         config.getCrossoverGeneratingCount());
     final SourceCodeGeneration sourceCodeGeneration = new DefaultSourceCodeGeneration();
     final SourceCodeValidation sourceCodeValidation = new DefaultCodeValidation();
-    final VariantSelection variantSelection = new DefaultVariantSelection(config.getHeadcount());
-    final TestExecutor testExecutor = new LocalTestExecutor(config);
+    final VariantSelection variantSelection = createVariantSelection(config);
+    final TestExecutor testExecutor = createTestExecutor(config);
     final PatchGenerator patchGenerator = new PatchGenerator();
 
     final KGenProgMain kGenProgMain = new KGenProgMain(config, faultLocalization, mutation,
@@ -59,6 +63,28 @@ public class CUILauncher {
 
   // region Private Method
 
+  private TestExecutor createTestExecutor(final Configuration config) {
+    switch (config.getTestExecutor()) {
+      case LOCAL:
+        return new LocalTestExecutor(config);
+      case PARALLEL:
+        return new ParallelTestExecutor(config);
+      case FORKED:
+        return new ForkedTestExecutor(config);
+      case REMOTE:
+        return new RemoteTestExecutor(config);
+    }
+    throw new IllegalArgumentException("unknown test executor: " + config.getTestExecutor());
+  }
+
+  private VariantSelection createVariantSelection(final Configuration config) {
+    if (config.getIslandCount() <= 1) {
+      return new DefaultVariantSelection(config.getHeadcount());
+    }
+    return new IslandVariantSelection(config.getHeadcount(), config.getIslandCount(),
+        config.getMigrationInterval());
+  }
+
   private void setLogLevel(final Level logLevel) {
     final ch.qos.logback.classic.Logger rootLogger =
         (ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME);
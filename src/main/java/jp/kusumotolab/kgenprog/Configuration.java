@@ -30,9 +30,12 @@ import com.google.common.collect.ImmutableList;
 import ch.qos.logback.classic.Level;
 import jp.kusumotolab.kgenprog.ga.mutation.Scope;
 import jp.kusumotolab.kgenprog.ga.mutation.Scope.Type;
+import jp.kusumotolab.kgenprog.project.build.ProjectBuilder;
 import jp.kusumotolab.kgenprog.project.factory.JUnitLibraryResolver.JUnitVersion;
 import jp.kusumotolab.kgenprog.project.factory.TargetProject;
 import jp.kusumotolab.kgenprog.project.factory.TargetProjectFactory;
+import jp.kusumotolab.kgenprog.project.test.TestExecutor;
+import jp.kusumotolab.kgenprog.project.test.TestWorkerServer;
 
 public class Configuration {
 
@@ -44,12 +47,26 @@ public class Configuration {
   public static final int DEFAULT_REQUIRED_SOLUTIONS_COUNT = 1;
   public static final Duration DEFAULT_TIME_LIMIT = Duration.ofSeconds(60);
   public static final Duration DEFAULT_TEST_TIME_LIMIT = Duration.ofSeconds(10);
+  public static final Duration DEFAULT_VARIANT_TIME_LIMIT = Duration.ofSeconds(30);
   public static final Level DEFAULT_LOG_LEVEL = Level.INFO;
   public static final Path DEFAULT_WORKING_DIR;
   public static final Path DEFAULT_OUT_DIR = Paths.get("kgenprog-out");
   public static final long DEFAULT_RANDOM_SEED = 0;
   public static final Scope.Type DEFAULT_SCOPE = Type.PACKAGE;
   public static final boolean DEFAULT_NEED_NOT_OUTPUT = false;
+  public static final TestExecutor.Type DEFAULT_TEST_EXECUTOR = TestExecutor.Type.LOCAL;
+  public static final int DEFAULT_WORKER_COUNT = Runtime.getRuntime()
+      .availableProcessors();
+  public static final boolean DEFAULT_TEST_SELECTION = false;
+  public static final boolean DEFAULT_FAIL_FAST = false;
+  public static final ProjectBuilder.Compiler DEFAULT_COMPILER = ProjectBuilder.Compiler.JAVAC;
+  public static final boolean DEFAULT_DISK_CACHE = false;
+  public static final boolean DEFAULT_STEADY_STATE = false;
+  public static final int DEFAULT_ISLAND_COUNT = 1;
+  public static final int DEFAULT_MIGRATION_INTERVAL = 5;
+  public static final boolean DEFAULT_HOT_SWAP = false;
+  public static final boolean DEFAULT_ADAPTIVE_TEST_TIME_LIMIT = false;
+  public static final boolean DEFAULT_TEST_PRIORITIZATION = false;
 
   static {
     try {
@@ -70,11 +87,26 @@ public class Configuration {
   private final int maxGeneration;
   private final Duration timeLimit;
   private final Duration testTimeLimit;
+  private final Duration variantTimeLimit;
   private final int requiredSolutionsCount;
   private final Level logLevel;
   private final long randomSeed;
   private final Scope.Type scope;
   private final boolean needNotOutput;
+  private final TestExecutor.Type testExecutor;
+  private final int workerCount;
+  private final boolean testSelection;
+  private final boolean failFast;
+  private final ProjectBuilder.Compiler compiler;
+  private final boolean diskCache;
+  private final boolean steadyState;
+  private final int islandCount;
+  private final int migrationInterval;
+  private final List<String> remoteWorkers;
+  private final String remoteWorkerSecret;
+  private final boolean hotSwap;
+  private final boolean adaptiveTestTimeLimit;
+  private final boolean testPrioritization;
   // endregion
 
   // region Constructor
@@ -90,11 +122,27 @@ public class Configuration {
     maxGeneration = builder.maxGeneration;
     timeLimit = builder.timeLimit;
     testTimeLimit = builder.testTimeLimit;
+    variantTimeLimit = builder.variantTimeLimit;
     requiredSolutionsCount = builder.requiredSolutionsCount;
     logLevel = builder.logLevel;
     randomSeed = builder.randomSeed;
     scope = builder.scope;
     needNotOutput = builder.needNotOutput;
+    testExecutor = builder.testExecutor;
+    workerCount = builder.workerCount;
+    testSelection = builder.testSelection;
+    failFast = builder.failFast;
+    compiler = builder.compiler;
+    diskCache = builder.diskCache;
+    steadyState = builder.steadyState;
+    hotSwap = builder.hotSwap;
+    adaptiveTestTimeLimit = builder.adaptiveTestTimeLimit;
+    testPrioritization = builder.testPrioritization;
+    islandCount = builder.islandCount;
+    migrationInterval = builder.migrationInterval;
+    remoteWorkers = builder.remoteWorkers;
+    remoteWorkerSecret = builder.remoteWorkerSecret != null ? builder.remoteWorkerSecret
+        : System.getenv(TestWorkerServer.SECRET_ENV);
   }
 
   // endregion
@@ -147,6 +195,18 @@ public class Configuration {
     return testTimeLimit;
   }
 
+  public long getVariantTimeLimitSeconds() {
+    return getVariantTimeLimit().getSeconds();
+  }
+
+  /**
+   * 1つの個体のテスト実行全体に課す制限時間．<br>
+   * テストメソッドごとの制限時間では打ち切れない暴走（static初期化子内の無限ループ等）を打ち切るために用いる．
+   */
+  public Duration getVariantTimeLimit() {
+    return variantTimeLimit;
+  }
+
   public int getRequiredSolutionsCount() {
     return requiredSolutionsCount;
   }
@@ -167,6 +227,92 @@ public class Configuration {
     return needNotOutput;
   }
 
+  public TestExecutor.Type getTestExecutor() {
+    return testExecutor;
+  }
+
+  public int getWorkerCount() {
+    return workerCount;
+  }
+
+  public boolean usesTestSelection() {
+    return testSelection;
+  }
+
+  public boolean usesFailFast() {
+    return failFast;
+  }
+
+  public ProjectBuilder.Compiler getCompiler() {
+    return compiler;
+  }
+
+  public boolean usesDiskCache() {
+    return diskCache;
+  }
+
+  public boolean usesSteadyState() {
+    return steadyState;
+  }
+
+  public int getIslandCount() {
+    return islandCount;
+  }
+
+  /**
+   * FORKEDおよびREMOTEのテスト実行方式で，ワーカーのJVMに読み込んだクラスを個体ごとに再定義して使い回すか否か
+   */
+  public boolean usesHotSwap() {
+    return hotSwap;
+  }
+
+  /**
+   * 初期個体での各テストメソッドの実行時間から，テストメソッドごとの制限時間を短く定めるか否か．<br>
+   * 制限時間は {@link #getTestTimeLimit()} を上限とする．
+   */
+  public boolean usesAdaptiveTestTimeLimit() {
+    return adaptiveTestTimeLimit;
+  }
+
+  /**
+   * fail-fastで，初期個体で失敗したテストや実行時間の短いテストを先に実行するか否か
+   */
+  public boolean usesTestPrioritization() {
+    return testPrioritization;
+  }
+
+  public int getMigrationInterval() {
+    return migrationInterval;
+  }
+
+  /**
+   * REMOTEのテスト実行方式でテストを実行させるTestWorkerServerのアドレスを返す．
+   *
+   * @return "host:port"の形式のアドレスのリスト
+   */
+  public List<String> getRemoteWorkers() {
+    return remoteWorkers;
+  }
+
+  /**
+   * REMOTEのテスト実行方式でTestWorkerServerとの接続の認証に用いる秘密鍵を返す．<br>
+   * 設定ファイルで指定されていない場合は環境変数 {@value TestWorkerServer#SECRET_ENV} の値を用いる．
+   *
+   * @return 秘密鍵．指定されていない場合はnull
+   */
+  public String getRemoteWorkerSecret() {
+    return remoteWorkerSecret;
+  }
+
+  /**
+   * 実行をまたいで再利用されるビルド結果とテスト結果のキャッシュを格納するディレクトリを返す．
+   *
+   * @return
+   */
+  public Path getDiskCacheDir() {
+    return workingDir.resolve("kgenprog-cache");
+  }
+
   @Override
   public String toString() {
     final StringBuilder sb = new StringBuilder();
@@ -256,6 +402,11 @@ public class Configuration {
     @Conversion(DurationToInteger.class)
     private Duration testTimeLimit = DEFAULT_TEST_TIME_LIMIT;
 
+    @com.electronwill.nightconfig.core.conversion.Path("variant-time-limit")
+    @PreserveNotNull
+    @Conversion(DurationToInteger.class)
+    private Duration variantTimeLimit = DEFAULT_VARIANT_TIME_LIMIT;
+
     @com.electronwill.nightconfig.core.conversion.Path("required-solutions")
     @PreserveNotNull
     private int requiredSolutionsCount = DEFAULT_REQUIRED_SOLUTIONS_COUNT;
@@ -279,6 +430,83 @@ public class Configuration {
     @PreserveNotNull
     private boolean needNotOutput = DEFAULT_NEED_NOT_OUTPUT;
 
+    @com.electronwill.nightconfig.core.conversion.Path("test-executor")
+    @PreserveNotNull
+    @Conversion(TestExecutorTypeToString.class)
+    private TestExecutor.Type testExecutor = DEFAULT_TEST_EXECUTOR;
+
+    @com.electronwill.nightconfig.core.conversion.Path("worker-count")
+    @PreserveNotNull
+    private int workerCount = DEFAULT_WORKER_COUNT;
+
+    @Option(name = "--test-selection",
+        usage = "Run only tests covering the mutated statement and tests failed in the parent.")
+    @com.electronwill.nightconfig.core.conversion.Path("test-selection")
+    @PreserveNotNull
+    private boolean testSelection = DEFAULT_TEST_SELECTION;
+
+    @Option(name = "--fail-fast",
+        usage = "Stop testing a variant as soon as it cannot be selected for the next generation.")
+    @com.electronwill.nightconfig.core.conversion.Path("fail-fast")
+    @PreserveNotNull
+    private boolean failFast = DEFAULT_FAIL_FAST;
+
+    @com.electronwill.nightconfig.core.conversion.Path("compiler")
+    @PreserveNotNull
+    @Conversion(CompilerToString.class)
+    private ProjectBuilder.Compiler compiler = DEFAULT_COMPILER;
+
+    @Option(name = "--disk-cache",
+        usage = "Reuse built binaries and test results of variants across runs by caching "
+            + "them under the working directory.")
+    @com.electronwill.nightconfig.core.conversion.Path("disk-cache")
+    @PreserveNotNull
+    private boolean diskCache = DEFAULT_DISK_CACHE;
+
+    @Option(name = "--steady-state",
+        usage = "Generate offspring from each variant as soon as it is evaluated, instead of "
+            + "waiting for the whole generation to be evaluated.")
+    @com.electronwill.nightconfig.core.conversion.Path("steady-state")
+    @PreserveNotNull
+    private boolean steadyState = DEFAULT_STEADY_STATE;
+
+    @com.electronwill.nightconfig.core.conversion.Path("island-count")
+    @PreserveNotNull
+    private int islandCount = DEFAULT_ISLAND_COUNT;
+
+    @com.electronwill.nightconfig.core.conversion.Path("migration-interval")
+    @PreserveNotNull
+    private int migrationInterval = DEFAULT_MIGRATION_INTERVAL;
+
+    @com.electronwill.nightconfig.core.conversion.Path("remote-workers")
+    @PreserveNotNull
+    private List<String> remoteWorkers = new ArrayList<>();
+
+    // コマンドライン引数は他のユーザからも見えるため，設定ファイルか環境変数でのみ受け付ける
+    @com.electronwill.nightconfig.core.conversion.Path("remote-worker-secret")
+    private String remoteWorkerSecret = null;
+
+    @Option(name = "--hot-swap",
+        usage = "(Experimental) Redefine only changed classes in warm worker JVMs of the FORKED "
+            + "and REMOTE test executors, instead of loading all classes for each variant.")
+    @com.electronwill.nightconfig.core.conversion.Path("hot-swap")
+    @PreserveNotNull
+    private boolean hotSwap = DEFAULT_HOT_SWAP;
+
+    @Option(name = "--adaptive-test-time-limit",
+        usage = "Derive a time limit for each test method from its execution time on the "
+            + "original program, capped by the test time limit.")
+    @com.electronwill.nightconfig.core.conversion.Path("adaptive-test-time-limit")
+    @PreserveNotNull
+    private boolean adaptiveTestTimeLimit = DEFAULT_ADAPTIVE_TEST_TIME_LIMIT;
+
+    @Option(name = "--test-prioritization",
+        usage = "With --fail-fast, also run tests failed on the original program first, and "
+            + "order tests of the same priority by their execution time on the original program.")
+    @com.electronwill.nightconfig.core.conversion.Path("test-prioritization")
+    @PreserveNotNull
+    private boolean testPrioritization = DEFAULT_TEST_PRIORITIZATION;
+
     // endregion
 
     // region Constructors
@@ -319,6 +547,7 @@ public class Configuration {
         parser.parseArgument(args);
         final List<String> executionTestsFromCmdLine = builder.executionTests;
         final List<Path> classPathsFromCmdLine = builder.classPaths;
+        final List<String> remoteWorkersFromCmdLine = builder.remoteWorkers;
 
         if (needsParseConfigFile(args)) {
           builder.parseConfigFile();
@@ -331,6 +560,9 @@ public class Configuration {
           if (!classPathsFromCmdLine.isEmpty()) {
             builder.classPaths.retainAll(classPathsFromCmdLine);
           }
+          if (!remoteWorkersFromCmdLine.isEmpty()) {
+            builder.remoteWorkers.retainAll(remoteWorkersFromCmdLine);
+          }
         }
 
         validateArgument(builder);
@@ -414,6 +646,16 @@ public class Configuration {
       return this;
     }
 
+    public Builder setVariantTimeLimitSeconds(final long variantTimeLimitSeconds) {
+      this.variantTimeLimit = Duration.ofSeconds(variantTimeLimitSeconds);
+      return this;
+    }
+
+    public Builder setVariantTimeLimit(final Duration variantTimeLimit) {
+      this.variantTimeLimit = variantTimeLimit;
+      return this;
+    }
+
     public Builder setRequiredSolutionsCount(final int requiredSolutionsCount) {
       this.requiredSolutionsCount = requiredSolutionsCount;
       return this;
@@ -448,6 +690,76 @@ public class Configuration {
       return this;
     }
 
+    public Builder setTestExecutor(final TestExecutor.Type testExecutor) {
+      this.testExecutor = testExecutor;
+      return this;
+    }
+
+    public Builder setWorkerCount(final int workerCount) {
+      this.workerCount = workerCount;
+      return this;
+    }
+
+    public Builder setTestSelection(final boolean testSelection) {
+      this.testSelection = testSelection;
+      return this;
+    }
+
+    public Builder setFailFast(final boolean failFast) {
+      this.failFast = failFast;
+      return this;
+    }
+
+    public Builder setCompiler(final ProjectBuilder.Compiler compiler) {
+      this.compiler = compiler;
+      return this;
+    }
+
+    public Builder setDiskCache(final boolean diskCache) {
+      this.diskCache = diskCache;
+      return this;
+    }
+
+    public Builder setSteadyState(final boolean steadyState) {
+      this.steadyState = steadyState;
+      return this;
+    }
+
+    public Builder setHotSwap(final boolean hotSwap) {
+      this.hotSwap = hotSwap;
+      return this;
+    }
+
+    public Builder setAdaptiveTestTimeLimit(final boolean adaptiveTestTimeLimit) {
+      this.adaptiveTestTimeLimit = adaptiveTestTimeLimit;
+      return this;
+    }
+
+    public Builder setTestPrioritization(final boolean testPrioritization) {
+      this.testPrioritization = testPrioritization;
+      return this;
+    }
+
+    public Builder addRemoteWorker(final String remoteWorker) {
+      this.remoteWorkers.add(remoteWorker);
+      return this;
+    }
+
+    public Builder setRemoteWorkerSecret(final String remoteWorkerSecret) {
+      this.remoteWorkerSecret = remoteWorkerSecret;
+      return this;
+    }
+
+    public Builder setIslandCount(final int islandCount) {
+      this.islandCount = islandCount;
+      return this;
+    }
+
+    public Builder setMigrationInterval(final int migrationInterval) {
+      this.migrationInterval = migrationInterval;
+      return this;
+    }
+
     // endregion
 
     // region Private methods
@@ -632,13 +944,18 @@ public class Configuration {
       this.timeLimit = Duration.ofSeconds(timeLimit);
     }
 
-    // todo update usage
     @Option(name = "--test-time-limit", metaVar = "<sec>",
-        usage = "Specifies time limit to build and test for each variant in second")
+        usage = "Specifies time limit for each test method of a variant in second")
     private void setTestTimeLimitFromCmdLineParser(final long testTimeLimit) {
       this.testTimeLimit = Duration.ofSeconds(testTimeLimit);
     }
 
+    @Option(name = "--variant-time-limit", metaVar = "<sec>",
+        usage = "Specifies time limit for testing each variant in second")
+    private void setVariantTimeLimitFromCmdLineParser(final long variantTimeLimit) {
+      this.variantTimeLimit = Duration.ofSeconds(variantTimeLimit);
+    }
+
     @Option(name = "--required-solutions", metaVar = "<num>",
         usage = "Terminates searching solutions when the specified number of solutions are found.")
     private void setRequiredSolutionsCountFromCmdLineParser(final int requiredSolutionsCount) {
@@ -667,6 +984,49 @@ public class Configuration {
       this.scope = scope;
     }
 
+    @Option(name = "--test-executor",
+        usage = "Specify how variants are tested. PARALLEL runs tests on multiple threads, "
+            + "FORKED runs them in a pool of worker JVMs, and REMOTE runs them on remote "
+            + "TestWorkerServers.")
+    private void setTestExecutorFromCmdLineParser(final TestExecutor.Type testExecutor) {
+      this.testExecutor = testExecutor;
+    }
+
+    @Option(name = "--worker-count", metaVar = "<num>",
+        usage = "Specifies the number of workers which test variants in parallel.")
+    private void setWorkerCountFromCmdLineParser(final int workerCount) {
+      this.workerCount = workerCount;
+    }
+
+    @Option(name = "--compiler",
+        usage = "Specify the compiler used to build variants. ECJ compiles them in-process "
+            + "with the Eclipse Compiler for Java.")
+    private void setCompilerFromCmdLineParser(final ProjectBuilder.Compiler compiler) {
+      this.compiler = compiler;
+    }
+
+    @Option(name = "--remote-worker", metaVar = "<host:port> ...",
+        usage = "Specifies addresses of TestWorkerServers which test variants when the test "
+            + "executor is REMOTE.",
+        handler = StringArrayOptionHandler.class)
+    private void addRemoteWorkerFromCmdLineParser(final String remoteWorker) {
+      this.remoteWorkers.add(remoteWorker);
+    }
+
+    @Option(name = "--island-count", metaVar = "<num>",
+        usage = "Specifies the number of islands into which the population is divided. "
+            + "Each island selects its variants independently.")
+    private void setIslandCountFromCmdLineParser(final int islandCount) {
+      this.islandCount = islandCount;
+    }
+
+    @Option(name = "--migration-interval", metaVar = "<num>",
+        usage = "Specifies the interval in generations at which the best variant of each island "
+            + "migrates to the next island.")
+    private void setMigrationIntervalFromCmdLineParser(final int migrationInterval) {
+      this.migrationInterval = migrationInterval;
+    }
+
     // endregion
 
     private static class PathToString implements Converter<Path, String> {
@@ -776,6 +1136,45 @@ public class Configuration {
         return value.toString();
       }
     }
+
+    private static class TestExecutorTypeToString
+        implements Converter<TestExecutor.Type, String> {
+
+      @Override
+      public TestExecutor.Type convertToField(final String value) {
+        if (value == null) {
+          return null;
+        }
+        return TestExecutor.Type.valueOf(value);
+      }
+
+      @Override
+      public String convertFromField(final TestExecutor.Type value) {
+        if (value == null) {
+          return null;
+        }
+        return value.toString();
+      }
+    }
+
+    private static class CompilerToString implements Converter<ProjectBuilder.Compiler, String> {
+
+      @Override
+      public ProjectBuilder.Compiler convertToField(final String value) {
+        if (value == null) {
+          return null;
+        }
+        return ProjectBuilder.Compiler.valueOf(value);
+      }
+
+      @Override
+      public String convertFromField(final ProjectBuilder.Compiler value) {
+        if (value == null) {
+          return null;
+        }
+        return value.toString();
+      }
+    }
   }
 }
 
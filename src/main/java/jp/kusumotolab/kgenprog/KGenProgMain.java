@@ -4,6 +4,9 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
@@ -26,6 +29,9 @@ public class KGenProgMain {
 
   private static Logger log = LoggerFactory.getLogger(KGenProgMain.class);
 
+  // 定常状態GAで，評価を終えた個体を待つ間隔．この間隔ごとに制限時間を確認する
+  private static final long POLLING_INTERVAL_MILLIS = 100;
+
   private final Configuration config;
   private final FaultLocalization faultLocalization;
   private final Mutation mutation;
@@ -73,6 +79,30 @@ public class KGenProgMain {
     final StopWatch stopwatch = new StopWatch(config.getTimeLimitSeconds());
     stopwatch.start();
 
+    if (config.usesSteadyState()) {
+      runSteadyState(variantStore, stopwatch);
+    } else {
+      runGenerational(variantStore, stopwatch);
+    }
+
+    // 生成されたバリアントのパッチ出力
+    logPatch(variantStore);
+
+    // jsonの出力
+    writeJson(variantStore);
+
+    stopwatch.unsplit();
+    strategies.finish();
+    log.info("execution time: " + stopwatch.toString());
+
+
+    return variantStore.getFoundSolutions(config.getRequiredSolutionsCount());
+  }
+
+  /**
+   * 世代型GA．世代ごとに，生成した全個体の評価を待ってから次の世代を選択する．
+   */
+  private void runGenerational(final VariantStore variantStore, final StopWatch stopwatch) {
     while (true) {
 
       // 新しい世代に入ったことをログ出力
@@ -112,19 +142,104 @@ public class KGenProgMain {
       // 次世代に向けての準備
       variantStore.proceedNextGeneration();
     }
+  }
 
-    // 生成されたバリアントのパッチ出力
-    logPatch(variantStore);
+  /**
+   * 定常状態GA．世代全体の評価を待たず，個体の評価を終えるたびに評価済みの個体群へ取り込む．<br>
+   * 評価中の個体が1世代分の生成数を下回ると評価済みの個体群から次の世代を生成するため，
+   * ある世代の評価と次の世代の生成とが重なり，遅い個体が探索全体を止めない．
+   */
+  private void runSteadyState(final VariantStore variantStore, final StopWatch stopwatch) {
+    final BlockingQueue<Variant> evaluatedVariants = new LinkedBlockingQueue<>();
+    final int generatingCount =
+        config.getMutationGeneratingCount() + config.getCrossoverGeneratingCount();
+    int evaluatingCount = 0;
+    boolean generating = true;
 
-    // jsonの出力
-    writeJson(variantStore);
+    while (true) {
 
-    stopwatch.unsplit();
-    strategies.finish();
-    log.info("execution time: " + stopwatch.toString());
+      // 評価中の個体が1世代分に満たなければ，評価済みの個体群から次の世代を生成
+      if (generating && evaluatingCount < generatingCount) {
+        logGeneration(variantStore.getGenerationNumber());
+
+        final List<Variant> variants = new ArrayList<>();
+        variants.addAll(mutation.exec(variantStore));
+        variants.addAll(crossover.exec(variantStore));
+
+        // 評価を終えた個体はテストを実行したスレッドからキューに積まれる．
+        // 評価に失敗した個体も積んで，評価中の個体数を減らす
+        variants.forEach(v -> v.getEvaluatedSingle()
+            .subscribe((evaluated, error) -> evaluatedVariants.add(v)));
+        evaluatingCount += variants.size();
+
+        if (reachedMaxGeneration(variantStore.getGenerationNumber())) {
+          generating = false;
+        } else {
+          variantStore.proceedGenerationNumber();
+        }
+      }
 
+      // 最大世代数まで生成し，その評価をすべて終えた場合には GA を抜ける
+      if (!generating && evaluatingCount == 0) {
+        log.info("GA reached the maximum generation.");
+        logGAStopped(variantStore.getGenerationNumber());
+        break;
+      }
 
-    return variantStore.getFoundSolutions(config.getRequiredSolutionsCount());
+      // 評価を終えた個体を個体群に取り込む
+      if (0 < evaluatingCount) {
+        final List<Variant> variants;
+        try {
+          variants = pollEvaluatedVariants(evaluatedVariants);
+        } catch (final InterruptedException e) {
+          Thread.currentThread()
+              .interrupt();
+          logGAStopped(variantStore.getGenerationNumber());
+          break;
+        }
+        if (!variants.isEmpty()) {
+          evaluatingCount -= variants.size();
+          variantStore.mergeEvaluatedVariants(variants);
+
+          logGenerationSummary(stopwatch.toString(), variants, Collections.emptyList());
+          stopwatch.split();
+        }
+      }
+
+      // しきい値以上の completedVariants が生成された場合は，GA を抜ける
+      if (areEnoughCompletedVariants(variantStore.getFoundSolutions())) {
+        log.info("enough solutions have been found.");
+        logGAStopped(variantStore.getGenerationNumber());
+        break;
+      }
+
+      // 制限時間に達した場合には GA を抜ける
+      if (stopwatch.isTimeout()) {
+        log.info("GA reached the time limit.");
+        logGAStopped(variantStore.getGenerationNumber());
+        break;
+      }
+    }
+  }
+
+  /**
+   * 評価を終えた個体を，1つ以上になるまで一定時間待ってから，その時点で評価を終えている分だけ取り出す．
+   *
+   * @param evaluatedVariants 評価を終えた個体のキュー
+   * @return 一定時間内に評価を終えた個体がなければ空のリスト
+   * @throws InterruptedException
+   */
+  private List<Variant> pollEvaluatedVariants(final BlockingQueue<Variant> evaluatedVariants)
+      throws InterruptedException {
+    final Variant variant =
+        evaluatedVariants.poll(POLLING_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    if (variant == null) {
+      return Collections.emptyList();
+    }
+    final List<Variant> variants = new ArrayList<>();
+    variants.add(variant);
+    evaluatedVariants.drainTo(variants);
+    return variants;
   }
 
   private boolean reachedMaxGeneration(final OrdinalNumber generation) {
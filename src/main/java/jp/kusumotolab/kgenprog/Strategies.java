@@ -16,6 +16,7 @@ import jp.kusumotolab.kgenprog.project.factory.TargetProject;
 import jp.kusumotolab.kgenprog.project.jdt.JDTASTConstruction;
 import jp.kusumotolab.kgenprog.project.test.TestExecutor;
 import jp.kusumotolab.kgenprog.project.test.TestResults;
+import jp.kusumotolab.kgenprog.project.test.TestTimeLimits;
 
 public class Strategies {
 
@@ -61,6 +62,18 @@ public class Strategies {
     return testExecutor.execAsync(variantSingle);
   }
 
+  public void setSelectionCutoff(final double cutoff) {
+    testExecutor.setSelectionCutoff(cutoff);
+  }
+
+  public void setTestTimeLimits(final TestTimeLimits testTimeLimits) {
+    testExecutor.setTestTimeLimits(testTimeLimits);
+  }
+
+  public void setOriginalTestResults(final TestResults originalTestResults) {
+    testExecutor.setOriginalTestResults(originalTestResults);
+  }
+
   public Fitness execSourceCodeValidation(final GeneratedSourceCode sourceCode,
       final TestResults testResults) {
     return sourceCodeValidation.exec(sourceCode, testResults);
@@ -74,4 +87,8 @@ public class Strategies {
       final List<Variant> generated) {
     return variantSelection.exec(current, generated);
   }
+
+  public double getSelectionCutoff(final List<Variant> current) {
+    return variantSelection.getSelectionCutoff(current);
+  }
 }
@@ -7,6 +7,7 @@ import jp.kusumotolab.kgenprog.project.ASTLocations;
 import jp.kusumotolab.kgenprog.project.GeneratedAST;
 import jp.kusumotolab.kgenprog.project.GeneratedSourceCode;
 import jp.kusumotolab.kgenprog.project.ProductSourcePath;
+import jp.kusumotolab.kgenprog.project.test.Spectrum;
 import jp.kusumotolab.kgenprog.project.test.TestResults;
 
 public class Ample implements FaultLocalization {
@@ -16,6 +17,7 @@ public class Ample implements FaultLocalization {
       final TestResults testResults) {
 
     final List<Suspiciousness> suspiciousnesses = new ArrayList<>();
+    final Spectrum spectrum = testResults.getSpectrum();
 
     for (final GeneratedAST<ProductSourcePath> ast : generatedSourceCode.getProductAsts()) {
       final ProductSourcePath path = ast.getSourcePath();
@@ -26,10 +28,10 @@ public class Ample implements FaultLocalization {
         final List<ASTLocation> locations = astLocations.infer(line);
         if (!locations.isEmpty()) {
           final ASTLocation l = locations.get(locations.size() - 1);
-          final long ef = testResults.getNumberOfFailedTestsExecutingTheStatement(path, l);
-          final long nf = testResults.getNumberOfFailedTestsNotExecutingTheStatement(path, l);
-          final long ep = testResults.getNumberOfPassedTestsExecutingTheStatement(path, l);
-          final long np = testResults.getNumberOfPassedTestsNotExecutingTheStatement(path, l);
+          final long ef = spectrum.getNumberOfFailedTestsExecutingTheStatement(path, l);
+          final long nf = spectrum.getNumberOfFailedTestsNotExecutingTheStatement(path, l);
+          final long ep = spectrum.getNumberOfPassedTestsExecutingTheStatement(path, l);
+          final long np = spectrum.getNumberOfPassedTestsNotExecutingTheStatement(path, l);
           final double value = Math.abs(ef / (double)(ef + nf) - ep / (double)(ep + np));
           if (0d < value) {
             final Suspiciousness s = new Suspiciousness(l, value);
@@ -1,36 +1,85 @@
 package jp.kusumotolab.kgenprog.ga.codegeneration;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import jp.kusumotolab.kgenprog.ga.variant.Base;
 import jp.kusumotolab.kgenprog.ga.variant.Gene;
 import jp.kusumotolab.kgenprog.ga.variant.Variant;
 import jp.kusumotolab.kgenprog.ga.variant.VariantStore;
+import jp.kusumotolab.kgenprog.project.DuplicatedSourceCode;
 import jp.kusumotolab.kgenprog.project.GeneratedSourceCode;
-import jp.kusumotolab.kgenprog.project.GenerationFailedSourceCode;
 
+/**
+ * 遺伝子のBaseを初期個体のソースコードに順に適用してソースコードを生成する．<br>
+ * 生成したソースコードを遺伝子をキーとして保持しておき，遺伝子の先頭部分が一致するソースコードがあれば，
+ * その続きのBaseのみを適用する．変異による子は親のソースコードに1つの操作を適用するのみで生成でき，
+ * 交叉による子も最も長く一致する祖先のソースコードから生成できる．
+ * 保持するソースコードの数はcacheSizeまでとし，最も長く参照されていないものから捨てる．<br>
+ * Baseは子の遺伝子にそのまま引き継がれるため，遺伝子の一致はBaseの同一性で判定する．
+ */
 public class DefaultSourceCodeGeneration implements SourceCodeGeneration {
 
+  public static final int DEFAULT_CACHE_SIZE = 1024;
+
   private final Set<String> sourceCodeSet = new HashSet<>();
+  private final Map<List<Base>, GeneratedSourceCode> cache;
+
+  public DefaultSourceCodeGeneration() {
+    this(DEFAULT_CACHE_SIZE);
+  }
+
+  public DefaultSourceCodeGeneration(final int cacheSize) {
+    this.cache = new LinkedHashMap<List<Base>, GeneratedSourceCode>(16, 0.75f, true) {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(
+          final Map.Entry<List<Base>, GeneratedSourceCode> eldest) {
+        return size() > cacheSize;
+      }
+    };
+  }
 
   @Override
   public void initialize(final Variant initialVariant) {
     final GeneratedSourceCode generatedSourceCode = initialVariant.getGeneratedSourceCode();
     sourceCodeSet.add(generatedSourceCode.getMessageDigest());
+    cache.clear();
   }
 
   @Override
   public GeneratedSourceCode exec(final VariantStore variantStore, final Gene gene) {
-    final Variant initialVariant = variantStore.getInitialVariant();
-    GeneratedSourceCode generatedSourceCode = initialVariant.getGeneratedSourceCode();
+    final List<Base> bases = gene.getBases();
 
-    for (final Base base : gene.getBases()) {
+    // 遺伝子の先頭部分のうち，ソースコードを保持している最も長いものを探す
+    int start = bases.size();
+    GeneratedSourceCode generatedSourceCode = null;
+    for (; start > 0; start--) {
+      generatedSourceCode = cache.get(bases.subList(0, start));
+      if (generatedSourceCode != null) {
+        break;
+      }
+    }
+    if (generatedSourceCode == null) {
+      final Variant initialVariant = variantStore.getInitialVariant();
+      generatedSourceCode = initialVariant.getGeneratedSourceCode();
+    }
+
+    for (final Base base : bases.subList(start, bases.size())) {
       generatedSourceCode = base.getOperation()
           .apply(generatedSourceCode, base.getTargetLocation());
     }
+    if (!bases.isEmpty()) {
+      cache.put(new ArrayList<>(bases), generatedSourceCode);
+    }
 
     if (sourceCodeSet.contains(generatedSourceCode.getMessageDigest())) {
-      generatedSourceCode = new GenerationFailedSourceCode("duplicate sourcecode");
+      generatedSourceCode = new DuplicatedSourceCode(generatedSourceCode);
     } else {
       sourceCodeSet.add(generatedSourceCode.getMessageDigest());
     }
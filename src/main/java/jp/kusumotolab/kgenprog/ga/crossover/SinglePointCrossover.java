@@ -15,6 +15,9 @@ import jp.kusumotolab.kgenprog.ga.variant.VariantStore;
 
 public class SinglePointCrossover implements Crossover {
 
+  // 既知のプログラムになった場合に，交叉をやり直す回数の上限
+  private static final int MAX_RETRY_COUNT = 10;
+
   private final Random random;
   private final int crossoverGeneratingCount;
 
@@ -41,19 +44,58 @@ public class SinglePointCrossover implements Crossover {
     final List<Variant> variants = new ArrayList<>();
 
     for (int i = 0; i < crossoverGeneratingCount / 2; i++) {
-      final List<Variant> newVariants = makeVariants(filteredVariants, variantStore);
-      variants.addAll(newVariants);
+      variants.addAll(makeNewVariants(filteredVariants, variantStore, 2));
     }
-    if (crossoverGeneratingCount != 0 && crossoverGeneratingCount % 2 != 0) {
-      final List<Variant> newVariants = makeVariants(filteredVariants, variantStore);
-      if (!newVariants.isEmpty()) {
-        variants.add(newVariants.get(0));
-      }
+    if (crossoverGeneratingCount % 2 != 0) {
+      variants.addAll(makeNewVariants(filteredVariants, variantStore, 1));
     }
     return variants;
   }
 
-  private List<Variant> makeVariants(final List<Variant> variants, final VariantStore store) {
+  /**
+   * 既知のプログラムでない個体をcount個まで生成する．既知のプログラムになった場合は，count個が揃うまで交叉をやり直す．<br>
+   * やり直しても揃わない場合は，最後の交叉で既知のプログラムになった子の評価結果を引き継いだ個体で補う．
+   * 
+   * @param variants
+   * @param store
+   * @param count 生成する個体の数（1または2）
+   * @return
+   */
+  private List<Variant> makeNewVariants(final List<Variant> variants, final VariantStore store,
+      final int count) {
+    final List<Variant> newVariants = new ArrayList<>();
+    final List<Offspring> duplicatedOffsprings = new ArrayList<>();
+    for (int retry = 0; retry <= MAX_RETRY_COUNT && newVariants.size() < count; retry++) {
+      final List<Offspring> offsprings = makeOffsprings(variants);
+
+      // 交叉できない組み合わせの場合はやり直さない
+      if (offsprings.isEmpty()) {
+        return newVariants;
+      }
+      duplicatedOffsprings.clear();
+      for (final Offspring offspring : offsprings) {
+        if (newVariants.size() >= count) {
+          break;
+        }
+        final Variant newVariant = store.createNewVariant(offspring.gene, offspring.element);
+        if (newVariant != null) {
+          newVariants.add(newVariant);
+        } else {
+          duplicatedOffsprings.add(offspring);
+        }
+      }
+    }
+
+    for (final Offspring offspring : duplicatedOffsprings) {
+      if (newVariants.size() >= count) {
+        break;
+      }
+      newVariants.add(store.createVariant(offspring.gene, offspring.element));
+    }
+    return newVariants;
+  }
+
+  private List<Offspring> makeOffsprings(final List<Variant> variants) {
     final Variant variantA = selectFirstVariant(variants);
     final Variant variantB = selectSecondVariant(variants, variantA);
     final Gene geneA = variantA.getGene();
@@ -68,11 +110,9 @@ public class SinglePointCrossover implements Crossover {
     final Gene newGeneB = makeGene(basesB.subList(0, index), basesA.subList(index, basesA.size()));
     final HistoricalElement elementA = new CrossoverHistoricalElement(variantA, variantB, index);
     final HistoricalElement elementB = new CrossoverHistoricalElement(variantB, variantA, index);
-    return Arrays.asList(store.createVariant(newGeneA, elementA),
-        store.createVariant(newGeneB, elementB));
+    return Arrays.asList(new Offspring(newGeneA, elementA), new Offspring(newGeneB, elementB));
   }
 
-
   /**
    * 一つ目のバリアントを選ぶためのメソッド．
    * 
@@ -111,4 +151,18 @@ public class SinglePointCrossover implements Crossover {
     bases.addAll(basesB);
     return new Gene(bases);
   }
+
+  /**
+   * 交叉により得た，まだ個体にしていない子の遺伝子と履歴
+   */
+  private static class Offspring {
+
+    private final Gene gene;
+    private final HistoricalElement element;
+
+    private Offspring(final Gene gene, final HistoricalElement element) {
+      this.gene = gene;
+      this.element = element;
+    }
+  }
 }
@@ -11,6 +11,9 @@ import jp.kusumotolab.kgenprog.project.ProductSourcePath;
 
 public abstract class Mutation {
 
+  // 既知のプログラムになった場合に，1つの個体の生成をやり直す回数の上限
+  protected static final int MAX_RETRY_COUNT = 10;
+
   protected final Random random;
   protected final int mutationGeneratingCount;
   protected final CandidateSelection candidateSelection;
@@ -57,11 +57,22 @@ public class RandomMutation extends Mutation {
       final Roulette<Suspiciousness> roulette =
           new Roulette<>(suspiciousnesses, weightFunction, random);
 
-      final Suspiciousness suspiciousness = roulette.exec();
-      final Base base = makeBase(suspiciousness);
-      final Gene gene = makeGene(variant.getGene(), base);
-      final HistoricalElement element = new MutationHistoricalElement(variant, base);
-      generatedVariants.add(variantStore.createVariant(gene, element));
+      // 既知のプログラムになった場合は別の塩基で生成し直す．
+      // 生成し直せなかった場合は，最後の塩基による既知のプログラムの評価結果を引き継いだ個体を次世代に加える
+      Gene gene = null;
+      HistoricalElement element = null;
+      Variant newVariant = null;
+      for (int retry = 0; retry <= MAX_RETRY_COUNT && newVariant == null; retry++) {
+        final Suspiciousness suspiciousness = roulette.exec();
+        final Base base = makeBase(suspiciousness);
+        gene = makeGene(variant.getGene(), base);
+        element = new MutationHistoricalElement(variant, base);
+        newVariant = variantStore.createNewVariant(gene, element);
+      }
+      if (newVariant == null) {
+        newVariant = variantStore.createVariant(gene, element);
+      }
+      generatedVariants.add(newVariant);
     }
 
     return generatedVariants;
@@ -4,6 +4,7 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import jp.kusumotolab.kgenprog.ga.validation.Fitness;
 import jp.kusumotolab.kgenprog.ga.variant.Variant;
 
 public class DefaultVariantSelection implements VariantSelection {
@@ -22,4 +23,19 @@ public class DefaultVariantSelection implements VariantSelection {
         .collect(Collectors.toList());
     return list;
   }
+
+  /**
+   * currentが定員を満たしていれば，その最低の適合度を下回る個体は選ばれない．
+   */
+  @Override
+  public double getSelectionCutoff(final List<Variant> current) {
+    if (current.size() < maxVariantsPerGeneration) {
+      return Double.NaN;
+    }
+    return current.stream()
+        .map(Variant::getFitness)
+        .min(Comparator.naturalOrder())
+        .map(Fitness::getValue)
+        .orElse(Double.NaN);
+  }
 }
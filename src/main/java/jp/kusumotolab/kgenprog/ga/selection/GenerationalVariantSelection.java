@@ -20,4 +20,14 @@ public class GenerationalVariantSelection extends DefaultVariantSelection {
 
     return super.exec(variantsForSelection, generated);
   }
+
+  /**
+   * Fitness が 1.0 の個体は次の選択の候補から外れるため，それ以外の個体のみから下限を求める．
+   */
+  @Override
+  public double getSelectionCutoff(final List<Variant> current) {
+    return super.getSelectionCutoff(current.stream()
+        .filter(variant -> !variant.isCompleted())
+        .collect(Collectors.toList()));
+  }
 }
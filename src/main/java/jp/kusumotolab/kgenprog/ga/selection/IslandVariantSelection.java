@@ -0,0 +1,145 @@
+package jp.kusumotolab.kgenprog.ga.selection;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import jp.kusumotolab.kgenprog.ga.variant.HistoricalElement;
+import jp.kusumotolab.kgenprog.ga.variant.Variant;
+
+/**
+ * 島モデルによる選択．<br>
+ * 個体群をislandCount個の島に分け，島ごとに独立してDefaultVariantSelectionと同様の選択を行う．
+ * 生成された個体は最初の親と同じ島に属する．初期個体はいずれの島にも属さず，その子は島に順に振り分ける．<br>
+ * migrationInterval世代ごとに，各島で最も適合度の高い個体を隣の島へ移住させる．
+ * 島の間で個体を比べるのは移住の時のみであるため，島ごとに異なる局所解を探索できる．<br>
+ * 選ばれるために必要な適合度は島ごとに異なるため，選択の下限は定めない．
+ */
+public class IslandVariantSelection implements VariantSelection {
+
+  private final int islandCount;
+  private final int migrationInterval;
+  private final VariantSelection islandSelection;
+
+  // 個体のIDから個体の属する島を引く表
+  private final Map<Long, Integer> islands;
+  private int nextIsland;
+  private int lastMigrationGeneration;
+
+  /**
+   * @param maxVariantsPerGeneration 全島で1世代に残す個体の最大数
+   * @param islandCount 島の数
+   * @param migrationInterval 移住を行う世代の間隔
+   */
+  public IslandVariantSelection(final int maxVariantsPerGeneration, final int islandCount,
+      final int migrationInterval) {
+    this.islandCount = islandCount;
+    this.migrationInterval = migrationInterval;
+    this.islandSelection =
+        new DefaultVariantSelection(Math.max(1, maxVariantsPerGeneration / islandCount));
+    this.islands = new HashMap<>();
+    this.nextIsland = 0;
+    this.lastMigrationGeneration = 0;
+  }
+
+  @Override
+  public List<Variant> exec(final List<Variant> current, final List<Variant> generated) {
+    generated.forEach(this::assignIsland);
+
+    // 島ごとに選択する．初期個体はすべての島の選択候補とする
+    final Set<Variant> selectedVariants = new LinkedHashSet<>();
+    for (int island = 0; island < islandCount; island++) {
+      final List<Variant> islandCurrent = filter(current, island);
+      final List<Variant> islandGenerated = filter(generated, island);
+      if (islandCurrent.isEmpty() && islandGenerated.isEmpty()) {
+        continue;
+      }
+      selectedVariants.addAll(islandSelection.exec(islandCurrent, islandGenerated));
+    }
+
+    final List<Variant> nextVariants = new ArrayList<>(selectedVariants);
+    if (reachedMigration(generated)) {
+      migrate(nextVariants);
+    }
+    return nextVariants;
+  }
+
+  /**
+   * 個体の属する島を返す．
+   *
+   * @param variant
+   * @return いずれの島にも属さない場合は-1
+   */
+  int getIsland(final Variant variant) {
+    return islands.getOrDefault(variant.getId(), -1);
+  }
+
+  private void assignIsland(final Variant variant) {
+    if (islands.containsKey(variant.getId())) {
+      return;
+    }
+    final HistoricalElement element = variant.getHistoricalElement();
+    final int parentIsland = element == null ? -1
+        : element.getParents()
+            .stream()
+            .mapToInt(this::getIsland)
+            .filter(i -> 0 <= i)
+            .findFirst()
+            .orElse(-1);
+    if (0 <= parentIsland) {
+      islands.put(variant.getId(), parentIsland);
+    } else {
+      islands.put(variant.getId(), nextIsland);
+      nextIsland = (nextIsland + 1) % islandCount;
+    }
+  }
+
+  private List<Variant> filter(final List<Variant> variants, final int island) {
+    return variants.stream()
+        .filter(v -> {
+          final int i = getIsland(v);
+          return i == island || i < 0;
+        })
+        .collect(Collectors.toList());
+  }
+
+  // 定常状態GAでは1世代の中で何度も選択が行われるため，選択の回数ではなく個体の世代番号で間隔を測る
+  private boolean reachedMigration(final List<Variant> generated) {
+    final int generation = generated.stream()
+        .mapToInt(v -> v.getGenerationNumber()
+            .get())
+        .max()
+        .orElse(lastMigrationGeneration);
+    if (generation - lastMigrationGeneration < migrationInterval) {
+      return false;
+    }
+    lastMigrationGeneration = generation;
+    return true;
+  }
+
+  /**
+   * 各島で最も適合度の高い個体を，環状に並べた隣の島へ移す．
+   *
+   * @param variants 全島の個体
+   */
+  private void migrate(final List<Variant> variants) {
+    if (islandCount < 2) {
+      return;
+    }
+    final List<Variant> emigrants = new ArrayList<>();
+    for (int island = 0; island < islandCount; island++) {
+      final int i = island;
+      variants.stream()
+          .filter(v -> getIsland(v) == i)
+          .max(Comparator.comparing(Variant::getFitness))
+          .ifPresent(emigrants::add);
+    }
+    for (final Variant emigrant : emigrants) {
+      islands.put(emigrant.getId(), (getIsland(emigrant) + 1) % islandCount);
+    }
+  }
+}
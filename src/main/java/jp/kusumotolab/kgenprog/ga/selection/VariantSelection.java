@@ -6,4 +6,15 @@ import jp.kusumotolab.kgenprog.ga.variant.Variant;
 public interface VariantSelection {
 
   List<Variant> exec(List<Variant> current, List<Variant> generated);
+
+  /**
+   * 次の選択で選ばれるために必要な適合度の下限を返す．この値を下回る個体は，currentと共に選択にかけても選ばれない．<br>
+   * fail-fastによるテスト実行の打ち切りに用いる．下限を定められない選択方式ではNaNを返すこと．
+   *
+   * @param current exec により選ばれた個体群
+   * @return 適合度の下限．定められない場合はNaN
+   */
+  default double getSelectionCutoff(final List<Variant> current) {
+    return Double.NaN;
+  }
 }
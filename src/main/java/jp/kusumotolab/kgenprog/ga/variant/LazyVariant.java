@@ -13,6 +13,7 @@ public class LazyVariant extends Variant {
   private Single<TestResults> testResultsSingle;
   private Single<Fitness> fitnessSingle;
   private Single<List<Suspiciousness>> suspiciousnessListSingle;
+  private Single<Variant> evaluatedSingle;
 
   public LazyVariant(final long id, final int generationNumber, final Gene gene,
       final GeneratedSourceCode generatedSourceCode, final HistoricalElement historicalElement) {
@@ -42,6 +43,18 @@ public class LazyVariant extends Variant {
     this.suspiciousnessListSingle = suspiciousnessListSingle;
   }
 
+  void setEvaluatedSingle(final Single<Variant> evaluatedSingle) {
+    this.evaluatedSingle = evaluatedSingle;
+  }
+
+  @Override
+  public Single<Variant> getEvaluatedSingle() {
+    if (evaluatedSingle == null) {
+      return super.getEvaluatedSingle();
+    }
+    return evaluatedSingle;
+  }
+
   @Override
   public boolean isCompleted() {
     return fitnessSingle.blockingGet()
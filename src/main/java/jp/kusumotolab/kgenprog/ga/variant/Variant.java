@@ -1,6 +1,7 @@
 package jp.kusumotolab.kgenprog.ga.variant;
 
 import java.util.List;
+import io.reactivex.Single;
 import jp.kusumotolab.kgenprog.OrdinalNumber;
 import jp.kusumotolab.kgenprog.fl.Suspiciousness;
 import jp.kusumotolab.kgenprog.ga.validation.Fitness;
@@ -38,6 +39,16 @@ public class Variant {
     return fitness.isMaximum();
   }
 
+  /**
+   * 評価（テスト，適合度，および疑惑値の計算）を終えた時点で自身を発行するSingleを返す．<br>
+   * 購読してもブロックしないため，評価を待たずに評価済みの個体を受け取りたい場合に用いる．
+   *
+   * @return
+   */
+  public Single<Variant> getEvaluatedSingle() {
+    return Single.just(this);
+  }
+
   public long getId(){
     return id;
   }
@@ -6,6 +6,8 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import io.reactivex.Single;
 import jp.kusumotolab.kgenprog.Configuration;
 import jp.kusumotolab.kgenprog.Counter;
@@ -13,10 +15,10 @@ import jp.kusumotolab.kgenprog.OrdinalNumber;
 import jp.kusumotolab.kgenprog.Strategies;
 import jp.kusumotolab.kgenprog.fl.Suspiciousness;
 import jp.kusumotolab.kgenprog.ga.validation.Fitness;
+import jp.kusumotolab.kgenprog.project.DuplicatedSourceCode;
 import jp.kusumotolab.kgenprog.project.GeneratedSourceCode;
-import jp.kusumotolab.kgenprog.project.Operation;
-import jp.kusumotolab.kgenprog.project.jdt.InsertTimeoutRuleFieldOperation;
 import jp.kusumotolab.kgenprog.project.test.TestResults;
+import jp.kusumotolab.kgenprog.project.test.TestTimeLimits;
 
 public class VariantStore {
 
@@ -30,11 +32,16 @@ public class VariantStore {
   private final OrdinalNumber generation;
   private final Counter variantCounter;
 
+  // ソースコードのダイジェストから，そのソースコードを持つ最初の個体を引く表．
+  // 同じプログラムの個体は評価結果をこの個体から引き継ぐ．評価し直した個体に評価を終えたスレッドから差し替える
+  private final Map<String, Variant> variantMemo;
+
   public VariantStore(final Configuration config, final Strategies strategies) {
     this.config = config;
     this.strategies = strategies;
 
     variantCounter = new Counter();
+    variantMemo = new ConcurrentHashMap<>();
     generation = new OrdinalNumber(0);
     initialVariant = createInitialVariant();
     currentVariants = Collections.singletonList(initialVariant);
@@ -43,6 +50,16 @@ public class VariantStore {
     generatedVariants = new ArrayList<>();
     foundSolutions = new ArrayList<>();
     generation.incrementAndGet();
+
+    if (config.usesAdaptiveTestTimeLimit()) {
+      // 初期個体で計測したテストメソッドごとの実行時間から，以降の個体の制限時間を定める
+      strategies.setTestTimeLimits(
+          TestTimeLimits.create(initialVariant.getTestResults(), config.getTestTimeLimit()));
+    }
+    if (config.usesTestPrioritization()) {
+      // 初期個体で失敗したテストや実行時間の短いテストを，以降の個体で先に実行する
+      strategies.setOriginalTestResults(initialVariant.getTestResults());
+    }
   }
 
   /**
@@ -61,13 +78,51 @@ public class VariantStore {
     foundSolutions = new ArrayList<>();
     generation = new OrdinalNumber(1);
     variantCounter = new Counter(1);
+    variantMemo = new ConcurrentHashMap<>();
   }
 
+  /**
+   * 遺伝子から個体を生成する．<br>
+   * 既に生成された個体と同じプログラムになった場合は，テストを実行せずにその個体の評価結果を引き継いだ個体を返す．
+   *
+   * @param gene
+   * @param element
+   * @return
+   * @see #createNewVariant(Gene, HistoricalElement)
+   */
   public Variant createVariant(final Gene gene, final HistoricalElement element) {
     final GeneratedSourceCode sourceCode = strategies.execSourceCodeGeneration(this, gene);
+    final Variant memoizedVariant = findMemoizedVariant(sourceCode);
+    if (memoizedVariant != null) {
+      return createMemoizedVariant(gene, memoizedVariant, element);
+    }
+    return createVariant(gene, sourceCode, element);
+  }
+
+  /**
+   * 遺伝子から，既に生成された個体と異なるプログラムの個体のみを生成する．<br>
+   * 変異や交叉はnullが返った場合に別の塩基で生成し直すことで，新しいプログラムのみに評価の予算を使える．
+   * 生成し直せなかった場合は {@link #createVariant(Gene, HistoricalElement)} で評価結果を引き継いだ個体を生成すること．
+   *
+   * @param gene
+   * @param element
+   * @return 既に生成された個体と同じプログラムになった場合はnull
+   */
+  public Variant createNewVariant(final Gene gene, final HistoricalElement element) {
+    final GeneratedSourceCode sourceCode = strategies.execSourceCodeGeneration(this, gene);
+    if (findMemoizedVariant(sourceCode) != null) {
+      return null;
+    }
     return createVariant(gene, sourceCode, element);
   }
 
+  private Variant findMemoizedVariant(final GeneratedSourceCode sourceCode) {
+    if (!(sourceCode instanceof DuplicatedSourceCode)) {
+      return null;
+    }
+    return variantMemo.get(((DuplicatedSourceCode) sourceCode).getDuplicatedMessageDigest());
+  }
+
   public Variant getInitialVariant() {
     return initialVariant;
   }
@@ -143,23 +198,49 @@ public class VariantStore {
    * また，generatedVariantsをclearする
    */
   public void proceedNextGeneration() {
+    selectNextVariants();
+    generation.incrementAndGet();
+  }
 
+  /**
+   * 定常状態GA用．評価を終えた個体を取り込み，現世代の個体と合わせてVariantSelectionを実行する．<br>
+   * 世代の評価がすべて終わるのを待たずに，評価を終えた個体から順に個体群に加えるために用いる．世代番号は進めない．
+   *
+   * @param variants 評価を終えた個体
+   * @see #proceedGenerationNumber()
+   */
+  public void mergeEvaluatedVariants(final Collection<? extends Variant> variants) {
+    addGeneratedVariants(variants);
+    selectNextVariants();
+  }
+
+  /**
+   * 定常状態GA用．VariantSelectionを実行せずに世代番号のみを進める．<br>
+   * 以降に生成される個体は次の世代の個体となる．
+   */
+  public void proceedGenerationNumber() {
+    generation.incrementAndGet();
+  }
+
+  private void selectNextVariants() {
     final List<Variant> nextVariants =
         strategies.execVariantSelection(currentVariants, generatedVariants);
     nextVariants.forEach(Variant::incrementSelectionCount);
-    generation.incrementAndGet();
 
     currentVariants = nextVariants;
     generatedVariants = new ArrayList<>();
+
+    if (config.usesFailFast()) {
+      // DefaultCodeValidationでは適合度はテストの成功率に等しいため，選択の下限をテスト実行の打ち切りにそのまま用いる
+      strategies.setSelectionCutoff(strategies.getSelectionCutoff(currentVariants));
+    }
   }
 
   private Variant createInitialVariant() {
+    // テストの制限時間はTestExecutorが監視するため，テストのソースコードは書き換えない
     final GeneratedSourceCode sourceCode =
         strategies.execASTConstruction(config.getTargetProject());
-    final Operation operation =
-        new InsertTimeoutRuleFieldOperation(config.getTestTimeLimitSeconds());
-    final GeneratedSourceCode appliedSourceCode = operation.apply(sourceCode, null);
-    return createVariant(new Gene(Collections.emptyList()), appliedSourceCode,
+    return createVariant(new Gene(Collections.emptyList()), sourceCode,
         new OriginalHistoricalElement());
   }
 
@@ -168,6 +249,17 @@ public class VariantStore {
 
     final LazyVariant variant = new LazyVariant(variantCounter.getAndIncrement(),
         generation.get(), gene, sourceCode, element);
+    if (sourceCode.isGenerationSuccess()) {
+      variantMemo.putIfAbsent(sourceCode.getMessageDigest(), variant);
+    }
+    evaluate(variant, sourceCode);
+    return variant;
+  }
+
+  /**
+   * variantのテストを実行し，適合度と疑惑値を求める．
+   */
+  private void evaluate(final LazyVariant variant, final GeneratedSourceCode sourceCode) {
     final Single<Variant> variantSingle = Single.just(variant)
         .cast(Variant.class)
         .cache();
@@ -186,8 +278,48 @@ public class VariantStore {
         .cache();
     variant.setSuspiciousnessListSingle(suspiciousnessListSingle);
 
+    // テストを実行したスレッドで適合度と疑惑値まで求めてから発行する
+    final Single<Variant> evaluatedSingle = resultsSingle.flatMap(r -> fitnessSingle)
+        .flatMap(f -> suspiciousnessListSingle)
+        .map(s -> (Variant) variant)
+        .cache();
+    variant.setEvaluatedSingle(evaluatedSingle);
+
     variant.subscribe();
+  }
 
+  /**
+   * memoizedVariantの評価結果を引き継いだ個体を生成する．<br>
+   * テストは実行しない．評価結果はmemoizedVariantの評価を終えた時点で取り出す．<br>
+   * ただし，fail-fastにより打ち切られた可能性のある結果は引き継がずに評価し直し，以降の重複はその結果から引き継ぐ．
+   */
+  private Variant createMemoizedVariant(final Gene gene, final Variant memoizedVariant,
+      final HistoricalElement element) {
+    final long id = variantCounter.getAndIncrement();
+    final int generationNumber = generation.get();
+    final GeneratedSourceCode sourceCode = memoizedVariant.getGeneratedSourceCode();
+    final LazyVariant variant = new LazyVariant(id, generationNumber, gene, sourceCode, element);
+    final Single<Variant> evaluatedSingle = memoizedVariant.getEvaluatedSingle()
+        .flatMap(v -> {
+          if (!v.getTestResults()
+              .mayHaveStopped()) {
+            return Single.just(v);
+          }
+          final LazyVariant reevaluatedVariant =
+              new LazyVariant(id, generationNumber, gene, sourceCode, element);
+          evaluate(reevaluatedVariant, sourceCode);
+          variantMemo.replace(sourceCode.getMessageDigest(), memoizedVariant, reevaluatedVariant);
+          return reevaluatedVariant.getEvaluatedSingle();
+        })
+        .cache();
+    variant.setTestResultsSingle(evaluatedSingle.map(Variant::getTestResults)
+        .cache());
+    variant.setFitnessSingle(evaluatedSingle.map(Variant::getFitness)
+        .cache());
+    variant.setSuspiciousnessListSingle(evaluatedSingle.map(Variant::getSuspiciousnesses)
+        .cache());
+    variant.setEvaluatedSingle(evaluatedSingle.map(v -> (Variant) variant)
+        .cache());
     return variant;
   }
 }
@@ -0,0 +1,25 @@
+package jp.kusumotolab.kgenprog.project;
+
+/**
+ * 既に生成されたソースコードと同じソースコードが生成されたことを表す GeneratedSourceCode．<br>
+ * 重複元のソースコードのダイジェストを保持するため，重複元の個体の評価結果を引くことができる．
+ */
+public class DuplicatedSourceCode extends GenerationFailedSourceCode {
+
+  private final String duplicatedMessageDigest;
+
+  /**
+   * @param duplicatedSourceCode 重複したソースコード
+   */
+  public DuplicatedSourceCode(final GeneratedSourceCode duplicatedSourceCode) {
+    super("duplicate sourcecode");
+    this.duplicatedMessageDigest = duplicatedSourceCode.getMessageDigest();
+  }
+
+  /**
+   * @return 重複したソースコードのダイジェスト
+   */
+  public String getDuplicatedMessageDigest() {
+    return duplicatedMessageDigest;
+  }
+}
@@ -1,24 +1,29 @@
 package jp.kusumotolab.kgenprog.project;
 
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 import org.apache.commons.codec.binary.Hex;
 
 /**
- * APR によって生成されたソースコード 複数ソースファイルの AST の集合を持つ
+ * APR によって生成されたソースコード 複数ソースファイルの AST の集合を持つ<br>
+ * ProductソースコードのASTは永続的な配列に保持し，ASTを置き換えた個体とは置き換えていないASTを共有する．
+ * ダイジェストも各ファイルのダイジェストの排他的論理和として保持し，置き換えたファイルの分のみを更新する．
+ * このため，{@link #replaceProductAst(GeneratedAST)}による個体の生成はファイル数によらず高速に済む．
  */
 public class GeneratedSourceCode {
 
   private static final String DIGEST_ALGORITHM = "MD5";
 
-  private final List<GeneratedAST<ProductSourcePath>> productAsts;
+  private final PersistentArray<GeneratedAST<ProductSourcePath>> productAsts;
   private final List<GeneratedAST<TestSourcePath>> testAsts;
-  private final Map<SourcePath, GeneratedAST<ProductSourcePath>> pathToAst;
+  private final Map<SourcePath, Integer> pathToIndex;
+  private final byte[] digest;
   private final String messageDigest;
 
   /**
@@ -27,18 +32,69 @@ public class GeneratedSourceCode {
    */
   public GeneratedSourceCode(final List<GeneratedAST<ProductSourcePath>> productAsts,
       final List<GeneratedAST<TestSourcePath>> testAsts) {
+    this.productAsts = PersistentArray.of(productAsts);
+    this.testAsts = Collections.unmodifiableList(testAsts);
+
+    final Map<SourcePath, Integer> pathToIndex = new HashMap<>();
+    final byte[] digest = new byte[getDigestLength()];
+    for (int i = 0; i < productAsts.size(); i++) {
+      final GeneratedAST<ProductSourcePath> ast = productAsts.get(i);
+      pathToIndex.put(ast.getSourcePath(), i);
+      xor(digest, createMessageDigest(ast));
+    }
+    this.pathToIndex = Collections.unmodifiableMap(pathToIndex);
+    this.digest = digest;
+    this.messageDigest = Hex.encodeHexString(digest);
+  }
+
+  private GeneratedSourceCode(final PersistentArray<GeneratedAST<ProductSourcePath>> productAsts,
+      final List<GeneratedAST<TestSourcePath>> testAsts,
+      final Map<SourcePath, Integer> pathToIndex, final byte[] digest) {
     this.productAsts = productAsts;
     this.testAsts = testAsts;
-    pathToAst = productAsts.stream()
-        .collect(Collectors.toMap(GeneratedAST::getSourcePath, v -> v));
-    this.messageDigest = createMessageDigest();
+    this.pathToIndex = pathToIndex;
+    this.digest = digest;
+    this.messageDigest = Hex.encodeHexString(digest);
+  }
+
+  /**
+   * 同じパスのProductソースコードのASTを置き換えたソースコードを返す．このソースコードは変更しない．<br>
+   * 置き換えないASTは新しいソースコードと共有する．
+   *
+   * @param ast 新しいAST
+   * @return ASTを置き換えたソースコード
+   * @throws IllegalArgumentException astのパスのProductソースコードがない場合
+   */
+  public GeneratedSourceCode replaceProductAst(final GeneratedAST<ProductSourcePath> ast) {
+    final Integer index = pathToIndex.get(ast.getSourcePath());
+    if (index == null) {
+      throw new IllegalArgumentException("no product source: " + ast.getSourcePath());
+    }
+
+    final byte[] newDigest = digest.clone();
+    xor(newDigest, createMessageDigest(productAsts.get(index)));
+    xor(newDigest, createMessageDigest(ast));
+    return new GeneratedSourceCode(productAsts.replace(index, ast), testAsts, pathToIndex,
+        newDigest);
   }
 
+  /**
+   * ProductソースコードとTestソースコードのASTを連結したListを返す．要素は複製しない．
+   */
   public List<GeneratedAST<?>> getAllAsts() {
-    final List<GeneratedAST<?>> list = new ArrayList<>();
-    list.addAll(productAsts);
-    list.addAll(testAsts);
-    return list;
+    return new AbstractList<GeneratedAST<?>>() {
+
+      @Override
+      public GeneratedAST<?> get(final int index) {
+        final int productSize = productAsts.size();
+        return index < productSize ? productAsts.get(index) : testAsts.get(index - productSize);
+      }
+
+      @Override
+      public int size() {
+        return productAsts.size() + testAsts.size();
+      }
+    };
   }
 
   public List<GeneratedAST<ProductSourcePath>> getProductAsts() {
@@ -52,8 +108,9 @@ public class GeneratedSourceCode {
   /**
    * 引数のソースコードに対応するASTを取得する
    */
-  public GeneratedAST<ProductSourcePath> getProductAst(final ProductSourcePath path) {
-    return pathToAst.get(path);
+  public GeneratedAST<ProductSourcePath> getProductAst(final SourcePath path) {
+    final Integer index = pathToIndex.get(path);
+    return index == null ? null : productAsts.get(index);
   }
 
   /**
@@ -75,21 +132,35 @@ public class GeneratedSourceCode {
     return "";
   }
 
-  private String createMessageDigest() {
-    try {
-      final MessageDigest digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
-
-      productAsts.stream()
-          .sorted(Comparator.comparing(v -> v.getSourcePath()
-              .toString()))
-          .map(GeneratedAST::getMessageDigest)
-          .map(String::getBytes)
-          .forEach(digest::update);
-
-      return Hex.encodeHexString(digest.digest());
+  /**
+   * 1ファイル分のダイジェストを求める．ファイルの中身を入れ替えた場合も区別できるよう，パスも含める．
+   */
+  private static byte[] createMessageDigest(final GeneratedAST<ProductSourcePath> ast) {
+    final MessageDigest digest = createMessageDigest();
+    digest.update(ast.getSourcePath()
+        .toString()
+        .getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+    digest.update(ast.getMessageDigest()
+        .getBytes(StandardCharsets.UTF_8));
+    return digest.digest();
+  }
 
+  private static MessageDigest createMessageDigest() {
+    try {
+      return MessageDigest.getInstance(DIGEST_ALGORITHM);
     } catch (final NoSuchAlgorithmException e) {
       throw new RuntimeException(e);
     }
   }
+
+  private static int getDigestLength() {
+    return createMessageDigest().getDigestLength();
+  }
+
+  private static void xor(final byte[] target, final byte[] operand) {
+    for (int i = 0; i < target.length; i++) {
+      target[i] ^= operand[i];
+    }
+  }
 }
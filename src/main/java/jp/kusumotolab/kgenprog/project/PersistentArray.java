@@ -0,0 +1,101 @@
+package jp.kusumotolab.kgenprog.project;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * 要素を置き換えるたびに新しい配列を返す，変更不可能な固定長の配列．<br>
+ * 要素を32分木のトライの葉に並べて保持する．置き換えでは根から置き換える要素までの節のみを複製し，
+ * 残りの節は元の配列と共有するため，置き換えも添字による参照もO(log32 n)で済む．
+ *
+ * @param <E> 要素の型
+ */
+final class PersistentArray<E> extends AbstractList<E> implements RandomAccess {
+
+  private static final int BITS = 5;
+  private static final int WIDTH = 1 << BITS;
+  private static final int MASK = WIDTH - 1;
+
+  private final Object[] root;
+  private final int shift;
+  private final int size;
+
+  private PersistentArray(final Object[] root, final int shift, final int size) {
+    this.root = root;
+    this.shift = shift;
+    this.size = size;
+  }
+
+  /**
+   * @param elements 配列の要素
+   * @return elementsと同じ順に要素を並べた配列
+   */
+  static <E> PersistentArray<E> of(final List<? extends E> elements) {
+    List<Object[]> nodes = split(elements.toArray());
+    int shift = 0;
+    while (nodes.size() > 1) {
+      nodes = split(nodes.toArray());
+      shift += BITS;
+    }
+    final Object[] root = nodes.isEmpty() ? new Object[0] : nodes.get(0);
+    return new PersistentArray<>(root, shift, elements.size());
+  }
+
+  // 節を左から詰めてWIDTH個ずつに分ける
+  private static List<Object[]> split(final Object[] items) {
+    final List<Object[]> nodes = new ArrayList<>();
+    for (int i = 0; i < items.length; i += WIDTH) {
+      nodes.add(Arrays.copyOfRange(items, i, Math.min(i + WIDTH, items.length)));
+    }
+    return nodes;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public E get(final int index) {
+    checkIndex(index);
+    Object[] node = root;
+    for (int level = shift; level > 0; level -= BITS) {
+      node = (Object[]) node[(index >>> level) & MASK];
+    }
+    return (E) node[index & MASK];
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /**
+   * 指定した添字の要素を置き換えた配列を返す．この配列は変更しない．
+   *
+   * @param index 置き換える要素の添字
+   * @param element 新しい要素
+   * @return 置き換えた配列
+   */
+  PersistentArray<E> replace(final int index, final E element) {
+    checkIndex(index);
+    return new PersistentArray<>(replace(root, shift, index, element), shift, size);
+  }
+
+  private static Object[] replace(final Object[] node, final int level, final int index,
+      final Object element) {
+    final Object[] copy = node.clone();
+    if (level == 0) {
+      copy[index & MASK] = element;
+    } else {
+      final int child = (index >>> level) & MASK;
+      copy[child] = replace((Object[]) node[child], level - BITS, index, element);
+    }
+    return copy;
+  }
+
+  private void checkIndex(final int index) {
+    if (index < 0 || size <= index) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+  }
+}
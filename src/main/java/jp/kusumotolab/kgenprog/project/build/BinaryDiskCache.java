@@ -0,0 +1,183 @@
+package jp.kusumotolab.kgenprog.project.build;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.commons.codec.binary.Hex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import jp.kusumotolab.kgenprog.project.ClassPath;
+import jp.kusumotolab.kgenprog.project.FullyQualifiedName;
+import jp.kusumotolab.kgenprog.project.GeneratedAST;
+import jp.kusumotolab.kgenprog.project.SourcePath;
+import jp.kusumotolab.kgenprog.project.TargetFullyQualifiedName;
+import jp.kusumotolab.kgenprog.project.TestFullyQualifiedName;
+import jp.kusumotolab.kgenprog.project.TestSourcePath;
+import jp.kusumotolab.kgenprog.project.factory.TargetProject;
+
+/**
+ * 実行をまたいで再利用されるコンパイル済みバイナリのディスク上のキャッシュ．<br>
+ * ソースコード1つから生成された全バイナリを，生成元のFQNとダイジェストをキーとする1つのファイルに格納する．
+ * キャッシュはビルド環境（JDK，コンパイラ，およびライブラリのクラスパス）のダイジェストごとに分けるため，
+ * 環境が変わった場合は古いバイナリが使われることはない．<br>
+ * 書き込みは一時ファイルからの移動で行うため，同じディレクトリを複数のkGenProgで共有してよい．スレッドセーフ．
+ */
+public class BinaryDiskCache {
+
+  private static final Logger log = LoggerFactory.getLogger(BinaryDiskCache.class);
+
+  private static final String DIGEST_ALGORITHM = "SHA-256";
+  private static final String EXTENSION = ".bin";
+
+  private final Path directory;
+
+  /**
+   * @param cacheDir キャッシュを格納するディレクトリ
+   * @param targetProject
+   * @param compiler ビルドに用いるコンパイラ
+   */
+  public BinaryDiskCache(final Path cacheDir, final TargetProject targetProject,
+      final ProjectBuilder.Compiler compiler) {
+    final String environmentDigest = createEnvironmentDigest(
+        System.getProperty("java.version") + compiler, targetProject.getClassPaths());
+    this.directory = cacheDir.resolve("binaries")
+        .resolve(environmentDigest);
+  }
+
+  /**
+   * 指定astから生成されたバイナリをキャッシュから読み込む．
+   *
+   * @param ast
+   * @return キャッシュされていない場合は空のリスト
+   */
+  public List<JavaBinaryObject> load(final GeneratedAST<?> ast) {
+    final Path file = resolve(ast.getPrimaryClassName(), ast.getMessageDigest());
+    if (!Files.isRegularFile(file)) {
+      return Collections.emptyList();
+    }
+
+    final boolean isTest = ast.getSourcePath()
+        .getClass() == TestSourcePath.class;
+    final List<JavaBinaryObject> binaries = new ArrayList<>();
+    try (final DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+      final int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        final String name = in.readUTF();
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        binaries.add(createJavaBinaryObject(name, ast.getPrimaryClassName(),
+            ast.getMessageDigest(), ast.getSourcePath(), isTest, bytes));
+      }
+    } catch (final IOException e) {
+      // 壊れたキャッシュは無視してコンパイルし直す
+      log.warn("failed to read the binary cache: " + file, e);
+      return Collections.emptyList();
+    }
+    return binaries;
+  }
+
+  /**
+   * バイナリをキャッシュに書き込む．生成元のソースコードごとにまとめて1つのファイルに格納する．<br>
+   * 生成元のソースコードから生成された全バイナリを与えること．
+   *
+   * @param binaries
+   */
+  public void save(final Collection<JavaBinaryObject> binaries) {
+    final Map<Path, List<JavaBinaryObject>> files = binaries.stream()
+        .collect(Collectors.groupingBy(b -> resolve(b.getOriginFqn(), b.getOriginDigest())));
+    files.forEach(this::write);
+  }
+
+  private void write(final Path file, final List<JavaBinaryObject> binaries) {
+    try {
+      Files.createDirectories(file.getParent());
+      final Path temporaryFile = Files.createTempFile(file.getParent(), null, null);
+      try (final DataOutputStream out =
+          new DataOutputStream(Files.newOutputStream(temporaryFile))) {
+        out.writeInt(binaries.size());
+        for (final JavaBinaryObject binary : binaries) {
+          final byte[] bytes = binary.getByteCode();
+          out.writeUTF(binary.getFqn().value);
+          out.writeInt(bytes.length);
+          out.write(bytes);
+        }
+      }
+      Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (final IOException e) {
+      // キャッシュに書けなくても探索は続けられる
+      log.warn("failed to write the binary cache: " + file, e);
+    }
+  }
+
+  private Path resolve(final FullyQualifiedName originFqn, final String originDigest) {
+    return directory.resolve(originFqn.value)
+        .resolve(originDigest + EXTENSION);
+  }
+
+  private JavaBinaryObject createJavaBinaryObject(final String name,
+      final FullyQualifiedName originFqn, final String originDigest, final SourcePath originPath,
+      final boolean isTest, final byte[] bytes) throws IOException {
+    final FullyQualifiedName fqn =
+        isTest ? new TestFullyQualifiedName(name) : new TargetFullyQualifiedName(name);
+    final JavaBinaryObject jbo =
+        new JavaBinaryObject(fqn, originFqn, originDigest, originPath, isTest);
+    try (final OutputStream out = jbo.openOutputStream()) {
+      out.write(bytes);
+    }
+    return jbo;
+  }
+
+  /**
+   * ビルドや実行の結果を左右する環境のダイジェストを生成する．<br>
+   * クラスパスは各ファイルのパス，サイズ，および更新時刻から求めるため，ライブラリが更新されるとダイジェストが変わる．
+   *
+   * @param environment クラスパス以外に環境を識別する文字列
+   * @param classPaths
+   * @return
+   */
+  public static String createEnvironmentDigest(final String environment,
+      final List<ClassPath> classPaths) {
+    try {
+      final MessageDigest digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+      digest.update(environment.getBytes(StandardCharsets.UTF_8));
+      for (final ClassPath classPath : classPaths) {
+        for (final Path file : listFiles(classPath.path)) {
+          final String attributes = file + ":" + Files.size(file) + ":"
+              + Files.getLastModifiedTime(file)
+                  .toMillis();
+          digest.update(attributes.getBytes(StandardCharsets.UTF_8));
+        }
+      }
+      return Hex.encodeHexString(digest.digest());
+    } catch (final NoSuchAlgorithmException | IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static List<Path> listFiles(final Path path) throws IOException {
+    if (!Files.isDirectory(path)) {
+      return Files.isRegularFile(path) ? Collections.singletonList(path)
+          : Collections.emptyList();
+    }
+    try (final Stream<Path> stream = Files.walk(path)) {
+      return stream.filter(Files::isRegularFile)
+          .sorted()
+          .collect(Collectors.toList());
+    }
+  }
+}
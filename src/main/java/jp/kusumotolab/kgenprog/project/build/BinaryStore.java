@@ -1,19 +1,17 @@
 package jp.kusumotolab.kgenprog.project.build;
 
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Multimap;
+import java.util.concurrent.ConcurrentHashMap;
 import jp.kusumotolab.kgenprog.project.FullyQualifiedName;
 import jp.kusumotolab.kgenprog.project.SourcePath;
 
 /**
  * 差分ビルド + インメモリビルドのためのバイナリ格納庫．<br>
  * ビルド結果となるJavaMemoryObjectバイナリを保持する． <br>
+ * 複数のProjectBuilderから共有されるキャッシュとしても使えるよう，スレッドセーフに実装している．<br>
  * 
  * @author shinsuke
  *
@@ -25,21 +23,32 @@ public class BinaryStore {
 
   // 各要素へのアクセス高速化用map
   final private Map<FullyQualifiedName, JavaBinaryObject> fqnMap; // 1対1
-  final private Multimap<SourcePath, JavaBinaryObject> pathMap; // 1対多
-  final private Multimap<String, JavaBinaryObject> originMap; // 1対多
+  final private Map<SourcePath, Set<JavaBinaryObject>> pathMap; // 1対多
+  final private Map<String, Set<JavaBinaryObject>> originMap; // 1対多
+  final private Map<String, Set<JavaBinaryObject>> packageMap; // 1対多
 
   public BinaryStore() {
-    cache = new HashSet<>();
-    fqnMap = new HashMap<>();
-    pathMap = HashMultimap.create();
-    originMap = HashMultimap.create();
+    cache = ConcurrentHashMap.newKeySet();
+    fqnMap = new ConcurrentHashMap<>();
+    pathMap = new ConcurrentHashMap<>();
+    originMap = new ConcurrentHashMap<>();
+    packageMap = new ConcurrentHashMap<>();
   }
 
   public void add(final JavaBinaryObject object) {
     cache.add(object);
     fqnMap.put(object.getFqn(), object);
-    pathMap.put(object.getOriginPath(), object);
-    originMap.put(object.getOriginFqn() + object.getOriginDigest(), object);
+    // ConcurrentHashMapはnullキーを許さないため，生成元パスを持たないバイナリは索引しない
+    if (object.getOriginPath() != null) {
+      pathMap.computeIfAbsent(object.getOriginPath(), k -> ConcurrentHashMap.newKeySet())
+          .add(object);
+    }
+    originMap.computeIfAbsent(object.getOriginFqn() + object.getOriginDigest(),
+        k -> ConcurrentHashMap.newKeySet())
+        .add(object);
+    packageMap.computeIfAbsent(object.getFqn()
+        .getPackageName(), k -> ConcurrentHashMap.newKeySet())
+        .add(object);
   }
 
   public Collection<JavaBinaryObject> getAll() {
@@ -47,7 +56,7 @@ public class BinaryStore {
   }
 
   public Collection<JavaBinaryObject> get(final FullyQualifiedName fqn, final String digest) {
-    return originMap.get(fqn + digest);
+    return originMap.getOrDefault(fqn + digest, Collections.emptySet());
   }
 
   public JavaBinaryObject get(final FullyQualifiedName fqn) {
@@ -55,19 +64,22 @@ public class BinaryStore {
   }
 
   public Collection<JavaBinaryObject> get(final SourcePath path) {
-    return pathMap.get(path);
+    return pathMap.getOrDefault(path, Collections.emptySet());
   }
 
   public boolean exists(final FullyQualifiedName fqn, final String digest) {
     return !get(fqn, digest).isEmpty();
   }
 
+  /**
+   * 指定したパッケージに直接属するバイナリを返す．サブパッケージのバイナリは含まない．<br>
+   * コンパイル中のクラスパスの解決のたびに呼ばれるため，全探索せずに索引から取り出す．
+   * 
+   * @param packageName パッケージ名
+   * @return
+   */
   public Collection<JavaBinaryObject> get(final String packageName) {
-    // パッケージ名による前方一致（≠完全一致）検索でありMapによる高速化がやりにくい．
-    // また，このメソッドはBinaryStoreの部分集合のみに行われるので計算コストは低め．よって全探索で探す．
-    return cache.parallelStream()
-        .filter(jbo -> jbo.getFqn().value.startsWith(packageName))
-        .collect(Collectors.toSet());
+    return packageMap.getOrDefault(packageName, Collections.emptySet());
   }
 
   public void removeAll() {
@@ -75,6 +87,7 @@ public class BinaryStore {
     fqnMap.clear();
     pathMap.clear();
     originMap.clear();
+    packageMap.clear();
   }
 
 }
@@ -22,7 +22,7 @@ public class BuildResults {
    * @param diagnostics ビルド時の詳細情報
    * @param buildProgressText ビルド実行時のテキスト出力
    */
-  protected BuildResults(final BinaryStore binaryStore,
+  public BuildResults(final BinaryStore binaryStore,
       final DiagnosticCollector<JavaFileObject> diagnostics, final String buildProgressText,
       final boolean isBuildFailed) {
     this.binaryStore = binaryStore;
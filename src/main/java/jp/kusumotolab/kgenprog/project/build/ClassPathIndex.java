@@ -0,0 +1,206 @@
+package jp.kusumotolab.kgenprog.project.build;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileManager.Location;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardLocation;
+import com.google.common.collect.Iterables;
+import jp.kusumotolab.kgenprog.project.ClassPath;
+
+/**
+ * ライブラリのクラスパス上のクラスファイルの索引．<br>
+ * クラスパス上のjarやディレクトリはビルド中に変化しないため，初回の参照時にパッケージごとのクラスファイルの一覧を一度だけ作る．
+ * 以降のlist()は索引を引くのみで，個体のビルドのたびにjarを読み直さずに済む．<br>
+ * 索引が返すJavaFileObjectは特定のFileManagerに依存しないため，
+ * 同じTargetProjectをビルドする複数のProjectBuilderで共有してよい．スレッドセーフ．
+ */
+public class ClassPathIndex {
+
+  private final List<ClassPath> classPaths;
+  private Map<String, List<JavaFileObject>> packages;
+
+  /**
+   * @param classPaths 索引を作るクラスパス
+   */
+  public ClassPathIndex(final List<ClassPath> classPaths) {
+    this.classPaths = new ArrayList<>(classPaths);
+  }
+
+  /**
+   * 指定したパッケージのファイルの一覧を返す．クラスパス上のクラスファイル以外はfileManagerに問い合わせる．
+   *
+   * @param fileManager クラスファイル以外の一覧の取得に用いるFileManager
+   * @param location
+   * @param packageName
+   * @param kinds
+   * @param recurse
+   * @return
+   * @throws IOException
+   * @see JavaFileManager#list(Location, String, Set, boolean)
+   */
+  Iterable<JavaFileObject> list(final JavaFileManager fileManager, final Location location,
+      final String packageName, final Set<Kind> kinds, final boolean recurse) throws IOException {
+    if (location != StandardLocation.CLASS_PATH || recurse || !kinds.contains(Kind.CLASS)) {
+      return fileManager.list(location, packageName, kinds, recurse);
+    }
+
+    final List<JavaFileObject> classFiles = getPackages().getOrDefault(packageName,
+        Collections.emptyList());
+    final Set<Kind> otherKinds = EnumSet.copyOf(kinds);
+    otherKinds.remove(Kind.CLASS);
+    if (otherKinds.isEmpty()) {
+      return classFiles;
+    }
+
+    // ソースファイル等はクラスパスから探すこともあるので，通常のFileManagerに問い合わせる
+    return Iterables.concat(classFiles,
+        fileManager.list(location, packageName, otherKinds, recurse));
+  }
+
+  /**
+   * 索引が返したJavaFileObjectのバイナリ名を返す．
+   *
+   * @param file
+   * @return 索引が返したJavaFileObjectでない場合はnull
+   */
+  String inferBinaryName(final JavaFileObject file) {
+    if (file.getClass() != ClassFileObject.class) {
+      return null;
+    }
+    return ((ClassFileObject) file).binaryName;
+  }
+
+  private synchronized Map<String, List<JavaFileObject>> getPackages() throws IOException {
+    if (packages != null) {
+      return packages;
+    }
+
+    // javacと同様に，同名のクラスはクラスパスの順で先に見つかったものが使われるよう順序を保つ
+    final Map<String, List<JavaFileObject>> index = new HashMap<>();
+    for (final ClassPath classPath : classPaths) {
+      final Path path = classPath.path;
+      if (Files.isDirectory(path)) {
+        indexDirectory(path, index);
+      } else if (Files.isRegularFile(path)) {
+        indexArchive(path, index);
+      }
+    }
+    index.replaceAll((k, v) -> Collections.unmodifiableList(v));
+    packages = index;
+    return packages;
+  }
+
+  private void indexDirectory(final Path directory, final Map<String, List<JavaFileObject>> index)
+      throws IOException {
+    final List<Path> classFiles;
+    try (final Stream<Path> stream = Files.walk(directory)) {
+      classFiles = stream.filter(p -> p.toString()
+          .endsWith(Kind.CLASS.extension))
+          .filter(Files::isRegularFile)
+          .collect(Collectors.toList());
+    }
+    for (final Path classFile : classFiles) {
+      final String entryName = directory.relativize(classFile)
+          .toString()
+          .replace(classFile.getFileSystem()
+              .getSeparator(), "/");
+      add(index, new ClassFileObject(entryName, classFile.toUri(),
+          Files.getLastModifiedTime(classFile)
+              .toMillis(),
+          () -> Files.newInputStream(classFile)));
+    }
+  }
+
+  private void indexArchive(final Path archive, final Map<String, List<JavaFileObject>> index)
+      throws IOException {
+    // アーカイブは索引の生存中は開いたままにする．ZipFileはスレッドセーフ
+    final ZipFile zipFile = new ZipFile(archive.toFile());
+    for (final ZipEntry entry : Collections.list(zipFile.entries())) {
+      final String entryName = entry.getName();
+      if (entry.isDirectory() || !entryName.endsWith(Kind.CLASS.extension)) {
+        continue;
+      }
+      // SimpleJavaFileObjectはパスを持たないjar:のURIを受け付けないため，jarのURIにエントリ名を連結する
+      final URI uri = URI.create(archive.toUri() + "!/" + entryName);
+      add(index, new ClassFileObject(entryName, uri, entry.getTime(),
+          () -> zipFile.getInputStream(entry)));
+    }
+  }
+
+  private void add(final Map<String, List<JavaFileObject>> index,
+      final ClassFileObject classFile) {
+    index.computeIfAbsent(classFile.packageName, k -> new ArrayList<>())
+        .add(classFile);
+  }
+
+  @FunctionalInterface
+  private interface InputStreamSupplier {
+
+    InputStream open() throws IOException;
+  }
+
+  /**
+   * クラスパス上のクラスファイル．中身は読み込みのたびにjarやディレクトリから取り出す．
+   */
+  private static class ClassFileObject extends SimpleJavaFileObject {
+
+    private final String binaryName;
+    private final String packageName;
+    private final String simpleName;
+    private final long lastModified;
+    private final InputStreamSupplier supplier;
+
+    /**
+     * @param entryName クラスパスの根からの相対パス（区切り文字は/）
+     * @param uri
+     * @param lastModified
+     * @param supplier 中身を読み込むInputStreamの生成方法
+     */
+    private ClassFileObject(final String entryName, final URI uri, final long lastModified,
+        final InputStreamSupplier supplier) {
+      super(uri, Kind.CLASS);
+      final String name =
+          entryName.substring(0, entryName.length() - Kind.CLASS.extension.length());
+      final int separator = name.lastIndexOf('/');
+      this.binaryName = name.replace('/', '.');
+      this.packageName = separator < 0 ? "" : binaryName.substring(0, separator);
+      this.simpleName = name.substring(separator + 1);
+      this.lastModified = lastModified;
+      this.supplier = supplier;
+    }
+
+    @Override
+    public InputStream openInputStream() throws IOException {
+      return supplier.open();
+    }
+
+    @Override
+    public long getLastModified() {
+      return lastModified;
+    }
+
+    // URIのパスではなく，クラスファイルの名前で判定する
+    @Override
+    public boolean isNameCompatible(final String simpleName, final Kind kind) {
+      return Kind.CLASS == kind && this.simpleName.equals(simpleName);
+    }
+  }
+}
@@ -0,0 +1,322 @@
+package jp.kusumotolab.kgenprog.project.build;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.DiagnosticListener;
+import javax.tools.JavaFileObject;
+import org.eclipse.jdt.core.compiler.CategorizedProblem;
+import org.eclipse.jdt.core.compiler.CharOperation;
+import org.eclipse.jdt.internal.compiler.ClassFile;
+import org.eclipse.jdt.internal.compiler.CompilationResult;
+import org.eclipse.jdt.internal.compiler.Compiler;
+import org.eclipse.jdt.internal.compiler.DefaultErrorHandlingPolicies;
+import org.eclipse.jdt.internal.compiler.batch.CompilationUnit;
+import org.eclipse.jdt.internal.compiler.batch.FileSystem;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFileReader;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFormatException;
+import org.eclipse.jdt.internal.compiler.env.INameEnvironment;
+import org.eclipse.jdt.internal.compiler.env.NameEnvironmentAnswer;
+import org.eclipse.jdt.internal.compiler.impl.CompilerOptions;
+import org.eclipse.jdt.internal.compiler.problem.DefaultProblemFactory;
+import jp.kusumotolab.kgenprog.project.FullyQualifiedName;
+import jp.kusumotolab.kgenprog.project.TargetFullyQualifiedName;
+import jp.kusumotolab.kgenprog.project.factory.TargetProject;
+
+/**
+ * Eclipse Compiler for Java（ECJ）をプロセス内で呼び出すコンパイラ．<br>
+ * javacとは異なりJavaFileManagerを介さず，コンパイル済みバイナリとライブラリのクラスパスを直接引く名前環境に対してコンパイルする．
+ * ライブラリのクラスパスの名前環境は生成時に一度だけ作り，以降のコンパイルで使い回す．<br>
+ * スレッドセーフではない．
+ */
+class EcjCompiler {
+
+  private final FileSystem libraryEnvironment;
+  private final CompilerOptions compilerOptions;
+
+  /**
+   * @param targetProject
+   */
+  EcjCompiler(final TargetProject targetProject) {
+    final List<String> classPaths = new ArrayList<>(getBootClassPaths());
+    targetProject.getClassPaths()
+        .stream()
+        .map(cp -> cp.path.toString())
+        .forEach(classPaths::add);
+    libraryEnvironment = new FileSystem(classPaths.toArray(new String[0]), null, "UTF-8");
+    compilerOptions = createCompilerOptions();
+  }
+
+  /**
+   * ソースコードをコンパイルし，生成されたバイナリをoutputBinariesに格納する．<br>
+   * エラーのあったソースコードのバイナリは格納しない．
+   *
+   * @param javaSourceObjects コンパイル対象のソースコード
+   * @param classPathBinaries コンパイル対象から参照されるコンパイル済みバイナリ
+   * @param outputBinaries 生成されたバイナリを格納するStore
+   * @param diagnostics 診断情報の格納先
+   * @param progress コンパイル状況の出力先
+   * @return エラーなくコンパイルできたか否か
+   */
+  boolean compile(final Collection<JavaSourceObject> javaSourceObjects,
+      final BinaryStore classPathBinaries, final BinaryStore outputBinaries,
+      final DiagnosticCollector<JavaFileObject> diagnostics, final Writer progress) {
+    final PrintWriter progressWriter = new PrintWriter(progress);
+    final List<SourceUnit> units = javaSourceObjects.stream()
+        .map(SourceUnit::new)
+        .collect(Collectors.toList());
+
+    final boolean[] success = {true};
+    final Compiler compiler = new Compiler(
+        new VariantNameEnvironment(javaSourceObjects, classPathBinaries),
+        DefaultErrorHandlingPolicies.proceedWithAllProblems(), compilerOptions, result -> {
+          final JavaSourceObject source = ((SourceUnit) result.getCompilationUnit()).source;
+          progressWriter.println("[compiled " + source.getName() + "]");
+          report(result, source, diagnostics);
+          if (result.hasErrors()) {
+            success[0] = false;
+            return;
+          }
+          for (final ClassFile classFile : result.getClassFiles()) {
+            final String name = CharOperation.toString(classFile.getCompoundName());
+            outputBinaries.add(createJavaBinaryObject(name, source, classFile.getBytes()));
+            progressWriter.println("[wrote " + name + "]");
+          }
+        }, new DefaultProblemFactory(Locale.getDefault()));
+
+    compiler.compile(units.toArray(new SourceUnit[0]));
+    progressWriter.flush();
+    return success[0];
+  }
+
+  private JavaBinaryObject createJavaBinaryObject(final String name,
+      final JavaSourceObject origin, final byte[] bytes) {
+    final JavaBinaryObject jbo = InMemoryFileManager.createJavaBinaryObject(name, origin);
+    try (final OutputStream out = jbo.openOutputStream()) {
+      out.write(bytes);
+    } catch (final IOException e) {
+      // メモリへの書き込みのため起こりえない
+      throw new IllegalStateException(e);
+    }
+    return jbo;
+  }
+
+  private void report(final CompilationResult result, final JavaSourceObject source,
+      final DiagnosticListener<JavaFileObject> diagnostics) {
+    if (result.getProblems() == null) {
+      return;
+    }
+    for (final CategorizedProblem problem : result.getProblems()) {
+      if (problem.isError() || problem.isWarning()) {
+        diagnostics.report(new ProblemDiagnostic(problem, source));
+      }
+    }
+  }
+
+  /**
+   * javacと同様にJava 8のソースとしてコンパイルし，行番号等のデバッグ情報を出力するオプションを生成する．<br>
+   * 行番号はJaCoCoによるカバレッジの計測に必要．
+   *
+   * @return
+   */
+  private CompilerOptions createCompilerOptions() {
+    final Map<String, String> settings = new HashMap<>();
+    settings.put(CompilerOptions.OPTION_Source, CompilerOptions.VERSION_1_8);
+    settings.put(CompilerOptions.OPTION_Compliance, CompilerOptions.VERSION_1_8);
+    settings.put(CompilerOptions.OPTION_TargetPlatform, CompilerOptions.VERSION_1_8);
+    settings.put(CompilerOptions.OPTION_Encoding, "UTF-8");
+    settings.put(CompilerOptions.OPTION_LineNumberAttribute, CompilerOptions.GENERATE);
+    settings.put(CompilerOptions.OPTION_SourceFileAttribute, CompilerOptions.GENERATE);
+    settings.put(CompilerOptions.OPTION_LocalVariableAttribute, CompilerOptions.GENERATE);
+    return new CompilerOptions(settings);
+  }
+
+  /**
+   * 実行中のJVMの標準ライブラリのクラスパスを返す．
+   *
+   * @return
+   */
+  private static List<String> getBootClassPaths() {
+    final String bootClassPath = System.getProperty("sun.boot.class.path");
+    if (bootClassPath != null) {
+      return Arrays.stream(bootClassPath.split(File.pathSeparator))
+          .filter(p -> Files.exists(Paths.get(p)))
+          .collect(Collectors.toList());
+    }
+
+    // Java 9以降はjrtファイルシステムから標準ライブラリを読む
+    final Path jrt = Paths.get(System.getProperty("java.home"), "lib", "jrt-fs.jar");
+    return Arrays.asList(jrt.toString());
+  }
+
+  /**
+   * コンパイル単位としてのJavaSourceObject．
+   */
+  private static class SourceUnit extends CompilationUnit {
+
+    private final JavaSourceObject source;
+
+    private SourceUnit(final JavaSourceObject source) {
+      // ECJはファイル名から主となる型の名前を推定するため，FQNからファイル名を作る
+      super(source.getCharContent(true)
+          .toString()
+          .toCharArray(),
+          source.getFqn().value.replace('.', '/') + JavaFileObject.Kind.SOURCE.extension,
+          "UTF-8");
+      this.source = source;
+    }
+  }
+
+  /**
+   * 1回のコンパイルでの名前環境．<br>
+   * コンパイル済みバイナリを優先して引き，見つからない型はライブラリのクラスパスから引く．
+   */
+  private class VariantNameEnvironment implements INameEnvironment {
+
+    private final BinaryStore classPathBinaries;
+    private final Set<String> packageNames;
+
+    private VariantNameEnvironment(final Collection<JavaSourceObject> javaSourceObjects,
+        final BinaryStore classPathBinaries) {
+      this.classPathBinaries = classPathBinaries;
+      this.packageNames = new HashSet<>();
+      javaSourceObjects.forEach(s -> addPackageName(s.getFqn()));
+      classPathBinaries.getAll()
+          .forEach(b -> addPackageName(b.getFqn()));
+    }
+
+    // 親パッケージもパッケージとして扱う
+    private void addPackageName(final FullyQualifiedName fqn) {
+      String packageName = fqn.getPackageName();
+      while (!packageName.isEmpty() && packageNames.add(packageName)) {
+        final int separator = packageName.lastIndexOf('.');
+        packageName = separator < 0 ? "" : packageName.substring(0, separator);
+      }
+    }
+
+    @Override
+    public NameEnvironmentAnswer findType(final char[][] compoundTypeName) {
+      final String name = CharOperation.toString(compoundTypeName);
+      final JavaBinaryObject binary =
+          classPathBinaries.get(new TargetFullyQualifiedName(name));
+      if (binary == null) {
+        return libraryEnvironment.findType(compoundTypeName);
+      }
+
+      try {
+        final char[] fileName = (name.replace('.', '/') + JavaFileObject.Kind.CLASS.extension)
+            .toCharArray();
+        return new NameEnvironmentAnswer(new ClassFileReader(binary.getByteCode(), fileName),
+            null);
+      } catch (final ClassFormatException e) {
+        return null;
+      }
+    }
+
+    @Override
+    public NameEnvironmentAnswer findType(final char[] typeName, final char[][] packageName) {
+      return findType(CharOperation.arrayConcat(packageName, typeName));
+    }
+
+    @Override
+    public boolean isPackage(final char[][] parentPackageName, final char[] packageName) {
+      final String name = parentPackageName == null || parentPackageName.length == 0
+          ? String.valueOf(packageName)
+          : CharOperation.toString(parentPackageName) + "." + String.valueOf(packageName);
+      if (packageNames.contains(name)) {
+        return true;
+      }
+      if (classPathBinaries.get(new TargetFullyQualifiedName(name)) != null) {
+        return false;
+      }
+      return libraryEnvironment.isPackage(parentPackageName, packageName);
+    }
+
+    @Override
+    public void cleanup() {
+      // ライブラリの名前環境は次回以降のコンパイルで使い回すため，ここでは何もしない
+    }
+  }
+
+  /**
+   * ECJの報告する問題をjavax.toolsの診断情報として表すアダプタ．
+   */
+  private static class ProblemDiagnostic implements Diagnostic<JavaFileObject> {
+
+    private final CategorizedProblem problem;
+    private final JavaFileObject source;
+
+    private ProblemDiagnostic(final CategorizedProblem problem, final JavaFileObject source) {
+      this.problem = problem;
+      this.source = source;
+    }
+
+    @Override
+    public Kind getKind() {
+      return problem.isError() ? Kind.ERROR : Kind.WARNING;
+    }
+
+    @Override
+    public JavaFileObject getSource() {
+      return source;
+    }
+
+    @Override
+    public long getPosition() {
+      return problem.getSourceStart();
+    }
+
+    @Override
+    public long getStartPosition() {
+      return problem.getSourceStart();
+    }
+
+    @Override
+    public long getEndPosition() {
+      return problem.getSourceEnd();
+    }
+
+    @Override
+    public long getLineNumber() {
+      return problem.getSourceLineNumber();
+    }
+
+    @Override
+    public long getColumnNumber() {
+      return NOPOS;
+    }
+
+    @Override
+    public String getCode() {
+      return String.valueOf(problem.getID());
+    }
+
+    @Override
+    public String getMessage(final Locale locale) {
+      return problem.getMessage();
+    }
+
+    @Override
+    public String toString() {
+      return source.getName() + ":" + getLineNumber() + ": " + getKind() + ": "
+          + problem.getMessage();
+    }
+  }
+}
@@ -22,10 +22,20 @@ public class InMemoryFileManager extends ForwardingJavaFileManager<JavaFileManag
   // クラスパスの解決に用いられるJBOの集合．ビルドごとに書き換えられる．
   private BinaryStore classPathBinaries;
 
-  public InMemoryFileManager(final JavaFileManager fileManager, final BinaryStore binaryStore) {
+  // ライブラリのクラスパス上のクラスファイルの索引
+  private final ClassPathIndex classPathIndex;
+
+  /**
+   * @param fileManager
+   * @param binaryStore ビルド結果を格納するStore
+   * @param classPathIndex ライブラリのクラスパス上のクラスファイルの索引
+   */
+  public InMemoryFileManager(final JavaFileManager fileManager, final BinaryStore binaryStore,
+      final ClassPathIndex classPathIndex) {
     super(fileManager);
     this.binaryStore = binaryStore;
     this.classPathBinaries = new BinaryStore();
+    this.classPathIndex = classPathIndex;
   }
 
   public void setClassPathBinaries(final BinaryStore classPathBinaries) {
@@ -49,7 +59,14 @@ public class InMemoryFileManager extends ForwardingJavaFileManager<JavaFileManag
     return jbo;
   }
 
-  private JavaBinaryObject createJavaBinaryObject(final String name,
+  /**
+   * 生成元のJavaSourceObjectの情報を引き継いだ空のJavaBinaryObjectを生成する．
+   * 
+   * @param name 生成するバイナリのクラス名
+   * @param origin 生成元のJavaSourceObject
+   * @return
+   */
+  static JavaBinaryObject createJavaBinaryObject(final String name,
       final JavaSourceObject origin) {
     final boolean isOriginTest = origin.isTest();
 
@@ -72,8 +89,9 @@ public class InMemoryFileManager extends ForwardingJavaFileManager<JavaFileManag
   public Iterable<JavaFileObject> list(final Location location, final String packageName,
       final Set<Kind> kinds, final boolean recurse) throws IOException {
 
-    // まずは普通のFMからバイナリを取り出す．標準libの解決等．
-    final Iterable<JavaFileObject> objs = fileManager.list(location, packageName, kinds, recurse);
+    // まずは普通のFMからバイナリを取り出す．標準libの解決等．ライブラリのクラスファイルは索引から取り出す
+    final Iterable<JavaFileObject> objs =
+        classPathIndex.list(fileManager, location, packageName, kinds, recurse);
 
     // classPathBinariesからもバイナリを取り出す
     final Iterable<JavaBinaryObject> cache = classPathBinaries.get(packageName);
@@ -98,6 +116,10 @@ public class InMemoryFileManager extends ForwardingJavaFileManager<JavaFileManag
     if (file.getClass() == JavaBinaryObject.class) {
       return ((JavaBinaryObject) file).getFqn().value;
     }
+    final String binaryName = classPathIndex.inferBinaryName(file);
+    if (binaryName != null) {
+      return binaryName;
+    }
     return fileManager.inferBinaryName(location, file);
   }
 
@@ -19,22 +19,93 @@ import jp.kusumotolab.kgenprog.project.factory.TargetProject;
 
 public class ProjectBuilder {
 
+  /**
+   * ビルドに用いるコンパイラ
+   */
+  public enum Compiler {
+    /** 実行中のJDKのjavac */
+    JAVAC,
+    /** プロセス内で呼び出すEclipse Compiler for Java */
+    ECJ
+  }
+
   private final TargetProject targetProject;
   private final BinaryStore binaryStore;
   private final JavaCompiler compiler;
   private final StandardJavaFileManager standardFileManager;
   private final InMemoryFileManager inMemoryFileManager;
   private final List<String> compilationOptions;
+  private final EcjCompiler ecjCompiler;
+  private final BinaryDiskCache diskCache;
+
+  private final BinaryStore outputBinaries;
 
   public ProjectBuilder(final TargetProject targetProject) {
+    this(targetProject, new BinaryStore());
+  }
+
+  /**
+   * コンパイル済みバイナリのキャッシュを指定してProjectBuilderを生成する．<br>
+   * ProjectBuilder自体はスレッドセーフではないが，binaryStoreは複数のProjectBuilderで共有してよい．
+   * 
+   * @param targetProject
+   * @param binaryStore コンパイル済みバイナリのキャッシュ
+   */
+  public ProjectBuilder(final TargetProject targetProject, final BinaryStore binaryStore) {
+    this(targetProject, binaryStore, new ClassPathIndex(targetProject.getClassPaths()));
+  }
+
+  /**
+   * コンパイル済みバイナリのキャッシュとライブラリのクラスパスの索引を指定してProjectBuilderを生成する．<br>
+   * binaryStoreとclassPathIndexは，同じTargetProjectをビルドする複数のProjectBuilderで共有してよい．
+   * 
+   * @param targetProject
+   * @param binaryStore コンパイル済みバイナリのキャッシュ
+   * @param classPathIndex ライブラリのクラスパス上のクラスファイルの索引
+   */
+  public ProjectBuilder(final TargetProject targetProject, final BinaryStore binaryStore,
+      final ClassPathIndex classPathIndex) {
+    this(targetProject, binaryStore, classPathIndex, Compiler.JAVAC);
+  }
+
+  /**
+   * コンパイル済みバイナリのキャッシュ，ライブラリのクラスパスの索引，およびビルドに用いるコンパイラを指定してProjectBuilderを生成する．
+   * 
+   * @param targetProject
+   * @param binaryStore コンパイル済みバイナリのキャッシュ
+   * @param classPathIndex ライブラリのクラスパス上のクラスファイルの索引
+   * @param compilerType ビルドに用いるコンパイラ
+   */
+  public ProjectBuilder(final TargetProject targetProject, final BinaryStore binaryStore,
+      final ClassPathIndex classPathIndex, final Compiler compilerType) {
+    this(targetProject, binaryStore, classPathIndex, compilerType, null);
+  }
+
+  /**
+   * 実行をまたいで再利用されるディスク上のキャッシュを加えてProjectBuilderを生成する．<br>
+   * binaryStoreにないバイナリはdiskCacheから読み込み，コンパイルしたバイナリはdiskCacheにも書き込む．
+   * 
+   * @param targetProject
+   * @param binaryStore コンパイル済みバイナリのキャッシュ
+   * @param classPathIndex ライブラリのクラスパス上のクラスファイルの索引
+   * @param compilerType ビルドに用いるコンパイラ
+   * @param diskCache ディスク上のキャッシュ（nullの場合は用いない）
+   */
+  public ProjectBuilder(final TargetProject targetProject, final BinaryStore binaryStore,
+      final ClassPathIndex classPathIndex, final Compiler compilerType,
+      final BinaryDiskCache diskCache) {
     this.targetProject = targetProject;
+    this.binaryStore = binaryStore;
 
     // build()メソッドで再利用可能なオブジェクト
-    binaryStore = new BinaryStore();
     compiler = ToolProvider.getSystemJavaCompiler();
     standardFileManager = compiler.getStandardFileManager(null, null, null);
-    inMemoryFileManager = new InMemoryFileManager(standardFileManager, binaryStore);
+    outputBinaries = new BinaryStore();
+    inMemoryFileManager =
+        new InMemoryFileManager(standardFileManager, outputBinaries, classPathIndex);
     compilationOptions = createDefaultCompilationOptions();
+    ecjCompiler = compilerType == Compiler.ECJ ? new EcjCompiler(targetProject) : null;
+    this.diskCache = diskCache;
   }
 
   /**
@@ -49,36 +120,72 @@ public class ProjectBuilder {
 
     // コンパイル済みキャッシュの有無を問い合わせ
     final List<GeneratedAST<?>> allAsts = generatedSourceCode.getAllAsts();
+    if (null != diskCache) {
+      loadFromDiskCache(allAsts);
+    }
     final Set<JavaSourceObject> javaSourceObjects = generateJavaSourceObjects(allAsts);
 
+    // binaryStoreからコンパイル済みバイナリを取り出しておく．
+    // コンパイルした場合は，出力されたバイナリを追加したものがこの個体のビルド結果になる
+    final BinaryStore compiledBinaries = extractSubBinaryStore(allAsts);
+
     // コンパイル対象が存在する（≒全コンパイル対象がキャッシュ済みでない）場合はコンパイル
     if (!javaSourceObjects.isEmpty()) {
-      final boolean successs = build(allAsts, javaSourceObjects, diagnostics, progress);
+      final boolean successs = build(compiledBinaries, javaSourceObjects, diagnostics, progress);
 
       if (!successs) {
         return EmptyBuildResults.instance;
       }
     }
 
-    // コンパイル済みバイナリを取り出してセットしておく
-    final BinaryStore compiledBinaries = extractSubBinaryStore(allAsts);
-
     return new BuildResults(compiledBinaries, diagnostics, progress.toString(), false);
   }
 
-  private boolean build(final List<GeneratedAST<?>> allAsts,
+  private boolean build(final BinaryStore reusableBinaries,
+      final Collection<JavaSourceObject> javaSourceObjects,
+      final DiagnosticCollector<JavaFileObject> diagnostics, final StringWriter progress) {
+
+    // コンパイルを実行
+    // 共有キャッシュに書きかけのバイナリが見えないよう，出力は一旦outputBinariesに溜めてから登録する
+    outputBinaries.removeAll();
+    final boolean success = null == ecjCompiler
+        ? compileWithJavac(reusableBinaries, javaSourceObjects, diagnostics, progress)
+        : ecjCompiler.compile(javaSourceObjects, reusableBinaries, outputBinaries, diagnostics,
+            progress);
+    outputBinaries.getAll()
+        .forEach(b -> {
+          binaryStore.add(b);
+          reusableBinaries.add(b);
+        });
+    if (success && null != diskCache) {
+      diskCache.save(outputBinaries.getAll());
+    }
+    return success;
+  }
+
+  /**
+   * binaryStoreにないバイナリをディスク上のキャッシュから読み込み，binaryStoreに加える．
+   * 
+   * @param asts
+   */
+  private void loadFromDiskCache(final List<GeneratedAST<?>> asts) {
+    asts.stream()
+        .filter(ast -> !binaryStore.exists(ast.getPrimaryClassName(), ast.getMessageDigest()))
+        .map(diskCache::load)
+        .flatMap(Collection::stream)
+        .forEach(binaryStore::add);
+  }
+
+  private boolean compileWithJavac(final BinaryStore reusableBinaries,
       final Collection<JavaSourceObject> javaSourceObjects,
       final DiagnosticCollector<JavaFileObject> diagnostics, final StringWriter progress) {
 
-    // binaryStoreからコンパイル済みバイナリを取り出してIMFMにセットしておく
-    final BinaryStore reusableBinaries = extractSubBinaryStore(allAsts);
+    // コンパイル済みバイナリをIMFMにセットしておく
     inMemoryFileManager.setClassPathBinaries(reusableBinaries);
 
     // コンパイルタスクを生成
     final CompilationTask task = compiler.getTask(progress, inMemoryFileManager, diagnostics,
         compilationOptions, null, javaSourceObjects);
-
-    // コンパイルを実行
     return task.call();
   }
 
@@ -89,9 +196,7 @@ public class ProjectBuilder {
    * @return
    */
   private BinaryStore extractSubBinaryStore(final List<GeneratedAST<?>> asts) {
-    // TODO
-    // この処理コスト高い．
-    // BinaryStoreからサブBinaryStoreの抜き出し方法は改善したほうが良い．
+    // 生成元ごとの索引から引くのみなので，コストはバイナリ数に比例する．1回のビルドにつき1度だけ行う
     final BinaryStore binStore = new BinaryStore();
     asts.stream()
         .map(ast -> binaryStore.get(ast.getPrimaryClassName(), ast.getMessageDigest()))
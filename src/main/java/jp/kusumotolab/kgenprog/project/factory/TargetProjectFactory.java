@@ -3,6 +3,9 @@ package jp.kusumotolab.kgenprog.project.factory;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
+import jp.kusumotolab.kgenprog.project.ClassPath;
+import jp.kusumotolab.kgenprog.project.ProductSourcePath;
+import jp.kusumotolab.kgenprog.project.TestSourcePath;
 import jp.kusumotolab.kgenprog.project.factory.JUnitLibraryResolver.JUnitVersion;
 
 public class TargetProjectFactory {
@@ -47,6 +50,22 @@ public class TargetProjectFactory {
         pathsForClass, junitVersion).create();
   }
 
+  /**
+   * 解決済みの各種パスからTargetProjectを生成するファクトリメソッド．<br>
+   * 別プロセスで同一のTargetProjectを復元する場合等に用いる．クラスパスへのJUnitの追加等は行わない．
+   * 
+   * @param rootPath 対象のルートパス
+   * @param productSourcePaths
+   * @param testSourcePaths
+   * @param classPaths
+   * @return TargetProject
+   */
+  public static TargetProject create(final Path rootPath,
+      final List<ProductSourcePath> productSourcePaths, final List<TestSourcePath> testSourcePaths,
+      final List<ClassPath> classPaths) {
+    return new TargetProject(rootPath, productSourcePaths, testSourcePaths, classPaths);
+  }
+
   /**
    * ファクトリ一覧の生成
    * 
@@ -1,10 +1,7 @@
 package jp.kusumotolab.kgenprog.project.jdt;
 
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.List;
 import java.util.Optional;
-import org.apache.commons.codec.binary.Hex;
 import org.eclipse.jdt.core.dom.AbstractTypeDeclaration;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.Modifier;
@@ -16,15 +13,15 @@ import jp.kusumotolab.kgenprog.project.SourcePath;
 
 public class GeneratedJDTAST<T extends SourcePath> implements GeneratedAST<T> {
 
-  private static final String DIGEST_ALGORITHM = "MD5";
-
   private final JDTASTConstruction construction;
-  private final CompilationUnit root;
   private final T sourcePath;
   private final FullyQualifiedName primaryClassName;
   private final String sourceCode;
+  private final SourceCodeDigest digest;
   private final String messageDigest;
-  private final int numberOfLines;
+
+  // 書き換えにより生成したASTでは，必要になるまで構文解析を遅延する
+  private volatile CompilationUnit root;
 
   public GeneratedJDTAST(final JDTASTConstruction construction, final T sourcePath,
       final CompilationUnit root, final String source) {
@@ -34,8 +31,42 @@ public class GeneratedJDTAST<T extends SourcePath> implements GeneratedAST<T> {
     this.sourceCode = source;
 
     this.primaryClassName = searchPrimaryClassName(root);
-    this.messageDigest = createMessageDigest();
-    this.numberOfLines = calculateNumberOfLines();
+    this.digest = SourceCodeDigest.of(root);
+    this.messageDigest = digest.toString();
+  }
+
+  private GeneratedJDTAST(final GeneratedJDTAST<T> original, final String source,
+      final SourceCodeDigest digest) {
+    this.construction = original.construction;
+    this.root = null;
+    this.sourcePath = original.sourcePath;
+    this.sourceCode = source;
+
+    // 文の書き換えでは型の宣言は変わらないため，元のASTから引き継ぐ
+    this.primaryClassName = original.primaryClassName;
+    this.digest = digest;
+    this.messageDigest = digest.toString();
+  }
+
+  /**
+   * ソースコードの一部を書き換えたASTを生成する．<br>
+   * 構文解析はASTが必要になるまで遅延するため，重複していた個体やビルドに失敗した個体では構文解析を行わない．
+   * ダイジェストは書き換えた範囲を含むメンバのみを構文解析し直して求める．
+   * 書き換えた範囲が1つのメンバに収まらない場合は，ファイル全体を構文解析する．
+   *
+   * @param rewrittenSource 書き換えたソースコード
+   * @param offset このASTのソースコードで書き換えた範囲の先頭
+   * @param replacedLength このASTのソースコードで書き換えた範囲の長さ
+   * @return 書き換えたAST
+   */
+  GeneratedJDTAST<T> rewrite(final String rewrittenSource, final int offset,
+      final int replacedLength) {
+    final SourceCodeDigest rewrittenDigest = digest.update(rewrittenSource, offset,
+        replacedLength, rewrittenSource.length() - sourceCode.length(), construction);
+    if (rewrittenDigest == null) {
+      return construction.constructAST(sourcePath, rewrittenSource);
+    }
+    return new GeneratedJDTAST<>(this, rewrittenSource, rewrittenDigest);
   }
 
   @Override
@@ -55,7 +86,7 @@ public class GeneratedJDTAST<T extends SourcePath> implements GeneratedAST<T> {
 
   @Override
   public ASTLocations createLocations() {
-    return new JDTASTLocations<>(this, root, sourcePath);
+    return new JDTASTLocations<>(this, getRoot(), sourcePath);
   }
 
   @Override
@@ -65,11 +96,23 @@ public class GeneratedJDTAST<T extends SourcePath> implements GeneratedAST<T> {
 
   @Override
   public int getNumberOfLines() {
-    return numberOfLines;
+    final CompilationUnit root = getRoot();
+    final int pos = root.getExtendedStartPosition(root) + root.getExtendedLength(root) - 1;
+    return root.getLineNumber(pos);
   }
 
   public CompilationUnit getRoot() {
-    return root;
+    CompilationUnit result = root;
+    if (result == null) {
+      synchronized (this) {
+        result = root;
+        if (result == null) {
+          result = construction.parse(sourceCode);
+          root = result;
+        }
+      }
+    }
+    return result;
   }
 
   public JDTASTConstruction getConstruction() {
@@ -115,20 +158,4 @@ public class GeneratedJDTAST<T extends SourcePath> implements GeneratedAST<T> {
     }
     return sourcePath.createFullyQualifiedName(fqnString);
   }
-
-  private String createMessageDigest() {
-    try {
-      final MessageDigest digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
-
-      return Hex.encodeHexString(digest.digest(root.toString()
-          .getBytes()));
-    } catch (final NoSuchAlgorithmException e) {
-      throw new RuntimeException(e);
-    }
-  }
-
-  private int calculateNumberOfLines() {
-    final int pos = root.getExtendedStartPosition(root) + root.getExtendedLength(root) - 1;
-    return root.getLineNumber(pos);
-  }
 }
@@ -6,16 +6,23 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.compiler.IProblem;
 import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.BodyDeclaration;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.FileASTRequestor;
+import org.eclipse.jdt.core.dom.TypeDeclaration;
 import org.eclipse.jdt.core.formatter.DefaultCodeFormatterConstants;
 import jp.kusumotolab.kgenprog.project.GeneratedAST;
 import jp.kusumotolab.kgenprog.project.GeneratedSourceCode;
@@ -27,6 +34,18 @@ import jp.kusumotolab.kgenprog.project.factory.TargetProject;
 
 public class JDTASTConstruction {
 
+  private static final int PARALLELISM = Runtime.getRuntime()
+      .availableProcessors();
+
+  // 並列化の効果が分割の手間を上回るよう，1つの分割に含めるファイルの最小数
+  private static final int MIN_SHARD_SIZE = 64;
+
+  // Eclipseの既定の設定の生成は重いため，一度だけ生成して使い回す
+  private static final Map<String, String> COMPILER_OPTIONS = createCompilerOptions();
+
+  private static final ThreadLocal<ASTParser> PARSERS =
+      ThreadLocal.withInitial(() -> ASTParser.newParser(AST.JLS10));
+
   public GeneratedSourceCode constructAST(final TargetProject project) {
     return constructAST(project.getProductSourcePaths(), project.getTestSourcePaths());
   }
@@ -38,41 +57,49 @@ public class JDTASTConstruction {
             .toString())
         .toArray(String[]::new);
 
-    final ASTParser parser = createNewParser();
-
-    final Map<Path, ProductSourcePath> pathToProductSourcePath = productSourcePaths.stream()
-        .collect(Collectors.toMap(path -> path.getResolvedPath(), path -> path));
-    final Map<Path, TestSourcePath> pathToTestSourcePath = testSourcePaths.stream()
-        .collect(Collectors.toMap(path -> path.getResolvedPath(), path -> path));
+    final Map<Path, Integer> pathToProductIndex = indexOf(productSourcePaths);
+    final Map<Path, Integer> pathToTestIndex = indexOf(testSourcePaths);
 
-    final List<GeneratedAST<ProductSourcePath>> productAsts = new ArrayList<>();
-    final List<GeneratedAST<TestSourcePath>> testAsts = new ArrayList<>();
-    final List<IProblem> problems = new ArrayList<>();
+    // 並列に構文解析するため，ASTは元のパスの順に配列へ格納する
+    final GeneratedAST<?>[] productAsts = new GeneratedAST<?>[productSourcePaths.size()];
+    final GeneratedAST<?>[] testAsts = new GeneratedAST<?>[testSourcePaths.size()];
+    final List<IProblem> problems = Collections.synchronizedList(new ArrayList<>());
 
     final FileASTRequestor requestor = new FileASTRequestor() {
 
       @Override
       public void acceptAST(final String sourcePath, final CompilationUnit ast) {
-        final ProductSourcePath productPath = pathToProductSourcePath.get(Paths.get(sourcePath));
-        if (productPath != null) {
-          productAsts.add(new GeneratedJDTAST<>(JDTASTConstruction.this, productPath, ast,
-              loadAsString(sourcePath)));
+        final Path path = Paths.get(sourcePath);
+        final String source = loadAsString(sourcePath);
+
+        final Integer productIndex = pathToProductIndex.get(path);
+        if (productIndex != null) {
+          productAsts[productIndex] = new GeneratedJDTAST<>(JDTASTConstruction.this,
+              productSourcePaths.get(productIndex), ast, source);
         }
 
-        final TestSourcePath testPath = pathToTestSourcePath.get(Paths.get(sourcePath));
-        if (testPath != null) {
-          testAsts.add(new GeneratedJDTAST<>(JDTASTConstruction.this, testPath, ast,
-              loadAsString(sourcePath)));
+        final Integer testIndex = pathToTestIndex.get(path);
+        if (testIndex != null) {
+          testAsts[testIndex] = new GeneratedJDTAST<>(JDTASTConstruction.this,
+              testSourcePaths.get(testIndex), ast, source);
         }
 
         problems.addAll(Arrays.asList(ast.getProblems()));
       }
     };
 
-    parser.createASTs(paths, null, new String[] {}, requestor, null);
+    // 束縛を解決しないため各ファイルは独立に構文解析でき，ファイルを分割して並列に構文解析する
+    final int shardCount = Math.max(1, Math.min(PARALLELISM, paths.length / MIN_SHARD_SIZE));
+    IntStream.range(0, shardCount)
+        .parallel()
+        .forEach(shard -> {
+          final String[] shardPaths = Arrays.copyOfRange(paths,
+              paths.length * shard / shardCount, paths.length * (shard + 1) / shardCount);
+          getParser().createASTs(shardPaths, null, new String[] {}, requestor, null);
+        });
 
     if (isConstructionSuccess(problems)) {
-      return new GeneratedSourceCode(productAsts, testAsts);
+      return new GeneratedSourceCode(collect(productAsts), collect(testAsts));
     } else {
       final String messages = concatProblemMessages(problems);
       return new GenerationFailedSourceCode(messages);
@@ -81,21 +108,54 @@ public class JDTASTConstruction {
 
   public <T extends SourcePath> GeneratedJDTAST<T> constructAST(final T sourcePath,
       final String data) {
-    final ASTParser parser = createNewParser();
+    return new GeneratedJDTAST<>(this, sourcePath, parse(data), data);
+  }
+
+  CompilationUnit parse(final String data) {
+    final ASTParser parser = getParser();
     parser.setSource(data.toCharArray());
+    return (CompilationUnit) parser.createAST(null);
+  }
 
-    return new GeneratedJDTAST<>(this, sourcePath, (CompilationUnit) parser.createAST(null), data);
+  /**
+   * 1つのメンバの宣言のみを構文解析する
+   *
+   * @param data メンバの宣言のソースコード
+   * @return メンバの宣言．dataが1つのメンバの宣言として解析できない場合はnull
+   */
+  BodyDeclaration parseBodyDeclaration(final String data) {
+    final ASTParser parser = getParser();
+    parser.setKind(ASTParser.K_CLASS_BODY_DECLARATIONS);
+    parser.setSource(data.toCharArray());
+    final ASTNode node = parser.createAST(null);
+    if (!(node instanceof TypeDeclaration) || (node.getFlags() & ASTNode.MALFORMED) != 0) {
+      return null;
+    }
+
+    final List<?> declarations = ((TypeDeclaration) node).bodyDeclarations();
+    if (declarations.size() != 1) {
+      return null;
+    }
+    final BodyDeclaration declaration = (BodyDeclaration) declarations.get(0);
+    return (declaration.getFlags() & ASTNode.MALFORMED) == 0 ? declaration : null;
   }
 
   public static ASTParser createNewParser() {
-    final ASTParser parser = ASTParser.newParser(AST.JLS10);
+    return configure(ASTParser.newParser(AST.JLS10));
+  }
 
-    @SuppressWarnings("unchecked")
-    final Map<String, String> options = DefaultCodeFormatterConstants.getEclipseDefaultSettings();
-    options.put(JavaCore.COMPILER_COMPLIANCE, JavaCore.VERSION_1_8);
-    options.put(JavaCore.COMPILER_CODEGEN_TARGET_PLATFORM, JavaCore.VERSION_1_8);
-    options.put(JavaCore.COMPILER_SOURCE, JavaCore.VERSION_1_8);
-    parser.setCompilerOptions(options);
+  /**
+   * このスレッドで使い回すASTParserを設定し直して返す．<br>
+   * ASTParserは構文解析を終えると設定が既定の状態に戻るため，構文解析のたびに呼び出すこと．
+   *
+   * @return 設定済みのASTParser
+   */
+  private static ASTParser getParser() {
+    return configure(PARSERS.get());
+  }
+
+  private static ASTParser configure(final ASTParser parser) {
+    parser.setCompilerOptions(COMPILER_OPTIONS);
 
     // TODO: Bindingが必要か検討
     parser.setResolveBindings(false);
@@ -105,6 +165,33 @@ public class JDTASTConstruction {
     return parser;
   }
 
+  private static Map<String, String> createCompilerOptions() {
+    @SuppressWarnings("unchecked")
+    final Map<String, String> options = DefaultCodeFormatterConstants.getEclipseDefaultSettings();
+    options.put(JavaCore.COMPILER_COMPLIANCE, JavaCore.VERSION_1_8);
+    options.put(JavaCore.COMPILER_CODEGEN_TARGET_PLATFORM, JavaCore.VERSION_1_8);
+    options.put(JavaCore.COMPILER_SOURCE, JavaCore.VERSION_1_8);
+    return Collections.unmodifiableMap(options);
+  }
+
+  private static Map<Path, Integer> indexOf(final List<? extends SourcePath> sourcePaths) {
+    final Map<Path, Integer> pathToIndex = new HashMap<>();
+    for (int i = 0; i < sourcePaths.size(); i++) {
+      pathToIndex.put(sourcePaths.get(i)
+          .getResolvedPath(), i);
+    }
+    return pathToIndex;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T extends SourcePath> List<GeneratedAST<T>> collect(
+      final GeneratedAST<?>[] asts) {
+    return Arrays.stream(asts)
+        .filter(Objects::nonNull)
+        .map(ast -> (GeneratedAST<T>) ast)
+        .collect(Collectors.toList());
+  }
+
   private String loadAsString(final String path) {
     try {
       return new String(Files.readAllBytes(Paths.get(path)));
@@ -1,11 +1,10 @@
 package jp.kusumotolab.kgenprog.project.jdt;
 
-import java.util.List;
-import java.util.stream.Collectors;
 import org.eclipse.jdt.core.dom.rewrite.ASTRewrite;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.Document;
 import org.eclipse.text.edits.MalformedTreeException;
+import org.eclipse.text.edits.TextEdit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import jp.kusumotolab.kgenprog.project.ASTLocation;
@@ -25,11 +24,13 @@ public abstract class JDTOperation implements Operation {
       final ASTLocation location) {
 
     try {
-      final List<GeneratedAST<ProductSourcePath>> newASTs = generatedSourceCode.getProductAsts()
-          .stream()
-          .map(ast -> applyEachAST(ast, location))
-          .collect(Collectors.toList());
-      return new GeneratedSourceCode(newASTs, generatedSourceCode.getTestAsts());
+      // 操作対象のASTのみを置き換え，残りのASTは元のソースコードと共有する
+      final GeneratedAST<ProductSourcePath> ast =
+          generatedSourceCode.getProductAst(location.getSourcePath());
+      if (ast == null) {
+        return generatedSourceCode;
+      }
+      return generatedSourceCode.replaceProductAst(applyToAST(ast, location));
     } catch (final Exception e) {
       log.debug("Opperation failed: {}", e.getMessage());
       log.trace("Trace:", e);
@@ -37,13 +38,8 @@ public abstract class JDTOperation implements Operation {
     }
   }
 
-  private <T extends SourcePath> GeneratedAST<T> applyEachAST(final GeneratedAST<T> ast,
+  private <T extends SourcePath> GeneratedAST<T> applyToAST(final GeneratedAST<T> ast,
       final ASTLocation location) {
-    if (!ast.getSourcePath()
-        .equals(location.getSourcePath())) {
-      return ast;
-    }
-
     final GeneratedJDTAST<T> jdtast = (GeneratedJDTAST<T>) ast;
     final ASTRewrite astRewrite = ASTRewrite.create(jdtast.getRoot()
         .getAST());
@@ -51,15 +47,19 @@ public abstract class JDTOperation implements Operation {
     applyToASTRewrite((GeneratedJDTAST<T>) ast, (JDTASTLocation) location, astRewrite);
 
     final Document document = new Document(jdtast.getSourceCode());
+    final TextEdit edit = astRewrite.rewriteAST(document, null);
+
+    // applyにより編集の範囲は書き換え後の位置に更新されるため，先に書き換える範囲を控える
+    final int offset = edit.getOffset();
+    final int length = edit.getLength();
     try {
-      astRewrite.rewriteAST(document, null)
-          .apply(document);
+      edit.apply(document);
     } catch (MalformedTreeException | BadLocationException e) {
       throw new RuntimeException(e);
     }
 
-    return jdtast.getConstruction()
-        .constructAST(ast.getSourcePath(), document.get());
+    // ファイル全体を構文解析し直すのではなく，書き換えた範囲のみからダイジェストを更新する
+    return jdtast.rewrite(document.get(), offset, length);
   }
 
   protected abstract <T extends SourcePath> void applyToASTRewrite(final GeneratedJDTAST<T> ast,
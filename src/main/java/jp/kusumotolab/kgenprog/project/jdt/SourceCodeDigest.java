@@ -0,0 +1,143 @@
+package jp.kusumotolab.kgenprog.project.jdt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.commons.codec.binary.Hex;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.AbstractTypeDeclaration;
+import org.eclipse.jdt.core.dom.BodyDeclaration;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+/**
+ * ASTのダイジェスト．トップレベルの型のメンバごとのダイジェストと，メンバを除いた残りのダイジェストを連結して求める．<br>
+ * 書き換えた範囲が1つのメンバに収まる場合は，そのメンバのみを構文解析し直してダイジェストを更新するため，
+ * 大きなソースコードでもメソッド1つ分の計算で済む．<br>
+ * いずれのダイジェストも整形したASTの文字列から求めるため，空白や改行のみが異なるソースコードは同じダイジェストとなる．
+ */
+final class SourceCodeDigest {
+
+  private static final String DIGEST_ALGORITHM = "MD5";
+
+  private final byte[] skeleton;
+
+  // 各メンバのソースコード上の範囲[starts[i], ends[i])とダイジェスト
+  private final int[] starts;
+  private final int[] ends;
+  private final byte[][] digests;
+  private final String hex;
+
+  private SourceCodeDigest(final byte[] skeleton, final int[] starts, final int[] ends,
+      final byte[][] digests) {
+    this.skeleton = skeleton;
+    this.starts = starts;
+    this.ends = ends;
+    this.digests = digests;
+
+    final MessageDigest digest = createMessageDigest();
+    digest.update(skeleton);
+    for (final byte[] d : digests) {
+      digest.update(d);
+    }
+    this.hex = Hex.encodeHexString(digest.digest());
+  }
+
+  /**
+   * @param root ダイジェストを求めるAST
+   * @return rootのダイジェスト
+   */
+  static SourceCodeDigest of(final CompilationUnit root) {
+    final List<BodyDeclaration> members = new ArrayList<>();
+    for (final Object type : root.types()) {
+      for (final Object member : ((AbstractTypeDeclaration) type).bodyDeclarations()) {
+        members.add((BodyDeclaration) member);
+      }
+    }
+
+    final int[] starts = new int[members.size()];
+    final int[] ends = new int[members.size()];
+    final byte[][] digests = new byte[members.size()][];
+    for (int i = 0; i < members.size(); i++) {
+      final BodyDeclaration member = members.get(i);
+      starts[i] = member.getStartPosition();
+      ends[i] = member.getStartPosition() + member.getLength();
+      digests[i] = digest(member.toString());
+    }
+
+    // メンバを取り除いた複製から残りの部分のダイジェストを求める
+    final CompilationUnit copy =
+        (CompilationUnit) ASTNode.copySubtree(AST.newAST(AST.JLS10), root);
+    for (final Object type : copy.types()) {
+      ((AbstractTypeDeclaration) type).bodyDeclarations()
+          .clear();
+    }
+    return new SourceCodeDigest(digest(copy.toString()), starts, ends, digests);
+  }
+
+  /**
+   * 元のソースコードの[offset, offset + replacedLength)を書き換えたソースコードのダイジェストを返す．<br>
+   * 書き換えた範囲を含むメンバのみを構文解析し直し，残りのダイジェストはそのまま使う．
+   *
+   * @param rewrittenSource 書き換えたソースコード
+   * @param offset 元のソースコードで書き換えた範囲の先頭
+   * @param replacedLength 元のソースコードで書き換えた範囲の長さ
+   * @param delta 書き換えによるソースコードの長さの増減
+   * @param construction メンバの構文解析に用いるJDTASTConstruction
+   * @return rewrittenSourceのダイジェスト．書き換えた範囲が1つのメンバに収まらない場合はnull
+   */
+  SourceCodeDigest update(final String rewrittenSource, final int offset,
+      final int replacedLength, final int delta, final JDTASTConstruction construction) {
+    final int index = indexOf(offset, offset + replacedLength);
+    if (index < 0) {
+      return null;
+    }
+
+    final int[] newStarts = starts.clone();
+    final int[] newEnds = ends.clone();
+    newEnds[index] += delta;
+    for (int i = index + 1; i < starts.length; i++) {
+      newStarts[i] += delta;
+      newEnds[i] += delta;
+    }
+
+    final BodyDeclaration member = construction.parseBodyDeclaration(
+        rewrittenSource.substring(newStarts[index], newEnds[index]));
+    if (member == null) {
+      return null;
+    }
+    final byte[][] newDigests = digests.clone();
+    newDigests[index] = digest(member.toString());
+    return new SourceCodeDigest(skeleton, newStarts, newEnds, newDigests);
+  }
+
+  @Override
+  public String toString() {
+    return hex;
+  }
+
+  // [begin, end)を含むメンバの添字．そのようなメンバがなければ-1
+  private int indexOf(final int begin, final int end) {
+    final int found = Arrays.binarySearch(starts, begin);
+    final int index = found >= 0 ? found : -found - 2;
+    if (index < 0 || ends[index] < end) {
+      return -1;
+    }
+    return index;
+  }
+
+  private static byte[] digest(final String text) {
+    return createMessageDigest().digest(text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static MessageDigest createMessageDigest() {
+    try {
+      return MessageDigest.getInstance(DIGEST_ALGORITHM);
+    } catch (final NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
@@ -1,18 +1,22 @@
 package jp.kusumotolab.kgenprog.project.test;
 
 import java.io.Serializable;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
+import java.util.RandomAccess;
 import java.util.stream.Collectors;
 import org.apache.commons.lang3.StringUtils;
 import org.jacoco.core.analysis.IClassCoverage;
 import org.jacoco.core.analysis.ICounter;
 import jp.kusumotolab.kgenprog.project.FullyQualifiedName;
+import jp.kusumotolab.kgenprog.project.LineNumberRange;
 import jp.kusumotolab.kgenprog.project.TargetFullyQualifiedName;
 
 public class Coverage implements Serializable {
 
-  private static final long serialVersionUID = 1L;
+  private static final long serialVersionUID = 2L;
 
   public enum Status {
     /**
@@ -34,8 +38,20 @@ public class Coverage implements Serializable {
     PARTLY_COVERED
   }
 
+  private static final Status[] STATUSES = Status.values();
+
   final public FullyQualifiedName executedTargetFQN;
-  final public List<Status> statuses;
+
+  /**
+   * 各行のStatus．lowerBitsとupperBitsに対する読み取り専用のビューで，シリアライズ時には保持しない．
+   */
+  final public transient List<Status> statuses;
+
+  // 各行のStatusの序数の下位ビットと上位ビット（行番号-1が添字）．
+  // Statusのリストを保持する場合に比べて，1行あたり2ビットで済む
+  private final int length;
+  private final BitSet lowerBits;
+  private final BitSet upperBits;
 
   /**
    * constructor． jacocoで生成したIClassCoverageから生成．
@@ -44,15 +60,149 @@ public class Coverage implements Serializable {
    * @param statuses Coverage計測の結果
    */
   public Coverage(final IClassCoverage classCoverage) {
-    this.executedTargetFQN = new TargetFullyQualifiedName(classCoverage.getName()
-        .replace("/", "."));
-    this.statuses = convertClassCoverage(classCoverage);
+    this(new TargetFullyQualifiedName(classCoverage.getName()
+        .replace("/", ".")), convertClassCoverage(classCoverage));
   }
 
   public Coverage(final FullyQualifiedName executedTargetFQN,
       final List<Status> statuses) {
     this.executedTargetFQN = executedTargetFQN;
-    this.statuses = statuses;
+    this.length = statuses.size();
+    this.lowerBits = new BitSet(length);
+    this.upperBits = new BitSet(length);
+    for (int index = 0; index < length; index++) {
+      final int ordinal = statuses.get(index)
+          .ordinal();
+      lowerBits.set(index, (ordinal & 1) != 0);
+      upperBits.set(index, (ordinal & 2) != 0);
+    }
+    this.statuses = new StatusList();
+  }
+
+  /**
+   * constructor． 序数のビット列から直接生成する．渡したBitSetは以降変更しないこと．
+   * 
+   * @param executedTargetFQN Coverage計測対象のクラス名
+   * @param length 行数
+   * @param lowerBits 各行のStatusの序数の下位ビット
+   * @param upperBits 各行のStatusの序数の上位ビット
+   */
+  Coverage(final FullyQualifiedName executedTargetFQN, final int length,
+      final BitSet lowerBits, final BitSet upperBits) {
+    this.executedTargetFQN = executedTargetFQN;
+    this.length = length;
+    this.lowerBits = lowerBits;
+    this.upperBits = upperBits;
+    this.statuses = new StatusList();
+  }
+
+  // transientなstatusesを復元する
+  private Object readResolve() {
+    return new Coverage(executedTargetFQN, length, lowerBits, upperBits);
+  }
+
+  /**
+   * @return 各行のStatusの序数の下位ビット．変更しないこと
+   */
+  BitSet getLowerBits() {
+    return lowerBits;
+  }
+
+  /**
+   * @return 各行のStatusの序数の上位ビット．変更しないこと
+   */
+  BitSet getUpperBits() {
+    return upperBits;
+  }
+
+  /**
+   * 指定した行を実行済み（COVERED）としたCoverageを生成する．
+   * 
+   * @param coveredLineIndices 実行された行の添字（行番号-1）の集合
+   * @return
+   */
+  Coverage cover(final BitSet coveredLineIndices) {
+    final BitSet coveredLowerBits = (BitSet) lowerBits.clone();
+    coveredLowerBits.andNot(coveredLineIndices);
+    final BitSet coveredUpperBits = (BitSet) upperBits.clone();
+    coveredUpperBits.or(coveredLineIndices);
+    return new Coverage(executedTargetFQN, length, coveredLowerBits, coveredUpperBits);
+  }
+
+  /**
+   * ソースコード中の一部の行が書き換えられた後の行番号に合わせて，Coverageをずらしたものを生成する．<br>
+   * 書き換えられた範囲より前の行はそのまま，後ろの行はdeltaだけずらす．書き換え後の範囲は実行されなかったものとする．
+   * 
+   * @param range 書き換え前のソースコードで書き換えられた行の範囲
+   * @param delta 書き換えによる行数の増減
+   * @return 行番号をずらしたCoverage
+   */
+  public Coverage shift(final LineNumberRange range, final int delta) {
+    if (range.start > length) {
+      return this;
+    }
+
+    final int head = range.start - 1;
+    final int rewrittenLength = Math.max(0, range.getLength() + delta);
+    final BitSet shiftedLowerBits = lowerBits.get(0, head);
+    final BitSet shiftedUpperBits = upperBits.get(0, head);
+    shiftedLowerBits.set(head, head + rewrittenLength); // NOT_COVERED
+    int shiftedLength = head + rewrittenLength;
+    if (range.end < length) {
+      copyBits(lowerBits, range.end, shiftedLowerBits, shiftedLength);
+      copyBits(upperBits, range.end, shiftedUpperBits, shiftedLength);
+      shiftedLength += length - range.end;
+    }
+    return new Coverage(executedTargetFQN, shiftedLength, shiftedLowerBits, shiftedUpperBits);
+  }
+
+  private void copyBits(final BitSet source, final int from, final BitSet destination,
+      final int offset) {
+    for (int index = source.nextSetBit(from); index >= 0 && index < length; index =
+        source.nextSetBit(index + 1)) {
+      destination.set(index - from + offset);
+    }
+  }
+
+  /**
+   * 指定した行範囲のいずれかの行が実行されたか否かを返す．
+   * 
+   * @param range 行の範囲
+   * @return 実行されていればtrue
+   */
+  public boolean isCovered(final LineNumberRange range) {
+    final int end = Math.min(range.end, length);
+    for (int index = upperBits.nextSetBit(Math.max(1, range.start) - 1); index >= 0
+        && index < end; index = upperBits.nextSetBit(index + 1)) {
+      if (!lowerBits.get(index)) { // COVERED
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private Status getStatus(final int index) {
+    final int ordinal = (lowerBits.get(index) ? 1 : 0) | (upperBits.get(index) ? 2 : 0);
+    return STATUSES[ordinal];
+  }
+
+  /**
+   * 各行のStatusを返す読み取り専用のリスト
+   */
+  private class StatusList extends AbstractList<Status> implements RandomAccess {
+
+    @Override
+    public Status get(final int index) {
+      if (index < 0 || index >= length) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + length);
+      }
+      return getStatus(index);
+    }
+
+    @Override
+    public int size() {
+      return length;
+    }
   }
 
   /**
@@ -61,7 +211,7 @@ public class Coverage implements Serializable {
    * @param classCoverage
    * @return
    */
-  private List<Status> convertClassCoverage(final IClassCoverage classCoverage) {
+  private static List<Status> convertClassCoverage(final IClassCoverage classCoverage) {
     final List<Coverage.Status> statuses = new ArrayList<>();
     for (int i = 1; i <= classCoverage.getLastLine(); i++) {
       final Coverage.Status status;
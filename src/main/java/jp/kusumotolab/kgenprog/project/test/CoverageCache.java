@@ -0,0 +1,190 @@
+package jp.kusumotolab.kgenprog.project.test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICounter;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.instr.Instrumenter;
+import org.jacoco.core.internal.data.CRC64;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import jp.kusumotolab.kgenprog.project.build.JavaBinaryObject;
+
+/**
+ * JaCoCoによるインストルメント結果とクラスの解析結果のキャッシュ．<br>
+ * 1つの個体で書き換わるのは1つのコンパイル単位のみなので，生成元のFQNとダイジェストが同じクラスについては
+ * インストルメントとクラスの解析を2度行わない．<br>
+ * インストルメントしたバイトコードにはランタイム固有のキーが埋め込まれるため，キャッシュはランタイムごとに持つ．
+ */
+class CoverageCache {
+
+  private static final int MAX_ENTRIES = 4096;
+
+  private final CoverageRuntime jacocoRuntime;
+  private final Instrumenter jacocoInstrumenter;
+  private final Cache<String, byte[]> instrumentedBytecodes;
+  private final Cache<String, ClassAnalysis> classAnalyses;
+
+  CoverageCache(final CoverageRuntime jacocoRuntime) {
+    this.jacocoRuntime = jacocoRuntime;
+    this.jacocoInstrumenter = new Instrumenter(jacocoRuntime);
+    this.instrumentedBytecodes = CacheBuilder.newBuilder()
+        .maximumSize(MAX_ENTRIES)
+        .build();
+    this.classAnalyses = CacheBuilder.newBuilder()
+        .maximumSize(MAX_ENTRIES)
+        .build();
+  }
+
+  CoverageRuntime getRuntime() {
+    return jacocoRuntime;
+  }
+
+  /**
+   * JaCoCoでインストルメントしたバイトコードを返す．
+   *
+   * @param object インストルメント対象のバイナリ
+   * @return
+   * @throws IOException
+   */
+  byte[] instrument(final JavaBinaryObject object) throws IOException {
+    return get(instrumentedBytecodes, object, () -> jacocoInstrumenter
+        .instrument(object.getByteCode(), object.getFqn().value));
+  }
+
+  /**
+   * クラスの解析結果を返す．
+   *
+   * @param object 計測対象のバイナリ
+   * @return
+   * @throws IOException
+   */
+  ClassAnalysis getClassAnalysis(final JavaBinaryObject object) throws IOException {
+    return get(classAnalyses, object, () -> new ClassAnalysis(object.getByteCode()));
+  }
+
+  private <V> V get(final Cache<String, V> cache, final JavaBinaryObject object,
+      final Callable<V> loader) throws IOException {
+    // 1つのコンパイル単位から複数のクラスが生成されるため，バイナリ自体のFQNもキーに含める
+    final String key = object.getOriginFqn() + "#" + object.getOriginDigest() + "#"
+        + object.getFqn();
+    try {
+      return cache.get(key, loader);
+    } catch (final ExecutionException | UncheckedExecutionException e) {
+      throw new IOException(e.getCause());
+    }
+  }
+
+  /**
+   * 1つのクラスについて，各プローブが実行された場合に実行済みとなる行の対応表．<br>
+   * JaCoCoでは命令が実行済みか否かはプローブの論理和で決まるため，プローブ1つずつについて解析した結果を
+   * 重ね合わせると，全プローブについてAnalyzerで解析した結果と一致する．
+   */
+  static class ClassAnalysis {
+
+    private final byte[] bytecode;
+    private final long classId;
+    private final String className;
+    private final Coverage notCoveredCoverage;
+    private BitSet[] probeLines;
+
+    private ClassAnalysis(final byte[] bytecode) throws IOException {
+      this.bytecode = bytecode;
+      this.classId = CRC64.classId(bytecode);
+
+      // プローブなしで解析すると，実行可能な行がすべて実行されていないCoverageになる
+      final IClassCoverage classCoverage = analyzeClass(new ExecutionDataStore());
+      this.className = classCoverage.getName();
+      if (classCoverage.getInstructionCounter()
+          .getTotalCount() == 0) {
+        // CoverageBuilderと同様に命令を持たないクラスは除外する
+        this.notCoveredCoverage = null;
+      } else {
+        this.notCoveredCoverage = new Coverage(classCoverage);
+      }
+    }
+
+    long getClassId() {
+      return classId;
+    }
+
+    /**
+     * @return 1行も実行されていない場合のCoverage．命令を1つも持たないクラスの場合はnull
+     */
+    Coverage getNotCoveredCoverage() {
+      return notCoveredCoverage;
+    }
+
+    /**
+     * 実行されたプローブからCoverageを求める．
+     *
+     * @param probes インストルメントしたクラスが記録したプローブ
+     * @return 命令を1つも持たないクラスの場合はnull
+     * @throws IOException
+     */
+    Coverage createCoverage(final boolean[] probes) throws IOException {
+      if (notCoveredCoverage == null) {
+        return null;
+      }
+
+      final BitSet[] lines = getProbeLines(probes.length);
+      final BitSet coveredLines = new BitSet();
+      for (int probe = 0; probe < probes.length; probe++) {
+        if (probes[probe]) {
+          coveredLines.or(lines[probe]);
+        }
+      }
+      if (coveredLines.isEmpty()) {
+        return notCoveredCoverage;
+      }
+
+      return notCoveredCoverage.cover(coveredLines);
+    }
+
+    private synchronized BitSet[] getProbeLines(final int probeCount) throws IOException {
+      if (probeLines != null) {
+        return probeLines;
+      }
+
+      final BitSet[] lines = new BitSet[probeCount];
+      for (int probe = 0; probe < probeCount; probe++) {
+        final boolean[] probes = new boolean[probeCount];
+        probes[probe] = true;
+        final ExecutionDataStore executionData = new ExecutionDataStore();
+        executionData.put(new ExecutionData(classId, className, probes));
+        lines[probe] = getCoveredLines(analyzeClass(executionData));
+      }
+      probeLines = lines;
+      return probeLines;
+    }
+
+    private IClassCoverage analyzeClass(final ExecutionDataStore executionData)
+        throws IOException {
+      final List<IClassCoverage> classCoverages = new ArrayList<>();
+      final Analyzer analyzer = new Analyzer(executionData, classCoverages::add);
+      analyzer.analyzeClass(bytecode, "");
+      return classCoverages.get(0);
+    }
+
+    private BitSet getCoveredLines(final IClassCoverage classCoverage) {
+      final BitSet lines = new BitSet();
+      final int lastLine = classCoverage.getLastLine();
+      for (int line = Math.max(1, classCoverage.getFirstLine()); line <= lastLine; line++) {
+        final int status = classCoverage.getLine(line)
+            .getStatus();
+        if (status == ICounter.FULLY_COVERED || status == ICounter.PARTLY_COVERED) {
+          lines.set(line - 1);
+        }
+      }
+      return lines;
+    }
+  }
+}
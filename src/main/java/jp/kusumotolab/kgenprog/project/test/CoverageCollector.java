@@ -0,0 +1,71 @@
+package jp.kusumotolab.kgenprog.project.test;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jacoco.core.runtime.RuntimeData;
+import jp.kusumotolab.kgenprog.project.FullyQualifiedName;
+import jp.kusumotolab.kgenprog.project.build.JavaBinaryObject;
+import jp.kusumotolab.kgenprog.project.test.CoverageCache.ClassAnalysis;
+
+/**
+ * テストメソッドごとのCoverageの回収器．<br>
+ * テストメソッドの実行後にRuntimeDataが保持するプローブ配列を直接走査し，事前に求めたプローブと行の対応表から
+ * Coverageを求める．ExecutionDataStoreやAnalyzerをテストメソッドごとに生成しないため，
+ * 回収のコストは実行されたクラスのプローブ数に比例する．
+ */
+class CoverageCollector {
+
+  private final Map<Long, ClassAnalysis> measuredAnalyses;
+
+  /**
+   * @param measuredBinaries 計測対象のバイナリ
+   * @param coverageCache クラスの解析結果のキャッシュ
+   * @throws IOException
+   */
+  CoverageCollector(final List<JavaBinaryObject> measuredBinaries,
+      final CoverageCache coverageCache) throws IOException {
+    this.measuredAnalyses = new HashMap<>();
+    for (final JavaBinaryObject binary : measuredBinaries) {
+      final ClassAnalysis analysis = coverageCache.getClassAnalysis(binary);
+      if (analysis.getNotCoveredCoverage() != null) {
+        measuredAnalyses.put(analysis.getClassId(), analysis);
+      }
+    }
+  }
+
+  /**
+   * RuntimeDataに記録されたプローブから，計測対象のクラスごとのCoverageを求める．
+   *
+   * @param runtimeData テストメソッドを実行したRuntimeData
+   * @return 計測対象のクラスごとのCoverage
+   * @throws IOException
+   */
+  Map<FullyQualifiedName, Coverage> collect(final RuntimeData runtimeData) throws IOException {
+    // RuntimeDataのロックを握る時間を短くするため，プローブ配列の複製のみを取り出してから解析する
+    final Map<ClassAnalysis, boolean[]> probesMap = new HashMap<>();
+    runtimeData.collect(data -> {
+      final ClassAnalysis analysis = measuredAnalyses.get(data.getId());
+      if (analysis != null) {
+        probesMap.put(analysis, data.getProbes()
+            .clone());
+      }
+    }, info -> {
+    }, false);
+
+    final Map<FullyQualifiedName, Coverage> coverages = new HashMap<>();
+    for (final Map.Entry<ClassAnalysis, boolean[]> entry : probesMap.entrySet()) {
+      final Coverage coverage = entry.getKey()
+          .createCoverage(entry.getValue());
+      coverages.put(coverage.executedTargetFQN, coverage);
+    }
+
+    // 一度も実行されていないクラスは，1行も実行されていないCoverageを共有する
+    for (final ClassAnalysis analysis : measuredAnalyses.values()) {
+      final Coverage coverage = analysis.getNotCoveredCoverage();
+      coverages.putIfAbsent(coverage.executedTargetFQN, coverage);
+    }
+    return coverages;
+  }
+}
@@ -0,0 +1,179 @@
+package jp.kusumotolab.kgenprog.project.test;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import jp.kusumotolab.kgenprog.project.FullyQualifiedName;
+import jp.kusumotolab.kgenprog.project.LineNumberRange;
+
+/**
+ * 1つの計測対象クラスについて，全テストメソッドのCoverageを列指向で保持する行列．<br>
+ * 行ごとに，Statusの序数の下位ビットと上位ビットをテストメソッドのインデックスを添字とするBitSetで保持する．
+ * ある行を実行したテストメソッドの集合がBitSetの演算のみで求まる．
+ */
+class CoverageMatrix implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final FullyQualifiedName targetFQN;
+  private final BitSet measuredTests;
+  private int[] lengths;
+  private final List<BitSet> lowerBits;
+  private final List<BitSet> upperBits;
+
+  /**
+   * @param targetFQN 計測対象クラスのFQN
+   */
+  CoverageMatrix(final FullyQualifiedName targetFQN) {
+    this.targetFQN = targetFQN;
+    this.measuredTests = new BitSet();
+    this.lengths = new int[0];
+    this.lowerBits = new ArrayList<>();
+    this.upperBits = new ArrayList<>();
+  }
+
+  /**
+   * テストメソッドのCoverageを格納する．既に格納されている場合は置き換える．
+   *
+   * @param testIndex テストメソッドのインデックス
+   * @param coverage 格納するCoverage
+   */
+  void put(final int testIndex, final Coverage coverage) {
+    remove(testIndex);
+    measuredTests.set(testIndex);
+    if (testIndex >= lengths.length) {
+      lengths = Arrays.copyOf(lengths, Math.max(testIndex + 1, lengths.length * 2));
+    }
+    lengths[testIndex] = coverage.statuses.size();
+    put(lowerBits, coverage.getLowerBits(), testIndex);
+    put(upperBits, coverage.getUpperBits(), testIndex);
+  }
+
+  private void put(final List<BitSet> columns, final BitSet bits, final int testIndex) {
+    for (int line = bits.nextSetBit(0); line >= 0; line = bits.nextSetBit(line + 1)) {
+      while (columns.size() <= line) {
+        columns.add(new BitSet());
+      }
+      columns.get(line)
+          .set(testIndex);
+    }
+  }
+
+  /**
+   * テストメソッドのCoverageを取り除く．
+   *
+   * @param testIndex テストメソッドのインデックス
+   */
+  void remove(final int testIndex) {
+    if (!measuredTests.get(testIndex)) {
+      return;
+    }
+    measuredTests.clear(testIndex);
+    lowerBits.forEach(b -> b.clear(testIndex));
+    upperBits.forEach(b -> b.clear(testIndex));
+  }
+
+  /**
+   * @return 格納されているCoverageの行数の最大値
+   */
+  int getNumberOfLines() {
+    int numberOfLines = 0;
+    for (int test = measuredTests.nextSetBit(0); test >= 0; test =
+        measuredTests.nextSetBit(test + 1)) {
+      numberOfLines = Math.max(numberOfLines, lengths[test]);
+    }
+    return numberOfLines;
+  }
+
+  /**
+   * テストメソッドのCoverageを取り出す．
+   *
+   * @param testIndex テストメソッドのインデックス
+   * @return 格納されていない場合はnull
+   */
+  Coverage get(final int testIndex) {
+    if (!measuredTests.get(testIndex)) {
+      return null;
+    }
+    final int length = lengths[testIndex];
+    return new Coverage(targetFQN, length, get(lowerBits, testIndex, length),
+        get(upperBits, testIndex, length));
+  }
+
+  private BitSet get(final List<BitSet> columns, final int testIndex, final int length) {
+    final BitSet bits = new BitSet(length);
+    final int end = Math.min(length, columns.size());
+    for (int line = 0; line < end; line++) {
+      if (columns.get(line)
+          .get(testIndex)) {
+        bits.set(line);
+      }
+    }
+    return bits;
+  }
+
+  /**
+   * 行ごとに，COVEREDおよびNOT_COVEREDであったテストメソッドの数を失敗と成功に分けて各配列に加算する．<br>
+   * 各行の列を1度ずつ走査するだけで求める．配列の長さを超える行は数えない．
+   *
+   * @param failedTests 失敗したテストメソッドのインデックスの集合
+   * @param ef 行番号-1を添字とする，その行を実行した失敗テストの数
+   * @param ep 行番号-1を添字とする，その行を実行した成功テストの数
+   * @param nf 行番号-1を添字とする，その行を実行しなかった失敗テストの数
+   * @param np 行番号-1を添字とする，その行を実行しなかった成功テストの数
+   */
+  void countTests(final BitSet failedTests, final int[] ef, final int[] ep, final int[] nf,
+      final int[] np) {
+    final BitSet tests = new BitSet();
+    final int end = Math.min(ef.length, Math.max(lowerBits.size(), upperBits.size()));
+    for (int index = 0; index < end; index++) {
+      final BitSet lower = index < lowerBits.size() ? lowerBits.get(index) : null;
+      final BitSet upper = index < upperBits.size() ? upperBits.get(index) : null;
+
+      // COVEREDは上位ビットのみが，NOT_COVEREDは下位ビットのみが立つ
+      if (upper != null) {
+        count(tests, upper, lower, failedTests, ef, ep, index);
+      }
+      if (lower != null) {
+        count(tests, lower, upper, failedTests, nf, np, index);
+      }
+    }
+  }
+
+  private void count(final BitSet tests, final BitSet column, final BitSet excluded,
+      final BitSet failedTests, final int[] failed, final int[] passed, final int index) {
+    tests.clear();
+    tests.or(column);
+    if (excluded != null) {
+      tests.andNot(excluded);
+    }
+    final int total = tests.cardinality();
+    tests.and(failedTests);
+    final int failedCount = tests.cardinality();
+    failed[index] += failedCount;
+    passed[index] += total - failedCount;
+  }
+
+  /**
+   * 指定した行範囲のいずれかの行を実行したテストメソッドの集合を返す．
+   *
+   * @param range 行の範囲
+   * @return テストメソッドのインデックスの集合
+   */
+  BitSet getTestsCovering(final LineNumberRange range) {
+    final BitSet tests = new BitSet();
+    final int end = Math.min(range.end, upperBits.size());
+    for (int index = Math.max(1, range.start) - 1; index < end; index++) {
+      // COVEREDは上位ビットのみが立つ
+      final BitSet covered = (BitSet) upperBits.get(index)
+          .clone();
+      if (index < lowerBits.size()) {
+        covered.andNot(lowerBits.get(index));
+      }
+      tests.or(covered);
+    }
+    return tests;
+  }
+}
@@ -0,0 +1,63 @@
+package jp.kusumotolab.kgenprog.project.test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jacoco.core.runtime.AbstractRuntime;
+import org.jacoco.core.runtime.RuntimeData;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * テスト実行の担い手ごとに独立したJaCoCoランタイム．<br>
+ * JaCoCoのLoggerRuntimeは全インスタンスでjava.util.loggingの単一のロガーを共有しており，
+ * 並列に実行すると全ワーカーのプローブ取得が同じロガーのハンドラ群を経由してしまう．<br>
+ * 本ランタイムではインストルメントされたクラスがランタイム固有のキーでRuntimeDataを直接引くため，
+ * ランタイム同士が干渉しない．
+ */
+public class CoverageRuntime extends AbstractRuntime {
+
+  private static final Map<String, RuntimeData> runtimeDataMap = new ConcurrentHashMap<>();
+  private static final String OWNER = CoverageRuntime.class.getName()
+      .replace('.', '/');
+
+  private final String key;
+
+  public CoverageRuntime() {
+    this.key = createRandomId();
+  }
+
+  /**
+   * インストルメントされたクラスから参照されるRuntimeDataを差し替える．<br>
+   * テスト実行ごとに新しいRuntimeDataで呼び出してよい．
+   */
+  @Override
+  public void startup(final RuntimeData data) {
+    this.data = data;
+    runtimeDataMap.put(key, data);
+  }
+
+  @Override
+  public void shutdown() {
+    runtimeDataMap.remove(key);
+  }
+
+  @Override
+  public int generateDataAccessor(final long classid, final String classname,
+      final int probecount, final MethodVisitor mv) {
+    mv.visitLdcInsn(key);
+    mv.visitMethodInsn(Opcodes.INVOKESTATIC, OWNER, "getRuntimeData",
+        "(Ljava/lang/String;)Ljava/lang/Object;", false);
+    RuntimeData.generateAccessCall(classid, classname, probecount, mv);
+    return 6;
+  }
+
+  /**
+   * インストルメントされたクラスから呼び出される．直接呼び出さないこと．
+   *
+   * @param key ランタイム固有のキー
+   * @return キーに対応するRuntimeData
+   */
+  public static Object getRuntimeData(final String key) {
+    return runtimeDataMap.get(key);
+  }
+}
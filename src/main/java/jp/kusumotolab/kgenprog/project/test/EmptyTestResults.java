@@ -1,6 +1,9 @@
 package jp.kusumotolab.kgenprog.project.test;
 
+import java.util.Collections;
+import java.util.Set;
 import jp.kusumotolab.kgenprog.project.ASTLocation;
+import jp.kusumotolab.kgenprog.project.FullyQualifiedName;
 import jp.kusumotolab.kgenprog.project.ProductSourcePath;
 
 public class EmptyTestResults extends TestResults {
@@ -11,6 +14,17 @@ public class EmptyTestResults extends TestResults {
 
   private EmptyTestResults() {}
 
+  // デシリアライズ時にもシングルトンを維持する
+  private Object readResolve() {
+    return instance;
+  }
+
+  // ビルドに失敗しているため，計測対象のクラスは存在しない
+  @Override
+  public Set<FullyQualifiedName> getCorrespondingFqns(final ProductSourcePath productSourcePath) {
+    return Collections.emptySet();
+  }
+
   @Override
   public double getSuccessRate() {
     return Double.NaN;
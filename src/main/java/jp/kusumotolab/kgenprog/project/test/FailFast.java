@@ -0,0 +1,105 @@
+package jp.kusumotolab.kgenprog.project.test;
+
+import java.io.Serializable;
+import org.junit.runner.Description;
+import org.junit.runner.manipulation.Sorter;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.junit.runner.notification.RunNotifier;
+import jp.kusumotolab.kgenprog.ga.variant.Variant;
+
+/**
+ * テスト実行の早期打ち切り（fail-fast）の条件．<br>
+ * 失敗したテストの数から，全テストを実行しても成功率が打ち切り値を上回れないことが確定した時点でテストの実行を止める．
+ * 打ち切り値には次世代に選択されるために必要な成功率の下限を与える．<br>
+ * 打ち切りを早く判定できるよう，親個体で失敗したテストなど失敗しそうなテストを先に実行する．
+ *
+ * @see TestPriority
+ */
+class FailFast implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final double cutoff;
+  private final TestPriority priority;
+
+  /**
+   * @param cutoff 打ち切り値となる成功率
+   * @param priority テストの実行順の優先度
+   */
+  FailFast(final double cutoff, final TestPriority priority) {
+    this.cutoff = cutoff;
+    this.priority = priority;
+  }
+
+  /**
+   * @param variant テスト対象の個体
+   * @param cutoff 打ち切り値となる成功率
+   * @param originalTestResults 実行順の優先度に用いる初期個体のテスト結果（nullの場合は親個体の情報のみを用いる）
+   * @return 打ち切り値が定まっていない（NaNの）場合はnull
+   */
+  static FailFast create(final Variant variant, final double cutoff,
+      final TestResults originalTestResults) {
+    if (Double.isNaN(cutoff)) {
+      return null;
+    }
+    return new FailFast(cutoff, TestPriority.create(variant, originalTestResults));
+  }
+
+  /**
+   * 優先度の高いテストメソッド，およびそれを含むテストクラスを先に実行するSorterを生成する．
+   *
+   * @return
+   */
+  Sorter createSorter() {
+    return priority.createSorter();
+  }
+
+  /**
+   * 成功率が打ち切り値を上回れないことが確定した時点で，notifierにテストの停止を要求するRunListenerを生成する．
+   *
+   * @param notifier テストの実行に用いるRunNotifier
+   * @param testCount 実行するテストメソッドの総数
+   * @return
+   */
+  RunListener createListener(final RunNotifier notifier, final int testCount) {
+    return new RunListener() {
+
+      private int failureCount = 0;
+      private boolean wasFailed;
+
+      @Override
+      public void testStarted(final Description description) {
+        wasFailed = false;
+      }
+
+      @Override
+      public void testFailure(final Failure failure) {
+        wasFailed = true;
+      }
+
+      @Override
+      public void testFinished(final Description description) {
+        if (!wasFailed) {
+          return;
+        }
+        failureCount++;
+        final double maxSuccessRate = (double) (testCount - failureCount) / testCount;
+        if (maxSuccessRate < cutoff) {
+          notifier.pleaseStop();
+        }
+      }
+    };
+  }
+
+  /**
+   * テストの実行が打ち切られた可能性があるか否かを返す．<br>
+   * 打ち切られた場合，実行したテストのみの成功率は必ず打ち切り値を下回る．
+   *
+   * @param testResults このFailFastを用いて実行したテストの結果
+   * @return
+   */
+  boolean mayHaveStopped(final TestResults testResults) {
+    return testResults.getSuccessRate() < cutoff;
+  }
+}
@@ -0,0 +1,243 @@
+package jp.kusumotolab.kgenprog.project.test;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.reactivex.Single;
+import io.reactivex.schedulers.Schedulers;
+import jp.kusumotolab.kgenprog.Configuration;
+import jp.kusumotolab.kgenprog.ga.variant.Variant;
+import jp.kusumotolab.kgenprog.project.FullyQualifiedName;
+import jp.kusumotolab.kgenprog.project.GeneratedSourceCode;
+import jp.kusumotolab.kgenprog.project.build.BinaryDiskCache;
+import jp.kusumotolab.kgenprog.project.build.BinaryStore;
+import jp.kusumotolab.kgenprog.project.build.BuildResults;
+import jp.kusumotolab.kgenprog.project.build.ClassPathIndex;
+import jp.kusumotolab.kgenprog.project.build.ProjectBuilder;
+
+/**
+ * 使い回される子プロセスのJVM上でテストを実行するTestExecutor．<br>
+ * ビルドはkGenProg側で行い，バイトコードのみを子プロセスに渡してテストを実行させる．<br>
+ * JVMの起動やJUnit等のクラスロードのコストは子プロセスごとに1度しか発生せず，
+ * 無限ループ等で結果が返らない場合も子プロセスを強制終了するだけで済む．
+ *
+ * @see TestWorker
+ */
+public class ForkedTestExecutor implements TestExecutor {
+
+  private static final Logger log = LoggerFactory.getLogger(ForkedTestExecutor.class);
+
+  private final Configuration config;
+  private final ProjectBuilder projectBuilder;
+  private final TestResultsDiskCache diskCache;
+  private final int workerCount;
+  private final Semaphore permits;
+  private final BlockingQueue<TestProcess> idleProcesses;
+  private final Set<TestProcess> allProcesses;
+  private final ExecutorService executorService;
+  private final ScheduledExecutorService watchdog;
+  private volatile double selectionCutoff;
+  private volatile TestTimeLimits testTimeLimits;
+  private volatile TestResults originalTestResults;
+  private volatile boolean finished;
+
+  public ForkedTestExecutor(final Configuration config) {
+    this.config = config;
+    this.projectBuilder = new ProjectBuilder(config.getTargetProject(), new BinaryStore(),
+        new ClassPathIndex(config.getTargetProject()
+            .getClassPaths()),
+        config.getCompiler(), config.usesDiskCache() ? new BinaryDiskCache(
+            config.getDiskCacheDir(), config.getTargetProject(), config.getCompiler()) : null);
+    this.diskCache = config.usesDiskCache() ? new TestResultsDiskCache(config) : null;
+    this.workerCount = config.getWorkerCount();
+    this.permits = new Semaphore(workerCount);
+    this.idleProcesses = new LinkedBlockingQueue<>();
+    this.allProcesses = ConcurrentHashMap.newKeySet();
+    this.executorService = Executors.newFixedThreadPool(workerCount,
+        new ThreadFactoryBuilder().setNameFormat("forked-test-executor-%d")
+            .setDaemon(true)
+            .build());
+    this.watchdog = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("forked-test-watchdog")
+            .setDaemon(true)
+            .build());
+    this.selectionCutoff = Double.NaN;
+    this.testTimeLimits = TestTimeLimits.uniform(config.getTestTimeLimit());
+    this.finished = false;
+
+    // kGenProgが異常終了した場合でも子プロセスを残さない
+    Runtime.getRuntime()
+        .addShutdownHook(new Thread(this::destroyAllProcesses));
+  }
+
+  /**
+   * 子プロセスを事前に起動しておく
+   */
+  @Override
+  public void initialize() {
+    for (int i = allProcesses.size(); i < workerCount; i++) {
+      try {
+        idleProcesses.add(startProcess());
+      } catch (final IOException e) {
+        log.warn("failed to start a test process: {}", e.getMessage());
+        return;
+      }
+    }
+  }
+
+  @Override
+  public TestResults exec(final Variant variant) {
+    final GeneratedSourceCode generatedSourceCode = variant.getGeneratedSourceCode();
+    if (!generatedSourceCode.isGenerationSuccess()) {
+      return EmptyTestResults.instance;
+    }
+
+    final BuildResults buildResults = build(generatedSourceCode);
+    if (buildResults.isBuildFailed) {
+      return EmptyTestResults.instance;
+    }
+    if (null != diskCache) {
+      final TestResults cachedTestResults = diskCache.load(generatedSourceCode, buildResults);
+      if (null != cachedTestResults) {
+        return cachedTestResults;
+      }
+    }
+
+    final FailFast failFast = config.usesFailFast()
+        ? FailFast.create(variant, selectionCutoff, originalTestResults)
+        : null;
+    if (config.usesTestSelection()) {
+      // 選択したテストのみの成功率は打ち切りの判定に使えないため，全テストを実行する場合のみ打ち切る
+      return TestSelection.exec(variant, selected -> exec(generatedSourceCode, buildResults,
+          selected, selected == null ? failFast : null));
+    }
+    return exec(generatedSourceCode, buildResults, null, failFast);
+  }
+
+  private TestResults exec(final GeneratedSourceCode generatedSourceCode,
+      final BuildResults buildResults, final Set<FullyQualifiedName> selectedTestFQNs,
+      final FailFast failFast) {
+    final TestResults testResults = exec(buildResults, selectedTestFQNs, failFast);
+
+    if (null != failFast && failFast.mayHaveStopped(testResults)) {
+      testResults.setMayHaveStopped();
+    }
+
+    // 全テストを実行し終えた結果のみをディスク上のキャッシュに書き込む
+    if (null != diskCache && null == selectedTestFQNs && !testResults.mayHaveStopped()) {
+      diskCache.save(generatedSourceCode, testResults);
+    }
+    return testResults;
+  }
+
+  private TestResults exec(final BuildResults buildResults,
+      final Set<FullyQualifiedName> selectedTestFQNs, final FailFast failFast) {
+    final TestRequest request = new TestRequest(buildResults, config.getTargetProject(),
+        config.getExecutedTests(), selectedTestFQNs, failFast, testTimeLimits,
+        config.usesHotSwap());
+    final TestResults testResults = execInProcess(request);
+
+    // buildResultsはシリアライズされないので改めて設定する
+    if (testResults != EmptyTestResults.instance) {
+      testResults.setBuildResults(buildResults);
+    }
+    return testResults;
+  }
+
+  @Override
+  public Single<TestResults> execAsync(final Single<Variant> variantSingle) {
+    return variantSingle.subscribeOn(Schedulers.from(executorService))
+        .map(this::exec);
+  }
+
+  @Override
+  public void setSelectionCutoff(final double cutoff) {
+    selectionCutoff = cutoff;
+  }
+
+  @Override
+  public void setTestTimeLimits(final TestTimeLimits testTimeLimits) {
+    this.testTimeLimits = testTimeLimits;
+  }
+
+  @Override
+  public void setOriginalTestResults(final TestResults originalTestResults) {
+    this.originalTestResults = originalTestResults;
+  }
+
+  @Override
+  public void finish() {
+    finished = true;
+    executorService.shutdown();
+    watchdog.shutdown();
+    destroyAllProcesses();
+  }
+
+  // ProjectBuilderはスレッドセーフではないため，ビルドのみ排他する
+  private BuildResults build(final GeneratedSourceCode generatedSourceCode) {
+    synchronized (projectBuilder) {
+      return projectBuilder.build(generatedSourceCode);
+    }
+  }
+
+  private TestResults execInProcess(final TestRequest request) {
+    try {
+      permits.acquire();
+    } catch (final InterruptedException e) {
+      Thread.currentThread()
+          .interrupt();
+      return EmptyTestResults.instance;
+    }
+
+    TestProcess process = null;
+    try {
+      process = takeProcess();
+      return process.exec(request, config.getVariantTimeLimit(), watchdog);
+    } catch (final IOException | ClassNotFoundException e) {
+      // 制限時間を超えたため強制終了した場合もここに来る
+      log.debug("test process was terminated: {}", e.toString());
+      return EmptyTestResults.instance;
+    } finally {
+      releaseProcess(process);
+      permits.release();
+    }
+  }
+
+  private TestProcess takeProcess() throws IOException {
+    final TestProcess process = idleProcesses.poll();
+    return process != null ? process : startProcess();
+  }
+
+  private void releaseProcess(final TestProcess process) {
+    if (process == null) {
+      return;
+    }
+    if (!finished && process.isReusable()) {
+      idleProcesses.add(process);
+      return;
+    }
+    allProcesses.remove(process);
+    process.destroy();
+  }
+
+  private TestProcess startProcess() throws IOException {
+    final TestProcess process = TestProcess.start(config.usesHotSwap());
+    allProcesses.add(process);
+    return process;
+  }
+
+  private void destroyAllProcesses() {
+    allProcesses.forEach(TestProcess::destroy);
+    allProcesses.clear();
+    idleProcesses.clear();
+  }
+}
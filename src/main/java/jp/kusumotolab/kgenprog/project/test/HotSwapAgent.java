@@ -0,0 +1,60 @@
+package jp.kusumotolab.kgenprog.project.test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.instrument.Instrumentation;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+/**
+ * TestWorkerのJVMにjava.lang.instrumentのInstrumentationを渡すJavaエージェント．<br>
+ * エージェントのjarにはマニフェストのみを含め，本クラスはTestWorkerと同じクラスパスから読み込ませる．
+ *
+ * @see HotSwapper
+ */
+public final class HotSwapAgent {
+
+  private static volatile Instrumentation instrumentation;
+  private static File agentJar;
+
+  private HotSwapAgent() {}
+
+  public static void premain(final String args, final Instrumentation inst) {
+    instrumentation = inst;
+  }
+
+  /**
+   * @return エージェントとして起動された場合はInstrumentation，それ以外はnull
+   */
+  static Instrumentation getInstrumentation() {
+    return instrumentation;
+  }
+
+  /**
+   * -javaagentに指定するjarを返す．初回の呼び出しで一時ファイルとして生成する．
+   *
+   * @return エージェントのjar
+   * @throws IOException jarの生成に失敗した場合
+   */
+  static synchronized File getAgentJar() throws IOException {
+    if (agentJar != null) {
+      return agentJar;
+    }
+
+    final Manifest manifest = new Manifest();
+    final Attributes attributes = manifest.getMainAttributes();
+    attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    attributes.put(new Attributes.Name("Premain-Class"), HotSwapAgent.class.getName());
+    attributes.put(new Attributes.Name("Can-Redefine-Classes"), "true");
+
+    final File file = File.createTempFile("kgenprog-agent", ".jar");
+    file.deleteOnExit();
+    // マニフェストのみのjar
+    final JarOutputStream out = new JarOutputStream(new FileOutputStream(file), manifest);
+    out.close();
+    agentJar = file;
+    return agentJar;
+  }
+}
@@ -0,0 +1,162 @@
+package jp.kusumotolab.kgenprog.project.test;
+
+import java.io.IOException;
+import java.lang.instrument.ClassDefinition;
+import java.lang.instrument.Instrumentation;
+import java.lang.instrument.UnmodifiableClassException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import jp.kusumotolab.kgenprog.project.ClassPath;
+import jp.kusumotolab.kgenprog.project.build.BinaryStore;
+import jp.kusumotolab.kgenprog.project.build.JavaBinaryObject;
+
+/**
+ * 実験的機能．TestWorkerのJVMで1つのMemoryClassLoaderを使い回し，個体ごとに変更のあるクラスのみを再定義する．<br>
+ * 多くの個体は親とメソッドの本体のみが異なるため，Instrumentation#redefineClassesで読み込み済みのクラスを置き換えられる．
+ * クラスの増減やメソッドの追加などで再定義できない場合は，新たなMemoryClassLoaderに全クラスを読み込み直す．<br>
+ * クラスの静的初期化は読み込み直すまで再実行されないため，static変数の状態は個体間で持ち越される．
+ *
+ * @see HotSwapAgent
+ */
+class HotSwapper {
+
+  private static final Logger log = LoggerFactory.getLogger(HotSwapper.class);
+
+  // JaCoCoがインストルメントしたクラスに追加する，プローブ配列をキャッシュするフィールド
+  private static final String PROBE_FIELD_NAME = "$jacocoData";
+
+  private final Instrumentation instrumentation;
+  private final CoverageCache coverageCache;
+  private MemoryClassLoader classLoader;
+  private List<ClassPath> classPaths;
+  private Map<String, byte[]> bytecodes;
+  private int redefinedCount;
+  private int reloadedCount;
+
+  /**
+   * @param instrumentation クラスの再定義に用いるInstrumentation
+   * @param coverageCache プロダクトのクラスのインストルメントに用いるキャッシュ
+   */
+  HotSwapper(final Instrumentation instrumentation, final CoverageCache coverageCache) {
+    this.instrumentation = instrumentation;
+    this.coverageCache = coverageCache;
+  }
+
+  /**
+   * binaryStoreのクラスを定義したMemoryClassLoaderを返す．<br>
+   * 前回から変更のあるクラスのうち読み込み済みのものは再定義し，未読み込みのものは定義のみを差し替える．
+   * 再定義できない場合は新たなMemoryClassLoaderを生成する．
+   *
+   * @param binaryStore テスト対象のバイナリ
+   * @param classPaths ライブラリのクラスパス
+   * @return テストの実行に用いるMemoryClassLoader．閉じずに次の呼び出しまで使い回す
+   * @throws IOException インストルメントに失敗した場合
+   */
+  synchronized MemoryClassLoader prepare(final BinaryStore binaryStore,
+      final List<ClassPath> classPaths) throws IOException {
+    final Map<String, JavaBinaryObject> binaries = new HashMap<>();
+    for (final JavaBinaryObject binary : binaryStore.getAll()) {
+      binaries.put(binary.getFqn().value, binary);
+    }
+
+    if (classLoader == null || !classPaths.equals(this.classPaths) || !binaries.keySet()
+        .equals(bytecodes.keySet())) {
+      return reload(binaries, classPaths);
+    }
+
+    final List<ClassDefinition> definitions = new ArrayList<>();
+    for (final JavaBinaryObject binary : binaries.values()) {
+      final String name = binary.getFqn().value;
+      if (Arrays.equals(binary.getByteCode(), bytecodes.get(name))) {
+        continue;
+      }
+      final byte[] bytecode = instrument(binary);
+      final Class<?> loadedClass = classLoader.getLoadedClass(name);
+      if (loadedClass != null) {
+        definitions.add(new ClassDefinition(loadedClass, bytecode));
+      }
+      classLoader.addDefinition(binary.getFqn(), bytecode);
+      bytecodes.put(name, binary.getByteCode());
+    }
+
+    try {
+      instrumentation.redefineClasses(definitions.toArray(new ClassDefinition[0]));
+    } catch (final ClassNotFoundException | UnsupportedOperationException | LinkageError
+        | UnmodifiableClassException e) {
+      // メソッドやフィールドの増減など，再定義できない変更
+      log.debug("failed to redefine classes: {}", e.toString());
+      return reload(binaries, classPaths);
+    }
+    if (!resetProbes()) {
+      return reload(binaries, classPaths);
+    }
+    redefinedCount += definitions.size();
+    return classLoader;
+  }
+
+  /**
+   * 使い回しているMemoryClassLoaderを閉じる
+   */
+  synchronized void close() {
+    log.debug("hot swap: redefined={}, reloaded={}", redefinedCount, reloadedCount);
+    if (classLoader != null) {
+      SharedClassLoaders.release(classLoader);
+      classLoader = null;
+    }
+  }
+
+  private MemoryClassLoader reload(final Map<String, JavaBinaryObject> binaries,
+      final List<ClassPath> classPaths) throws IOException {
+    close();
+    reloadedCount++;
+    this.classLoader = SharedClassLoaders.createVariantClassLoader(classPaths);
+    this.classPaths = new ArrayList<>(classPaths);
+    this.bytecodes = new HashMap<>();
+    for (final JavaBinaryObject binary : binaries.values()) {
+      classLoader.addDefinition(binary.getFqn(), instrument(binary));
+      bytecodes.put(binary.getFqn().value, binary.getByteCode());
+    }
+    return classLoader;
+  }
+
+  private byte[] instrument(final JavaBinaryObject binary) throws IOException {
+    return binary.isTest() ? binary.getByteCode() : coverageCache.instrument(binary);
+  }
+
+  /**
+   * 読み込み済みのクラスがキャッシュしているプローブ配列を捨てる．<br>
+   * テストの実行ごとにRuntimeDataが替わり，再定義したクラスではプローブの数も変わりうるため，
+   * 次にプローブを記録する際にランタイムから取得し直させる．
+   *
+   * @return すべてのクラスで捨てられた場合はtrue
+   */
+  private boolean resetProbes() {
+    for (final String name : bytecodes.keySet()) {
+      final Class<?> loadedClass = classLoader.getLoadedClass(name);
+      if (loadedClass == null) {
+        continue;
+      }
+      try {
+        final Field field = loadedClass.getDeclaredField(PROBE_FIELD_NAME);
+        if (Modifier.isFinal(field.getModifiers())) {
+          // インタフェースではプローブ配列が定数となるため捨てられない
+          return false;
+        }
+        field.setAccessible(true);
+        field.set(null, null);
+      } catch (final NoSuchFieldException e) {
+        // インストルメントされていないテストのクラス等
+      } catch (final IllegalAccessException | SecurityException e) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -1,47 +1,178 @@
 package jp.kusumotolab.kgenprog.project.test;
 
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import jp.kusumotolab.kgenprog.Configuration;
 import jp.kusumotolab.kgenprog.ga.variant.Variant;
+import jp.kusumotolab.kgenprog.project.FullyQualifiedName;
 import jp.kusumotolab.kgenprog.project.GeneratedSourceCode;
+import jp.kusumotolab.kgenprog.project.build.BinaryDiskCache;
+import jp.kusumotolab.kgenprog.project.build.BinaryStore;
 import jp.kusumotolab.kgenprog.project.build.BuildResults;
+import jp.kusumotolab.kgenprog.project.build.ClassPathIndex;
 import jp.kusumotolab.kgenprog.project.build.ProjectBuilder;
 
+/**
+ * kGenProgと同じJVM上でテストを実行するTestExecutor．<br>
+ * ProjectBuilderとJaCoCoランタイムを1つずつ所有するため，同時には1つの個体しか評価できない．
+ * 並列に評価する場合は {@link ParallelTestExecutor} を用いること．<br>
+ * 制限時間を超えたテストのスレッドは強制停止せずに見捨てる．見捨てたスレッドがプローブを書き込み続けないよう，
+ * その後はJaCoCoランタイムを作り直す．
+ */
 public class LocalTestExecutor implements TestExecutor {
 
+  private static final Logger log = LoggerFactory.getLogger(LocalTestExecutor.class);
+
   private final Configuration config;
   private final ProjectBuilder projectBuilder;
+  private final TestWatchdog watchdog;
+  private CoverageRuntime jacocoRuntime;
+  private CoverageCache coverageCache;
+  private final TestResultsDiskCache diskCache;
+  private final ClassLoader libraryClassLoader;
+  private final AtomicBoolean finished;
+  private volatile double selectionCutoff;
+  private volatile TestTimeLimits testTimeLimits;
+  private volatile TestResults originalTestResults;
 
   public LocalTestExecutor(final Configuration config) {
+    this(config, new BinaryStore(), new ClassPathIndex(config.getTargetProject()
+        .getClassPaths()));
+  }
+
+  /**
+   * @param config
+   * @param binaryStore コンパイル済みバイナリのキャッシュ．他のLocalTestExecutorと共有してよい
+   * @param classPathIndex ライブラリのクラスパスの索引．他のLocalTestExecutorと共有してよい
+   */
+  LocalTestExecutor(final Configuration config, final BinaryStore binaryStore,
+      final ClassPathIndex classPathIndex) {
     this.config = config;
-    projectBuilder = new ProjectBuilder(config.getTargetProject());
+    projectBuilder = new ProjectBuilder(config.getTargetProject(), binaryStore, classPathIndex,
+        config.getCompiler(), config.usesDiskCache() ? new BinaryDiskCache(
+            config.getDiskCacheDir(), config.getTargetProject(), config.getCompiler()) : null);
+    diskCache = config.usesDiskCache() ? new TestResultsDiskCache(config) : null;
+    jacocoRuntime = new CoverageRuntime();
+    coverageCache = new CoverageCache(jacocoRuntime);
+    watchdog = new TestWatchdog("kgenprog-test-thread");
+    selectionCutoff = Double.NaN;
+    testTimeLimits = TestTimeLimits.uniform(config.getTestTimeLimit());
+
+    // 個体をまたいでライブラリのClassLoaderを使い回すため，finishまで参照を保持する
+    libraryClassLoader = SharedClassLoaders.acquireLibraryClassLoader(config.getTargetProject()
+        .getClassPaths());
+    finished = new AtomicBoolean(false);
   }
 
   @Override
-  public TestResults exec(final Variant variant) {
+  public synchronized TestResults exec(final Variant variant) {
     final GeneratedSourceCode generatedSourceCode = variant.getGeneratedSourceCode();
     if (!generatedSourceCode.isGenerationSuccess()) {
       return EmptyTestResults.instance;
     }
 
     final BuildResults buildResults = projectBuilder.build(generatedSourceCode);
+    if (null != diskCache && !buildResults.isBuildFailed) {
+      final TestResults cachedTestResults = diskCache.load(generatedSourceCode, buildResults);
+      if (null != cachedTestResults) {
+        return cachedTestResults;
+      }
+    }
+
+    final FailFast failFast = config.usesFailFast()
+        ? FailFast.create(variant, selectionCutoff, originalTestResults)
+        : null;
+    if (config.usesTestSelection()) {
+      // 選択したテストのみの成功率は打ち切りの判定に使えないため，全テストを実行する場合のみ打ち切る
+      return TestSelection.exec(variant, selected -> exec(generatedSourceCode, buildResults,
+          selected, selected == null ? failFast : null));
+    }
+    return exec(generatedSourceCode, buildResults, null, failFast);
+  }
+
+  private TestResults exec(final GeneratedSourceCode generatedSourceCode,
+      final BuildResults buildResults, final Set<FullyQualifiedName> selectedTestFQNs,
+      final FailFast failFast) {
+    final TestResults testResults = exec(buildResults, selectedTestFQNs, failFast);
 
-    final TestThread testThread =
-        new TestThread(buildResults, config.getTargetProject(), config.getExecutedTests());
-    final ExecutorService executor = Executors.newSingleThreadExecutor();
-    final Future<?> future = executor.submit(testThread);
-    executor.shutdown();
+    if (null != failFast && failFast.mayHaveStopped(testResults)) {
+      testResults.setMayHaveStopped();
+    }
+
+    // 全テストを実行し終えた結果のみをディスク上のキャッシュに書き込む
+    if (null != diskCache && null == selectedTestFQNs && !testResults.mayHaveStopped()) {
+      diskCache.save(generatedSourceCode, testResults);
+    }
+    return testResults;
+  }
+
+  private TestResults exec(final BuildResults buildResults,
+      final Set<FullyQualifiedName> selectedTestFQNs, final FailFast failFast) {
+    final TestThread testThread = new TestThread(buildResults, config.getTargetProject(),
+        config.getExecutedTests(), coverageCache, selectedTestFQNs, failFast,
+        testTimeLimits);
     try {
-      future.get();
-    } catch (final ExecutionException | InterruptedException e) {
-      // TODO Should handle safely
-      // Executor側での例外をそのまま通す．
-      e.printStackTrace();
+      // テストメソッドごとの制限時間で打ち切れない暴走（@BeforeClass内の無限ループ等）は個体ごとの制限時間で打ち切る
+      watchdog.call(() -> {
+        testThread.run();
+        return null;
+      }, config.getVariantTimeLimit());
+    } catch (final TimeoutException e) {
+      log.debug("test execution exceeded the time limit: {}", config.getVariantTimeLimit());
+      renewCoverageRuntime();
+      return EmptyTestResults.instance;
+    } catch (final ExecutionException e) {
+      log.error("failed to execute tests", e.getCause());
+      return EmptyTestResults.instance;
+    } catch (final InterruptedException e) {
+      log.error("interrupted while executing tests", e);
+      Thread.currentThread()
+          .interrupt();
+      return EmptyTestResults.instance;
     }
 
+    if (testThread.hasAbandonedThreads()) {
+      renewCoverageRuntime();
+    }
     return testThread.getTestResults();
   }
+
+  /**
+   * 見捨てたスレッドが実行し続けるインストルメント済みのクラスを古いランタイムごと切り離す．<br>
+   * 古いランタイムのキーを取り除くため，それらのクラスは以降の個体のRuntimeDataに書き込まない．
+   */
+  private void renewCoverageRuntime() {
+    jacocoRuntime.shutdown();
+    jacocoRuntime = new CoverageRuntime();
+    coverageCache = new CoverageCache(jacocoRuntime);
+  }
+
+  @Override
+  public void setSelectionCutoff(final double cutoff) {
+    selectionCutoff = cutoff;
+  }
+
+  @Override
+  public void setTestTimeLimits(final TestTimeLimits testTimeLimits) {
+    this.testTimeLimits = testTimeLimits;
+  }
+
+  @Override
+  public void setOriginalTestResults(final TestResults originalTestResults) {
+    this.originalTestResults = originalTestResults;
+  }
+
+  @Override
+  public void finish() {
+    if (finished.getAndSet(true)) {
+      return;
+    }
+    watchdog.close();
+    jacocoRuntime.shutdown();
+    SharedClassLoaders.releaseLibraryClassLoader(libraryClassLoader);
+  }
 }
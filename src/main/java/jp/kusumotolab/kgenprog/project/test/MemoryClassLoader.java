@@ -1,5 +1,6 @@
 package jp.kusumotolab.kgenprog.project.test;
 
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
@@ -22,11 +23,21 @@ public class MemoryClassLoader extends URLClassLoader {
     super(urls);
   }
 
+  /**
+   * @param urls メモリ上にないクラスを読み込むクラスパス
+   * @param parent 親のClassLoader．ライブラリのクラスを共有する場合に指定する
+   */
+  public MemoryClassLoader(final URL[] urls, final ClassLoader parent) {
+    super(urls, parent);
+  }
+
   /**
    * クラス定義を表すMap． クラス名とバイト配列のペアを持つ．
    */
   private final Map<String, byte[]> definitions = new HashMap<>();
 
+  private int definedClassCount = 0;
+
   /**
    * メモリ上のバイト配列をクラス定義に追加する．
    * 
@@ -55,7 +66,9 @@ public class MemoryClassLoader extends URLClassLoader {
     final byte[] bytes = definitions.get(name);
     if (bytes != null) {
       try {
-        return defineClass(name.toString(), bytes, 0, bytes.length);
+        final Class<?> clazz = defineClass(name.toString(), bytes, 0, bytes.length);
+        definedClassCount++;
+        return clazz;
       } catch (final LinkageError e) {
         // クラスのロードに失敗した，可能性はバイナリが不正か，二重ロード．
 
@@ -71,4 +84,28 @@ public class MemoryClassLoader extends URLClassLoader {
     return super.loadClass(name.toString(), resolve);
   }
 
+  /**
+   * @param name クラス名
+   * @return このClassLoaderで読み込み済みのクラス．未読み込みの場合はnull
+   */
+  Class<?> getLoadedClass(final String name) {
+    return findLoadedClass(name);
+  }
+
+  /**
+   * @return メモリ上のバイト配列から定義したクラスの数
+   */
+  public int getDefinedClassCount() {
+    return definedClassCount;
+  }
+
+  /**
+   * クラス定義を捨てて，このClassLoaderを閉じる．
+   */
+  @Override
+  public void close() throws IOException {
+    definitions.clear();
+    super.close();
+  }
+
 }
@@ -1,29 +1,114 @@
 package jp.kusumotolab.kgenprog.project.test;
 
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import io.reactivex.Single;
 import io.reactivex.schedulers.Schedulers;
+import jp.kusumotolab.kgenprog.Configuration;
 import jp.kusumotolab.kgenprog.ga.variant.Variant;
+import jp.kusumotolab.kgenprog.project.build.BinaryStore;
+import jp.kusumotolab.kgenprog.project.build.ClassPathIndex;
 
+/**
+ * 複数のワーカーで並列に個体を評価するTestExecutor．<br>
+ * 各ワーカーは空いている間だけ1つの個体を担当するため，ワーカー内部の状態が並列に触られることはない．
+ */
 public class ParallelTestExecutor implements TestExecutor {
 
-  private final ExecutorService executorService = Executors.newFixedThreadPool(Runtime.getRuntime()
-      .availableProcessors());
-  private final TestExecutor testExecutor;
+  private final ExecutorService executorService;
+  private final List<TestExecutor> workers;
+  private final BlockingQueue<TestExecutor> idleWorkers;
 
+  /**
+   * ProjectBuilderとJaCoCoランタイムを個別に持つLocalTestExecutorをワーカーとして生成する．<br>
+   * コンパイル済みバイナリのキャッシュとライブラリのクラスパスの索引は全ワーカーで共有する．
+   *
+   * @param config
+   */
+  public ParallelTestExecutor(final Configuration config) {
+    this(createLocalTestExecutors(config));
+  }
+
+  /**
+   * 与えられたTestExecutorを利用可能なプロセッサ数のスレッドから共有して使う．<br>
+   * testExecutorがスレッドセーフでない場合，実質的には逐次に評価される．
+   *
+   * @param testExecutor
+   */
   public ParallelTestExecutor(final TestExecutor testExecutor) {
-    this.testExecutor = testExecutor;
+    this(Collections.nCopies(Runtime.getRuntime()
+        .availableProcessors(), testExecutor));
+  }
+
+  private ParallelTestExecutor(final List<TestExecutor> workers) {
+    this.executorService = Executors.newFixedThreadPool(workers.size());
+    this.workers = workers;
+    this.idleWorkers = new LinkedBlockingQueue<>(workers);
   }
 
   @Override
   public TestResults exec(final Variant variant) {
-    return testExecutor.exec(variant);
+    final TestExecutor worker;
+    try {
+      worker = idleWorkers.take();
+    } catch (final InterruptedException e) {
+      Thread.currentThread()
+          .interrupt();
+      return EmptyTestResults.instance;
+    }
+
+    try {
+      return worker.exec(variant);
+    } finally {
+      idleWorkers.add(worker);
+    }
   }
 
   @Override
   public Single<TestResults> execAsync(final Single<Variant> variantSingle) {
     return variantSingle.subscribeOn(Schedulers.from(executorService))
-        .map(testExecutor::exec);
+        .map(this::exec);
+  }
+
+  @Override
+  public void setSelectionCutoff(final double cutoff) {
+    new LinkedHashSet<>(workers).forEach(w -> w.setSelectionCutoff(cutoff));
+  }
+
+  @Override
+  public void setTestTimeLimits(final TestTimeLimits testTimeLimits) {
+    new LinkedHashSet<>(workers).forEach(w -> w.setTestTimeLimits(testTimeLimits));
+  }
+
+  @Override
+  public void setOriginalTestResults(final TestResults originalTestResults) {
+    new LinkedHashSet<>(workers).forEach(w -> w.setOriginalTestResults(originalTestResults));
+  }
+
+  @Override
+  public void initialize() {
+    new LinkedHashSet<>(workers).forEach(TestExecutor::initialize);
+  }
+
+  @Override
+  public void finish() {
+    executorService.shutdown();
+    new LinkedHashSet<>(workers).forEach(TestExecutor::finish);
+  }
+
+  private static List<TestExecutor> createLocalTestExecutors(final Configuration config) {
+    final BinaryStore binaryStore = new BinaryStore();
+    final ClassPathIndex classPathIndex = new ClassPathIndex(config.getTargetProject()
+        .getClassPaths());
+    return IntStream.range(0, config.getWorkerCount())
+        .mapToObj(i -> new LocalTestExecutor(config, binaryStore, classPathIndex))
+        .collect(Collectors.toList());
   }
 }
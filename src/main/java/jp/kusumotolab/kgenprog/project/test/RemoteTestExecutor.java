@@ -0,0 +1,369 @@
+package jp.kusumotolab.kgenprog.project.test;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.reactivex.Single;
+import io.reactivex.schedulers.Schedulers;
+import jp.kusumotolab.kgenprog.Configuration;
+import jp.kusumotolab.kgenprog.ga.variant.Variant;
+import jp.kusumotolab.kgenprog.project.FullyQualifiedName;
+import jp.kusumotolab.kgenprog.project.GeneratedSourceCode;
+import jp.kusumotolab.kgenprog.project.build.BinaryDiskCache;
+import jp.kusumotolab.kgenprog.project.build.BinaryStore;
+import jp.kusumotolab.kgenprog.project.build.BuildResults;
+import jp.kusumotolab.kgenprog.project.build.ClassPathIndex;
+import jp.kusumotolab.kgenprog.project.build.ProjectBuilder;
+
+/**
+ * 他のホストで起動したTestWorkerServerでテストを実行するTestExecutor．<br>
+ * ビルドはkGenProg側で行い，ForkedTestExecutorと同じTestRequestをソケット越しに送ってテストを実行させる．<br>
+ * 各サーバにworkerCount本ずつ接続し，接続ごとのスレッドが共有のキューから要求を取り出して送る．
+ * 空いた接続から順に要求を取るため，速いサーバほど多くの要求を処理する．
+ * ビルドを行うスレッドの数を接続の総数に抑えるため，キューに積まれる要求も接続の総数を超えない．<br>
+ * 接続が切れた場合は処理中の要求をキューの先頭に戻して他の接続に実行させ，切れた接続は一定間隔で繋ぎ直す．<br>
+ * 各接続は {@link Configuration#getRemoteWorkerSecret()} の秘密鍵でサーバの認証を受けてから要求を送る．
+ *
+ * @see TestWorkerServer
+ */
+public class RemoteTestExecutor implements TestExecutor {
+
+  private static final Logger log = LoggerFactory.getLogger(RemoteTestExecutor.class);
+
+  // 同じ要求でサーバが落ち続ける場合に，全サーバを巻き込まないよう再実行を打ち切る回数
+  private static final int MAX_ATTEMPTS = 3;
+  private static final long RECONNECT_INTERVAL_MILLIS = 1000;
+  private static final int CONNECT_TIMEOUT_MILLIS = 10000;
+
+  // サーバ側での強制終了を待つ猶予．これを過ぎても応答がなければサーバが落ちたとみなす
+  private static final long RESPONSE_MARGIN_MILLIS = 10000;
+
+  private final Configuration config;
+  private final ProjectBuilder projectBuilder;
+  private final TestResultsDiskCache diskCache;
+  private final List<InetSocketAddress> addresses;
+  private final byte[] secret;
+  private final BlockingDeque<Job> jobs;
+  private final ExecutorService executorService;
+  private final ExecutorService connectionService;
+  private volatile double selectionCutoff;
+  private volatile TestTimeLimits testTimeLimits;
+  private volatile TestResults originalTestResults;
+  private volatile boolean initialized;
+  private volatile boolean finished;
+
+  public RemoteTestExecutor(final Configuration config) {
+    this.config = config;
+    this.projectBuilder = new ProjectBuilder(config.getTargetProject(), new BinaryStore(),
+        new ClassPathIndex(config.getTargetProject()
+            .getClassPaths()),
+        config.getCompiler(), config.usesDiskCache() ? new BinaryDiskCache(
+            config.getDiskCacheDir(), config.getTargetProject(), config.getCompiler()) : null);
+    this.diskCache = config.usesDiskCache() ? new TestResultsDiskCache(config) : null;
+    this.addresses = config.getRemoteWorkers()
+        .stream()
+        .map(RemoteTestExecutor::parseAddress)
+        .collect(Collectors.toList());
+    if (addresses.isEmpty()) {
+      throw new IllegalArgumentException("no remote worker is specified.");
+    }
+    final String remoteWorkerSecret = config.getRemoteWorkerSecret();
+    if (remoteWorkerSecret == null || remoteWorkerSecret.isEmpty()) {
+      throw new IllegalArgumentException("no secret for remote workers is specified.");
+    }
+    this.secret = remoteWorkerSecret.getBytes(StandardCharsets.UTF_8);
+    final int connectionCount = addresses.size() * config.getWorkerCount();
+    this.jobs = new LinkedBlockingDeque<>();
+    this.executorService = Executors.newFixedThreadPool(connectionCount,
+        new ThreadFactoryBuilder().setNameFormat("remote-test-executor-%d")
+            .setDaemon(true)
+            .build());
+    this.connectionService = Executors.newFixedThreadPool(connectionCount,
+        new ThreadFactoryBuilder().setNameFormat("remote-test-connection-%d")
+            .setDaemon(true)
+            .build());
+    this.selectionCutoff = Double.NaN;
+    this.testTimeLimits = TestTimeLimits.uniform(config.getTestTimeLimit());
+    this.initialized = false;
+    this.finished = false;
+  }
+
+  /**
+   * 各サーバへの接続を開始する
+   */
+  @Override
+  public synchronized void initialize() {
+    if (initialized) {
+      return;
+    }
+    initialized = true;
+    for (final InetSocketAddress address : addresses) {
+      for (int i = 0; i < config.getWorkerCount(); i++) {
+        connectionService.execute(() -> dispatch(address));
+      }
+    }
+  }
+
+  @Override
+  public TestResults exec(final Variant variant) {
+    final GeneratedSourceCode generatedSourceCode = variant.getGeneratedSourceCode();
+    if (!generatedSourceCode.isGenerationSuccess()) {
+      return EmptyTestResults.instance;
+    }
+
+    final BuildResults buildResults = build(generatedSourceCode);
+    if (buildResults.isBuildFailed) {
+      return EmptyTestResults.instance;
+    }
+    if (null != diskCache) {
+      final TestResults cachedTestResults = diskCache.load(generatedSourceCode, buildResults);
+      if (null != cachedTestResults) {
+        return cachedTestResults;
+      }
+    }
+
+    final FailFast failFast = config.usesFailFast()
+        ? FailFast.create(variant, selectionCutoff, originalTestResults)
+        : null;
+    if (config.usesTestSelection()) {
+      // 選択したテストのみの成功率は打ち切りの判定に使えないため，全テストを実行する場合のみ打ち切る
+      return TestSelection.exec(variant, selected -> exec(generatedSourceCode, buildResults,
+          selected, selected == null ? failFast : null));
+    }
+    return exec(generatedSourceCode, buildResults, null, failFast);
+  }
+
+  private TestResults exec(final GeneratedSourceCode generatedSourceCode,
+      final BuildResults buildResults, final Set<FullyQualifiedName> selectedTestFQNs,
+      final FailFast failFast) {
+    final TestRequest request = new TestRequest(buildResults, config.getTargetProject(),
+        config.getExecutedTests(), selectedTestFQNs, failFast, testTimeLimits,
+        config.usesHotSwap());
+    final TestResults testResults = execRemotely(request);
+
+    // buildResultsはシリアライズされないので改めて設定する
+    if (testResults == EmptyTestResults.instance) {
+      return testResults;
+    }
+    testResults.setBuildResults(buildResults);
+
+    if (null != failFast && failFast.mayHaveStopped(testResults)) {
+      testResults.setMayHaveStopped();
+    }
+
+    // 全テストを実行し終えた結果のみをディスク上のキャッシュに書き込む
+    if (null != diskCache && null == selectedTestFQNs && !testResults.mayHaveStopped()) {
+      diskCache.save(generatedSourceCode, testResults);
+    }
+    return testResults;
+  }
+
+  @Override
+  public Single<TestResults> execAsync(final Single<Variant> variantSingle) {
+    return variantSingle.subscribeOn(Schedulers.from(executorService))
+        .map(this::exec);
+  }
+
+  @Override
+  public void setSelectionCutoff(final double cutoff) {
+    selectionCutoff = cutoff;
+  }
+
+  @Override
+  public void setTestTimeLimits(final TestTimeLimits testTimeLimits) {
+    this.testTimeLimits = testTimeLimits;
+  }
+
+  @Override
+  public void setOriginalTestResults(final TestResults originalTestResults) {
+    this.originalTestResults = originalTestResults;
+  }
+
+  @Override
+  public void finish() {
+    finished = true;
+    executorService.shutdown();
+    connectionService.shutdownNow();
+
+    // 実行されずに残った要求を待つスレッドを解放する
+    Job job;
+    while ((job = jobs.poll()) != null) {
+      job.result.complete(EmptyTestResults.instance);
+    }
+  }
+
+  // ProjectBuilderはスレッドセーフではないため，ビルドのみ排他する
+  private BuildResults build(final GeneratedSourceCode generatedSourceCode) {
+    synchronized (projectBuilder) {
+      return projectBuilder.build(generatedSourceCode);
+    }
+  }
+
+  private TestResults execRemotely(final TestRequest request) {
+    initialize();
+    if (finished) {
+      return EmptyTestResults.instance;
+    }
+
+    final Job job = new Job(request);
+    jobs.add(job);
+    try {
+      return job.result.get();
+    } catch (final InterruptedException e) {
+      Thread.currentThread()
+          .interrupt();
+      return EmptyTestResults.instance;
+    } catch (final ExecutionException e) {
+      return EmptyTestResults.instance;
+    }
+  }
+
+  /**
+   * 1本の接続を受け持つスレッドの処理．<br>
+   * 接続できている間はキューから要求を取り出して実行させ，接続が切れれば繋ぎ直す．
+   *
+   * @param address 接続先のサーバ
+   */
+  private void dispatch(final InetSocketAddress address) {
+    while (!finished) {
+      final Connection connection;
+      try {
+        connection = new Connection(address, secret);
+      } catch (final IOException e) {
+        log.debug("failed to connect to {}: {}", address, e.toString());
+        if (!sleep(RECONNECT_INTERVAL_MILLIS)) {
+          return;
+        }
+        continue;
+      }
+
+      try {
+        while (!finished) {
+          final Job job = jobs.take();
+          try {
+            job.result.complete(connection.exec(job.request, config.getVariantTimeLimit()));
+          } catch (final IOException | ClassNotFoundException e) {
+            log.warn("lost the connection to {}: {}", address, e.toString());
+            requeue(job);
+            break;
+          }
+        }
+      } catch (final InterruptedException e) {
+        Thread.currentThread()
+            .interrupt();
+        return;
+      } finally {
+        connection.close();
+      }
+    }
+  }
+
+  private void requeue(final Job job) {
+    job.attempts++;
+    if (MAX_ATTEMPTS <= job.attempts) {
+      log.warn("gave up testing a variant after {} attempts", job.attempts);
+      job.result.complete(EmptyTestResults.instance);
+      return;
+    }
+    jobs.addFirst(job);
+  }
+
+  private boolean sleep(final long millis) {
+    try {
+      Thread.sleep(millis);
+      return true;
+    } catch (final InterruptedException e) {
+      Thread.currentThread()
+          .interrupt();
+      return false;
+    }
+  }
+
+  private static InetSocketAddress parseAddress(final String address) {
+    final int separator = address.lastIndexOf(':');
+    if (separator < 0) {
+      throw new IllegalArgumentException("remote worker must be host:port: " + address);
+    }
+    return new InetSocketAddress(address.substring(0, separator),
+        Integer.parseInt(address.substring(separator + 1)));
+  }
+
+  /**
+   * キューに積まれる1つのテスト実行の要求
+   */
+  private static class Job {
+
+    private final TestRequest request;
+    private final CompletableFuture<TestResults> result;
+    private int attempts;
+
+    private Job(final TestRequest request) {
+      this.request = request;
+      this.result = new CompletableFuture<>();
+      this.attempts = 0;
+    }
+  }
+
+  /**
+   * TestWorkerServerへの1本の接続．同時に1つの要求しか処理できない．
+   */
+  private static class Connection {
+
+    private final Socket socket;
+    private final ObjectOutputStream out;
+    private final ObjectInputStream in;
+
+    private Connection(final InetSocketAddress address, final byte[] secret)
+        throws IOException {
+      this.socket = new Socket();
+      try {
+        socket.connect(address, CONNECT_TIMEOUT_MILLIS);
+        socket.setSoTimeout(CONNECT_TIMEOUT_MILLIS);
+        TestWorkerServer.authenticate(secret, socket.getInputStream(), socket.getOutputStream());
+        this.out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        this.out.flush();
+        this.in = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+      } catch (final IOException e) {
+        socket.close();
+        throw e;
+      }
+    }
+
+    private TestResults exec(final TestRequest request, final Duration timeout)
+        throws IOException, ClassNotFoundException {
+      socket.setSoTimeout(
+          (int) Math.min(Integer.MAX_VALUE, timeout.toMillis() + RESPONSE_MARGIN_MILLIS));
+      out.writeLong(timeout.toMillis());
+      out.writeObject(request);
+      out.reset();
+      out.flush();
+      return (TestResults) in.readObject();
+    }
+
+    private void close() {
+      try {
+        socket.close();
+      } catch (final IOException e) {
+        // 繋ぎ直すので無視してよい
+      }
+    }
+  }
+}
@@ -0,0 +1,168 @@
+package jp.kusumotolab.kgenprog.project.test;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import jp.kusumotolab.kgenprog.project.ClassPath;
+
+/**
+ * テストの実行に用いるClassLoaderの階層を管理する．<br>
+ * ライブラリのクラスは個体によって変わらないため，クラスパスごとに1つだけ生成したClassLoaderで読み込み，
+ * 個体ごとのMemoryClassLoaderの親として使い回す．これによりライブラリを個体ごとに読み込み直してリンクし直すことを避ける．<br>
+ * 共有のClassLoaderは参照の数を数え，最後の参照が返された時点で閉じる．
+ * 個体をまたいで使い回すため，TestExecutor等の所有者は生存中に参照を1つ保持しておくこと．<br>
+ * 一方でプロジェクトのクラスは，変更のないものも含めて個体ごとのMemoryClassLoaderで読み込む．
+ * 変更のないクラスも変更したクラスを参照しうるうえ，共有するとstatic変数の状態が個体間で持ち越されてしまうためである．
+ * 同じ理由で，プロジェクト内のテスト用の補助クラスを個体間で共有する中間の層も設けない．
+ * JUnitやHamcrest等のテスト用ライブラリは，kGenProgのクラスパスにあるものは親のClassLoaderから，
+ * それ以外はライブラリのClassLoaderから読み込まれるため，既に個体間で共有されている．
+ */
+final class SharedClassLoaders {
+
+  private static final Logger log = LoggerFactory.getLogger(SharedClassLoaders.class);
+
+  // 以下の2つのMapはSharedClassLoaders.classで排他する
+  private static final Map<List<ClassPath>, LibraryClassLoader> libraryClassLoaders =
+      new HashMap<>();
+  private static final Map<ClassLoader, LibraryClassLoader> entriesByClassLoader =
+      new IdentityHashMap<>();
+
+  private static final AtomicLong createdCount = new AtomicLong();
+  private static final AtomicLong reusedCount = new AtomicLong();
+  private static final AtomicLong closedCount = new AtomicLong();
+  private static final AtomicLong releasedCount = new AtomicLong();
+  private static final AtomicLong definedClassCount = new AtomicLong();
+
+  private SharedClassLoaders() {}
+
+  /**
+   * 個体のクラスを読み込むMemoryClassLoaderを生成する．使い終えたら {@link #release} を呼ぶこと．
+   *
+   * @param classPaths ライブラリのクラスパス
+   * @return ライブラリを読み込む共有のClassLoaderを親とするMemoryClassLoader
+   */
+  static MemoryClassLoader createVariantClassLoader(final List<ClassPath> classPaths) {
+    return new MemoryClassLoader(new URL[] {}, acquireLibraryClassLoader(classPaths));
+  }
+
+  /**
+   * 個体のMemoryClassLoaderを閉じる．定義を捨てて，読み込んだクラスを回収可能にする．
+   * 親の共有のClassLoaderへの参照も返す．
+   *
+   * @param classLoader 閉じるMemoryClassLoader
+   */
+  static void release(final MemoryClassLoader classLoader) {
+    releasedCount.incrementAndGet();
+    definedClassCount.addAndGet(classLoader.getDefinedClassCount());
+    try {
+      classLoader.close();
+    } catch (final IOException e) {
+      log.debug("failed to close a class loader: {}", e.toString());
+    }
+    releaseLibraryClassLoader(classLoader.getParent());
+  }
+
+  /**
+   * 共有のClassLoaderへの参照を1つ得る．使い終えたら {@link #releaseLibraryClassLoader} を呼ぶこと．
+   *
+   * @param classPaths ライブラリのクラスパス
+   * @return classPathsのライブラリを読み込む共有のClassLoader
+   */
+  static synchronized ClassLoader acquireLibraryClassLoader(final List<ClassPath> classPaths) {
+    LibraryClassLoader libraryClassLoader = libraryClassLoaders.get(classPaths);
+    if (libraryClassLoader == null) {
+      createdCount.incrementAndGet();
+      final List<ClassPath> key = new ArrayList<>(classPaths);
+      libraryClassLoader = new LibraryClassLoader(key, new URLClassLoader(toURLs(key)));
+      libraryClassLoaders.put(key, libraryClassLoader);
+      entriesByClassLoader.put(libraryClassLoader.classLoader, libraryClassLoader);
+    } else {
+      reusedCount.incrementAndGet();
+    }
+    libraryClassLoader.references++;
+    return libraryClassLoader.classLoader;
+  }
+
+  /**
+   * 共有のClassLoaderへの参照を1つ返す．最後の参照であれば閉じ，以降の要求では新たに生成する．
+   *
+   * @param classLoader {@link #acquireLibraryClassLoader} で得たClassLoader
+   */
+  static void releaseLibraryClassLoader(final ClassLoader classLoader) {
+    final URLClassLoader closed;
+    synchronized (SharedClassLoaders.class) {
+      final LibraryClassLoader libraryClassLoader = entriesByClassLoader.get(classLoader);
+      if (libraryClassLoader == null || 0 < --libraryClassLoader.references) {
+        return;
+      }
+      libraryClassLoaders.remove(libraryClassLoader.classPaths);
+      entriesByClassLoader.remove(classLoader);
+      closed = libraryClassLoader.classLoader;
+    }
+
+    closedCount.incrementAndGet();
+    log.debug("class loaders: {}", getStatistics());
+    try {
+      closed.close();
+    } catch (final IOException e) {
+      log.debug("failed to close a class loader: {}", e.toString());
+    }
+  }
+
+  /**
+   * @return ClassLoaderの生成と再利用と破棄の回数，および個体ごとに定義したクラスの数
+   */
+  static String getStatistics() {
+    return String.format(
+        "library(created=%d, reused=%d, closed=%d), variant(released=%d, classes=%d)",
+        createdCount.get(), reusedCount.get(), closedCount.get(), releasedCount.get(),
+        definedClassCount.get());
+  }
+
+  static long getCreatedCount() {
+    return createdCount.get();
+  }
+
+  static long getReusedCount() {
+    return reusedCount.get();
+  }
+
+  private static URL[] toURLs(final List<ClassPath> classPaths) {
+    final URL[] urls = new URL[classPaths.size()];
+    for (int i = 0; i < urls.length; i++) {
+      try {
+        urls[i] = classPaths.get(i).path.toUri()
+            .toURL();
+      } catch (final MalformedURLException e) {
+        throw new IllegalArgumentException(e);
+      }
+    }
+    return urls;
+  }
+
+  /**
+   * 共有のClassLoaderとその参照の数
+   */
+  private static class LibraryClassLoader {
+
+    private final List<ClassPath> classPaths;
+    private final URLClassLoader classLoader;
+    private int references;
+
+    private LibraryClassLoader(final List<ClassPath> classPaths,
+        final URLClassLoader classLoader) {
+      this.classPaths = classPaths;
+      this.classLoader = classLoader;
+      this.references = 0;
+    }
+  }
+}
@@ -0,0 +1,118 @@
+package jp.kusumotolab.kgenprog.project.test;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import jp.kusumotolab.kgenprog.project.ASTLocation;
+import jp.kusumotolab.kgenprog.project.FullyQualifiedName;
+import jp.kusumotolab.kgenprog.project.ProductSourcePath;
+
+/**
+ * FLで用いる4メトリクス（ef, ep, nf, np）の索引．<br>
+ * ソースコードごとに，全行の4メトリクスを初回の参照時にまとめて数え上げて配列に保持する．
+ * 以降の参照は行ごとに定数時間で済む．
+ */
+public class Spectrum {
+
+  private final TestResults testResults;
+  private final Map<ProductSourcePath, Counters> countersMap;
+
+  Spectrum(final TestResults testResults) {
+    this.testResults = testResults;
+    this.countersMap = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * a_ep
+   *
+   * @param productSourcePath
+   * @param location
+   * @return
+   */
+  public long getNumberOfPassedTestsExecutingTheStatement(final ProductSourcePath productSourcePath,
+      final ASTLocation location) {
+    return get(getCounters(productSourcePath).ep, location);
+  }
+
+  /**
+   * a_ef
+   *
+   * @param productSourcePath
+   * @param location
+   * @return
+   */
+  public long getNumberOfFailedTestsExecutingTheStatement(final ProductSourcePath productSourcePath,
+      final ASTLocation location) {
+    return get(getCounters(productSourcePath).ef, location);
+  }
+
+  /**
+   * a_np
+   *
+   * @param productSourcePath
+   * @param location
+   * @return
+   */
+  public long getNumberOfPassedTestsNotExecutingTheStatement(
+      final ProductSourcePath productSourcePath, final ASTLocation location) {
+    return get(getCounters(productSourcePath).np, location);
+  }
+
+  /**
+   * a_nf
+   *
+   * @param productSourcePath
+   * @param location
+   * @return
+   */
+  public long getNumberOfFailedTestsNotExecutingTheStatement(
+      final ProductSourcePath productSourcePath, final ASTLocation location) {
+    return get(getCounters(productSourcePath).nf, location);
+  }
+
+  private long get(final int[] counts, final ASTLocation location) {
+    // TODO location:lineNum = 1:N の時の対策が必要．ひとまずNの一行目だけを使う．
+    final int index = location.inferLineNumbers().start - 1;
+    if (index < 0 || counts.length <= index) {
+      return 0;
+    }
+    return counts[index];
+  }
+
+  private Counters getCounters(final ProductSourcePath productSourcePath) {
+    return countersMap.computeIfAbsent(productSourcePath, this::count);
+  }
+
+  private Counters count(final ProductSourcePath productSourcePath) {
+    final Set<FullyQualifiedName> correspondingFqns =
+        testResults.getCorrespondingFqns(productSourcePath);
+    final int numberOfLines = correspondingFqns.stream()
+        .mapToInt(testResults::getNumberOfLines)
+        .max()
+        .orElse(0);
+
+    final Counters counters = new Counters(numberOfLines);
+    for (final FullyQualifiedName fqn : correspondingFqns) {
+      testResults.countTests(fqn, counters.ef, counters.ep, counters.nf, counters.np);
+    }
+    return counters;
+  }
+
+  /**
+   * 1つのソースコードについての，行番号-1を添字とする4メトリクスの配列
+   */
+  private static class Counters {
+
+    private final int[] ef;
+    private final int[] ep;
+    private final int[] nf;
+    private final int[] np;
+
+    private Counters(final int numberOfLines) {
+      this.ef = new int[numberOfLines];
+      this.ep = new int[numberOfLines];
+      this.nf = new int[numberOfLines];
+      this.np = new int[numberOfLines];
+    }
+  }
+}
@@ -5,12 +5,46 @@ import jp.kusumotolab.kgenprog.ga.variant.Variant;
 
 public interface TestExecutor {
 
+  /**
+   * テストの実行方式．<br>
+   * LOCALはkGenProgと同じJVMで，PARALLELはkGenProgと同じJVM上の複数のワーカーで並列に，
+   * FORKEDは使い回される子プロセスのJVMで，REMOTEは他のホストのTestWorkerServerでテストを実行する．
+   */
+  enum Type {
+    LOCAL, PARALLEL, FORKED, REMOTE
+  }
+
   TestResults exec(final Variant variant);
 
   default Single<TestResults> execAsync(final Single<Variant> variantSingle){
     return variantSingle.map(this::exec);
   }
 
+  /**
+   * 次世代に選択されるために必要な成功率の下限を設定する．<br>
+   * fail-fastが有効な場合，この値を上回れないことが確定した時点で個体のテスト実行を打ち切る．
+   *
+   * @param cutoff 成功率の下限（NaNの場合は打ち切らない）
+   */
+  default void setSelectionCutoff(final double cutoff) {}
+
+  /**
+   * テストメソッドごとの制限時間を設定する．設定するまでは {@link jp.kusumotolab.kgenprog.Configuration#getTestTimeLimit()}
+   * を一律に課す．
+   *
+   * @param testTimeLimits テストメソッドごとの制限時間
+   */
+  default void setTestTimeLimits(final TestTimeLimits testTimeLimits) {}
+
+  /**
+   * 初期個体のテスト結果を設定する．<br>
+   * fail-fastが有効な場合，初期個体で失敗したテストや実行時間の短いテストを先に実行し，打ち切りを早める．
+   *
+   * @param originalTestResults 初期個体のテスト結果
+   * @see TestPriority
+   */
+  default void setOriginalTestResults(final TestResults originalTestResults) {}
+
   default void initialize() {}
 
   default void finish() {}
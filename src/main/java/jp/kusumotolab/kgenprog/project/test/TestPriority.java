@@ -0,0 +1,146 @@
+package jp.kusumotolab.kgenprog.project.test;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.junit.runner.Description;
+import org.junit.runner.manipulation.Sorter;
+import jp.kusumotolab.kgenprog.ga.variant.HistoricalElement;
+import jp.kusumotolab.kgenprog.ga.variant.Variant;
+import jp.kusumotolab.kgenprog.project.FullyQualifiedName;
+
+/**
+ * テストの実行順の優先度．失敗しそうなテストを先に実行し，fail-fastによる打ち切りを早める．<br>
+ * 次の順に優先する．
+ * <ol>
+ * <li>親個体または初期個体で失敗したテスト</li>
+ * <li>親個体で変異箇所を実行したテスト</li>
+ * <li>それ以外のテスト</li>
+ * </ol>
+ * 同じ順位のテストは，初期個体で計測した実行時間の短いものから実行する．テストクラスの順位はそれに含まれる最も優先度の高いテストメソッドの順位とする．
+ */
+class TestPriority implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final int FAILED = 0;
+  private static final int COVERING = 1;
+  private static final int OTHERS = 2;
+
+  private final HashSet<FullyQualifiedName> failedTestFQNs;
+  private final HashSet<FullyQualifiedName> coveringTestFQNs;
+  private final HashMap<FullyQualifiedName, Duration> durations;
+
+  /**
+   * @param failedTestFQNs 失敗したテストメソッドのFQN
+   * @param coveringTestFQNs 変異箇所を実行したテストメソッドのFQN
+   * @param durations テストメソッドごとの実行時間
+   */
+  TestPriority(final Set<FullyQualifiedName> failedTestFQNs,
+      final Set<FullyQualifiedName> coveringTestFQNs,
+      final Map<FullyQualifiedName, Duration> durations) {
+    this.failedTestFQNs = new HashSet<>(failedTestFQNs);
+    this.coveringTestFQNs = new HashSet<>(coveringTestFQNs);
+    this.durations = new HashMap<>(durations);
+  }
+
+  /**
+   * @param variant テスト対象の個体
+   * @param originalTestResults 初期個体のテスト結果（nullの場合は親個体の情報のみを用いる）
+   * @return variantのテストの優先度
+   */
+  static TestPriority create(final Variant variant, final TestResults originalTestResults) {
+    final Set<FullyQualifiedName> failedTestFQNs = new HashSet<>();
+    final Set<FullyQualifiedName> coveringTestFQNs = new HashSet<>();
+    final Map<FullyQualifiedName, Duration> durations = new HashMap<>();
+
+    final HistoricalElement element = variant.getHistoricalElement();
+    if (element != null) {
+      for (final Variant parent : element.getParents()) {
+        final TestResults parentTestResults = parent.getTestResults();
+        if (isAvailable(parentTestResults)) {
+          failedTestFQNs.addAll(parentTestResults.getFailedTestFQNs());
+        }
+      }
+    }
+    final TestSelection selection = TestSelection.create(variant);
+    if (selection != null) {
+      coveringTestFQNs.addAll(selection.getCoveringTestFQNs());
+    }
+
+    if (isAvailable(originalTestResults)) {
+      failedTestFQNs.addAll(originalTestResults.getFailedTestFQNs());
+      for (final FullyQualifiedName testFQN : originalTestResults.getExecutedTestFQNs()) {
+        final Duration duration = originalTestResults.getDuration(testFQN);
+        if (duration != null) {
+          durations.put(testFQN, duration);
+        }
+      }
+    }
+    return new TestPriority(failedTestFQNs, coveringTestFQNs, durations);
+  }
+
+  /**
+   * 優先度の高いテストメソッド，およびそれを含むテストクラスを先に実行するSorterを生成する．
+   *
+   * @return
+   */
+  Sorter createSorter() {
+    // テストクラスの順位は子の順位から求めるため，比較のたびに求め直さないよう覚えておく
+    final Map<Description, Key> keys = new HashMap<>();
+    final Comparator<Description> comparator =
+        Comparator.comparing(d -> keys.computeIfAbsent(d, this::computeKey));
+    return new Sorter(comparator);
+  }
+
+  private Key computeKey(final Description description) {
+    if (description.isTest()) {
+      final FullyQualifiedName testFQN = TestThread.getTestMethodName(description);
+      final Duration duration = durations.get(testFQN);
+      return new Key(getRank(testFQN), duration != null ? duration.toNanos() : Long.MAX_VALUE);
+    }
+    return description.getChildren()
+        .stream()
+        .map(this::computeKey)
+        .min(Comparator.naturalOrder())
+        .orElse(new Key(OTHERS, Long.MAX_VALUE));
+  }
+
+  private int getRank(final FullyQualifiedName testFQN) {
+    if (failedTestFQNs.contains(testFQN)) {
+      return FAILED;
+    }
+    if (coveringTestFQNs.contains(testFQN)) {
+      return COVERING;
+    }
+    return OTHERS;
+  }
+
+  private static boolean isAvailable(final TestResults testResults) {
+    return testResults != null && testResults != EmptyTestResults.instance;
+  }
+
+  /**
+   * テストの順位と実行時間の組．小さいほど先に実行する
+   */
+  private static class Key implements Comparable<Key> {
+
+    private final int rank;
+    private final long duration;
+
+    private Key(final int rank, final long duration) {
+      this.rank = rank;
+      this.duration = duration;
+    }
+
+    @Override
+    public int compareTo(final Key other) {
+      final int result = Integer.compare(rank, other.rank);
+      return result != 0 ? result : Long.compare(duration, other.duration);
+    }
+  }
+}
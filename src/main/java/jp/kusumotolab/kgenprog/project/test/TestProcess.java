@@ -0,0 +1,131 @@
+package jp.kusumotolab.kgenprog.project.test;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TestWorkerを実行する子プロセスへのハンドル．<br>
+ * 1つのプロセスは同時に1つの要求しか処理できないため，利用側で排他すること．
+ *
+ * @see TestWorker
+ */
+class TestProcess {
+
+  // 静的フィールド等に状態が蓄積し続けるのを避けるため，一定回数使ったプロセスは作り直す
+  private static final int MAX_REQUESTS = 100;
+
+  private final Process process;
+  private final boolean hotSwap;
+  private final ObjectOutputStream out;
+  private ObjectInputStream in;
+  private int requestCount;
+  private boolean retired;
+
+  private TestProcess(final Process process, final boolean hotSwap) throws IOException {
+    this.process = process;
+    this.hotSwap = hotSwap;
+    this.out = new ObjectOutputStream(new BufferedOutputStream(process.getOutputStream()));
+    this.out.flush();
+    this.requestCount = 0;
+    this.retired = false;
+  }
+
+  /**
+   * 現在のJVMと同じクラスパスでTestWorkerを起動する
+   *
+   * @return 起動したプロセス
+   * @throws IOException プロセスの起動に失敗した場合
+   */
+  static TestProcess start() throws IOException {
+    return start(false);
+  }
+
+  /**
+   * 現在のJVMと同じクラスパスでTestWorkerを起動する
+   *
+   * @param hotSwap クラスを再定義するためのJavaエージェントを読み込むか否か
+   * @return 起動したプロセス
+   * @throws IOException プロセスの起動に失敗した場合
+   */
+  static TestProcess start(final boolean hotSwap) throws IOException {
+    final String java = Paths.get(System.getProperty("java.home"), "bin", "java")
+        .toString();
+    final List<String> command = new ArrayList<>();
+    command.add(java);
+    command.add("-Dfile.encoding=" + System.getProperty("file.encoding"));
+    if (hotSwap) {
+      command.add("-javaagent:" + HotSwapAgent.getAgentJar());
+    }
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(TestWorker.class.getName());
+    final Process process = new ProcessBuilder(command).directory(new File("."))
+        .redirectError(ProcessBuilder.Redirect.INHERIT)
+        .start();
+    return new TestProcess(process, hotSwap);
+  }
+
+  /**
+   * 子プロセスでテストを実行する．<br>
+   * timeoutを過ぎても結果が返らない場合はプロセスを強制終了し，IOExceptionを送出する．<br>
+   * 子プロセスがスレッドを強制停止した場合は，以降の要求には使わない．
+   *
+   * @param request 実行するテストの情報
+   * @param timeout 結果を待つ最大時間
+   * @param watchdog 強制終了のスケジュールに用いるExecutor
+   * @return テストの実行結果
+   */
+  TestResults exec(final TestRequest request, final Duration timeout,
+      final ScheduledExecutorService watchdog) throws IOException, ClassNotFoundException {
+    requestCount++;
+    final ScheduledFuture<?> killer =
+        watchdog.schedule(process::destroyForcibly, timeout.toMillis(), TimeUnit.MILLISECONDS);
+    try {
+      out.writeObject(request);
+      out.reset();
+      out.flush();
+      if (in == null) {
+        in = new ObjectInputStream(new BufferedInputStream(process.getInputStream()));
+      }
+      final TestResults testResults = (TestResults) in.readObject();
+      retired = !in.readBoolean();
+      return testResults;
+    } finally {
+      killer.cancel(false);
+    }
+  }
+
+  /**
+   * @return クラスを再定義するためのJavaエージェントを読み込んで起動したか否か
+   */
+  boolean usesHotSwap() {
+    return hotSwap;
+  }
+
+  /**
+   * @return 次の要求にも使えるか否か
+   */
+  boolean isReusable() {
+    return !retired && process.isAlive() && requestCount < MAX_REQUESTS;
+  }
+
+  void destroy() {
+    try {
+      out.close();
+    } catch (final IOException e) {
+      // 強制終了するので無視してよい
+    }
+    process.destroyForcibly();
+  }
+}
@@ -0,0 +1,166 @@
+package jp.kusumotolab.kgenprog.project.test;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.tools.DiagnosticCollector;
+import jp.kusumotolab.kgenprog.project.ClassPath;
+import jp.kusumotolab.kgenprog.project.FullyQualifiedName;
+import jp.kusumotolab.kgenprog.project.ProductSourcePath;
+import jp.kusumotolab.kgenprog.project.SourcePath;
+import jp.kusumotolab.kgenprog.project.TestSourcePath;
+import jp.kusumotolab.kgenprog.project.build.BinaryStore;
+import jp.kusumotolab.kgenprog.project.build.BuildResults;
+import jp.kusumotolab.kgenprog.project.build.JavaBinaryObject;
+import jp.kusumotolab.kgenprog.project.factory.TargetProject;
+import jp.kusumotolab.kgenprog.project.factory.TargetProjectFactory;
+
+/**
+ * 別プロセスでテストを実行するために必要な情報一式．<br>
+ * BuildResultsやTargetProjectはシリアライズできないため，パス文字列とバイトコードに分解して保持する．
+ *
+ * @see ForkedTestExecutor
+ * @see TestWorker
+ */
+class TestRequest implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final String rootPath;
+  private final List<String> productSourcePaths;
+  private final List<String> testSourcePaths;
+  private final List<String> classPaths;
+  private final List<String> executionTestNames;
+  private final HashSet<FullyQualifiedName> selectedTestFQNs;
+  private final FailFast failFast;
+  private final List<Binary> binaries;
+  private final TestTimeLimits testTimeLimits;
+  private final boolean hotSwap;
+
+  /**
+   * @param buildResults テスト対象のビルド結果
+   * @param targetProject テスト対象のプロジェクト
+   * @param executionTestNames 実行するテストクラスの名前（空の場合は全テストクラス）
+   * @param selectedTestFQNs 実行するテストメソッドのFQN（nullの場合はテストクラス中の全テストメソッド）
+   * @param failFast テスト実行の早期打ち切りの条件（nullの場合は打ち切らない）
+   * @param testTimeLimits テストメソッドごとの制限時間（nullの場合は無制限）
+   * @param hotSwap 子プロセスで前回の要求から変更のあるクラスのみを再定義するか否か
+   */
+  TestRequest(final BuildResults buildResults, final TargetProject targetProject,
+      final List<String> executionTestNames, final Set<FullyQualifiedName> selectedTestFQNs,
+      final FailFast failFast, final TestTimeLimits testTimeLimits,
+      final boolean hotSwap) {
+    this.rootPath = targetProject.rootPath.toString();
+    this.productSourcePaths = targetProject.getProductSourcePaths()
+        .stream()
+        .map(SourcePath::toString)
+        .collect(Collectors.toList());
+    this.testSourcePaths = targetProject.getTestSourcePaths()
+        .stream()
+        .map(SourcePath::toString)
+        .collect(Collectors.toList());
+    this.classPaths = targetProject.getClassPaths()
+        .stream()
+        .map(ClassPath::toString)
+        .collect(Collectors.toList());
+    this.executionTestNames = new ArrayList<>(executionTestNames);
+    this.selectedTestFQNs = selectedTestFQNs == null ? null : new HashSet<>(selectedTestFQNs);
+    this.failFast = failFast;
+    this.binaries = buildResults.getBinaryStore()
+        .getAll()
+        .stream()
+        .map(Binary::new)
+        .collect(Collectors.toList());
+    this.testTimeLimits = testTimeLimits;
+    this.hotSwap = hotSwap;
+  }
+
+  List<String> getExecutionTestNames() {
+    return executionTestNames;
+  }
+
+  Set<FullyQualifiedName> getSelectedTestFQNs() {
+    return selectedTestFQNs;
+  }
+
+  FailFast getFailFast() {
+    return failFast;
+  }
+
+  TestTimeLimits getTestTimeLimits() {
+    return testTimeLimits;
+  }
+
+  boolean usesHotSwap() {
+    return hotSwap;
+  }
+
+  TargetProject restoreTargetProject() {
+    final Path root = Paths.get(rootPath);
+    final List<ProductSourcePath> productPaths = productSourcePaths.stream()
+        .map(p -> new ProductSourcePath(root, Paths.get(p)))
+        .collect(Collectors.toList());
+    final List<TestSourcePath> testPaths = testSourcePaths.stream()
+        .map(p -> new TestSourcePath(root, Paths.get(p)))
+        .collect(Collectors.toList());
+    final List<ClassPath> cps = classPaths.stream()
+        .map(p -> new ClassPath(Paths.get(p)))
+        .collect(Collectors.toList());
+    return TargetProjectFactory.create(root, productPaths, testPaths, cps);
+  }
+
+  BuildResults restoreBuildResults() {
+    final Path root = Paths.get(rootPath);
+    final BinaryStore binaryStore = new BinaryStore();
+    binaries.stream()
+        .map(b -> b.restore(root))
+        .forEach(binaryStore::add);
+    return new BuildResults(binaryStore, new DiagnosticCollector<>(), "", false);
+  }
+
+  /**
+   * シリアライズ可能な形に分解したJavaBinaryObject
+   */
+  private static class Binary implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String fqn;
+    private final String originFqn;
+    private final String originDigest;
+    private final String originPath;
+    private final boolean isTest;
+    private final byte[] byteCode;
+
+    private Binary(final JavaBinaryObject object) {
+      this.fqn = object.getFqn().value;
+      this.originFqn = object.getOriginFqn().value;
+      this.originDigest = object.getOriginDigest();
+      this.originPath = object.getOriginPath()
+          .toString();
+      this.isTest = object.isTest();
+      this.byteCode = object.getByteCode();
+    }
+
+    private JavaBinaryObject restore(final Path root) {
+      final SourcePath path = isTest ? new TestSourcePath(root, Paths.get(originPath))
+          : new ProductSourcePath(root, Paths.get(originPath));
+      final JavaBinaryObject object = new JavaBinaryObject(path.createFullyQualifiedName(fqn),
+          path.createFullyQualifiedName(originFqn), originDigest, path, isTest);
+      try {
+        object.openOutputStream()
+            .write(byteCode);
+      } catch (final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return object;
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package jp.kusumotolab.kgenprog.project.test;
 
 import java.io.Serializable;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -9,11 +10,12 @@ import jp.kusumotolab.kgenprog.project.FullyQualifiedName;
 
 public class TestResult implements Serializable {
 
-  private static final long serialVersionUID = 1L;
+  private static final long serialVersionUID = 2L;
 
   final public FullyQualifiedName executedTestFQN;
   final public boolean failed;
   final private Map<FullyQualifiedName, Coverage> coverages;
+  final private Duration duration;
 
   /**
    * constructor
@@ -24,9 +26,23 @@ public class TestResult implements Serializable {
    */
   public TestResult(final FullyQualifiedName executedTestFQN, final boolean failed,
       final Map<FullyQualifiedName, Coverage> coverages) {
+    this(executedTestFQN, failed, coverages, null);
+  }
+
+  /**
+   * constructor
+   *
+   * @param executedTestFQN 実行したテストメソッドの名前
+   * @param failed テストの結果
+   * @param coverages テスト対象それぞれの行ごとのCoverage計測結果
+   * @param duration テストメソッドの実行時間（nullの場合は計測していない）
+   */
+  public TestResult(final FullyQualifiedName executedTestFQN, final boolean failed,
+      final Map<FullyQualifiedName, Coverage> coverages, final Duration duration) {
     this.executedTestFQN = executedTestFQN;
     this.failed = failed;
     this.coverages = coverages;
+    this.duration = duration;
   }
 
   public List<FullyQualifiedName> getExecutedTargetFQNs() {
@@ -39,6 +55,13 @@ public class TestResult implements Serializable {
     return this.coverages.get(testFQN);
   }
 
+  /**
+   * @return テストメソッドの実行時間．計測していない場合はnull
+   */
+  public Duration getDuration() {
+    return duration;
+  }
+
   @Override
   public String toString() {
     return toString(0);
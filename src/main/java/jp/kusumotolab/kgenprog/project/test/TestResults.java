@@ -7,8 +7,10 @@ import java.io.Serializable;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -23,13 +25,29 @@ import jp.kusumotolab.kgenprog.project.build.JavaBinaryObject;
 
 public class TestResults implements Serializable {
 
-  private static final long serialVersionUID = 1L;
+  private static final long serialVersionUID = 3L;
 
-  // 直接valueへのアクセスを回避するために可視性を下げておく
-  private final Map<FullyQualifiedName, TestResult> value;
+  // テスト結果はテストメソッドごとのインデックスを添字とする列指向の形式で保持し，
+  // TestResultはgetTestResultの呼び出し時に組み立てる
+  // 直接フィールドへのアクセスを回避するために可視性を下げておく
+  private final Map<FullyQualifiedName, Integer> testIndices;
+  private final List<FullyQualifiedName> testFQNs;
+  private final BitSet failedTests;
+  private final Map<FullyQualifiedName, CoverageMatrix> coverageMatrices;
+  private final Map<FullyQualifiedName, Duration> durations;
+
+  // fail-fastによりテストの実行が打ち切られた可能性があるか否か
+  private boolean mayHaveStopped;
+
+  // FLで用いる4メトリクスの索引．テスト結果かbuildResultsが変わると作り直す
+  private transient volatile Spectrum spectrum;
 
   public TestResults() {
-    this.value = new HashMap<>();
+    this.testIndices = new HashMap<>();
+    this.testFQNs = new ArrayList<>();
+    this.failedTests = new BitSet();
+    this.coverageMatrices = new HashMap<>();
+    this.durations = new HashMap<>();
   }
 
   /**
@@ -38,7 +56,32 @@ public class TestResults implements Serializable {
    * @param testResult
    */
   public void add(final TestResult testResult) {
-    this.value.put(testResult.executedTestFQN, testResult);
+    final FullyQualifiedName testFQN = testResult.executedTestFQN;
+    Integer testIndex = testIndices.get(testFQN);
+    if (testIndex == null) {
+      testIndex = testFQNs.size();
+      testFQNs.add(testFQN);
+      testIndices.put(testFQN, testIndex);
+    } else {
+      final int index = testIndex;
+      coverageMatrices.values()
+          .forEach(m -> m.remove(index));
+    }
+
+    spectrum = null;
+    failedTests.set(testIndex, testResult.failed);
+    if (testResult.getDuration() != null) {
+      durations.put(testFQN, testResult.getDuration());
+    } else {
+      durations.remove(testFQN);
+    }
+    for (final FullyQualifiedName targetFQN : testResult.getExecutedTargetFQNs()) {
+      final Coverage coverage = testResult.getCoverages(targetFQN);
+      if (coverage != null) {
+        coverageMatrices.computeIfAbsent(targetFQN, CoverageMatrix::new)
+            .put(testIndex, coverage);
+      }
+    }
   }
 
   /**
@@ -47,9 +90,8 @@ public class TestResults implements Serializable {
    * @return 失敗したテスト結果s
    */
   public List<TestResult> getFailedTestResults() {
-    return this.value.values()
-        .stream()
-        .filter(r -> r.failed)
+    return getFailedTestFQNs().stream()
+        .map(this::getTestResult)
         .collect(Collectors.toList());
   }
 
@@ -59,9 +101,8 @@ public class TestResults implements Serializable {
    * @return 成功したテスト結果s
    */
   public List<TestResult> getSuccessedTestResults() {
-    return this.value.values()
-        .stream()
-        .filter(r -> !r.failed)
+    return getSuccessedTestFQNs().stream()
+        .map(this::getTestResult)
         .collect(Collectors.toList());
   }
 
@@ -71,7 +112,7 @@ public class TestResults implements Serializable {
    * @return
    */
   public Set<FullyQualifiedName> getExecutedTestFQNs() {
-    return this.value.keySet();
+    return Collections.unmodifiableSet(this.testIndices.keySet());
   }
 
   /**
@@ -80,11 +121,7 @@ public class TestResults implements Serializable {
    * @return
    */
   public List<FullyQualifiedName> getFailedTestFQNs() {
-    return this.value.values()
-        .stream()
-        .filter(r -> r.failed)
-        .map(r -> r.executedTestFQN)
-        .collect(Collectors.toList());
+    return getTestFQNs(true);
   }
 
   /**
@@ -93,10 +130,14 @@ public class TestResults implements Serializable {
    * @return
    */
   public List<FullyQualifiedName> getSuccessedTestFQNs() {
-    return this.value.values()
+    return getTestFQNs(false);
+  }
+
+  private List<FullyQualifiedName> getTestFQNs(final boolean failed) {
+    return this.testIndices.entrySet()
         .stream()
-        .filter(r -> !r.failed)
-        .map(r -> r.executedTestFQN)
+        .filter(e -> failedTests.get(e.getValue()) == failed)
+        .map(Map.Entry::getKey)
         .collect(Collectors.toList());
   }
 
@@ -108,7 +149,32 @@ public class TestResults implements Serializable {
    */
   public TestResult getTestResult(final FullyQualifiedName testFQN) {
     // TODO if null
-    return this.value.get(testFQN);
+    final Integer testIndex = this.testIndices.get(testFQN);
+    if (testIndex == null) {
+      return null;
+    }
+
+    final Map<FullyQualifiedName, Coverage> coverages = new HashMap<>();
+    for (final Map.Entry<FullyQualifiedName, CoverageMatrix> entry : coverageMatrices
+        .entrySet()) {
+      final Coverage coverage = entry.getValue()
+          .get(testIndex);
+      if (coverage != null) {
+        coverages.put(entry.getKey(), coverage);
+      }
+    }
+    return new TestResult(testFQN, failedTests.get(testIndex), coverages,
+        durations.get(testFQN));
+  }
+
+  /**
+   * 実行された単一テストメソッドの実行時間を返す．
+   *
+   * @param testFQN 対象のテストメソッドFQN
+   * @return 実行時間．実行されていないか計測していない場合はnull
+   */
+  public Duration getDuration(final FullyQualifiedName testFQN) {
+    return durations.get(testFQN);
   }
 
   /**
@@ -117,73 +183,73 @@ public class TestResults implements Serializable {
    * @return テスト成功率
    */
   public double getSuccessRate() {
-    final int fail = getFailedTestResults().size();
-    final int success = getSuccessedTestResults().size();
+    final int fail = failedTests.cardinality();
+    final int success = testFQNs.size() - fail;
 
     return 1.0 * success / (success + fail);
   }
 
   /**
-   * FLで用いる4メトリクスのprivateなParameterized-Method
+   * 指定した行範囲のいずれかの行を実行したテストメソッドのFQN一覧を取得．
    * 
-   * @param productSourcePath
-   * @param location
-   * @param status
-   * @param failed
+   * @param productSourcePath 対象のソースコード
+   * @param range 対象の行範囲
    * @return
    */
-  private long getNumberOfTests(final ProductSourcePath productSourcePath,
-      final ASTLocation location, final Coverage.Status status, final boolean failed) {
-
-    // 翻訳1: SourcePath → [FQN]
-    final Set<FullyQualifiedName> correspondingFqns = getCorrespondingFqns(productSourcePath);
-
-    // 翻訳2: location → 行番号
-    // TODO
-    // GeneratedSourceCode#inferLineNumbers(Location) を使うか Location#inferLineNumbers()を使うか．
-    // 後者の方が嫉妬の度合いが低そう
-    // final Range correspondingRange = this.buildResults.sourceCode.inferLineNumbers(location);
-    final LineNumberRange correspondingRange = location.inferLineNumbers();
-
-    // TODO location:lineNum = 1:N の時の対策が必要．ひとまずNの一行目だけを使う．
-    final int correspondingLineNumber = correspondingRange.start;
-
-    return correspondingFqns.stream()
-        .map(fqn -> getTestFQNs(fqn, correspondingLineNumber, status, failed))
-        .mapToLong(Collection::size)
-        .sum();
+  public Set<FullyQualifiedName> getTestFQNsExecutingTheLines(
+      final ProductSourcePath productSourcePath, final LineNumberRange range) {
+    final BitSet tests = new BitSet();
+    for (final FullyQualifiedName fqn : getCorrespondingFqns(productSourcePath)) {
+      final CoverageMatrix matrix = coverageMatrices.get(fqn);
+      if (matrix != null) {
+        tests.or(matrix.getTestsCovering(range));
+      }
+    }
+    return tests.stream()
+        .mapToObj(testFQNs::get)
+        .collect(Collectors.toSet());
   }
 
   /**
-   * FLで用いる4メトリクスのprivateなParameterized-Method
+   * 計算対象クラスについて，FLで用いる4メトリクスを行ごとに数えて各配列に加算する．Spectrumの構築に用いる
    * 
    * @param targetFQN 計算対象クラスのFQN
-   * @param lineNumber 計算対象クラスの行番号
-   * @param status 実行されたか否か
-   * @param failed テストが失敗したかどうか
-   * @return
+   * @param ef 行番号-1を添字とする，その行を実行した失敗テストの数
+   * @param ep 行番号-1を添字とする，その行を実行した成功テストの数
+   * @param nf 行番号-1を添字とする，その行を実行しなかった失敗テストの数
+   * @param np 行番号-1を添字とする，その行を実行しなかった成功テストの数
    */
-  private List<FullyQualifiedName> getTestFQNs(final FullyQualifiedName targetFQN,
-      final int lineNumber, final Coverage.Status status, final boolean failed) {
-    final List<FullyQualifiedName> result = new ArrayList<>();
+  void countTests(final FullyQualifiedName targetFQN, final int[] ef, final int[] ep,
+      final int[] nf, final int[] np) {
+    final CoverageMatrix matrix = coverageMatrices.get(targetFQN);
+    if (matrix != null) {
+      matrix.countTests(failedTests, ef, ep, nf, np);
+    }
+  }
 
-    // 全てのテストケースを探索
-    for (final TestResult testResult : this.value.values()) {
-      final Coverage coverage = testResult.getCoverages(targetFQN);
+  /**
+   * 計算対象クラスのCoverageの行数を返す．
+   * 
+   * @param targetFQN 計算対象クラスのFQN
+   * @return いずれのテストメソッドでも計測されていない場合は0
+   */
+  int getNumberOfLines(final FullyQualifiedName targetFQN) {
+    final CoverageMatrix matrix = coverageMatrices.get(targetFQN);
+    return matrix == null ? 0 : matrix.getNumberOfLines();
+  }
 
-      if (coverage == null || lineNumber > coverage.statuses.size()) {
-        // 計測対象（targetFQN）の行の外を参照した場合．
-        // （＝内部クラス等の理由で，その行の実行結果が別テストのcoverageに記述されている場合）
-        // 何もしなくて良い．
-        // その行の結果は別のcoverageインスタンスに保存されているため．
-        continue;
-      }
-      final Coverage.Status _status = coverage.statuses.get(lineNumber - 1);
-      if (status == _status && failed == testResult.failed) {
-        result.add(testResult.executedTestFQN);
-      }
+  /**
+   * FLで用いる4メトリクスの索引を返す．索引は初回の呼び出し時に生成する．
+   * 
+   * @return
+   */
+  public Spectrum getSpectrum() {
+    Spectrum spectrum = this.spectrum;
+    if (spectrum == null) {
+      spectrum = new Spectrum(this);
+      this.spectrum = spectrum;
     }
-    return result;
+    return spectrum;
   }
 
   /**
@@ -195,7 +261,7 @@ public class TestResults implements Serializable {
    */
   public long getNumberOfPassedTestsExecutingTheStatement(final ProductSourcePath productSourcePath,
       final ASTLocation location) {
-    return getNumberOfTests(productSourcePath, location, Coverage.Status.COVERED, false);
+    return getSpectrum().getNumberOfPassedTestsExecutingTheStatement(productSourcePath, location);
   }
 
   /**
@@ -207,7 +273,7 @@ public class TestResults implements Serializable {
    */
   public long getNumberOfFailedTestsExecutingTheStatement(final ProductSourcePath productSourcePath,
       final ASTLocation location) {
-    return getNumberOfTests(productSourcePath, location, Coverage.Status.COVERED, true);
+    return getSpectrum().getNumberOfFailedTestsExecutingTheStatement(productSourcePath, location);
   }
 
   /**
@@ -219,7 +285,8 @@ public class TestResults implements Serializable {
    */
   public long getNumberOfPassedTestsNotExecutingTheStatement(
       final ProductSourcePath productSourcePath, final ASTLocation location) {
-    return getNumberOfTests(productSourcePath, location, Coverage.Status.NOT_COVERED, false);
+    return getSpectrum().getNumberOfPassedTestsNotExecutingTheStatement(productSourcePath,
+        location);
   }
 
   /**
@@ -231,7 +298,8 @@ public class TestResults implements Serializable {
    */
   public long getNumberOfFailedTestsNotExecutingTheStatement(
       final ProductSourcePath productSourcePath, final ASTLocation location) {
-    return getNumberOfTests(productSourcePath, location, Coverage.Status.NOT_COVERED, true);
+    return getSpectrum().getNumberOfFailedTestsNotExecutingTheStatement(productSourcePath,
+        location);
   }
 
   /**
@@ -278,9 +346,9 @@ public class TestResults implements Serializable {
   public String toString() {
     final StringBuilder sb = new StringBuilder();
     sb.append("[\n");
-    sb.append(String.join(",\n", this.value.values()
+    sb.append(String.join(",\n", this.testIndices.keySet()
         .stream()
-        .map(v -> v.toString(2))
+        .map(fqn -> getTestResult(fqn).toString(2))
         .collect(Collectors.toList())));
     sb.append("\n");
     sb.append("]\n");
@@ -292,16 +360,35 @@ public class TestResults implements Serializable {
    */
 
   // 翻訳用ASTを持つbuildResults
-  private BuildResults buildResults;
+  // シリアライズできないため，デシリアライズ後に改めてsetBuildResultsで設定すること
+  private transient BuildResults buildResults;
 
   public void setBuildResults(final BuildResults buildResults) {
     this.buildResults = buildResults;
+    this.spectrum = null;
   }
 
   public BuildResults getBuildResults() {
     return buildResults;
   }
 
+  /**
+   * fail-fastによりテストの実行が打ち切られた可能性があることを記録する．
+   */
+  void setMayHaveStopped() {
+    this.mayHaveStopped = true;
+  }
+
+  /**
+   * テストの実行が打ち切られた可能性があるか否かを返す．<br>
+   * 打ち切られた結果は一部のテストのみのものであるため，同じプログラムの他の個体に引き継がないこと．
+   *
+   * @return
+   */
+  public boolean mayHaveStopped() {
+    return mayHaveStopped;
+  }
+
   public Set<FullyQualifiedName> getCorrespondingFqns(final ProductSourcePath productSourcePath) {
     return buildResults.getBinaryStore()
         .get(productSourcePath)
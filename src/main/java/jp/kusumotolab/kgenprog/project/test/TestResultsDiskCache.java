@@ -0,0 +1,120 @@
+package jp.kusumotolab.kgenprog.project.test;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import org.apache.commons.codec.binary.Hex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import jp.kusumotolab.kgenprog.Configuration;
+import jp.kusumotolab.kgenprog.project.GeneratedAST;
+import jp.kusumotolab.kgenprog.project.GeneratedSourceCode;
+import jp.kusumotolab.kgenprog.project.build.BinaryDiskCache;
+import jp.kusumotolab.kgenprog.project.build.BuildResults;
+
+/**
+ * 実行をまたいで再利用されるテスト結果のディスク上のキャッシュ．<br>
+ * GeneratedSourceCodeのダイジェストをキーとしてTestResultsを格納する．
+ * テストコード，実行するテスト，およびクラスパス等の環境のダイジェストごとにキャッシュを分けるため，
+ * それらが変わった場合は古いテスト結果が使われることはない．<br>
+ * 全テストを実行した結果のみを格納すること．スレッドセーフ．
+ */
+class TestResultsDiskCache {
+
+  private static final Logger log = LoggerFactory.getLogger(TestResultsDiskCache.class);
+
+  private static final String DIGEST_ALGORITHM = "SHA-256";
+  private static final String EXTENSION = ".ser";
+
+  private final Path directory;
+
+  /**
+   * @param config
+   */
+  TestResultsDiskCache(final Configuration config) {
+    final String environment = System.getProperty("java.version") + config.getExecutedTests()
+        + config.getTestTimeLimit();
+    final String environmentDigest = BinaryDiskCache.createEnvironmentDigest(environment,
+        config.getTargetProject()
+            .getClassPaths());
+    this.directory = config.getDiskCacheDir()
+        .resolve("test-results")
+        .resolve(environmentDigest);
+  }
+
+  /**
+   * generatedSourceCodeのテスト結果をキャッシュから読み込む．
+   *
+   * @param generatedSourceCode
+   * @param buildResults generatedSourceCodeのビルド結果
+   * @return キャッシュされていない場合はnull
+   */
+  TestResults load(final GeneratedSourceCode generatedSourceCode,
+      final BuildResults buildResults) {
+    final Path file = resolve(generatedSourceCode);
+    if (!Files.isRegularFile(file)) {
+      return null;
+    }
+
+    try (final ObjectInputStream in = new ObjectInputStream(Files.newInputStream(file))) {
+      final TestResults testResults = (TestResults) in.readObject();
+
+      // buildResultsはシリアライズされないので改めて設定する
+      testResults.setBuildResults(buildResults);
+      return testResults;
+    } catch (final IOException | ClassNotFoundException | ClassCastException e) {
+      // 壊れたキャッシュや古い形式のキャッシュは無視してテストし直す
+      log.warn("failed to read the test result cache: " + file, e);
+      return null;
+    }
+  }
+
+  /**
+   * generatedSourceCodeのテスト結果をキャッシュに書き込む．
+   *
+   * @param generatedSourceCode
+   * @param testResults 全テストを実行した結果
+   */
+  void save(final GeneratedSourceCode generatedSourceCode, final TestResults testResults) {
+    if (testResults == EmptyTestResults.instance) {
+      return;
+    }
+
+    final Path file = resolve(generatedSourceCode);
+    try {
+      Files.createDirectories(file.getParent());
+      final Path temporaryFile = Files.createTempFile(file.getParent(), null, null);
+      try (final ObjectOutputStream out =
+          new ObjectOutputStream(Files.newOutputStream(temporaryFile))) {
+        out.writeObject(testResults);
+      }
+      Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (final IOException e) {
+      // キャッシュに書けなくても探索は続けられる
+      log.warn("failed to write the test result cache: " + file, e);
+    }
+  }
+
+  // テストコードは変異しないが，実行をまたぐと書き換えられうるためキーに含める
+  private Path resolve(final GeneratedSourceCode generatedSourceCode) {
+    try {
+      final MessageDigest digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+      generatedSourceCode.getTestAsts()
+          .stream()
+          .map(GeneratedAST::getMessageDigest)
+          .sorted()
+          .forEach(d -> digest.update(d.getBytes(StandardCharsets.UTF_8)));
+      return directory.resolve(Hex.encodeHexString(digest.digest()))
+          .resolve(generatedSourceCode.getMessageDigest() + EXTENSION);
+    } catch (final NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
@@ -0,0 +1,160 @@
+package jp.kusumotolab.kgenprog.project.test;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import jp.kusumotolab.kgenprog.ga.variant.HistoricalElement;
+import jp.kusumotolab.kgenprog.ga.variant.MutationHistoricalElement;
+import jp.kusumotolab.kgenprog.ga.variant.Variant;
+import jp.kusumotolab.kgenprog.project.ASTLocation;
+import jp.kusumotolab.kgenprog.project.FullyQualifiedName;
+import jp.kusumotolab.kgenprog.project.GeneratedSourceCode;
+import jp.kusumotolab.kgenprog.project.LineNumberRange;
+import jp.kusumotolab.kgenprog.project.ProductSourcePath;
+import jp.kusumotolab.kgenprog.project.SourcePath;
+
+/**
+ * 親個体のカバレッジに基づく回帰テスト選択．<br>
+ * 変異により生成された個体について，変異箇所を実行したテストと親個体で失敗していたテストのみを実行する．
+ * それ以外のテストは変異箇所を通らないため，親個体と同じ結果になるとみなして引き継ぐ．<br>
+ * 引き継いだ結果を含めて全テストが成功した場合は，誤った解を出力しないよう全テストを実行し直す．
+ */
+class TestSelection {
+
+  private final GeneratedSourceCode parentSourceCode;
+  private final TestResults parentTestResults;
+  private final ProductSourcePath mutatedPath;
+  private final LineNumberRange mutatedRange;
+  private final Set<FullyQualifiedName> selectedTestFQNs;
+
+  private TestSelection(final GeneratedSourceCode parentSourceCode,
+      final TestResults parentTestResults, final ProductSourcePath mutatedPath,
+      final LineNumberRange mutatedRange) {
+    this.parentSourceCode = parentSourceCode;
+    this.parentTestResults = parentTestResults;
+    this.mutatedPath = mutatedPath;
+    this.mutatedRange = mutatedRange;
+
+    selectedTestFQNs = new HashSet<>(parentTestResults.getFailedTestFQNs());
+    selectedTestFQNs.addAll(getCoveringTestFQNs());
+  }
+
+  /**
+   * 指定した個体のテストを，テスト選択を適用して実行する．
+   *
+   * @param variant テスト対象の個体
+   * @param runner 実行するテストメソッドのFQN集合（nullの場合は全テスト）を受け取り，テストを実行する関数
+   * @return テストの実行結果
+   */
+  static TestResults exec(final Variant variant,
+      final Function<Set<FullyQualifiedName>, TestResults> runner) {
+    final TestSelection selection = create(variant);
+    if (selection == null) {
+      return runner.apply(null);
+    }
+
+    final TestResults selectedTestResults = runner.apply(selection.selectedTestFQNs);
+    if (selectedTestResults == EmptyTestResults.instance) {
+      return selectedTestResults;
+    }
+
+    final TestResults mergedTestResults =
+        selection.merge(selectedTestResults, variant.getGeneratedSourceCode());
+    if (mergedTestResults.getFailedTestResults()
+        .isEmpty()) {
+      return runner.apply(null);
+    }
+    return mergedTestResults;
+  }
+
+  /**
+   * @param variant テスト対象の個体
+   * @return テスト選択を適用できない個体（親個体のテストが打ち切られた可能性がある場合を含む）の場合はnull
+   */
+  static TestSelection create(final Variant variant) {
+    final HistoricalElement element = variant.getHistoricalElement();
+    if (!(element instanceof MutationHistoricalElement)) {
+      return null;
+    }
+
+    final Variant parent = element.getParents()
+        .get(0);
+    final TestResults parentTestResults = parent.getTestResults();
+    if (parentTestResults == null || parentTestResults == EmptyTestResults.instance
+        || parentTestResults.getBuildResults() == null) {
+      return null;
+    }
+
+    // fail-fastで打ち切られた可能性のある結果には，実行されなかったテストの結果やカバレッジが欠けている
+    if (parentTestResults.mayHaveStopped()) {
+      return null;
+    }
+
+    final ASTLocation location = ((MutationHistoricalElement) element).getAppendedBase()
+        .getTargetLocation();
+    final SourcePath path = location.getSourcePath();
+    final LineNumberRange range = location.inferLineNumbers();
+    if (!(path instanceof ProductSourcePath) || range.equals(ASTLocation.NONE)) {
+      return null;
+    }
+
+    return new TestSelection(parent.getGeneratedSourceCode(), parentTestResults,
+        (ProductSourcePath) path, range);
+  }
+
+  Set<FullyQualifiedName> getSelectedTestFQNs() {
+    return selectedTestFQNs;
+  }
+
+  /**
+   * @return 親個体で変異箇所を実行したテストメソッドのFQN
+   */
+  Set<FullyQualifiedName> getCoveringTestFQNs() {
+    return parentTestResults.getTestFQNsExecutingTheLines(mutatedPath, mutatedRange);
+  }
+
+  /**
+   * 選択したテストの実行結果に，選択しなかったテストの親個体での結果を統合する．<br>
+   * 引き継ぐ結果のうち変異箇所を含むクラスのカバレッジは，変異による行数の増減に合わせてずらす．
+   *
+   * @param selectedTestResults 選択したテストの実行結果
+   * @param generatedSourceCode テスト対象の個体のソースコード
+   * @return 統合したテストの実行結果
+   */
+  TestResults merge(final TestResults selectedTestResults,
+      final GeneratedSourceCode generatedSourceCode) {
+    final int delta = generatedSourceCode.getProductAst(mutatedPath)
+        .getNumberOfLines()
+        - parentSourceCode.getProductAst(mutatedPath)
+            .getNumberOfLines();
+    final Set<FullyQualifiedName> mutatedFQNs =
+        parentTestResults.getCorrespondingFqns(mutatedPath);
+
+    final TestResults mergedTestResults = new TestResults();
+    mergedTestResults.setBuildResults(selectedTestResults.getBuildResults());
+    parentTestResults.getExecutedTestFQNs()
+        .stream()
+        .filter(fqn -> !selectedTestFQNs.contains(fqn))
+        .map(parentTestResults::getTestResult)
+        .map(r -> shift(r, mutatedFQNs, delta))
+        .forEach(mergedTestResults::add);
+    selectedTestResults.getExecutedTestFQNs()
+        .stream()
+        .map(selectedTestResults::getTestResult)
+        .forEach(mergedTestResults::add);
+    return mergedTestResults;
+  }
+
+  private TestResult shift(final TestResult testResult, final Set<FullyQualifiedName> mutatedFQNs,
+      final int delta) {
+    final Map<FullyQualifiedName, Coverage> coverages = testResult.getExecutedTargetFQNs()
+        .stream()
+        .collect(Collectors.toMap(fqn -> fqn, fqn -> {
+          final Coverage coverage = testResult.getCoverages(fqn);
+          return mutatedFQNs.contains(fqn) ? coverage.shift(mutatedRange, delta) : coverage;
+        }));
+    return new TestResult(testResult.executedTestFQN, testResult.failed, coverages);
+  }
+}
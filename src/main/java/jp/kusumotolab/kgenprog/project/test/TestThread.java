@@ -1,28 +1,23 @@
 package jp.kusumotolab.kgenprog.project.test;
 
 import java.io.IOException;
-import java.net.MalformedURLException;
-import java.net.URI;
-import java.net.URL;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
-import org.jacoco.core.analysis.Analyzer;
-import org.jacoco.core.analysis.CoverageBuilder;
-import org.jacoco.core.data.ExecutionDataStore;
-import org.jacoco.core.data.SessionInfoStore;
-import org.jacoco.core.instr.Instrumenter;
-import org.jacoco.core.runtime.IRuntime;
-import org.jacoco.core.runtime.LoggerRuntime;
 import org.jacoco.core.runtime.RuntimeData;
 import org.junit.runner.Description;
-import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
+import org.junit.runner.Runner;
+import org.junit.runner.manipulation.Filter;
+import org.junit.runner.manipulation.NoTestsRemainException;
 import org.junit.runner.notification.Failure;
 import org.junit.runner.notification.RunListener;
-import com.google.common.base.Functions;
-import jp.kusumotolab.kgenprog.project.ClassPath;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runner.notification.StoppedByUserException;
 import jp.kusumotolab.kgenprog.project.FullyQualifiedName;
 import jp.kusumotolab.kgenprog.project.SourcePath;
 import jp.kusumotolab.kgenprog.project.TestFullyQualifiedName;
@@ -36,8 +31,7 @@ import jp.kusumotolab.kgenprog.project.factory.TargetProject;
  */
 class TestThread extends Thread {
 
-  private final IRuntime jacocoRuntime;
-  private final Instrumenter jacocoInstrumenter;
+  private final CoverageCache coverageCache;
   private final RuntimeData jacocoRuntimeData;
   private TestResults testResults; // used for return value in multi thread
   private BuildResults buildResults;
@@ -45,17 +39,49 @@ class TestThread extends Thread {
   // private final GeneratedSourceCode generatedSourceCode;
   private final TargetProject targetProject;
   private final List<String> executionTestNames;
+  private final Set<FullyQualifiedName> selectedTestFQNs;
+  private final FailFast failFast;
+  private final TestTimeLimits testTimeLimits;
+  private final TestWatchdog watchdog;
+  private MemoryClassLoader preparedClassLoader;
 
+  /**
+   * @param buildResults テスト対象のビルド結果
+   * @param targetProject テスト対象のプロジェクト
+   * @param executionTestNames 実行するテストクラスの名前（空の場合は全テストクラス）
+   * @param coverageCache 呼び出し元が所有するJaCoCoランタイムとそのキャッシュ．ランタイムは実行ごとに新しいRuntimeDataで起動し直される
+   * @param selectedTestFQNs 実行するテストメソッドのFQN（nullの場合はテストクラス中の全テストメソッド）
+   * @param failFast テスト実行の早期打ち切りの条件（nullの場合は打ち切らない）
+   * @param testTimeLimits テストメソッドごとの制限時間（nullの場合は無制限）．超えたテストは失敗として扱う
+   */
   public TestThread(final BuildResults buildResults, final TargetProject targetProject,
-      final List<String> executionTestNames) {
+      final List<String> executionTestNames, final CoverageCache coverageCache,
+      final Set<FullyQualifiedName> selectedTestFQNs, final FailFast failFast,
+      final TestTimeLimits testTimeLimits) {
 
-    this.jacocoRuntime = new LoggerRuntime();
-    this.jacocoInstrumenter = new Instrumenter(jacocoRuntime);
+    this.coverageCache = coverageCache;
     this.jacocoRuntimeData = new RuntimeData();
 
     this.buildResults = buildResults;
     this.targetProject = targetProject;
     this.executionTestNames = executionTestNames;
+    this.selectedTestFQNs = selectedTestFQNs;
+    this.failFast = failFast;
+    this.testTimeLimits = testTimeLimits;
+
+    // テストメソッドは個体ごとに1つのスレッドで順に実行する
+    this.watchdog = new TestWatchdog("kgenprog-test-method");
+  }
+
+  /**
+   * 全クラスの定義を追加済みのMemoryClassLoaderを使ってテストを実行させる．<br>
+   * 与えたMemoryClassLoaderは実行後も閉じないため，呼び出し側で管理すること．
+   *
+   * @param classLoader テスト対象の全クラスを定義したMemoryClassLoader
+   * @see HotSwapper
+   */
+  void setClassLoader(final MemoryClassLoader classLoader) {
+    this.preparedClassLoader = classLoader;
   }
 
   // Result extraction point for multi thread
@@ -63,6 +89,13 @@ class TestThread extends Thread {
     return this.testResults;
   }
 
+  /**
+   * @return 制限時間を超え，割り込みにも応じずに見捨てたテストメソッドのスレッドがあるか否か
+   */
+  boolean hasAbandonedThreads() {
+    return watchdog.hasAbandoned();
+  }
+
   /**
    * JaCoCo + JUnitの実行． sourceClassesで指定したソースをJaCoCoでinstrumentして，JUnitを実行する．
    */
@@ -85,21 +118,27 @@ class TestThread extends Thread {
     final List<FullyQualifiedName> executionTestFQNs = getExecutionTestFQNs();
 
     // set memoryClassLoader as ContextClassLoader during JUnit execution
-    final List<ClassPath> classPaths = targetProject.getClassPaths();
-    final URL[] classpathUrls = convertClasspathsToURLs(classPaths);
-    final MemoryClassLoader classLoader = new MemoryClassLoader(classpathUrls);
+    // ライブラリは共有のClassLoaderから読み込み，この個体のクラスのみを新たなClassLoaderで定義する
+    final MemoryClassLoader classLoader = preparedClassLoader != null ? preparedClassLoader
+        : SharedClassLoaders.createVariantClassLoader(targetProject.getClassPaths());
     Thread.currentThread()
         .setContextClassLoader(classLoader);
 
     try {
-      addAllDefinitions(classLoader, productFQNs);
+      if (preparedClassLoader == null) {
+        addAllDefinitions(classLoader, productFQNs);
+      }
       final List<Class<?>> testClasses = loadAllClasses(classLoader, executionTestFQNs);
 
-      final JUnitCore junitCore = new JUnitCore();
-      final CoverageMeasurementListener listener =
-          new CoverageMeasurementListener(productFQNs, testResults);
-      junitCore.addListener(listener);
-      junitCore.run(testClasses.toArray(new Class<?>[testClasses.size()]));
+      final Runner runner = createRequest(testClasses).getRunner();
+      final RunNotifier notifier = new RunNotifier();
+      notifier.addListener(new CoverageMeasurementListener(productFQNs, testResults));
+      if (failFast != null) {
+        failFast.createSorter()
+            .apply(runner);
+        notifier.addListener(failFast.createListener(notifier, runner.testCount()));
+      }
+      run(runner, notifier);
 
     } catch (final ClassNotFoundException e) {
       // クラスロードに失敗．FQNの指定ミスの可能性が大
@@ -110,9 +149,84 @@ class TestThread extends Thread {
       // Should handle safely
       // ひとまず本クラスをThreadで包むためにRuntimeExceptionでエラーを吐く．
       throw new RuntimeException(e);
+    } finally {
+      watchdog.close();
+      if (preparedClassLoader == null) {
+        SharedClassLoaders.release(classLoader);
+      }
     }
   }
 
+  /**
+   * JUnitCore#runと同様にテストを実行する．fail-fastにより停止を要求された場合は，それまでに実行したテストの結果のみが残る．
+   *
+   * @param runner
+   * @param notifier
+   */
+  private void run(final Runner runner, final RunNotifier notifier) {
+    notifier.fireTestRunStarted(runner.getDescription());
+    try {
+      runner.run(notifier);
+    } catch (final StoppedByUserException e) {
+      // 成功率が打ち切り値を上回れないことが確定したので，残りのテストは実行しない
+    }
+  }
+
+  /**
+   * テストクラス群からJUnitの実行要求を生成する．実行するテストメソッドが指定されている場合はそれ以外を除外する．<br>
+   * 制限時間が指定されている場合は，テストメソッドごとに監視して超えたものを打ち切る．
+   * 
+   * @param testClasses
+   * @return
+   */
+  private Request createRequest(final List<Class<?>> testClasses) {
+    final Request request = Request.classes(TestWatchdog.createComputer(testTimeLimits, watchdog),
+        testClasses.toArray(new Class<?>[testClasses.size()]));
+    if (selectedTestFQNs == null) {
+      return request;
+    }
+
+    final Runner runner = request.getRunner();
+    try {
+      createSelectedTestFilter().apply(runner);
+    } catch (final NoTestsRemainException e) {
+      // Request#filterWithでは全テストメソッドが除外されると初期化エラーのテストが報告されるため，何も実行しない
+      return Request.classes();
+    }
+    return Request.runner(runner);
+  }
+
+  private Filter createSelectedTestFilter() {
+    return new Filter() {
+
+      @Override
+      public boolean shouldRun(final Description description) {
+        if (description.isTest()) {
+          return selectedTestFQNs.contains(getTestMethodName(description));
+        }
+        return description.getChildren()
+            .stream()
+            .anyMatch(this::shouldRun);
+      }
+
+      @Override
+      public String describe() {
+        return "selected test methods";
+      }
+    };
+  }
+
+  /**
+   * Descriptionから実行したテストメソッドのFQNを取り出す．
+   *
+   * @param description
+   * @return
+   */
+  static FullyQualifiedName getTestMethodName(final Description description) {
+    return new TestFullyQualifiedName(description.getTestClass()
+        .getName() + "." + description.getMethodName());
+  }
+
   /**
    * MemoryClassLoaderに対して全てのバイトコード定義を追加する（ロードはせず）．<br>
    * プロダクト系ソースコードのみJaCoCoインストルメントを適用する．
@@ -127,16 +241,11 @@ class TestThread extends Thread {
     final BinaryStore binaryStore = buildResults.getBinaryStore();
     for (final JavaBinaryObject jmo : binaryStore.getAll()) {
       final FullyQualifiedName fqn = jmo.getFqn();
-      final byte[] rawBytecode = jmo.getByteCode();
-      final byte[] bytecode = jmo.isTest() ? rawBytecode : instrumentBytecode(rawBytecode);
+      final byte[] bytecode = jmo.isTest() ? jmo.getByteCode() : coverageCache.instrument(jmo);
       memoryClassLoader.addDefinition(fqn, bytecode);
     }
   }
 
-  private byte[] instrumentBytecode(final byte[] bytecode) throws IOException {
-    return jacocoInstrumenter.instrument(bytecode, "");
-  }
-
   private List<FullyQualifiedName> getProductFQNs() {
     return getFQNs(targetProject.getProductSourcePaths());
   }
@@ -169,30 +278,6 @@ class TestThread extends Thread {
         .collect(Collectors.toList());
   }
 
-  private URL[] convertClasspathsToURLs(final List<ClassPath> classpaths) {
-    return classpaths.stream()
-        .map(cp -> cp.path.toUri())
-        .map(uri -> toURL(uri))
-        .toArray(URL[]::new);
-  }
-
-  /**
-   * To avoid Malform uri in lambda expression
-   *
-   * @param uri
-   * @return
-   */
-  private URL toURL(final URI uri) {
-    try {
-      return uri.toURL();
-    } catch (MalformedURLException e) {
-      // TODO 自動生成された catch ブロック
-      e.printStackTrace();
-    }
-    // TODO
-    return null;
-  }
-
   /**
    * 全クラスを定義内からロードしてクラスオブジェクトの集合を返す．
    * 
@@ -222,8 +307,9 @@ class TestThread extends Thread {
   class CoverageMeasurementListener extends RunListener {
 
     final private TestResults testResults;
-    final private List<FullyQualifiedName> measuredClasses;
+    final private CoverageCollector coverageCollector;
     private boolean wasFailed;
+    private long startTime;
 
     /**
      * constructor
@@ -234,15 +320,20 @@ class TestThread extends Thread {
      */
     public CoverageMeasurementListener(List<FullyQualifiedName> measuredFQNs,
         final TestResults storedTestResults) throws Exception {
-      jacocoRuntime.startup(jacocoRuntimeData);
+      coverageCache.getRuntime()
+          .startup(jacocoRuntimeData);
       testResults = storedTestResults;
-      measuredClasses = measuredFQNs;
+      final BinaryStore binaryStore = buildResults.getBinaryStore();
+      coverageCollector = new CoverageCollector(measuredFQNs.stream()
+          .map(binaryStore::get)
+          .collect(Collectors.toList()), coverageCache);
     }
 
     @Override
     public void testStarted(Description description) {
       jacocoRuntimeData.reset();
       wasFailed = false;
+      startTime = System.nanoTime();
     }
 
     @Override
@@ -252,69 +343,38 @@ class TestThread extends Thread {
 
     @Override
     public void testFinished(Description description) throws IOException {
-      collectRuntimeData(description);
+      final Duration duration = Duration.ofNanos(System.nanoTime() - startTime);
+      collectRuntimeData(description, duration);
     }
 
     /**
-     * Descriptionから実行したテストメソッドのFQNを取り出す．
+     * jacocoにより計測した行ごとのCoverageを回収し，TestResultsに格納する．<br>
+     * プローブ配列から直接Coverageを求めるため，テストメソッドごとにクラスを解析し直すことはない．
      *
-     * @param description
-     * @return
-     */
-    private FullyQualifiedName getTestMethodName(Description description) {
-      return new TestFullyQualifiedName(description.getTestClass()
-          .getName() + "." + description.getMethodName());
-    }
-
-    /**
-     * jacocoにより計測した行ごとのCoverageを回収し，TestResultsに格納する．
-     *
-     * @throws IOException
-     */
-    private void collectRuntimeData(final Description description) throws IOException {
-      final CoverageBuilder coverageBuilder = new CoverageBuilder();
-      analyzeJacocoRuntimeData(coverageBuilder);
-      addJacocoCoverageToTestResults(coverageBuilder, description);
-    }
-
-    /**
-     * jacocoにより計測した行ごとのCoverageを回収する．
-     *
-     * @param coverageBuilder 計測したCoverageを格納する保存先
+     * @param description テストの実行情報
+     * @param duration テストメソッドの実行時間
      * @throws IOException
      */
-    private void analyzeJacocoRuntimeData(final CoverageBuilder coverageBuilder)
+    private void collectRuntimeData(final Description description, final Duration duration)
         throws IOException {
-      final ExecutionDataStore executionData = new ExecutionDataStore();
-      final SessionInfoStore sessionInfo = new SessionInfoStore();
-      jacocoRuntimeData.collect(executionData, sessionInfo, false);
       // jacocoRuntime.shutdown(); // Don't shutdown (This statement is a cause for bug #290)
-
-      final Analyzer analyzer = new Analyzer(executionData, coverageBuilder);
-      for (final FullyQualifiedName measuredClass : measuredClasses) {
-        final byte[] bytecode = buildResults.getBinaryStore()
-            .get(measuredClass)
-            .getByteCode();
-        analyzer.analyzeClass(bytecode, measuredClass.value);
-      }
+      final Map<FullyQualifiedName, Coverage> coverages =
+          coverageCollector.collect(jacocoRuntimeData);
+      addJacocoCoverageToTestResults(coverages, description, duration);
     }
 
     /**
-     * 回収したCoverageを型変換しTestResultsに格納する．
+     * 回収したCoverageをTestResultsに格納する．
      *
-     * @param coverageBuilder Coverageが格納されたビルダー
+     * @param coverages 計測対象のクラスごとのCoverage
      * @param description テストの実行情報
+     * @param duration テストメソッドの実行時間
      */
-    private void addJacocoCoverageToTestResults(final CoverageBuilder coverageBuilder,
-        final Description description) {
+    private void addJacocoCoverageToTestResults(final Map<FullyQualifiedName, Coverage> coverages,
+        final Description description, final Duration duration) {
       final FullyQualifiedName testMethodFQN = getTestMethodName(description);
 
-      final Map<FullyQualifiedName, Coverage> coverages = coverageBuilder.getClasses()
-          .stream()
-          .map(Coverage::new)
-          .collect(Collectors.toMap(c -> c.executedTargetFQN, Functions.identity()));
-
-      final TestResult testResult = new TestResult(testMethodFQN, wasFailed, coverages);
+      final TestResult testResult = new TestResult(testMethodFQN, wasFailed, coverages, duration);
       testResults.add(testResult);
     }
   }
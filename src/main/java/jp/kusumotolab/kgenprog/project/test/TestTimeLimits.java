@@ -0,0 +1,77 @@
+package jp.kusumotolab.kgenprog.project.test;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import jp.kusumotolab.kgenprog.project.FullyQualifiedName;
+
+/**
+ * テストメソッドごとの制限時間．<br>
+ * 初期個体で計測した実行時間がある場合は，その {@value #FACTOR} 倍に猶予を加えた時間とし，一律の制限時間を上限とする．
+ * 数ミリ秒で終わるテストが無限ループに変異した場合でも，一律の制限時間を待たずに打ち切れる．<br>
+ * 計測した実行時間がないテストメソッド（初期個体で実行されなかったもの等）には一律の制限時間を課す．
+ */
+public class TestTimeLimits implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  // 計測した実行時間に掛ける倍率
+  static final int FACTOR = 10;
+
+  // JITコンパイルやGC等による揺らぎを吸収するために加える猶予
+  static final Duration SLACK = Duration.ofMillis(200);
+
+  private final Duration upperLimit;
+  private final Map<FullyQualifiedName, Duration> limits;
+
+  private TestTimeLimits(final Duration upperLimit,
+      final Map<FullyQualifiedName, Duration> limits) {
+    this.upperLimit = upperLimit;
+    this.limits = limits;
+  }
+
+  /**
+   * @param upperLimit すべてのテストメソッドに課す制限時間（nullの場合は無制限）
+   * @return 一律の制限時間
+   */
+  public static TestTimeLimits uniform(final Duration upperLimit) {
+    return new TestTimeLimits(upperLimit, Collections.emptyMap());
+  }
+
+  /**
+   * @param baseline 初期個体のテスト結果
+   * @param upperLimit 制限時間の上限（nullの場合は無制限）
+   * @return baselineで計測した実行時間から定めた制限時間
+   */
+  public static TestTimeLimits create(final TestResults baseline, final Duration upperLimit) {
+    final Map<FullyQualifiedName, Duration> limits = new HashMap<>();
+    for (final FullyQualifiedName testFQN : baseline.getExecutedTestFQNs()) {
+      final Duration duration = baseline.getDuration(testFQN);
+      if (duration == null) {
+        continue;
+      }
+      final Duration limit = duration.multipliedBy(FACTOR)
+          .plus(SLACK);
+      limits.put(testFQN,
+          upperLimit == null || limit.compareTo(upperLimit) < 0 ? limit : upperLimit);
+    }
+    return new TestTimeLimits(upperLimit, limits);
+  }
+
+  /**
+   * @param testFQN テストメソッドのFQN
+   * @return testFQNの制限時間．無制限の場合はnull
+   */
+  public Duration get(final FullyQualifiedName testFQN) {
+    return limits.getOrDefault(testFQN, upperLimit);
+  }
+
+  /**
+   * @return 制限時間を課すテストメソッドがあるか否か
+   */
+  public boolean isLimited() {
+    return upperLimit != null || !limits.isEmpty();
+  }
+}
@@ -0,0 +1,263 @@
+package jp.kusumotolab.kgenprog.project.test;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.internal.builders.AllDefaultPossibilitiesBuilder;
+import org.junit.internal.builders.JUnit4Builder;
+import org.junit.runner.Computer;
+import org.junit.runner.Runner;
+import org.junit.runners.BlockJUnit4ClassRunner;
+import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.InitializationError;
+import org.junit.runners.model.RunnerBuilder;
+import org.junit.runners.model.Statement;
+import org.junit.runners.model.TestTimedOutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * テストの実行時間を監視し，制限時間を超えた処理を打ち切る．<br>
+ * 処理は監視対象ごとに1つのデーモンスレッドで順に実行し，制限時間を過ぎたら割り込みをかける．
+ * 割り込みに応じない無限ループ等は見捨てて呼び出し元に制御を戻し，以降の処理は新たなスレッドで実行する．<br>
+ * 見捨てたスレッドを強制停止するのは {@link #allowForcedStop()} を呼んだJVM（TestWorker）のみとする．
+ * 強制停止は共有のClassLoaderにあるクラスの初期化やJaCoCoランタイムの状態を壊しかねないため，
+ * 強制停止したJVMは使い捨てる．<br>
+ * テストクラスにTimeoutルールを差し込むことなく，テストメソッドごとおよび個体ごとの制限時間を課すために用いる．
+ */
+final class TestWatchdog implements AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(TestWatchdog.class);
+
+  // 割り込みをかけてから見捨てるまでの猶予
+  private static final long GRACE_MILLIS = 100;
+
+  private static volatile boolean forcedStopAllowed = false;
+  private static volatile boolean forcedStopped = false;
+
+  private final String name;
+  private ExecutorService executor;
+  private Thread thread;
+  private boolean abandoned;
+
+  /**
+   * @param name 処理を実行するスレッドの名前
+   */
+  TestWatchdog(final String name) {
+    this.name = name;
+    this.abandoned = false;
+  }
+
+  /**
+   * このJVMで，見捨てたスレッドの強制停止を許可する．<br>
+   * 強制停止した後は {@link #hasForcedStop()} がtrueを返すため，呼び出し元はJVMごと作り直すこと．
+   */
+  static void allowForcedStop() {
+    forcedStopAllowed = true;
+  }
+
+  /**
+   * @return このJVMでスレッドの強制停止を試みたか否か
+   */
+  static boolean hasForcedStop() {
+    return forcedStopped;
+  }
+
+  /**
+   * taskを監視用のデーモンスレッドで実行し，その結果を返す．前回の処理を実行したスレッドを使い回す．
+   *
+   * @param task 実行する処理
+   * @param timeLimit 制限時間（nullの場合は無制限）
+   * @return taskの結果
+   * @throws TimeoutException 制限時間を超えた場合．taskを実行したスレッドは打ち切られているか，見捨てられている
+   * @throws ExecutionException taskが例外を送出した場合
+   * @throws InterruptedException 待機中に割り込まれた場合
+   */
+  synchronized <T> T call(final Callable<T> task, final Duration timeLimit)
+      throws TimeoutException, ExecutionException, InterruptedException {
+    if (executor == null) {
+      executor = Executors.newSingleThreadExecutor(this::newThread);
+    }
+    final CountDownLatch done = new CountDownLatch(1);
+    final Future<T> future = executor.submit(() -> {
+      try {
+        return task.call();
+      } finally {
+        done.countDown();
+      }
+    });
+
+    try {
+      if (timeLimit == null) {
+        return future.get();
+      }
+      return future.get(timeLimit.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (final TimeoutException e) {
+      abandon(future, done);
+      throw e;
+    } catch (final InterruptedException e) {
+      abandon(future, done);
+      throw e;
+    }
+  }
+
+  /**
+   * @return 割り込みに応じず見捨てたスレッドがあるか否か
+   */
+  synchronized boolean hasAbandoned() {
+    return abandoned;
+  }
+
+  @Override
+  public synchronized void close() {
+    if (executor != null) {
+      executor.shutdown();
+      executor = null;
+    }
+  }
+
+  private Thread newThread(final Runnable runnable) {
+    // Executorへの投入元のスレッドで呼ばれるため，そのContextClassLoaderを引き継ぐ
+    thread = new Thread(runnable, name);
+    thread.setDaemon(true);
+    thread.setContextClassLoader(Thread.currentThread()
+        .getContextClassLoader());
+    return thread;
+  }
+
+  /**
+   * 制限時間を超えた処理に割り込む．猶予の間に終わらなければスレッドを見捨て，許可されていれば強制停止する．
+   *
+   * @param future 打ち切る処理
+   * @param done 処理の終了を知らせるラッチ
+   */
+  private void abandon(final Future<?> future, final CountDownLatch done) {
+    future.cancel(true);
+    try {
+      if (done.await(GRACE_MILLIS, TimeUnit.MILLISECONDS)) {
+        return;
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread()
+          .interrupt();
+    }
+
+    // 次の処理は新たなスレッドで実行する
+    final Thread runaway = thread;
+    abandoned = true;
+    executor.shutdownNow();
+    executor = null;
+    thread = null;
+
+    if (!forcedStopAllowed) {
+      // デーモンスレッドなのでJVMの終了は妨げない
+      log.debug("abandoned a runaway thread {}", runaway.getName());
+      return;
+    }
+    stop(runaway);
+  }
+
+  /**
+   * 割り込みを無視する無限ループでCPUを占有し続けないよう，スレッドを強制停止する．
+   *
+   * @param runaway 停止するスレッド
+   */
+  @SuppressWarnings("deprecation")
+  private static void stop(final Thread runaway) {
+    forcedStopped = true;
+    try {
+      runaway.stop();
+    } catch (final UnsupportedOperationException | SecurityException e) {
+      // 強制停止できないJVMでは見捨てる
+      log.debug("failed to stop a runaway thread {}: {}", runaway.getName(), e.toString());
+    }
+  }
+
+  /**
+   * Request#classesに渡すComputerを生成する．JUnit4形式のテストクラスでは，@Before等も含めたテストメソッドごとに制限時間を課す．
+   *
+   * @param timeLimits テストメソッドごとの制限時間（nullの場合は無制限）
+   * @param watchdog テストメソッドを実行するTestWatchdog
+   * @return テストクラスのRunnerを生成するComputer
+   */
+  static Computer createComputer(final TestTimeLimits timeLimits, final TestWatchdog watchdog) {
+    if (timeLimits == null || !timeLimits.isLimited()) {
+      return new Computer();
+    }
+    final RunnerBuilder builder = new AllDefaultPossibilitiesBuilder(true) {
+
+      @Override
+      protected JUnit4Builder junit4Builder() {
+        return new JUnit4Builder() {
+
+          @Override
+          public Runner runnerForClass(final Class<?> testClass) throws InitializationError {
+            return new TimeLimitedRunner(testClass, timeLimits, watchdog);
+          }
+        };
+      }
+    };
+    return new Computer() {
+
+      @Override
+      protected Runner getRunner(final RunnerBuilder defaultBuilder, final Class<?> testClass)
+          throws Throwable {
+        return builder.runnerForClass(testClass);
+      }
+    };
+  }
+
+  /**
+   * テストメソッドごとに制限時間を課すBlockJUnit4ClassRunner
+   */
+  private static class TimeLimitedRunner extends BlockJUnit4ClassRunner {
+
+    private final TestTimeLimits timeLimits;
+    private final TestWatchdog watchdog;
+
+    private TimeLimitedRunner(final Class<?> testClass, final TestTimeLimits timeLimits,
+        final TestWatchdog watchdog) throws InitializationError {
+      super(testClass);
+      this.timeLimits = timeLimits;
+      this.watchdog = watchdog;
+    }
+
+    @Override
+    protected Statement methodBlock(final FrameworkMethod method) {
+      final Statement statement = super.methodBlock(method);
+      final Duration timeLimit =
+          timeLimits.get(TestThread.getTestMethodName(describeChild(method)));
+      if (timeLimit == null) {
+        return statement;
+      }
+      return new Statement() {
+
+        @Override
+        public void evaluate() throws Throwable {
+          final Throwable thrown;
+          try {
+            thrown = watchdog.call(() -> {
+              try {
+                statement.evaluate();
+                return null;
+              } catch (final Throwable e) {
+                return e;
+              }
+            }, timeLimit);
+          } catch (final TimeoutException e) {
+            throw new TestTimedOutException(timeLimit.toMillis(), TimeUnit.MILLISECONDS);
+          }
+          if (thrown != null) {
+            throw thrown;
+          }
+        }
+      };
+    }
+  }
+}
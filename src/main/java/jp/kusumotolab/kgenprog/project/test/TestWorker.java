@@ -0,0 +1,114 @@
+package jp.kusumotolab.kgenprog.project.test;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.instrument.Instrumentation;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import jp.kusumotolab.kgenprog.project.ClassPath;
+import jp.kusumotolab.kgenprog.project.build.BuildResults;
+import jp.kusumotolab.kgenprog.project.factory.TargetProject;
+
+/**
+ * ForkedTestExecutorから起動される，テスト実行用プロセスのエントリポイント．<br>
+ * 標準入力からTestRequestを受け取り，テストを実行した結果のTestResultsを標準出力に書き出す．<br>
+ * 標準入力が閉じられるまで繰り返し要求を処理するため，JVMの起動やJUnit等のクラスロードは1度で済む．<br>
+ * HotSwapAgentを読み込んで起動された場合は，テスト対象のクラスも変更のあるもののみを再定義して使い回す．<br>
+ * 制限時間を超えたテストのスレッドは強制停止する．強制停止によりクラスやJaCoCoランタイムの状態が壊れている恐れがあるため，
+ * その後は結果に続けて再利用できないことを伝えて終了する．
+ *
+ * @see ForkedTestExecutor
+ */
+public final class TestWorker {
+
+  private TestWorker() {}
+
+  public static void main(final String[] args) throws IOException, ClassNotFoundException {
+    // 標準出力は親プロセスとの通信路として用いるため，テスト対象の出力はすべて標準エラー出力に逃がす
+    final FileOutputStream channel = new FileOutputStream(FileDescriptor.out);
+    System.setOut(System.err);
+
+    // このJVMは使い捨てられるため，見捨てたスレッドの強制停止を許可する
+    TestWatchdog.allowForcedStop();
+
+    final ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(channel));
+    out.flush();
+    final ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(System.in));
+    final CoverageCache coverageCache = new CoverageCache(new CoverageRuntime());
+    final Instrumentation instrumentation = HotSwapAgent.getInstrumentation();
+    final HotSwapper hotSwapper =
+        instrumentation != null ? new HotSwapper(instrumentation, coverageCache) : null;
+    final Set<List<ClassPath>> heldClassPaths = new HashSet<>();
+
+    while (true) {
+      final TestRequest request;
+      try {
+        request = (TestRequest) in.readObject();
+      } catch (final EOFException e) {
+        // 親プロセスが通信路を閉じたので終了
+        break;
+      }
+      out.writeObject(exec(request, coverageCache, hotSwapper, heldClassPaths));
+      final boolean reusable = !TestWatchdog.hasForcedStop();
+      out.writeBoolean(reusable);
+      out.reset();
+      out.flush();
+      if (!reusable) {
+        break;
+      }
+    }
+
+    if (hotSwapper != null) {
+      hotSwapper.close();
+    }
+
+    // テスト対象が起動した非デーモンスレッドが残っていても終了させる
+    System.exit(0);
+  }
+
+  private static TestResults exec(final TestRequest request, final CoverageCache coverageCache,
+      final HotSwapper hotSwapper, final Set<List<ClassPath>> heldClassPaths) {
+    final BuildResults buildResults = request.restoreBuildResults();
+    final TargetProject targetProject = request.restoreTargetProject();
+
+    // 要求をまたいでライブラリのClassLoaderを使い回すため，このJVMが終了するまで参照を保持する
+    if (heldClassPaths.add(targetProject.getClassPaths())) {
+      SharedClassLoaders.acquireLibraryClassLoader(targetProject.getClassPaths());
+    }
+    final TestThread testThread = new TestThread(buildResults, targetProject,
+        request.getExecutionTestNames(), coverageCache, request.getSelectedTestFQNs(),
+        request.getFailFast(), request.getTestTimeLimits());
+    if (hotSwapper != null && request.usesHotSwap() && !buildResults.isBuildFailed) {
+      try {
+        testThread.setClassLoader(
+            hotSwapper.prepare(buildResults.getBinaryStore(), targetProject.getClassPaths()));
+      } catch (final IOException e) {
+        // インストルメントに失敗した場合は個体ごとのClassLoaderで実行する
+        e.printStackTrace();
+      }
+    }
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    final Future<?> future = executor.submit(testThread);
+    executor.shutdown();
+    try {
+      future.get();
+    } catch (final ExecutionException | InterruptedException e) {
+      e.printStackTrace();
+      return EmptyTestResults.instance;
+    }
+
+    final TestResults testResults = testThread.getTestResults();
+    return testResults != null ? testResults : EmptyTestResults.instance;
+  }
+}
@@ -0,0 +1,306 @@
+package jp.kusumotolab.kgenprog.project.test;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import jp.kusumotolab.kgenprog.project.FullyQualifiedName;
+import jp.kusumotolab.kgenprog.project.TargetFullyQualifiedName;
+import jp.kusumotolab.kgenprog.project.TestFullyQualifiedName;
+
+/**
+ * RemoteTestExecutorからの要求を受けてテストを実行するサーバ．<br>
+ * 接続ごとにTestWorkerの子プロセスを1つ割り当て，接続が閉じられるまで繰り返し要求を処理する．
+ * 1つの接続は同時に1つの要求しか処理しないため，接続の数がこのサーバで並列に実行するテストの数となる．<br>
+ * 要求にはバイトコードのみが含まれ，ライブラリ等のクラスパスはこのホスト上の同じパスから読む．
+ * このため，テスト対象のプロジェクトとライブラリをkGenProgと同じパスに配置しておくこと．<br>
+ * 要求はテスト対象のコードとして実行されるため，接続には環境変数 {@value #SECRET_ENV} で共有した秘密鍵による認証を課す．
+ * 接続ごとにサーバが送る乱数に対し，クライアントが秘密鍵で計算したHMACを返せた場合のみ要求を読む．
+ * 認証後もTestRequestを構成するクラス以外はデシリアライズしない．<br>
+ * 既定ではループバックアドレスでのみ待ち受ける．他のホストから接続させる場合は待ち受けるアドレスを明示すること．<br>
+ * 使い方: {@code java -cp kGenProg.jar jp.kusumotolab.kgenprog.project.test.TestWorkerServer <port> [bind-address]}
+ *
+ * @see RemoteTestExecutor
+ */
+public final class TestWorkerServer implements AutoCloseable {
+
+  /**
+   * 接続の認証に用いる秘密鍵を渡す環境変数の名前
+   */
+  public static final String SECRET_ENV = "KGENPROG_WORKER_SECRET";
+
+  private static final Logger log = LoggerFactory.getLogger(TestWorkerServer.class);
+
+  private static final String MAC_ALGORITHM = "HmacSHA256";
+  private static final int CHALLENGE_LENGTH = 32;
+
+  // 認証を済ませないまま接続を占有されないよう，応答を待つ時間を限る
+  private static final int HANDSHAKE_TIMEOUT_MILLIS = 10000;
+
+  // TestRequestを構成するクラス．これ以外のクラスはデシリアライズしない
+  private static final Set<String> ALLOWED_CLASSES = new HashSet<>(Arrays.asList( //
+      TestRequest.class.getName(), //
+      TestRequest.class.getName() + "$Binary", //
+      FailFast.class.getName(), //
+      TestPriority.class.getName(), //
+      TestTimeLimits.class.getName(), //
+      FullyQualifiedName.class.getName(), //
+      TargetFullyQualifiedName.class.getName(), //
+      TestFullyQualifiedName.class.getName(), //
+      String.class.getName(), //
+      ArrayList.class.getName(), //
+      HashSet.class.getName(), //
+      HashMap.class.getName(), //
+      Collections.emptyMap()
+          .getClass()
+          .getName(), //
+      "java.time.Ser", // Durationのシリアライズ形式
+      byte[].class.getName()));
+
+  private final ServerSocket serverSocket;
+  private final byte[] secret;
+  private final SecureRandom random;
+  private final ScheduledExecutorService watchdog;
+
+  /**
+   * ループバックアドレスで待ち受けるサーバを起動する
+   *
+   * @param port 待ち受けるポート（0の場合は空いているポート）
+   * @param secret 接続の認証に用いる秘密鍵
+   * @throws IOException
+   */
+  TestWorkerServer(final int port, final String secret) throws IOException {
+    this(port, InetAddress.getLoopbackAddress(), secret);
+  }
+
+  /**
+   * @param port 待ち受けるポート（0の場合は空いているポート）
+   * @param bindAddress 待ち受けるアドレス
+   * @param secret 接続の認証に用いる秘密鍵
+   * @throws IOException
+   */
+  TestWorkerServer(final int port, final InetAddress bindAddress, final String secret)
+      throws IOException {
+    if (secret == null || secret.isEmpty()) {
+      throw new IllegalArgumentException("no secret is specified.");
+    }
+    this.serverSocket = new ServerSocket(port, 0, bindAddress);
+    this.secret = secret.getBytes(StandardCharsets.UTF_8);
+    this.random = new SecureRandom();
+    this.watchdog = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("test-worker-server-watchdog")
+            .setDaemon(true)
+            .build());
+  }
+
+  public static void main(final String[] args) throws IOException {
+    if (args.length < 1 || 2 < args.length) {
+      System.err.println("usage: TestWorkerServer <port> [bind-address]");
+      System.exit(1);
+    }
+    final String secret = System.getenv(SECRET_ENV);
+    if (secret == null || secret.isEmpty()) {
+      System.err.println("environment variable " + SECRET_ENV + " must be set.");
+      System.exit(1);
+    }
+    final InetAddress bindAddress =
+        args.length == 2 ? InetAddress.getByName(args[1]) : InetAddress.getLoopbackAddress();
+    final TestWorkerServer server =
+        new TestWorkerServer(Integer.parseInt(args[0]), bindAddress, secret);
+    log.info("listening on {}:{}", bindAddress.getHostAddress(), server.getPort());
+    server.run();
+  }
+
+  /**
+   * 認証の応答を計算する．RemoteTestExecutorからも用いる．
+   *
+   * @param secret 秘密鍵
+   * @param challenge サーバが送った乱数
+   * @return challengeに対するHMAC
+   */
+  static byte[] respond(final byte[] secret, final byte[] challenge) {
+    try {
+      final Mac mac = Mac.getInstance(MAC_ALGORITHM);
+      mac.init(new SecretKeySpec(secret, MAC_ALGORITHM));
+      return mac.doFinal(challenge);
+    } catch (final GeneralSecurityException e) {
+      // HmacSHA256はすべてのJava実装が備えている
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * クライアント側の認証の手順．サーバが送った乱数に秘密鍵で計算したHMACを返す．
+   *
+   * @param secret 秘密鍵
+   * @param in サーバからの入力（バッファリングしていないもの）
+   * @param out サーバへの出力
+   * @throws IOException
+   */
+  static void authenticate(final byte[] secret, final InputStream in, final OutputStream out)
+      throws IOException {
+    final byte[] challenge = new byte[CHALLENGE_LENGTH];
+    new DataInputStream(in).readFully(challenge);
+    out.write(respond(secret, challenge));
+    out.flush();
+  }
+
+  /**
+   * @return 待ち受けているポート
+   */
+  int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  /**
+   * サーバが閉じられるまで接続を受け付ける．接続ごとにスレッドを起動して要求を処理する．
+   */
+  void run() {
+    while (!serverSocket.isClosed()) {
+      final Socket socket;
+      try {
+        socket = serverSocket.accept();
+      } catch (final IOException e) {
+        // close()により閉じられた場合も含む
+        log.debug("stopped accepting connections: {}", e.toString());
+        break;
+      }
+      final Thread thread = new Thread(() -> serve(socket));
+      thread.setName("test-worker-server-" + socket.getRemoteSocketAddress());
+      thread.setDaemon(true);
+      thread.start();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    serverSocket.close();
+    watchdog.shutdown();
+  }
+
+  private void serve(final Socket socket) {
+    TestProcess process = null;
+    try (final Socket s = socket) {
+      if (!verify(s)) {
+        log.warn("rejected an unauthenticated connection from {}", s.getRemoteSocketAddress());
+        return;
+      }
+      final ObjectOutputStream out =
+          new ObjectOutputStream(new BufferedOutputStream(s.getOutputStream()));
+      out.flush();
+      final ObjectInputStream in =
+          new RequestInputStream(new BufferedInputStream(s.getInputStream()));
+
+      while (true) {
+        final long timeoutMillis;
+        final TestRequest request;
+        try {
+          timeoutMillis = in.readLong();
+          request = (TestRequest) in.readObject();
+        } catch (final EOFException e) {
+          // RemoteTestExecutorが接続を閉じたので終了
+          break;
+        }
+
+        // hot swapの要否は子プロセスの起動時に決まるため，要求と異なる場合も作り直す
+        if (process == null || !process.isReusable()
+            || process.usesHotSwap() != request.usesHotSwap()) {
+          if (process != null) {
+            process.destroy();
+          }
+          process = TestProcess.start(request.usesHotSwap());
+        }
+        out.writeObject(exec(process, request, Duration.ofMillis(timeoutMillis)));
+        out.reset();
+        out.flush();
+      }
+    } catch (final IOException | ClassNotFoundException e) {
+      log.debug("connection was closed: {}", e.toString());
+    } finally {
+      if (process != null) {
+        process.destroy();
+      }
+    }
+  }
+
+  /**
+   * 乱数を送り，秘密鍵で計算したHMACが返ってくるかを確かめる．ここでは何もデシリアライズしない．
+   *
+   * @param socket 受け付けた接続
+   * @return 認証に成功したか否か
+   * @throws IOException
+   */
+  private boolean verify(final Socket socket) throws IOException {
+    final byte[] challenge = new byte[CHALLENGE_LENGTH];
+    random.nextBytes(challenge);
+    socket.setSoTimeout(HANDSHAKE_TIMEOUT_MILLIS);
+    final DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+    out.write(challenge);
+    out.flush();
+
+    final byte[] expected = respond(secret, challenge);
+    final byte[] response = new byte[expected.length];
+    new DataInputStream(socket.getInputStream()).readFully(response);
+    socket.setSoTimeout(0);
+    return MessageDigest.isEqual(expected, response);
+  }
+
+  private TestResults exec(final TestProcess process, final TestRequest request,
+      final Duration timeout) {
+    try {
+      return process.exec(request, timeout, watchdog);
+    } catch (final IOException | ClassNotFoundException e) {
+      // 制限時間を超えたため強制終了した場合もここに来る．次の要求では子プロセスを作り直す
+      log.debug("test process was terminated: {}", e.toString());
+      return EmptyTestResults.instance;
+    }
+  }
+
+  /**
+   * TestRequestを構成するクラスのみをデシリアライズするObjectInputStream
+   */
+  static class RequestInputStream extends ObjectInputStream {
+
+    RequestInputStream(final InputStream in) throws IOException {
+      super(in);
+    }
+
+    @Override
+    protected Class<?> resolveClass(final ObjectStreamClass desc)
+        throws IOException, ClassNotFoundException {
+      if (!ALLOWED_CLASSES.contains(desc.getName())) {
+        throw new InvalidClassException(desc.getName(), "not allowed in a test request");
+      }
+      return super.resolveClass(desc);
+    }
+  }
+}
@@ -15,9 +15,11 @@ import ch.qos.logback.classic.Level;
 import jp.kusumotolab.kgenprog.Configuration.Builder;
 import jp.kusumotolab.kgenprog.ga.mutation.Scope;
 import jp.kusumotolab.kgenprog.ga.mutation.Scope.Type;
+import jp.kusumotolab.kgenprog.project.build.ProjectBuilder;
 import jp.kusumotolab.kgenprog.project.factory.JUnitLibraryResolver.JUnitVersion;
 import jp.kusumotolab.kgenprog.project.factory.TargetProject;
 import jp.kusumotolab.kgenprog.project.factory.TargetProjectFactory;
+import jp.kusumotolab.kgenprog.project.test.TestExecutor;
 
 public class ConfigurationBuilderTest {
 
@@ -2318,5 +2320,152 @@ public class ConfigurationBuilderTest {
     assertThat(config.getTargetProject()).isEqualTo(expectedProject);
   }
 
+  @Test
+  public void testBuildWithTestExecutor() {
+    final Builder builder = new Builder(rootDir, productPaths, testPaths)
+        .setTestExecutor(TestExecutor.Type.FORKED)
+        .setWorkerCount(3);
+    final Configuration config = builder.build();
+
+    assertThat(config.getTestExecutor()).isEqualTo(TestExecutor.Type.FORKED);
+    assertThat(config.getWorkerCount()).isEqualTo(3);
+    assertThat(config.getScope()).isEqualTo(Configuration.DEFAULT_SCOPE);
+  }
+
+  @Test
+  public void testBuildFromCmdLineArgsWithTestExecutor() {
+    final String[] args = {"-r", rootDir.toString(), "-s", productPath.toString(), "-t",
+        testPath.toString(), "--test-executor", "FORKED"};
+    final Configuration config = Builder.buildFromCmdLineArgs(args);
+
+    assertThat(config.getTestExecutor()).isEqualTo(TestExecutor.Type.FORKED);
+    assertThat(config.getWorkerCount()).isEqualTo(Configuration.DEFAULT_WORKER_COUNT);
+  }
+
+  @Test
+  public void testBuildFromCmdLineArgsWithWorkerCount() {
+    final String[] args = {"-r", rootDir.toString(), "-s", productPath.toString(), "-t",
+        testPath.toString(), "--worker-count", "2"};
+    final Configuration config = Builder.buildFromCmdLineArgs(args);
+
+    assertThat(config.getTestExecutor()).isEqualTo(Configuration.DEFAULT_TEST_EXECUTOR);
+    assertThat(config.getWorkerCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void testBuildFromCmdLineArgsWithTestSelection() {
+    final String[] args = {"-r", rootDir.toString(), "-s", productPath.toString(), "-t",
+        testPath.toString(), "--test-selection"};
+    final Configuration config = Builder.buildFromCmdLineArgs(args);
+
+    assertThat(config.usesTestSelection()).isTrue();
+    assertThat(config.getTestExecutor()).isEqualTo(Configuration.DEFAULT_TEST_EXECUTOR);
+  }
+
+  @Test
+  public void testBuildFromCmdLineArgsWithFailFast() {
+    final String[] args = {"-r", rootDir.toString(), "-s", productPath.toString(), "-t",
+        testPath.toString(), "--fail-fast"};
+    final Configuration config = Builder.buildFromCmdLineArgs(args);
+
+    assertThat(config.usesFailFast()).isTrue();
+    assertThat(config.usesTestSelection()).isEqualTo(Configuration.DEFAULT_TEST_SELECTION);
+  }
+
+  @Test
+  public void testBuildFromCmdLineArgsWithCompiler() {
+    final String[] args = {"-r", rootDir.toString(), "-s", productPath.toString(), "-t",
+        testPath.toString(), "--compiler", "ECJ"};
+    final Configuration config = Builder.buildFromCmdLineArgs(args);
+
+    assertThat(config.getCompiler()).isEqualTo(ProjectBuilder.Compiler.ECJ);
+    assertThat(config.getTestExecutor()).isEqualTo(Configuration.DEFAULT_TEST_EXECUTOR);
+  }
+
+  @Test
+  public void testBuildFromCmdLineArgsWithDiskCache() {
+    final String[] args = {"-r", rootDir.toString(), "-s", productPath.toString(), "-t",
+        testPath.toString(), "--disk-cache"};
+    final Configuration config = Builder.buildFromCmdLineArgs(args);
+
+    assertThat(config.usesDiskCache()).isTrue();
+    assertThat(config.getDiskCacheDir()).isEqualTo(config.getWorkingDir()
+        .resolve("kgenprog-cache"));
+  }
+
+  @Test
+  public void testBuildFromCmdLineArgsWithSteadyState() {
+    final String[] args = {"-r", rootDir.toString(), "-s", productPath.toString(), "-t",
+        testPath.toString(), "--steady-state"};
+    final Configuration config = Builder.buildFromCmdLineArgs(args);
+
+    assertThat(config.usesSteadyState()).isTrue();
+    assertThat(config.usesFailFast()).isEqualTo(Configuration.DEFAULT_FAIL_FAST);
+  }
+
+  @Test
+  public void testBuildFromCmdLineArgsWithHotSwap() {
+    final String[] args = {"-r", rootDir.toString(), "-s", productPath.toString(), "-t",
+        testPath.toString(), "--test-executor", "FORKED", "--hot-swap"};
+    final Configuration config = Builder.buildFromCmdLineArgs(args);
+
+    assertThat(config.usesHotSwap()).isTrue();
+    assertThat(new Builder(config.getTargetProject()).build()
+        .usesHotSwap()).isEqualTo(Configuration.DEFAULT_HOT_SWAP);
+  }
+
+  @Test
+  public void testBuildFromCmdLineArgsWithVariantTimeLimit() {
+    final String[] args = {"-r", rootDir.toString(), "-s", productPath.toString(), "-t",
+        testPath.toString(), "--variant-time-limit", "5"};
+    final Configuration config = Builder.buildFromCmdLineArgs(args);
+
+    assertThat(config.getVariantTimeLimit()).isEqualTo(Duration.ofSeconds(5));
+    assertThat(config.getVariantTimeLimitSeconds()).isEqualTo(5);
+    assertThat(config.getTimeLimit()).isEqualTo(Configuration.DEFAULT_TIME_LIMIT);
+  }
+
+  @Test
+  public void testBuildFromCmdLineArgsWithAdaptiveTestTimeLimit() {
+    final String[] args = {"-r", rootDir.toString(), "-s", productPath.toString(), "-t",
+        testPath.toString(), "--adaptive-test-time-limit"};
+    final Configuration config = Builder.buildFromCmdLineArgs(args);
+
+    assertThat(config.usesAdaptiveTestTimeLimit()).isTrue();
+    assertThat(config.getTestTimeLimit()).isEqualTo(Configuration.DEFAULT_TEST_TIME_LIMIT);
+  }
+
+  @Test
+  public void testBuildFromCmdLineArgsWithTestPrioritization() {
+    final String[] args = {"-r", rootDir.toString(), "-s", productPath.toString(), "-t",
+        testPath.toString(), "--fail-fast", "--test-prioritization"};
+    final Configuration config = Builder.buildFromCmdLineArgs(args);
+
+    assertThat(config.usesFailFast()).isTrue();
+    assertThat(config.usesTestPrioritization()).isTrue();
+  }
+
+  @Test
+  public void testBuildFromCmdLineArgsWithRemoteWorkers() {
+    final String[] args = {"-r", rootDir.toString(), "-s", productPath.toString(), "-t",
+        testPath.toString(), "--test-executor", "REMOTE", "--remote-worker", "host1:9000",
+        "host2:9000"};
+    final Configuration config = Builder.buildFromCmdLineArgs(args);
+
+    assertThat(config.getTestExecutor()).isEqualTo(TestExecutor.Type.REMOTE);
+    assertThat(config.getRemoteWorkers()).containsExactly("host1:9000", "host2:9000");
+  }
+
+  @Test
+  public void testBuildFromCmdLineArgsWithIslands() {
+    final String[] args = {"-r", rootDir.toString(), "-s", productPath.toString(), "-t",
+        testPath.toString(), "--island-count", "4", "--migration-interval", "3"};
+    final Configuration config = Builder.buildFromCmdLineArgs(args);
+
+    assertThat(config.getIslandCount()).isEqualTo(4);
+    assertThat(config.getMigrationInterval()).isEqualTo(3);
+    assertThat(config.getHeadcount()).isEqualTo(Configuration.DEFAULT_HEADCOUNT);
+  }
+
   // todo: 引数がなかった場合の挙動を確かめるために，カレントディレクトリを変更した上でテスト実行
 }
@@ -50,6 +50,11 @@ public class KGenProgMainTest {
    */
   private KGenProgMain createMain(final Path rootPath, final Path productPath,
       final Path testPath) {
+    return createMain(rootPath, productPath, testPath, false);
+  }
+
+  private KGenProgMain createMain(final Path rootPath, final Path productPath,
+      final Path testPath, final boolean steadyState) {
 
     final List<Path> productPaths = Arrays.asList(productPath);
     final List<Path> testPaths = Arrays.asList(testPath);
@@ -62,6 +67,7 @@ public class KGenProgMainTest {
             .setRequiredSolutionsCount(1)
             .setNeedNotOutput(true)
             .setRandomSeed(2) // CTZ04の修正に時間がかかるので早めに終わるよう微調整（for テスト高速化）
+            .setSteadyState(steadyState)
             .build();
     final FaultLocalization faultLocalization = new Ochiai();
     final Random random = new Random(config.getRandomSeed());
@@ -134,6 +140,19 @@ public class KGenProgMainTest {
         .allMatch(Variant::isCompleted);
   }
 
+  @Test
+  public void testCloseToZero01WithSteadyState() {
+    final Path rootPath = Paths.get("example/CloseToZero01");
+    final Path productPath = rootPath.resolve(PRODUCT_NAME);
+    final Path testPath = rootPath.resolve(TEST_NAME);
+
+    final KGenProgMain kGenProgMain = createMain(rootPath, productPath, testPath, true);
+    final List<Variant> variants = kGenProgMain.run();
+
+    assertThat(variants).hasSize(1)
+        .allMatch(Variant::isCompleted);
+  }
+
   // @Ignore
   @Test
   public void testGCD01() {
@@ -7,6 +7,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Test;
 import jp.kusumotolab.kgenprog.Configuration;
 import jp.kusumotolab.kgenprog.ga.variant.Base;
@@ -16,6 +17,7 @@ import jp.kusumotolab.kgenprog.ga.variant.VariantStore;
 import jp.kusumotolab.kgenprog.project.GeneratedSourceCode;
 import jp.kusumotolab.kgenprog.project.GenerationFailedSourceCode;
 import jp.kusumotolab.kgenprog.project.NoneOperation;
+import jp.kusumotolab.kgenprog.project.Operation;
 import jp.kusumotolab.kgenprog.project.factory.TargetProject;
 import jp.kusumotolab.kgenprog.project.factory.TargetProjectFactory;
 import jp.kusumotolab.kgenprog.testutil.TestUtil;
@@ -102,6 +104,45 @@ public class DefaultSourceCodeGenerationTest {
     }
   }
 
+  @Test
+  public void testExecWithCachedPrefix() {
+    final TargetProject targetProject =
+        TargetProjectFactory.create(Paths.get("example/BuildSuccess01"));
+    final Configuration config = new Configuration.Builder(targetProject).build();
+    final Variant initialVariant = TestUtil.createVariant(config);
+    final VariantStore variantStore = getVariantStore(initialVariant);
+    final DefaultSourceCodeGeneration sourceCodeGeneration = new DefaultSourceCodeGeneration(2);
+    final AtomicInteger count = new AtomicInteger();
+    final Operation operation = (generatedSourceCode, location) -> {
+      count.incrementAndGet();
+      return generatedSourceCode;
+    };
+    final Base base1 = new Base(null, operation);
+    final Base base2 = new Base(null, operation);
+    final Base base3 = new Base(null, operation);
+    final Base base4 = new Base(null, operation);
+
+    sourceCodeGeneration.exec(variantStore, new Gene(Arrays.asList(base1, base2)));
+    assertThat(count.get()).isEqualTo(2);
+
+    // 親の遺伝子に1つBaseを加えた遺伝子は，追加したBaseのみを適用する
+    sourceCodeGeneration.exec(variantStore, new Gene(Arrays.asList(base1, base2, base3)));
+    assertThat(count.get()).isEqualTo(3);
+
+    // 先頭部分が一致する遺伝子は，一致した部分の続きのみを適用する
+    sourceCodeGeneration.exec(variantStore, new Gene(Arrays.asList(base1, base2, base4)));
+    assertThat(count.get()).isEqualTo(4);
+
+    // 保持する数を超えたため，最も長く参照されていない[base1, base2, base3]は捨てられている
+    sourceCodeGeneration.exec(variantStore, new Gene(Arrays.asList(base1, base2, base3)));
+    assertThat(count.get()).isEqualTo(5);
+
+    // 同じ操作でも別のインスタンスのBaseとは一致しない
+    sourceCodeGeneration.exec(variantStore,
+        new Gene(Arrays.asList(base1, base2, new Base(null, operation))));
+    assertThat(count.get()).isEqualTo(6);
+  }
+
   // TODO: None以外のOperationでテストする必要有り
 
   @SuppressWarnings("deprecation")
@@ -108,7 +108,7 @@ public class GeneSimilarityBasedSinglePointCrossoverTest {
     final VariantStore variantStore = Mockito.mock(VariantStore.class);
     when(variantStore.getCurrentVariants())
         .thenReturn(Arrays.asList(noneOperationVariant, insertOperationVariant));
-    when(variantStore.createVariant(any(), any())).thenAnswer(invocation -> {
+    when(variantStore.createNewVariant(any(), any())).thenAnswer(invocation -> {
       final Gene gene = invocation.getArgument(0);
       final HistoricalElement element = invocation.getArgument(1);
       return new Variant(0, 0, gene, null, null, null, null, element);
@@ -229,7 +229,7 @@ public class RandomMutationTest {
   private VariantStore createVariantStore(final Variant initialVariant) {
     final VariantStore variantStore = mock(VariantStore.class);
     when(variantStore.getCurrentVariants()).thenReturn(Collections.singletonList(initialVariant));
-    when(variantStore.createVariant(any(), any())).then(ans -> {
+    when(variantStore.createNewVariant(any(), any())).then(ans -> {
       return new Variant(0, 0, ans.getArgument(0), null, null, null, null, ans.getArgument(1));
     });
     return variantStore;
@@ -3,6 +3,7 @@ package jp.kusumotolab.kgenprog.ga.selection;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -95,6 +96,33 @@ public class DefaultVariantSelectionTest {
     }
   }
 
+  @Test
+  public void testGetSelectionCutoff() {
+    final DefaultVariantSelection variantSelection = new DefaultVariantSelection(3);
+    final Variant v1 = createVariant(new SimpleFitness(0.2d));
+    final Variant v2 = createVariant(new SimpleFitness(0.5d));
+    final Variant v3 = createVariant(new SimpleFitness(0.4d));
+
+    // 定員に満たない場合はどの個体も選ばれうる
+    assertThat(variantSelection.getSelectionCutoff(Arrays.asList(v1, v2))).isNaN();
+
+    // 定員を満たす場合は最低の適合度
+    assertThat(variantSelection.getSelectionCutoff(Arrays.asList(v1, v2, v3))).isEqualTo(0.2d);
+  }
+
+  @Test
+  public void testGetSelectionCutoffForGenerationalVariantSelection() {
+    final GenerationalVariantSelection variantSelection = new GenerationalVariantSelection(2);
+    final Variant v1 = createVariant(new SimpleFitness(0.2d));
+    final Variant v2 = createVariant(new SimpleFitness(0.5d));
+    final Variant completed = createVariant(new SimpleFitness(SimpleFitness.MAXIMUM_VALUE));
+
+    // Fitness が 1.0 の個体は次の選択の候補から外れるため，定員に数えない
+    assertThat(variantSelection.getSelectionCutoff(Arrays.asList(v1, completed))).isNaN();
+    assertThat(variantSelection.getSelectionCutoff(Arrays.asList(v1, v2, completed)))
+        .isEqualTo(0.2d);
+  }
+
   private Variant createVariant(final Fitness fitness) {
     final Variant variant = new Variant(0 ,0, null, null, null, fitness, null, null);
     return variant;
@@ -0,0 +1,92 @@
+package jp.kusumotolab.kgenprog.ga.selection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import jp.kusumotolab.kgenprog.ga.validation.SimpleFitness;
+import jp.kusumotolab.kgenprog.ga.variant.HistoricalElement;
+import jp.kusumotolab.kgenprog.ga.variant.MutationHistoricalElement;
+import jp.kusumotolab.kgenprog.ga.variant.OriginalHistoricalElement;
+import jp.kusumotolab.kgenprog.ga.variant.Variant;
+
+public class IslandVariantSelectionTest {
+
+  @Test
+  public void testExec() {
+    final IslandVariantSelection variantSelection = new IslandVariantSelection(4, 2, 5);
+    final Variant initial = createVariant(0, 0, 0.0d, new OriginalHistoricalElement());
+
+    // 初期個体の子は島に順に振り分けられる
+    final Variant v1 = createVariant(1, 1, 0.1d, new MutationHistoricalElement(initial, null));
+    final Variant v2 = createVariant(2, 1, 0.2d, new MutationHistoricalElement(initial, null));
+    final Variant v3 = createVariant(3, 1, 0.3d, new MutationHistoricalElement(initial, null));
+    final Variant v4 = createVariant(4, 1, 0.4d, new MutationHistoricalElement(initial, null));
+    final List<Variant> result1 = variantSelection.exec(Collections.singletonList(initial),
+        Arrays.asList(v1, v2, v3, v4));
+
+    assertThat(variantSelection.getIsland(v1)).isEqualTo(0);
+    assertThat(variantSelection.getIsland(v2)).isEqualTo(1);
+    assertThat(variantSelection.getIsland(v3)).isEqualTo(0);
+    assertThat(variantSelection.getIsland(v4)).isEqualTo(1);
+
+    // 島ごとに2個体ずつ選択される
+    assertThat(result1).containsExactlyInAnyOrder(v1, v2, v3, v4);
+
+    // 子は親と同じ島に属し，島の中でのみ選択される
+    final Variant v5 = createVariant(5, 2, 0.9d, new MutationHistoricalElement(v1, null));
+    final Variant v6 = createVariant(6, 2, 0.8d, new MutationHistoricalElement(v1, null));
+    final List<Variant> result2 = variantSelection.exec(result1, Arrays.asList(v5, v6));
+
+    assertThat(variantSelection.getIsland(v5)).isEqualTo(0);
+    assertThat(variantSelection.getIsland(v6)).isEqualTo(0);
+    assertThat(result2).containsExactlyInAnyOrder(v5, v6, v2, v4);
+  }
+
+  @Test
+  public void testExecWithMigration() {
+    final IslandVariantSelection variantSelection = new IslandVariantSelection(4, 2, 2);
+    final Variant initial = createVariant(0, 0, 0.0d, new OriginalHistoricalElement());
+
+    final Variant v1 = createVariant(1, 1, 0.1d, new MutationHistoricalElement(initial, null));
+    final Variant v2 = createVariant(2, 1, 0.2d, new MutationHistoricalElement(initial, null));
+    final Variant v3 = createVariant(3, 1, 0.3d, new MutationHistoricalElement(initial, null));
+    final Variant v4 = createVariant(4, 1, 0.4d, new MutationHistoricalElement(initial, null));
+    final List<Variant> result1 = variantSelection.exec(Collections.singletonList(initial),
+        Arrays.asList(v1, v2, v3, v4));
+
+    // 移住の間隔に満たないため，島は変わらない
+    assertThat(variantSelection.getIsland(v3)).isEqualTo(0);
+    assertThat(variantSelection.getIsland(v4)).isEqualTo(1);
+
+    // 2世代目で各島の最良の個体が隣の島へ移る
+    final Variant v5 = createVariant(5, 2, 0.0d, new MutationHistoricalElement(v1, null));
+    final List<Variant> result2 = variantSelection.exec(result1, Arrays.asList(v5));
+
+    assertThat(result2).containsExactlyInAnyOrder(v1, v2, v3, v4);
+    assertThat(variantSelection.getIsland(v3)).isEqualTo(1);
+    assertThat(variantSelection.getIsland(v4)).isEqualTo(0);
+    assertThat(variantSelection.getIsland(v1)).isEqualTo(0);
+    assertThat(variantSelection.getIsland(v2)).isEqualTo(1);
+  }
+
+  @Test
+  public void testGetSelectionCutoff() {
+    final IslandVariantSelection variantSelection = new IslandVariantSelection(2, 2, 5);
+    final Variant initial = createVariant(0, 0, 0.0d, new OriginalHistoricalElement());
+    final Variant v1 = createVariant(1, 1, 0.1d, new MutationHistoricalElement(initial, null));
+    final Variant v2 = createVariant(2, 1, 0.9d, new MutationHistoricalElement(initial, null));
+    final List<Variant> result = variantSelection.exec(Collections.singletonList(initial),
+        Arrays.asList(v1, v2));
+
+    // 島ごとに選ばれるため，全体の最低の適合度は下限にならない
+    assertThat(variantSelection.getSelectionCutoff(result)).isNaN();
+  }
+
+  private Variant createVariant(final long id, final int generation, final double fitness,
+      final HistoricalElement element) {
+    return new Variant(id, generation, null, null, null, new SimpleFitness(fitness), null,
+        element);
+  }
+}
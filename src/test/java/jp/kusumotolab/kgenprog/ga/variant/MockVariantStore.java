@@ -21,4 +21,9 @@ public class MockVariantStore extends VariantStore {
   public Variant createVariant(final Gene gene, final HistoricalElement element) {
     return new Variant(0, 0, gene, null, null, null, null, element);
   }
+
+  @Override
+  public Variant createNewVariant(final Gene gene, final HistoricalElement element) {
+    return createVariant(gene, element);
+  }
 }
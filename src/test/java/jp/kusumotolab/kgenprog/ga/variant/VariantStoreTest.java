@@ -3,6 +3,8 @@ package jp.kusumotolab.kgenprog.ga.variant;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -17,7 +19,10 @@ import jp.kusumotolab.kgenprog.Strategies;
 import jp.kusumotolab.kgenprog.fl.Suspiciousness;
 import jp.kusumotolab.kgenprog.ga.validation.Fitness;
 import jp.kusumotolab.kgenprog.ga.validation.SimpleFitness;
+import jp.kusumotolab.kgenprog.project.DuplicatedSourceCode;
+import jp.kusumotolab.kgenprog.project.GeneratedAST;
 import jp.kusumotolab.kgenprog.project.GeneratedSourceCode;
+import jp.kusumotolab.kgenprog.project.ProductSourcePath;
 import jp.kusumotolab.kgenprog.project.factory.TargetProject;
 import jp.kusumotolab.kgenprog.project.factory.TargetProjectFactory;
 import jp.kusumotolab.kgenprog.project.jdt.JDTASTConstruction;
@@ -75,6 +80,95 @@ public class VariantStoreTest {
     assertThat(variant3g.getGenerationNumber()).hasValue(3);
   }
 
+  @Test
+  // 既知のプログラムになった個体はテストを実行せずに評価結果を引き継ぐはず
+  public void testCreateVariantForDuplicatedSourceCode() {
+    final Path basePath = Paths.get("example/BuildSuccess01");
+    final Configuration config = createMockConfiguration(basePath);
+
+    final GeneratedSourceCode astConstructionResult =
+        new GeneratedSourceCode(Collections.emptyList(), Collections.emptyList());
+    @SuppressWarnings("unchecked")
+    final GeneratedAST<ProductSourcePath> ast = mock(GeneratedAST.class);
+    when(ast.getSourcePath()).thenReturn(new ProductSourcePath(basePath, Paths.get("Foo.java")));
+    when(ast.getMessageDigest()).thenReturn("modified");
+    final GeneratedSourceCode sourceCodeGenerationResult =
+        new GeneratedSourceCode(Collections.singletonList(ast), Collections.emptyList());
+    final TestResults testExecutorResult = mock(TestResults.class);
+    final Fitness sourceCodeValidationResult = new SimpleFitness(0.5);
+    final Strategies strategies = mock(Strategies.class);
+    when(strategies.execFaultLocalization(any(), any())).thenReturn(new ArrayList<>());
+    when(strategies.execSourceCodeGeneration(any(), any())).thenReturn(sourceCodeGenerationResult,
+        new DuplicatedSourceCode(sourceCodeGenerationResult));
+    when(strategies.execSourceCodeValidation(any(), any())).thenReturn(sourceCodeValidationResult);
+    when(strategies.execASTConstruction(any())).thenReturn(astConstructionResult);
+    when(strategies.execAsyncTestExecutor(any())).thenReturn(Single.just(testExecutorResult));
+
+    final VariantStore variantStore = new VariantStore(config, strategies);
+    final Gene gene = new Gene(Collections.emptyList());
+    final HistoricalElement element = mock(HistoricalElement.class);
+    final Variant variant = variantStore.createNewVariant(gene, element);
+
+    // 既知のプログラムになる場合，createNewVariantは個体を生成しないはず
+    assertThat(variantStore.createNewVariant(gene, element)).isNull();
+
+    final Variant duplicatedVariant = variantStore.createVariant(gene, element);
+
+    // 生成した個体のみに連番のIDを割り振るはず
+    assertThat(variant.getId()).isEqualTo(variantStore.getInitialVariant()
+        .getId() + 1);
+    assertThat(duplicatedVariant.getId()).isEqualTo(variant.getId() + 1);
+    assertThat(duplicatedVariant.getGeneratedSourceCode()).isSameAs(sourceCodeGenerationResult);
+    assertThat(duplicatedVariant.getTestResults()).isSameAs(testExecutorResult);
+    assertThat(duplicatedVariant.getFitness()).isSameAs(sourceCodeValidationResult);
+
+    // 初期個体と1つ目の個体のみがテストされるはず
+    verify(strategies, times(2)).execAsyncTestExecutor(any());
+  }
+
+  @Test
+  // fail-fastにより打ち切られた可能性のある評価結果は引き継がず，評価し直すはず
+  public void testCreateVariantForDuplicatedSourceCodeWithStoppedTestResults() {
+    final Path basePath = Paths.get("example/BuildSuccess01");
+    final Configuration config = createMockConfiguration(basePath);
+
+    final GeneratedSourceCode astConstructionResult =
+        new GeneratedSourceCode(Collections.emptyList(), Collections.emptyList());
+    @SuppressWarnings("unchecked")
+    final GeneratedAST<ProductSourcePath> ast = mock(GeneratedAST.class);
+    when(ast.getSourcePath()).thenReturn(new ProductSourcePath(basePath, Paths.get("Foo.java")));
+    when(ast.getMessageDigest()).thenReturn("modified");
+    final GeneratedSourceCode sourceCodeGenerationResult =
+        new GeneratedSourceCode(Collections.singletonList(ast), Collections.emptyList());
+    final TestResults initialTestResults = mock(TestResults.class);
+    final TestResults stoppedTestResults = mock(TestResults.class);
+    when(stoppedTestResults.mayHaveStopped()).thenReturn(true);
+    final TestResults reevaluatedTestResults = mock(TestResults.class);
+    final Strategies strategies = mock(Strategies.class);
+    when(strategies.execFaultLocalization(any(), any())).thenReturn(new ArrayList<>());
+    when(strategies.execSourceCodeGeneration(any(), any())).thenReturn(sourceCodeGenerationResult,
+        new DuplicatedSourceCode(sourceCodeGenerationResult));
+    when(strategies.execSourceCodeValidation(any(), any())).thenReturn(new SimpleFitness(0.5));
+    when(strategies.execASTConstruction(any())).thenReturn(astConstructionResult);
+    when(strategies.execAsyncTestExecutor(any())).thenReturn(Single.just(initialTestResults))
+        .thenReturn(Single.just(stoppedTestResults))
+        .thenReturn(Single.just(reevaluatedTestResults));
+
+    final VariantStore variantStore = new VariantStore(config, strategies);
+    final Gene gene = new Gene(Collections.emptyList());
+    final HistoricalElement element = mock(HistoricalElement.class);
+    final Variant variant = variantStore.createVariant(gene, element);
+    final Variant duplicatedVariant1 = variantStore.createVariant(gene, element);
+
+    assertThat(variant.getTestResults()).isSameAs(stoppedTestResults);
+    assertThat(duplicatedVariant1.getTestResults()).isSameAs(reevaluatedTestResults);
+
+    // 以降の重複は評価し直した結果を引き継ぐ
+    final Variant duplicatedVariant2 = variantStore.createVariant(gene, element);
+    assertThat(duplicatedVariant2.getTestResults()).isSameAs(reevaluatedTestResults);
+    verify(strategies, times(3)).execAsyncTestExecutor(any());
+  }
+
   @Test
   public void testGetGenerationNumber() {
     final Path basePath = Paths.get("example/BuildSuccess01");
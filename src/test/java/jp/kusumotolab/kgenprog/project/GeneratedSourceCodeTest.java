@@ -58,7 +58,7 @@ public class GeneratedSourceCodeTest {
     final GeneratedSourceCode g =
         new GeneratedSourceCode(Arrays.asList(ast1, ast2), Collections.emptyList());
 
-    assertThat(g.getMessageDigest()).isEqualTo("6547436690a26a399603a7096e876a2d");
+    assertThat(g.getMessageDigest()).isEqualTo("e1f0fee2d7ef0036bed0def27d419ab8");
   }
 
   @Test
@@ -78,4 +78,46 @@ public class GeneratedSourceCodeTest {
     assertThat(g1.getMessageDigest()).isEqualTo(g2.getMessageDigest());
   }
 
+  @Test
+  public void testReplaceProductAst() {
+    final ProductSourcePath p1 = new ProductSourcePath(Paths.get("."), Paths.get("a"));
+    final ProductSourcePath p2 = new ProductSourcePath(Paths.get("."), Paths.get("b"));
+    final GeneratedAST<ProductSourcePath> ast1 = new GeneratedASTMock(p1, "aaa");
+    final GeneratedAST<ProductSourcePath> ast2 = new GeneratedASTMock(p2, "bbb");
+    final GeneratedAST<ProductSourcePath> ast3 = new GeneratedASTMock(p2, "ccc");
+
+    final GeneratedSourceCode g1 =
+        new GeneratedSourceCode(Arrays.asList(ast1, ast2), Collections.emptyList());
+    final GeneratedSourceCode g2 = g1.replaceProductAst(ast3);
+
+    // 元のソースコードは変わらない
+    assertThat(g1.getProductAsts()).containsExactly(ast1, ast2);
+    assertThat(g1.getProductAst(p2)).isSameAs(ast2);
+
+    assertThat(g2.getProductAsts()).containsExactly(ast1, ast3);
+    assertThat(g2.getProductAst(p2)).isSameAs(ast3);
+
+    // 差分で更新したダイジェストは，同じASTから作り直したダイジェストと一致する
+    final GeneratedSourceCode g3 =
+        new GeneratedSourceCode(Arrays.asList(ast1, ast3), Collections.emptyList());
+    assertThat(g2.getMessageDigest()).isEqualTo(g3.getMessageDigest())
+        .isNotEqualTo(g1.getMessageDigest());
+    assertThat(g2.replaceProductAst(ast2)
+        .getMessageDigest()).isEqualTo(g1.getMessageDigest());
+  }
+
+  @Test
+  public void testGetMessageDigestForSwappedContents() {
+    final ProductSourcePath p1 = new ProductSourcePath(Paths.get("."), Paths.get("a"));
+    final ProductSourcePath p2 = new ProductSourcePath(Paths.get("."), Paths.get("b"));
+    final GeneratedSourceCode g1 = new GeneratedSourceCode(
+        Arrays.asList(new GeneratedASTMock(p1, "aaa"), new GeneratedASTMock(p2, "bbb")),
+        Collections.emptyList());
+    final GeneratedSourceCode g2 = new GeneratedSourceCode(
+        Arrays.asList(new GeneratedASTMock(p1, "bbb"), new GeneratedASTMock(p2, "aaa")),
+        Collections.emptyList());
+
+    assertThat(g1.getMessageDigest()).isNotEqualTo(g2.getMessageDigest());
+  }
+
 }
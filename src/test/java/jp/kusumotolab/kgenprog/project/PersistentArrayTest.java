@@ -0,0 +1,50 @@
+package jp.kusumotolab.kgenprog.project;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Test;
+
+public class PersistentArrayTest {
+
+  @Test
+  public void testGet() {
+    // 3段のトライになる要素数
+    final List<Integer> elements = IntStream.range(0, 2000)
+        .boxed()
+        .collect(Collectors.toList());
+    final PersistentArray<Integer> array = PersistentArray.of(elements);
+
+    assertThat(array).hasSize(2000)
+        .containsExactlyElementsOf(elements);
+  }
+
+  @Test
+  public void testReplace() {
+    final List<Integer> elements = IntStream.range(0, 2000)
+        .boxed()
+        .collect(Collectors.toList());
+    final PersistentArray<Integer> array1 = PersistentArray.of(elements);
+    final PersistentArray<Integer> array2 = array1.replace(1500, -1);
+    final PersistentArray<Integer> array3 = array2.replace(0, -2);
+
+    // 置き換え前の配列は変わらない
+    assertThat(array1).containsExactlyElementsOf(elements);
+    assertThat(array2.get(1500)).isEqualTo(-1);
+    assertThat(array2.get(0)).isEqualTo(0);
+    assertThat(array3.get(1500)).isEqualTo(-1);
+    assertThat(array3.get(0)).isEqualTo(-2);
+    assertThat(array3.subList(1, 1500)).containsExactlyElementsOf(elements.subList(1, 1500));
+  }
+
+  @Test
+  public void testEmpty() {
+    final PersistentArray<Integer> array = PersistentArray.of(Collections.emptyList());
+
+    assertThat(array).isEmpty();
+    assertThatThrownBy(() -> array.get(0)).isInstanceOf(IndexOutOfBoundsException.class);
+  }
+}
@@ -107,6 +107,20 @@ public class BinaryStoreTest {
     assertThat(binStore.get("example")).containsExactlyInAnyOrder(object1, object2);
   }
 
+  @Test
+  // getの確認．サブパッケージのバイナリは含まれないか
+  public void testListExcludingSubPackage() {
+    binStore.add(object1);
+
+    // "example" のサブパッケージのJMOバイナリを追加
+    final FullyQualifiedName fqn = new TargetFullyQualifiedName("example.sub.Foo");
+    final JavaBinaryObject sub = new JavaBinaryObject(fqn, fqn, "5555", null, false);
+    binStore.add(sub);
+
+    assertThat(binStore.get("example")).containsExactly(object1);
+    assertThat(binStore.get("example.sub")).containsExactly(sub);
+  }
+
   @Test
   // 基本操作の確認．内部クラスの操作
   public void testStoreAndGetForInnerClass() {
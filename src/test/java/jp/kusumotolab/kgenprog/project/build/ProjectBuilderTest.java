@@ -209,6 +209,100 @@ public class ProjectBuilderTest {
     assertThat(binaryStore2.getAll()).hasSize(2);
   }
 
+  @Test
+  // ライブラリのクラスパスの索引を共有した複数のProjectBuilderによるビルドの確認テスト
+  public void testBuildWithSharedClassPathIndex() throws Exception {
+    final Path rootPath = Paths.get("example/BuildSuccess01");
+    final TargetProject targetProject = TargetProjectFactory.create(rootPath);
+    final GeneratedSourceCode source = TestUtil.createGeneratedSourceCode(targetProject);
+    final ClassPathIndex classPathIndex = new ClassPathIndex(targetProject.getClassPaths());
+
+    // いずれのProjectBuilderでもJUnitを参照するテストを含めてビルドできるはず
+    for (int i = 0; i < 2; i++) {
+      final ProjectBuilder projectBuilder =
+          new ProjectBuilder(targetProject, new BinaryStore(), classPathIndex);
+      final BuildResults buildResults = projectBuilder.build(source);
+      assertThat(buildResults.isBuildFailed).isFalse();
+      assertThat(buildResults.getBinaryStore()
+          .getAll()).hasSize(2);
+    }
+  }
+
+  @Test
+  public void testBuildStringForBuildFailure01WithEcj() {
+    final Path rootPath = Paths.get("example/BuildFailure01");
+    final TargetProject targetProject = TargetProjectFactory.create(rootPath);
+    final GeneratedSourceCode source = TestUtil.createGeneratedSourceCode(targetProject);
+    final ProjectBuilder projectBuilder = createEcjProjectBuilder(targetProject);
+    final BuildResults buildResults = projectBuilder.build(source);
+
+    assertThat(buildResults).isInstanceOf(EmptyBuildResults.class);
+    assertThat(buildResults.isBuildFailed).isTrue();
+  }
+
+  @Test
+  // ECJでも内部クラスや匿名クラスを含めてjavacと同じ名前のバイナリが得られるはず
+  public void testBuildStringForExample03WithEcj() throws Exception {
+    final Path rootPath = Paths.get("example/BuildSuccess03");
+    final TargetProject targetProject = TargetProjectFactory.create(rootPath);
+    final ProjectBuilder projectBuilder = createEcjProjectBuilder(targetProject);
+    final GeneratedSourceCode source = TestUtil.createGeneratedSourceCode(targetProject);
+    final BuildResults buildResults = projectBuilder.build(source);
+
+    final BinaryStore binaryStore = buildResults.getBinaryStore();
+
+    assertThat(buildResults.isBuildFailed).isFalse();
+    assertThat(buildResults.buildProgressText).isNotBlank();
+    assertThat(binaryStore.getAll()).extracting(jmo -> jmo.getFqn())
+        .containsExactlyInAnyOrder(FOO, FOO_TEST, BAR, BAR_TEST, BAZ, BAZ_TEST, BAZ_INNER,
+            BAZ_STATIC_INNER, BAZ_ANONYMOUS, BAZ_OUTER);
+
+    // バイトコードが正しいのでうまくロードできるはず
+    final MemoryClassLoader loader = new MemoryClassLoader();
+    binaryStore.getAll()
+        .forEach(jmo -> loader.addDefinition(jmo.getFqn(), jmo.getByteCode()));
+    loader.loadClass(BAZ);
+    loader.close();
+  }
+
+  @Test
+  // ECJでの差分ビルドでは，コンパイル済みバイナリを参照してコンパイルできるはず
+  public void testDifferentialBuildWithEcj() throws Exception {
+    final Path rootPath = Paths.get("example/BuildSuccess14");
+    final TargetProject targetProject = TargetProjectFactory.create(rootPath);
+    final GeneratedSourceCode source = TestUtil.createGeneratedSourceCode(targetProject);
+    final ProjectBuilder projectBuilder = createEcjProjectBuilder(targetProject);
+
+    final BuildResults buildResults1 = projectBuilder.build(source);
+    assertThat(buildResults1.isBuildFailed).isFalse();
+    final BinaryStore binaryStore1 = buildResults1.getBinaryStore();
+    assertThat(binaryStore1.getAll()).hasSize(3);
+
+    // FooTestのみをコンパイル対象に加える
+    final GeneratedAST<?> ast = source.getAllAsts()
+        .stream()
+        .filter(a -> a.getPrimaryClassName()
+            .equals(FOO_TEST))
+        .findFirst()
+        .get();
+    final Field field = ast.getClass()
+        .getDeclaredField("messageDigest");
+    field.setAccessible(true);
+    field.set(ast, "xxxx");
+
+    final BuildResults buildResults2 = projectBuilder.build(source);
+    assertThat(buildResults2.isBuildFailed).isFalse();
+    final BinaryStore binaryStore2 = buildResults2.getBinaryStore();
+    assertThat(binaryStore2.getAll()).hasSize(3);
+    assertThat(binaryStore2.get(FOO)).isSameAs(binaryStore1.get(FOO));
+    assertThat(binaryStore2.get(FOO_TEST)).isNotSameAs(binaryStore1.get(FOO_TEST));
+  }
+
+  private ProjectBuilder createEcjProjectBuilder(final TargetProject targetProject) {
+    return new ProjectBuilder(targetProject, new BinaryStore(),
+        new ClassPathIndex(targetProject.getClassPaths()), ProjectBuilder.Compiler.ECJ);
+  }
+
   @Test
   // 差分ビルドの確認テスト （一度ビルド，astを操作，2度目のビルド）
   public void testDifferentialBuild01() throws Exception {
@@ -379,7 +379,7 @@ public class GeneratedJDTASTTest {
     final GeneratedJDTAST<ProductSourcePath> jdtAst =
         (GeneratedJDTAST<ProductSourcePath>) asts.get(0);
 
-    assertThat(jdtAst.getMessageDigest()).isEqualTo("203afcb54181c234b8450eb5e02efdf8");
+    assertThat(jdtAst.getMessageDigest()).isEqualTo("7f006bae60dafd7d852839728af3a458");
   }
 
   @Test
@@ -406,6 +406,70 @@ public class GeneratedJDTASTTest {
     assertThat(ast1.getMessageDigest()).isNotEqualTo(ast2.getMessageDigest());
   }
 
+  @Test
+  public void testGetMessageDigestAfterOperation() {
+    final GeneratedSourceCode generatedSourceCode =
+        new GeneratedSourceCode(Collections.singletonList(ast), Collections.emptyList());
+
+    // メソッドaの文を削除し，続けてメソッドbの文を置換する
+    final MethodDeclaration a = ((TypeDeclaration) ast.getRoot()
+        .types()
+        .get(0)).getMethods()[0];
+    final JDTASTLocation deleteLocation = new JDTASTLocation(ast.getSourcePath(),
+        (Statement) a.getBody()
+            .statements()
+            .get(0),
+        ast);
+    final GeneratedSourceCode deleted =
+        new DeleteOperation().apply(generatedSourceCode, deleteLocation);
+    final GeneratedJDTAST<ProductSourcePath> deletedAst =
+        (GeneratedJDTAST<ProductSourcePath>) deleted.getProductAsts()
+            .get(0);
+
+    final MethodDeclaration b = ((TypeDeclaration) deletedAst.getRoot()
+        .types()
+        .get(0)).getMethods()[1];
+    final JDTASTLocation replaceLocation = new JDTASTLocation(ast.getSourcePath(),
+        (Statement) b.getBody()
+            .statements()
+            .get(1),
+        deletedAst);
+    final AST jdtAST = deletedAst.getRoot()
+        .getAST();
+    final MethodInvocation invocation = jdtAST.newMethodInvocation();
+    invocation.setName(jdtAST.newSimpleName("a"));
+    final GeneratedSourceCode replaced =
+        new ReplaceOperation(jdtAST.newExpressionStatement(invocation)).apply(deleted,
+            replaceLocation);
+    final GeneratedJDTAST<ProductSourcePath> replacedAst =
+        (GeneratedJDTAST<ProductSourcePath>) replaced.getProductAsts()
+            .get(0);
+
+    // 書き換えた範囲から求めたダイジェストは，ファイル全体を構文解析して求めたものと一致する
+    final JDTASTConstruction constructor = new JDTASTConstruction();
+    assertThat(deletedAst.getMessageDigest()).isEqualTo(constructor
+        .constructAST(ast.getSourcePath(), deletedAst.getSourceCode())
+        .getMessageDigest());
+    assertThat(replacedAst.getMessageDigest()).isEqualTo(constructor
+        .constructAST(ast.getSourcePath(), replacedAst.getSourceCode())
+        .getMessageDigest());
+    assertThat(replacedAst.getMessageDigest()).isNotEqualTo(ast.getMessageDigest())
+        .isNotEqualTo(deletedAst.getMessageDigest());
+    assertThat(replacedAst.getRoot()).isSameSourceCodeAs("class A {\n" //
+        + "  public void a() {\n" //
+        + "    if (n == 1) {\n" //
+        + "      System.out.println(n);\n" //
+        + "    }\n" //
+        + "  }\n" //
+        + "  public int b(int n) {\n" //
+        + "    if (n < 0) { return -n; }\n" //
+        + "    a();\n" //
+        + "  }\n" //
+        + "}\n");
+    assertThat(replacedAst.getPrimaryClassName()).isEqualTo(ast.getPrimaryClassName());
+    assertThat(replacedAst.getNumberOfLines()).isEqualTo(11);
+  }
+
   @Test
   public void testGetNumberOfLines() {
     final Path rootPath = Paths.get("example/BuildSuccess01");
@@ -5,10 +5,18 @@ import static jp.kusumotolab.kgenprog.testutil.ExampleAlias.Src.BAR_TEST;
 import static jp.kusumotolab.kgenprog.testutil.ExampleAlias.Src.FOO;
 import static jp.kusumotolab.kgenprog.testutil.ExampleAlias.Src.FOO_TEST;
 import static org.assertj.core.api.Assertions.assertThat;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import jp.kusumotolab.kgenprog.project.GeneratedAST;
 import jp.kusumotolab.kgenprog.project.GeneratedSourceCode;
 import jp.kusumotolab.kgenprog.project.GenerationFailedSourceCode;
@@ -20,6 +28,9 @@ import jp.kusumotolab.kgenprog.project.factory.TargetProjectFactory;
 
 public class JDTASTConstructionTest {
 
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
   @Test
   public void testConstructAST() {
     final Path basePath = Paths.get("example/BuildSuccess02");
@@ -69,4 +80,31 @@ public class JDTASTConstructionTest {
     final List<GeneratedAST<TestSourcePath>> testAsts = generatedSourceCode.getTestAsts();
     assertThat(testAsts).hasSize(0);
   }
+
+  @Test
+  public void testConstructASTWithManyFiles() throws IOException {
+    // 分割して並列に構文解析される数のファイルでも，元のパスの順にASTが並ぶことの確認
+    final Path basePath = tempFolder.getRoot()
+        .toPath();
+    final List<ProductSourcePath> productSourcePaths = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      final Path path = Paths.get("C" + i + ".java");
+      Files.write(basePath.resolve(path), ("class C" + i + " { int f() { return " + i + "; } }")
+          .getBytes());
+      productSourcePaths.add(new ProductSourcePath(basePath, path));
+    }
+
+    final JDTASTConstruction construction = new JDTASTConstruction();
+    final GeneratedSourceCode generatedSourceCode =
+        construction.constructAST(productSourcePaths, Collections.emptyList());
+
+    assertThat(generatedSourceCode.isGenerationSuccess()).isTrue();
+    assertThat(generatedSourceCode.getProductAsts()).extracting(GeneratedAST::getSourcePath)
+        .containsExactlyElementsOf(productSourcePaths);
+    assertThat(generatedSourceCode.getProductAsts()).extracting(GeneratedAST::getPrimaryClassName)
+        .extracting(fqn -> fqn.value)
+        .containsExactlyElementsOf(IntStream.range(0, 300)
+            .mapToObj(i -> "C" + i)
+            .collect(Collectors.toList()));
+  }
 }
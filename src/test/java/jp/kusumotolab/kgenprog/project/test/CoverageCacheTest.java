@@ -0,0 +1,86 @@
+package jp.kusumotolab.kgenprog.project.test;
+
+import static jp.kusumotolab.kgenprog.testutil.ExampleAlias.Fqn.FOO;
+import static org.assertj.core.api.Assertions.assertThat;
+import java.nio.file.Paths;
+import java.util.Collections;
+import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.SessionInfoStore;
+import org.jacoco.core.runtime.RuntimeData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import jp.kusumotolab.kgenprog.project.GeneratedSourceCode;
+import jp.kusumotolab.kgenprog.project.build.JavaBinaryObject;
+import jp.kusumotolab.kgenprog.project.build.ProjectBuilder;
+import jp.kusumotolab.kgenprog.project.factory.TargetProject;
+import jp.kusumotolab.kgenprog.project.factory.TargetProjectFactory;
+import jp.kusumotolab.kgenprog.testutil.TestUtil;
+
+public class CoverageCacheTest {
+
+  private CoverageRuntime jacocoRuntime;
+  private CoverageCache coverageCache;
+  private JavaBinaryObject foo;
+
+  @Before
+  public void setup() {
+    final TargetProject targetProject =
+        TargetProjectFactory.create(Paths.get("example/BuildSuccess01"));
+    final GeneratedSourceCode source = TestUtil.createGeneratedSourceCode(targetProject);
+    foo = new ProjectBuilder(targetProject).build(source)
+        .getBinaryStore()
+        .get(FOO);
+
+    jacocoRuntime = new CoverageRuntime();
+    coverageCache = new CoverageCache(jacocoRuntime);
+  }
+
+  @After
+  public void tearDown() {
+    jacocoRuntime.shutdown();
+  }
+
+  @Test
+  public void testInstrumentIsCached() throws Exception {
+    final byte[] bytecode = coverageCache.instrument(foo);
+
+    // 同じバイナリは2度インストルメントされないはず
+    assertThat(coverageCache.instrument(foo)).isSameAs(bytecode);
+  }
+
+  @Test
+  public void testCollectIsEquivalentToAnalyzer() throws Exception {
+    final RuntimeData runtimeData = new RuntimeData();
+    jacocoRuntime.startup(runtimeData);
+    final MemoryClassLoader classLoader = new MemoryClassLoader();
+    classLoader.addDefinition(FOO, coverageCache.instrument(foo));
+    final Class<?> fooClass = classLoader.loadClass(FOO);
+    final Object instance = fooClass.newInstance();
+    final CoverageCollector collector =
+        new CoverageCollector(Collections.singletonList(foo), coverageCache);
+
+    // 正の値と負の値で異なる分岐を実行した場合のどちらも，Analyzerで解析した結果と一致するはず
+    for (final int n : new int[] {1, -1}) {
+      runtimeData.reset();
+      fooClass.getMethod("foo", int.class)
+          .invoke(instance, n);
+
+      final ExecutionDataStore executionData = new ExecutionDataStore();
+      runtimeData.collect(executionData, new SessionInfoStore(), false);
+
+      final CoverageBuilder coverageBuilder = new CoverageBuilder();
+      new Analyzer(executionData, coverageBuilder).analyzeClass(foo.getByteCode(), FOO.value);
+      final Coverage expected = new Coverage(coverageBuilder.getClasses()
+          .iterator()
+          .next());
+
+      final Coverage actual = collector.collect(runtimeData)
+          .get(FOO);
+      assertThat(actual.executedTargetFQN).isEqualTo(expected.executedTargetFQN);
+      assertThat(actual.statuses).isEqualTo(expected.statuses);
+    }
+  }
+}
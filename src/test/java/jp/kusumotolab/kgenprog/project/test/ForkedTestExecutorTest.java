@@ -0,0 +1,154 @@
+package jp.kusumotolab.kgenprog.project.test;
+
+import static jp.kusumotolab.kgenprog.project.test.Coverage.Status.COVERED;
+import static jp.kusumotolab.kgenprog.project.test.Coverage.Status.EMPTY;
+import static jp.kusumotolab.kgenprog.project.test.Coverage.Status.NOT_COVERED;
+import static jp.kusumotolab.kgenprog.testutil.ExampleAlias.Fqn.FOO;
+import static jp.kusumotolab.kgenprog.testutil.ExampleAlias.Fqn.FOO_TEST01;
+import static jp.kusumotolab.kgenprog.testutil.ExampleAlias.Fqn.FOO_TEST02;
+import static jp.kusumotolab.kgenprog.testutil.ExampleAlias.Fqn.FOO_TEST03;
+import static jp.kusumotolab.kgenprog.testutil.ExampleAlias.Fqn.FOO_TEST04;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Test;
+import io.reactivex.Single;
+import jp.kusumotolab.kgenprog.Configuration;
+import jp.kusumotolab.kgenprog.ga.variant.Variant;
+import jp.kusumotolab.kgenprog.project.GeneratedSourceCode;
+import jp.kusumotolab.kgenprog.project.factory.TargetProject;
+import jp.kusumotolab.kgenprog.project.factory.TargetProjectFactory;
+import jp.kusumotolab.kgenprog.testutil.TestUtil;
+
+public class ForkedTestExecutorTest {
+
+  @Test
+  // 子プロセスでの実行結果がLocalTestExecutorと同一であることの確認
+  public void testExecForBuildSuccess01() {
+    final Path rootPath = Paths.get("example/BuildSuccess01");
+    final TargetProject targetProject = TargetProjectFactory.create(rootPath);
+    final GeneratedSourceCode source = TestUtil.createGeneratedSourceCode(targetProject);
+
+    final Configuration config = new Configuration.Builder(targetProject).setWorkerCount(1)
+        .build();
+    final TestExecutor executor = new ForkedTestExecutor(config);
+    final Variant variant = mock(Variant.class);
+    when(variant.getGeneratedSourceCode()).thenReturn(source);
+    final TestResults result = executor.exec(variant);
+    executor.finish();
+
+    assertThat(result.getExecutedTestFQNs()).containsExactlyInAnyOrder( //
+        FOO_TEST01, FOO_TEST02, FOO_TEST03, FOO_TEST04);
+
+    assertThat(result.getTestResult(FOO_TEST01).failed).isFalse();
+    assertThat(result.getTestResult(FOO_TEST02).failed).isFalse();
+    assertThat(result.getTestResult(FOO_TEST03).failed).isTrue();
+    assertThat(result.getTestResult(FOO_TEST04).failed).isFalse();
+    assertThat(result.getSuccessRate()).isEqualTo(1.0 * 3 / 4);
+
+    assertThat(result.getTestResult(FOO_TEST01)
+        .getCoverages(FOO).statuses).containsExactly(EMPTY, COVERED, EMPTY, COVERED, COVERED,
+            EMPTY, EMPTY, NOT_COVERED, EMPTY, COVERED);
+
+    // buildResultsは親プロセス側で設定し直されているはず
+    assertThat(result.getBuildResults()).isNotNull();
+  }
+
+  @Test
+  // 複数の個体を並列に実行しても同一の結果となることの確認
+  public void testExecAsyncForBuildSuccess01() {
+    final Path rootPath = Paths.get("example/BuildSuccess01");
+    final TargetProject targetProject = TargetProjectFactory.create(rootPath);
+    final GeneratedSourceCode source = TestUtil.createGeneratedSourceCode(targetProject);
+
+    final Configuration config = new Configuration.Builder(targetProject).setWorkerCount(2)
+        .build();
+    final TestExecutor executor = new ForkedTestExecutor(config);
+    executor.initialize();
+    final Variant variant = mock(Variant.class);
+    when(variant.getGeneratedSourceCode()).thenReturn(source);
+
+    final List<Single<TestResults>> singles = IntStream.range(0, 4)
+        .mapToObj(i -> executor.execAsync(Single.just(variant)))
+        .collect(Collectors.toList());
+    final List<TestResults> results = singles.stream()
+        .map(Single::blockingGet)
+        .collect(Collectors.toList());
+    executor.finish();
+
+    assertThat(results).extracting(TestResults::getSuccessRate)
+        .containsOnly(1.0 * 3 / 4);
+  }
+
+  @Test
+  // hot swapで子プロセスのクラスを使い回しても，各実行で同一の結果とカバレッジが得られることの確認
+  public void testExecWithHotSwap() {
+    final Path rootPath = Paths.get("example/BuildSuccess01");
+    final TargetProject targetProject = TargetProjectFactory.create(rootPath);
+    final GeneratedSourceCode source = TestUtil.createGeneratedSourceCode(targetProject);
+
+    final Configuration config = new Configuration.Builder(targetProject).setWorkerCount(1)
+        .setHotSwap(true)
+        .build();
+    final TestExecutor executor = new ForkedTestExecutor(config);
+    final Variant variant = mock(Variant.class);
+    when(variant.getGeneratedSourceCode()).thenReturn(source);
+    final TestResults result1 = executor.exec(variant);
+    final TestResults result2 = executor.exec(variant);
+    executor.finish();
+
+    for (final TestResults result : Arrays.asList(result1, result2)) {
+      assertThat(result.getSuccessRate()).isEqualTo(1.0 * 3 / 4);
+      assertThat(result.getTestResult(FOO_TEST01)
+          .getCoverages(FOO).statuses).containsExactly(EMPTY, COVERED, EMPTY, COVERED, COVERED,
+              EMPTY, EMPTY, NOT_COVERED, EMPTY, COVERED);
+    }
+  }
+
+  @Test
+  // ビルドに失敗する題材の確認
+  public void testExecForBuildFailure01() {
+    final Path rootPath = Paths.get("example/BuildFailure01");
+    final TargetProject targetProject = TargetProjectFactory.create(rootPath);
+    final GeneratedSourceCode source = TestUtil.createGeneratedSourceCode(targetProject);
+
+    final Configuration config = new Configuration.Builder(targetProject).build();
+    final TestExecutor executor = new ForkedTestExecutor(config);
+    final Variant variant = mock(Variant.class);
+    when(variant.getGeneratedSourceCode()).thenReturn(source);
+    final TestResults result = executor.exec(variant);
+    executor.finish();
+
+    assertThat(result).isSameAs(EmptyTestResults.instance);
+  }
+
+  @Test
+  // 無限ループする題材でも子プロセスの強制終了により打ち切られることの確認
+  public void testExecForInfiniteLoop() {
+    final Path rootPath = Paths.get("example/BuildSuccess04");
+    final TargetProject targetProject = TargetProjectFactory.create(rootPath);
+    final GeneratedSourceCode source = TestUtil.createGeneratedSourceCode(targetProject);
+
+    final Configuration config = new Configuration.Builder(targetProject) //
+        .setVariantTimeLimitSeconds(3) // タイムアウト時間を短めに設定（CI高速化のため）
+        .setWorkerCount(1)
+        .build();
+    final TestExecutor executor = new ForkedTestExecutor(config);
+    final Variant variant = mock(Variant.class);
+    when(variant.getGeneratedSourceCode()).thenReturn(source);
+    final TestResults result = executor.exec(variant);
+
+    assertThat(result).isSameAs(EmptyTestResults.instance);
+
+    // 強制終了後も新しい子プロセスで実行を継続できるはず
+    final TestResults result2 = executor.exec(variant);
+    executor.finish();
+    assertThat(result2).isSameAs(EmptyTestResults.instance);
+  }
+}
@@ -20,12 +20,15 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import org.junit.Ignore;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import jp.kusumotolab.kgenprog.Configuration;
+import jp.kusumotolab.kgenprog.ga.variant.HistoricalElement;
 import jp.kusumotolab.kgenprog.ga.variant.Variant;
 import jp.kusumotolab.kgenprog.project.ASTLocation;
 import jp.kusumotolab.kgenprog.project.GeneratedAST;
@@ -41,6 +44,9 @@ import jp.kusumotolab.kgenprog.testutil.TestUtil;
 
 public class LocalTestExecutorTest {
 
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
   @Test
   // 正常系題材の確認
   public void testExecForBuildSuccess01() {
@@ -196,11 +202,8 @@ public class LocalTestExecutorTest {
     assertThat(nf2).isEqualTo(1); // FooTest#test03
   }
 
-  @Ignore
-  // #408 テスト打ち切り方針をJUnitアノテーションに変更したので，以下テストは成功しなくなった．
-  // JUnitアノテーションの差し込みは Variant 生成時に限るので，以下テストでは適切にタイムアウト処理が行われず無限ループとなる．
   @Test
-  // 無限ループする題材の確認
+  // 無限ループする題材でも，テストメソッドごとの制限時間で打ち切られることの確認
   public void testExecForInfiniteLoop() {
     final Path rootPath = Paths.get("example/BuildSuccess04");
     final TargetProject targetProject = TargetProjectFactory.create(rootPath);
@@ -214,8 +217,61 @@ public class LocalTestExecutorTest {
     when(variant.getGeneratedSourceCode()).thenReturn(source);
     final TestResults result = executor.exec(variant);
 
-    // 無限ループが発生し，タイムアウトで打ち切られてEmptyになるはず
-    assertThat(result).isInstanceOf(EmptyTestResults.class);
+    // テストのソースコードにTimeoutルールを差し込まなくても，無限ループするテストは失敗として打ち切られるはず
+    assertThat(result.getExecutedTestFQNs()).containsExactlyInAnyOrder( //
+        FOO_TEST01, FOO_TEST02, FOO_TEST03);
+    assertThat(result.getTestResult(FOO_TEST01).failed).isFalse();
+    assertThat(result.getTestResult(FOO_TEST02).failed).isTrue();
+    assertThat(result.getTestResult(FOO_TEST03).failed).isTrue();
+  }
+
+  @Test
+  // 初期個体の実行時間から定めた制限時間により，一律の制限時間を待たずに打ち切られることの確認
+  public void testExecForInfiniteLoopWithAdaptiveTimeLimits() {
+    final Path rootPath = Paths.get("example/BuildSuccess04");
+    final TargetProject targetProject = TargetProjectFactory.create(rootPath);
+    final GeneratedSourceCode source = TestUtil.createGeneratedSourceCode(targetProject);
+
+    final Configuration config = new Configuration.Builder(targetProject) //
+        .setTestTimeLimitSeconds(10)
+        .build();
+    final TestExecutor executor = new LocalTestExecutor(config);
+
+    // 初期個体ではFooTest#test03が5ミリ秒で終わったとする
+    final TestResults baseline = new TestResults();
+    baseline.add(new TestResult(FOO_TEST03, false, Collections.emptyMap(), Duration.ofMillis(5)));
+    executor.setTestTimeLimits(TestTimeLimits.create(baseline, config.getTestTimeLimit()));
+
+    final Variant variant = mock(Variant.class);
+    when(variant.getGeneratedSourceCode()).thenReturn(source);
+    final long start = System.nanoTime();
+    final TestResults result = executor.exec(variant);
+    final Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+    assertThat(result.getTestResult(FOO_TEST01).failed).isFalse();
+    assertThat(result.getTestResult(FOO_TEST03).failed).isTrue();
+    assertThat(result.getDuration(FOO_TEST01)).isNotNull();
+    assertThat(elapsed).isLessThan(config.getTestTimeLimit());
+  }
+
+  @Test
+  // テストメソッドごとの制限時間より先に個体ごとの制限時間を超えた場合の確認
+  public void testExecForInfiniteLoopExceedingTimeLimit() {
+    final Path rootPath = Paths.get("example/BuildSuccess04");
+    final TargetProject targetProject = TargetProjectFactory.create(rootPath);
+    final GeneratedSourceCode source = TestUtil.createGeneratedSourceCode(targetProject);
+
+    final Configuration config = new Configuration.Builder(targetProject) //
+        .setTestTimeLimitSeconds(10)
+        .setVariantTimeLimitSeconds(1)
+        .build();
+    final TestExecutor executor = new LocalTestExecutor(config);
+    final Variant variant = mock(Variant.class);
+    when(variant.getGeneratedSourceCode()).thenReturn(source);
+    final TestResults result = executor.exec(variant);
+
+    // 個体ごとの制限時間で打ち切られてEmptyになるはず
+    assertThat(result).isSameAs(EmptyTestResults.instance);
   }
 
   @Test
@@ -437,4 +493,103 @@ public class LocalTestExecutorTest {
     assertThat(result.getTestResult(FOO_TEST03).failed).isFalse();
     assertThat(result.getTestResult(FOO_TEST04).failed).isFalse();
   }
+
+  @Test
+  // fail-fastによる打ち切りの確認
+  public void testExecWithFailFast() {
+    final Path rootPath = Paths.get("example/BuildSuccess01");
+    final TargetProject targetProject = TargetProjectFactory.create(rootPath);
+    final GeneratedSourceCode source = TestUtil.createGeneratedSourceCode(targetProject);
+
+    final Configuration config = new Configuration.Builder(targetProject) //
+        .setFailFast(true)
+        .build();
+    final TestExecutor executor = new LocalTestExecutor(config);
+
+    // 親個体ではFooTest#test03が失敗している
+    final Variant parent = mock(Variant.class);
+    when(parent.getGeneratedSourceCode()).thenReturn(source);
+    final TestResults parentResult = executor.exec(parent);
+    when(parent.getTestResults()).thenReturn(parentResult);
+
+    final HistoricalElement element = mock(HistoricalElement.class);
+    when(element.getParents()).thenReturn(Collections.singletonList(parent));
+    final Variant variant = mock(Variant.class);
+    when(variant.getGeneratedSourceCode()).thenReturn(source);
+    when(variant.getHistoricalElement()).thenReturn(element);
+
+    // 4個中1個が失敗すると成功率は0.8を上回れないので，先に実行されるtest03のみで打ち切られるはず
+    executor.setSelectionCutoff(0.8);
+    final TestResults stoppedResult = executor.exec(variant);
+    assertThat(stoppedResult.getExecutedTestFQNs()).containsExactly(FOO_TEST03);
+    assertThat(stoppedResult.getSuccessRate()).isEqualTo(0.0);
+
+    // 成功率0.75は0.7を上回るので打ち切られないはず
+    executor.setSelectionCutoff(0.7);
+    final TestResults fullResult = executor.exec(variant);
+    assertThat(fullResult.getExecutedTestFQNs()).containsExactlyInAnyOrder( //
+        FOO_TEST01, FOO_TEST02, FOO_TEST03, FOO_TEST04);
+  }
+
+  @Test
+  // 初期個体のテスト結果に基づく実行順の優先度により，親個体の情報がなくてもfail-fastで打ち切られることの確認
+  public void testExecWithFailFastAndTestPrioritization() {
+    final Path rootPath = Paths.get("example/BuildSuccess01");
+    final TargetProject targetProject = TargetProjectFactory.create(rootPath);
+    final GeneratedSourceCode source = TestUtil.createGeneratedSourceCode(targetProject);
+
+    final Configuration config = new Configuration.Builder(targetProject) //
+        .setFailFast(true)
+        .setTestPrioritization(true)
+        .build();
+    final TestExecutor executor = new LocalTestExecutor(config);
+
+    // 初期個体ではFooTest#test03が失敗している
+    final Variant original = mock(Variant.class);
+    when(original.getGeneratedSourceCode()).thenReturn(source);
+    executor.setOriginalTestResults(executor.exec(original));
+
+    // 親個体を持たない個体でも，初期個体で失敗したtest03が先に実行されて打ち切られるはず
+    final Variant variant = mock(Variant.class);
+    when(variant.getGeneratedSourceCode()).thenReturn(source);
+    executor.setSelectionCutoff(0.8);
+    final TestResults stoppedResult = executor.exec(variant);
+    assertThat(stoppedResult.getExecutedTestFQNs()).containsExactly(FOO_TEST03);
+  }
+
+  @Test
+  // ディスク上のキャッシュを共有した2回目の実行ではビルドもテストも行われないはず
+  public void testExecWithDiskCache() throws Exception {
+    final Path rootPath = Paths.get("example/BuildSuccess01");
+    final TargetProject targetProject = TargetProjectFactory.create(rootPath);
+    final GeneratedSourceCode source = TestUtil.createGeneratedSourceCode(targetProject);
+    final Configuration config = new Configuration.Builder(targetProject) //
+        .setWorkingDir(tempFolder.getRoot()
+            .toPath())
+        .setDiskCache(true)
+        .build();
+    final Variant variant = mock(Variant.class);
+    when(variant.getGeneratedSourceCode()).thenReturn(source);
+
+    final TestExecutor executor1 = new LocalTestExecutor(config);
+    final TestResults result1 = executor1.exec(variant);
+    executor1.finish();
+    assertThat(result1.getBuildResults().buildProgressText).isNotBlank();
+
+    final TestExecutor executor2 = new LocalTestExecutor(config);
+    final TestResults result2 = executor2.exec(variant);
+    executor2.finish();
+    assertThat(result2).isNotSameAs(result1);
+    assertThat(result2.getBuildResults().buildProgressText).isBlank();
+    assertThat(result2.getExecutedTestFQNs()).containsExactlyInAnyOrder( //
+        FOO_TEST01, FOO_TEST02, FOO_TEST03, FOO_TEST04);
+    assertThat(result2.getSuccessRate()).isEqualTo(1.0 * 3 / 4);
+    assertThat(result2.getTestResult(FOO_TEST01)
+        .getCoverages(FOO).statuses).isEqualTo(result1.getTestResult(FOO_TEST01)
+            .getCoverages(FOO).statuses);
+
+    // FLに用いるbuildResultsも設定されているはず
+    final ProductSourcePath fooPath = new ProductSourcePath(rootPath, Src.FOO);
+    assertThat(result2.getCorrespondingFqns(fooPath)).containsExactly(FOO);
+  }
 }
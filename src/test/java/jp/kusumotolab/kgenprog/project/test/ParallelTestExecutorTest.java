@@ -6,13 +6,21 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.junit.Test;
 import io.reactivex.Single;
+import jp.kusumotolab.kgenprog.Configuration;
 import jp.kusumotolab.kgenprog.ga.variant.Variant;
 import jp.kusumotolab.kgenprog.project.GeneratedSourceCode;
+import jp.kusumotolab.kgenprog.project.factory.TargetProject;
+import jp.kusumotolab.kgenprog.project.factory.TargetProjectFactory;
+import jp.kusumotolab.kgenprog.testutil.TestUtil;
 
 public class ParallelTestExecutorTest {
 
@@ -50,4 +58,31 @@ public class ParallelTestExecutorTest {
     final HashSet<String> threadNameSet = new HashSet<>(list);
     assertThat(threadNameSet.size()).isGreaterThanOrEqualTo(2);
   }
+
+  @Test
+  // 各ワーカーが独立に評価しても，カバレッジを含めて逐次実行と同じ結果になることの確認
+  public void testExecAsyncWithLocalWorkers() {
+    final Path rootPath = Paths.get("example/BuildSuccess01");
+    final TargetProject targetProject = TargetProjectFactory.create(rootPath);
+    final GeneratedSourceCode source = TestUtil.createGeneratedSourceCode(targetProject);
+    final Configuration config = new Configuration.Builder(targetProject).setWorkerCount(4)
+        .build();
+
+    final Variant variant = mock(Variant.class);
+    when(variant.getGeneratedSourceCode()).thenReturn(source);
+    final TestResults expected = new LocalTestExecutor(config).exec(variant);
+
+    final TestExecutor testExecutor = new ParallelTestExecutor(config);
+    final List<Single<TestResults>> singles = IntStream.range(0, 8)
+        .mapToObj(i -> testExecutor.execAsync(Single.just(variant)))
+        .collect(Collectors.toList());
+    final List<TestResults> results = singles.stream()
+        .map(Single::blockingGet)
+        .collect(Collectors.toList());
+    testExecutor.finish();
+
+    for (final TestResults result : results) {
+      assertThat(result.toString()).isEqualTo(expected.toString());
+    }
+  }
 }
@@ -0,0 +1,193 @@
+package jp.kusumotolab.kgenprog.project.test;
+
+import static jp.kusumotolab.kgenprog.testutil.ExampleAlias.Fqn.FOO_TEST01;
+import static jp.kusumotolab.kgenprog.testutil.ExampleAlias.Fqn.FOO_TEST02;
+import static jp.kusumotolab.kgenprog.testutil.ExampleAlias.Fqn.FOO_TEST03;
+import static jp.kusumotolab.kgenprog.testutil.ExampleAlias.Fqn.FOO_TEST04;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import io.reactivex.Single;
+import jp.kusumotolab.kgenprog.Configuration;
+import jp.kusumotolab.kgenprog.ga.variant.Variant;
+import jp.kusumotolab.kgenprog.project.FullyQualifiedName;
+import jp.kusumotolab.kgenprog.project.GeneratedSourceCode;
+import jp.kusumotolab.kgenprog.project.factory.TargetProject;
+import jp.kusumotolab.kgenprog.project.factory.TargetProjectFactory;
+import jp.kusumotolab.kgenprog.testutil.TestUtil;
+
+public class RemoteTestExecutorTest {
+
+  private static final String SECRET = "secret";
+
+  private TestWorkerServer server;
+  private ServerSocket brokenServer;
+  private final AtomicInteger brokenRequestCount = new AtomicInteger();
+
+  @Before
+  public void before() throws IOException {
+    server = new TestWorkerServer(0, SECRET);
+    new Thread(server::run).start();
+
+    // 要求を受け取ると応答せずに接続を切る，途中で落ちるサーバ
+    brokenServer = new ServerSocket(0);
+    new Thread(this::runBrokenServer).start();
+  }
+
+  @After
+  public void after() throws IOException {
+    server.close();
+    brokenServer.close();
+  }
+
+  @Test
+  // localhostのサーバでの実行結果がLocalTestExecutorと同一であることの確認
+  public void testExecForBuildSuccess01() {
+    final Path rootPath = Paths.get("example/BuildSuccess01");
+    final TargetProject targetProject = TargetProjectFactory.create(rootPath);
+    final GeneratedSourceCode source = TestUtil.createGeneratedSourceCode(targetProject);
+
+    final Configuration config = new Configuration.Builder(targetProject).setWorkerCount(1)
+        .addRemoteWorker("localhost:" + server.getPort())
+        .setRemoteWorkerSecret(SECRET)
+        .build();
+    final TestExecutor executor = new RemoteTestExecutor(config);
+    final Variant variant = mock(Variant.class);
+    when(variant.getGeneratedSourceCode()).thenReturn(source);
+    final TestResults result = executor.exec(variant);
+    executor.finish();
+
+    assertThat(result.getExecutedTestFQNs()).containsExactlyInAnyOrder( //
+        FOO_TEST01, FOO_TEST02, FOO_TEST03, FOO_TEST04);
+    assertThat(result.getTestResult(FOO_TEST03).failed).isTrue();
+    assertThat(result.getSuccessRate()).isEqualTo(1.0 * 3 / 4);
+    assertThat(result.getBuildResults()).isNotNull();
+  }
+
+  @Test
+  // 途中で落ちるサーバに送った要求も，他のサーバで実行し直されることの確認
+  public void testExecAsyncWithBrokenServer() {
+    final Path rootPath = Paths.get("example/BuildSuccess01");
+    final TargetProject targetProject = TargetProjectFactory.create(rootPath);
+    final GeneratedSourceCode source = TestUtil.createGeneratedSourceCode(targetProject);
+
+    final Configuration config = new Configuration.Builder(targetProject).setWorkerCount(1)
+        .addRemoteWorker("localhost:" + brokenServer.getLocalPort())
+        .addRemoteWorker("localhost:" + server.getPort())
+        .setRemoteWorkerSecret(SECRET)
+        .build();
+    final TestExecutor executor = new RemoteTestExecutor(config);
+    executor.initialize();
+    final Variant variant = mock(Variant.class);
+    when(variant.getGeneratedSourceCode()).thenReturn(source);
+
+    final List<Single<TestResults>> singles = IntStream.range(0, 4)
+        .mapToObj(i -> executor.execAsync(Single.just(variant)))
+        .collect(Collectors.toList());
+    final List<TestResults> results = singles.stream()
+        .map(Single::blockingGet)
+        .collect(Collectors.toList());
+    executor.finish();
+
+    assertThat(results).extracting(TestResults::getSuccessRate)
+        .containsOnly(1.0 * 3 / 4);
+  }
+
+  @Test
+  // 落ち続けるサーバしかない場合は，一定回数で諦めることの確認
+  public void testExecWithOnlyBrokenServer() {
+    final Path rootPath = Paths.get("example/BuildSuccess01");
+    final TargetProject targetProject = TargetProjectFactory.create(rootPath);
+    final GeneratedSourceCode source = TestUtil.createGeneratedSourceCode(targetProject);
+
+    final Configuration config = new Configuration.Builder(targetProject).setWorkerCount(1)
+        .addRemoteWorker("localhost:" + brokenServer.getLocalPort())
+        .setRemoteWorkerSecret(SECRET)
+        .build();
+    final TestExecutor executor = new RemoteTestExecutor(config);
+    final Variant variant = mock(Variant.class);
+    when(variant.getGeneratedSourceCode()).thenReturn(source);
+    final TestResults result = executor.exec(variant);
+    executor.finish();
+
+    assertThat(result).isSameAs(EmptyTestResults.instance);
+    assertThat(brokenRequestCount.get()).isEqualTo(3);
+  }
+
+  @Test
+  // 秘密鍵を知らない接続からは何も読まずに切断することの確認
+  public void testRejectUnauthenticatedConnection() throws IOException {
+    try (final Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+      final DataInputStream in = new DataInputStream(socket.getInputStream());
+      in.readFully(new byte[32]);
+      socket.getOutputStream()
+          .write(new byte[32]);
+
+      assertThat(in.read()).isEqualTo(-1);
+    }
+  }
+
+  @Test
+  // TestRequestを構成しないクラスはデシリアライズしないことの確認
+  public void testRejectUnexpectedClass() throws IOException, ClassNotFoundException {
+    final HashSet<FullyQualifiedName> allowed = new HashSet<>(Arrays.asList(FOO_TEST01));
+    assertThat(deserialize(allowed)).isEqualTo(allowed);
+
+    assertThatThrownBy(() -> deserialize(new LinkedList<>(allowed)))
+        .isInstanceOf(InvalidClassException.class);
+  }
+
+  private Object deserialize(final Object object) throws IOException, ClassNotFoundException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (final ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(object);
+    }
+    try (final ObjectInputStream in = new TestWorkerServer.RequestInputStream(
+        new ByteArrayInputStream(bytes.toByteArray()))) {
+      return in.readObject();
+    }
+  }
+
+  private void runBrokenServer() {
+    while (!brokenServer.isClosed()) {
+      try (final Socket socket = brokenServer.accept()) {
+        // 認証には応じる
+        socket.getOutputStream()
+            .write(new byte[32]);
+        new DataInputStream(socket.getInputStream()).readFully(new byte[32]);
+
+        final ObjectOutputStream out = new ObjectOutputStream(socket.getOutputStream());
+        out.flush();
+        final ObjectInputStream in = new ObjectInputStream(socket.getInputStream());
+        in.readLong();
+        in.readObject();
+        brokenRequestCount.incrementAndGet();
+      } catch (final IOException | ClassNotFoundException e) {
+        // 接続を切るだけなので無視してよい
+      }
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package jp.kusumotolab.kgenprog.project.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import jp.kusumotolab.kgenprog.project.ClassPath;
+
+public class SharedClassLoadersTest {
+
+  @Test
+  public void testAcquireLibraryClassLoader() {
+    final List<ClassPath> classPaths = Arrays.asList(new ClassPath(Paths.get("lib/a.jar")),
+        new ClassPath(Paths.get("lib/b.jar")));
+    final long createdCount = SharedClassLoaders.getCreatedCount();
+    final long reusedCount = SharedClassLoaders.getReusedCount();
+
+    // 同じクラスパスには同じClassLoaderを使い回す
+    final ClassLoader classLoader1 = SharedClassLoaders.acquireLibraryClassLoader(classPaths);
+    final ClassLoader classLoader2 =
+        SharedClassLoaders.acquireLibraryClassLoader(Arrays.asList(
+            new ClassPath(Paths.get("lib/a.jar")), new ClassPath(Paths.get("lib/b.jar"))));
+    assertThat(classLoader2).isSameAs(classLoader1);
+    assertThat(SharedClassLoaders.getCreatedCount()).isEqualTo(createdCount + 1);
+    assertThat(SharedClassLoaders.getReusedCount()).isEqualTo(reusedCount + 1);
+
+    // 異なるクラスパスには別のClassLoaderを生成する
+    final ClassLoader classLoader3 = SharedClassLoaders.acquireLibraryClassLoader(
+        Collections.singletonList(new ClassPath(Paths.get("lib/a.jar"))));
+    assertThat(classLoader3).isNotSameAs(classLoader1);
+    SharedClassLoaders.releaseLibraryClassLoader(classLoader3);
+
+    // 参照が残っている間は閉じない
+    SharedClassLoaders.releaseLibraryClassLoader(classLoader1);
+    final ClassLoader classLoader4 = SharedClassLoaders.acquireLibraryClassLoader(classPaths);
+    assertThat(classLoader4).isSameAs(classLoader1);
+
+    // 全ての参照が返された後は新たに生成する
+    SharedClassLoaders.releaseLibraryClassLoader(classLoader2);
+    SharedClassLoaders.releaseLibraryClassLoader(classLoader4);
+    final ClassLoader classLoader5 = SharedClassLoaders.acquireLibraryClassLoader(classPaths);
+    assertThat(classLoader5).isNotSameAs(classLoader1);
+    SharedClassLoaders.releaseLibraryClassLoader(classLoader5);
+  }
+
+  @Test
+  public void testCreateVariantClassLoader() throws ClassNotFoundException {
+    final List<ClassPath> classPaths =
+        Collections.singletonList(new ClassPath(Paths.get("lib/c.jar")));
+
+    // 個体ごとのClassLoaderは毎回生成し，ライブラリを読み込むClassLoaderを親として共有する
+    final MemoryClassLoader classLoader1 = SharedClassLoaders.createVariantClassLoader(classPaths);
+    final MemoryClassLoader classLoader2 = SharedClassLoaders.createVariantClassLoader(classPaths);
+    assertThat(classLoader1).isNotSameAs(classLoader2);
+    assertThat(classLoader1.getParent()).isSameAs(classLoader2.getParent());
+
+    // 親から読み込んだクラスは個体ごとに定義しない
+    assertThat(classLoader1.loadClass("org.junit.Test")).isSameAs(Test.class);
+    assertThat(classLoader1.getDefinedClassCount()).isZero();
+
+    // 個体のClassLoaderを閉じても，他の個体が使っている親は閉じない
+    SharedClassLoaders.release(classLoader1);
+    final MemoryClassLoader classLoader3 = SharedClassLoaders.createVariantClassLoader(classPaths);
+    assertThat(classLoader3.getParent()).isSameAs(classLoader2.getParent());
+
+    SharedClassLoaders.release(classLoader2);
+    SharedClassLoaders.release(classLoader3);
+  }
+
+  @Test
+  public void testOwnerKeepsLibraryClassLoader() {
+    final List<ClassPath> classPaths =
+        Collections.singletonList(new ClassPath(Paths.get("lib/d.jar")));
+
+    // 所有者が参照を保持している間は，個体をまたいで同じ親を使い回す
+    final ClassLoader owned = SharedClassLoaders.acquireLibraryClassLoader(classPaths);
+    final MemoryClassLoader classLoader1 = SharedClassLoaders.createVariantClassLoader(classPaths);
+    SharedClassLoaders.release(classLoader1);
+    final MemoryClassLoader classLoader2 = SharedClassLoaders.createVariantClassLoader(classPaths);
+    assertThat(classLoader2.getParent()).isSameAs(owned);
+
+    SharedClassLoaders.release(classLoader2);
+    SharedClassLoaders.releaseLibraryClassLoader(owned);
+  }
+}
@@ -0,0 +1,124 @@
+package jp.kusumotolab.kgenprog.project.test;
+
+import static jp.kusumotolab.kgenprog.testutil.ExampleAlias.Fqn.FOO;
+import static jp.kusumotolab.kgenprog.testutil.ExampleAlias.Fqn.FOO_TEST01;
+import static jp.kusumotolab.kgenprog.testutil.ExampleAlias.Fqn.FOO_TEST02;
+import static jp.kusumotolab.kgenprog.testutil.ExampleAlias.Fqn.FOO_TEST03;
+import static jp.kusumotolab.kgenprog.testutil.ExampleAlias.Fqn.FOO_TEST04;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import jp.kusumotolab.kgenprog.project.ASTLocation;
+import jp.kusumotolab.kgenprog.project.FullyQualifiedName;
+import jp.kusumotolab.kgenprog.project.LineNumberRange;
+import jp.kusumotolab.kgenprog.project.ProductSourcePath;
+import jp.kusumotolab.kgenprog.project.build.BuildResults;
+import jp.kusumotolab.kgenprog.project.build.ProjectBuilder;
+import jp.kusumotolab.kgenprog.project.factory.TargetProject;
+import jp.kusumotolab.kgenprog.project.factory.TargetProjectFactory;
+import jp.kusumotolab.kgenprog.project.test.Coverage.Status;
+import jp.kusumotolab.kgenprog.testutil.ExampleAlias;
+import jp.kusumotolab.kgenprog.testutil.TestUtil;
+
+public class SpectrumTest {
+
+  private static final Status E = Status.EMPTY;
+  private static final Status N = Status.NOT_COVERED;
+  private static final Status C = Status.COVERED;
+  private static final Status P = Status.PARTLY_COVERED;
+
+  private ProductSourcePath fooPath;
+  private BuildResults buildResults;
+
+  @Before
+  public void setUp() {
+    final Path rootPath = Paths.get("example/BuildSuccess01");
+    final TargetProject targetProject = TargetProjectFactory.create(rootPath);
+    fooPath = new ProductSourcePath(rootPath, ExampleAlias.Src.FOO);
+    buildResults = new ProjectBuilder(targetProject)
+        .build(TestUtil.createGeneratedSourceCode(targetProject));
+  }
+
+  @Test
+  public void testCount() {
+    final TestResults testResults = new TestResults();
+    testResults.setBuildResults(buildResults);
+    testResults.add(createTestResult(FOO_TEST01, false, E, C, N, P, C));
+    testResults.add(createTestResult(FOO_TEST02, false, E, C, C, N, N));
+    testResults.add(createTestResult(FOO_TEST03, true, E, N, C, C, C));
+
+    // 行数の足りないCoverageの範囲外の行は数えない
+    testResults.add(createTestResult(FOO_TEST04, true, E, C));
+
+    final Spectrum spectrum = testResults.getSpectrum();
+
+    // 1行目: 実行不可能な行
+    assertCounts(spectrum, 1, 0, 0, 0, 0);
+
+    // 2行目: 成功テスト01, 02と失敗テスト04が実行し，失敗テスト03が実行しなかった
+    assertCounts(spectrum, 2, 1, 2, 1, 0);
+
+    // 3行目
+    assertCounts(spectrum, 3, 1, 1, 0, 1);
+
+    // 4行目: PARTLY_COVEREDはどちらにも数えない
+    assertCounts(spectrum, 4, 1, 0, 0, 1);
+
+    // 5行目
+    assertCounts(spectrum, 5, 1, 1, 0, 1);
+
+    // Coverageの範囲外の行
+    assertCounts(spectrum, 6, 0, 0, 0, 0);
+  }
+
+  @Test
+  public void testCountAfterReplacingTestResult() {
+    final TestResults testResults = new TestResults();
+    testResults.setBuildResults(buildResults);
+    testResults.add(createTestResult(FOO_TEST01, true, C, C));
+    assertCounts(testResults.getSpectrum(), 1, 1, 0, 0, 0);
+
+    // 同じテストメソッドの結果を置き換えると索引も作り直される
+    testResults.add(createTestResult(FOO_TEST01, false, N, C));
+    assertCounts(testResults.getSpectrum(), 1, 0, 0, 0, 1);
+    assertCounts(testResults.getSpectrum(), 2, 0, 1, 0, 0);
+  }
+
+  @Test
+  public void testCountWithoutCoverage() {
+    final TestResults testResults = new TestResults();
+    testResults.setBuildResults(buildResults);
+    testResults.add(new TestResult(FOO_TEST01, true, Collections.emptyMap()));
+
+    assertCounts(testResults.getSpectrum(), 1, 0, 0, 0, 0);
+  }
+
+  private TestResult createTestResult(final FullyQualifiedName testFQN, final boolean failed,
+      final Status... statuses) {
+    final List<Status> list = Arrays.asList(statuses);
+    return new TestResult(testFQN, failed,
+        Collections.singletonMap(FOO, new Coverage(FOO, list)));
+  }
+
+  private void assertCounts(final Spectrum spectrum, final int line, final long ef,
+      final long ep, final long nf, final long np) {
+    final ASTLocation location = mock(ASTLocation.class);
+    when(location.inferLineNumbers()).thenReturn(new LineNumberRange(line, line));
+
+    assertThat(spectrum.getNumberOfFailedTestsExecutingTheStatement(fooPath, location))
+        .isEqualTo(ef);
+    assertThat(spectrum.getNumberOfPassedTestsExecutingTheStatement(fooPath, location))
+        .isEqualTo(ep);
+    assertThat(spectrum.getNumberOfFailedTestsNotExecutingTheStatement(fooPath, location))
+        .isEqualTo(nf);
+    assertThat(spectrum.getNumberOfPassedTestsNotExecutingTheStatement(fooPath, location))
+        .isEqualTo(np);
+  }
+}
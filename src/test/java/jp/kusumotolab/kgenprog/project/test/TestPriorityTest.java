@@ -0,0 +1,63 @@
+package jp.kusumotolab.kgenprog.project.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import org.junit.runner.Description;
+import jp.kusumotolab.kgenprog.project.FullyQualifiedName;
+import jp.kusumotolab.kgenprog.project.TestFullyQualifiedName;
+
+public class TestPriorityTest {
+
+  private static final Description TEST01 = describe("test01");
+  private static final Description TEST02 = describe("test02");
+  private static final Description TEST03 = describe("test03");
+  private static final Description TEST04 = describe("test04");
+
+  @Test
+  // 失敗したテスト，変異箇所を実行したテスト，それ以外の順に，同じ順位では実行時間の短い順に並ぶことの確認
+  public void testCreateSorter() {
+    final Map<FullyQualifiedName, Duration> durations = new HashMap<>();
+    durations.put(fqn(TEST01), Duration.ofMillis(30));
+    durations.put(fqn(TEST02), Duration.ofMillis(20));
+    durations.put(fqn(TEST04), Duration.ofMillis(10));
+    final TestPriority priority = new TestPriority(Collections.singleton(fqn(TEST03)),
+        Collections.singleton(fqn(TEST01)), durations);
+
+    final List<Description> descriptions = Arrays.asList(TEST01, TEST02, TEST03, TEST04);
+    descriptions.sort(priority.createSorter()::compare);
+
+    assertThat(descriptions).containsExactly(TEST03, TEST01, TEST04, TEST02);
+  }
+
+  @Test
+  // テストクラスは含むテストメソッドのうち最も優先度の高いものの順位で並ぶことの確認
+  public void testCreateSorterForSuites() {
+    final Description suite1 = Description.createSuiteDescription("Suite1");
+    suite1.addChild(TEST01);
+    final Description suite2 = Description.createSuiteDescription("Suite2");
+    suite2.addChild(TEST02);
+    suite2.addChild(TEST03);
+    final TestPriority priority = new TestPriority(Collections.singleton(fqn(TEST03)),
+        Collections.emptySet(), Collections.emptyMap());
+
+    final List<Description> descriptions = Arrays.asList(suite1, suite2);
+    descriptions.sort(priority.createSorter()::compare);
+
+    assertThat(descriptions).containsExactly(suite2, suite1);
+  }
+
+  private static Description describe(final String methodName) {
+    return Description.createTestDescription(TestPriorityTest.class, methodName);
+  }
+
+  private static FullyQualifiedName fqn(final Description description) {
+    return new TestFullyQualifiedName(
+        TestPriorityTest.class.getName() + "." + description.getMethodName());
+  }
+}
@@ -1,6 +1,7 @@
 package jp.kusumotolab.kgenprog.project.test;
 
 import static jp.kusumotolab.kgenprog.project.jdt.ASTNodeAssert.assertThat;
+import static jp.kusumotolab.kgenprog.testutil.ExampleAlias.Fqn.FOO;
 import static jp.kusumotolab.kgenprog.testutil.ExampleAlias.Fqn.FOO_TEST01;
 import static jp.kusumotolab.kgenprog.testutil.ExampleAlias.Fqn.FOO_TEST03;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -10,6 +11,7 @@ import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import org.junit.Test;
@@ -25,6 +27,7 @@ import jp.kusumotolab.kgenprog.project.factory.TargetProject;
 import jp.kusumotolab.kgenprog.project.factory.TargetProjectFactory;
 import jp.kusumotolab.kgenprog.project.jdt.GeneratedJDTAST;
 import jp.kusumotolab.kgenprog.project.jdt.JDTASTLocation;
+import jp.kusumotolab.kgenprog.project.test.Coverage.Status;
 import jp.kusumotolab.kgenprog.testutil.ExampleAlias;
 import jp.kusumotolab.kgenprog.testutil.TestUtil;
 
@@ -261,6 +264,38 @@ public class TestResultsTest {
     assertThat(r2.getExecutedTestFQNs()).containsExactlyInAnyOrder(FOO_TEST01, FOO_TEST03);
   }
 
+  /**
+   * Coverageを持つ要素のserialize -> deserializeの確認
+   */
+  @Test
+  public void testSerializeDeserializeWithCoverages() throws Exception {
+    final TestResults r1 = new TestResults();
+    final List<Status> statuses1 =
+        Arrays.asList(Status.EMPTY, Status.COVERED, Status.NOT_COVERED, Status.COVERED);
+    final List<Status> statuses3 = Arrays.asList(Status.EMPTY, Status.NOT_COVERED, Status.COVERED);
+
+    // ダミーな内部要素を追加（test03は異なるCoverageで置き換える）
+    r1.add(new TestResult(FOO_TEST01, false,
+        Collections.singletonMap(FOO, new Coverage(FOO, statuses1))));
+    r1.add(new TestResult(FOO_TEST03, false,
+        Collections.singletonMap(FOO, new Coverage(FOO, statuses1))));
+    r1.add(new TestResult(FOO_TEST03, true,
+        Collections.singletonMap(FOO, new Coverage(FOO, statuses3))));
+
+    // serializeして
+    TestResults.serialize(r1);
+
+    // deserializeして
+    final TestResults r2 = TestResults.deserialize();
+
+    // 要素とCoverageが正しいはず
+    assertThat(r2.getFailedTestFQNs()).containsExactly(FOO_TEST03);
+    assertThat(r2.getTestResult(FOO_TEST01)
+        .getCoverages(FOO).statuses).isEqualTo(statuses1);
+    assertThat(r2.getTestResult(FOO_TEST03)
+        .getCoverages(FOO).statuses).isEqualTo(statuses3);
+  }
+
   /**
    * いきなりdeserializeした際の確認
    */
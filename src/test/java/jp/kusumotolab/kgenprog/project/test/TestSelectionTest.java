@@ -0,0 +1,107 @@
+package jp.kusumotolab.kgenprog.project.test;
+
+import static jp.kusumotolab.kgenprog.testutil.ExampleAlias.Fqn.FOO;
+import static jp.kusumotolab.kgenprog.testutil.ExampleAlias.Fqn.FOO_TEST01;
+import static jp.kusumotolab.kgenprog.testutil.ExampleAlias.Fqn.FOO_TEST02;
+import static jp.kusumotolab.kgenprog.testutil.ExampleAlias.Fqn.FOO_TEST03;
+import static jp.kusumotolab.kgenprog.testutil.ExampleAlias.Fqn.FOO_TEST04;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.junit.Before;
+import org.junit.Test;
+import jp.kusumotolab.kgenprog.Configuration;
+import jp.kusumotolab.kgenprog.ga.variant.Base;
+import jp.kusumotolab.kgenprog.ga.variant.MutationHistoricalElement;
+import jp.kusumotolab.kgenprog.ga.variant.OriginalHistoricalElement;
+import jp.kusumotolab.kgenprog.ga.variant.Variant;
+import jp.kusumotolab.kgenprog.project.ASTLocation;
+import jp.kusumotolab.kgenprog.project.GeneratedSourceCode;
+import jp.kusumotolab.kgenprog.project.ProductSourcePath;
+import jp.kusumotolab.kgenprog.project.factory.TargetProject;
+import jp.kusumotolab.kgenprog.project.factory.TargetProjectFactory;
+import jp.kusumotolab.kgenprog.project.jdt.DeleteOperation;
+import jp.kusumotolab.kgenprog.testutil.ExampleAlias.Src;
+import jp.kusumotolab.kgenprog.testutil.TestUtil;
+
+public class TestSelectionTest {
+
+  private TargetProject targetProject;
+  private Variant parent;
+  private Variant child;
+
+  @Before
+  public void setup() {
+    final Path rootPath = Paths.get("example/BuildSuccess01");
+    targetProject = TargetProjectFactory.create(rootPath);
+    final GeneratedSourceCode parentSource = TestUtil.createGeneratedSourceCode(targetProject);
+
+    final Configuration config = new Configuration.Builder(targetProject).build();
+    parent = mock(Variant.class);
+    when(parent.getGeneratedSourceCode()).thenReturn(parentSource);
+    when(parent.getHistoricalElement()).thenReturn(new OriginalHistoricalElement());
+    final TestResults parentResults = new LocalTestExecutor(config).exec(parent);
+    when(parent.getTestResults()).thenReturn(parentResults);
+
+    // Foo.javaの8行目 "n++;" を削除した個体
+    final ProductSourcePath foo = new ProductSourcePath(rootPath, Src.FOO);
+    final ASTLocation location = parentSource.getProductAst(foo)
+        .createLocations()
+        .getAll()
+        .stream()
+        .filter(l -> l.inferLineNumbers().start == 8)
+        .findFirst()
+        .get();
+    final DeleteOperation operation = new DeleteOperation();
+    final GeneratedSourceCode childSource = operation.apply(parentSource, location);
+    child = mock(Variant.class);
+    when(child.getGeneratedSourceCode()).thenReturn(childSource);
+    when(child.getHistoricalElement())
+        .thenReturn(new MutationHistoricalElement(parent, new Base(location, operation)));
+  }
+
+  @Test
+  public void testSelectedTests() {
+    // 8行目を実行するテスト(test03, test04)と親個体で失敗したテスト(test03)のみが選択されるはず
+    final TestSelection selection = TestSelection.create(child);
+    assertThat(selection.getSelectedTestFQNs()).containsExactlyInAnyOrder(FOO_TEST03, FOO_TEST04);
+  }
+
+  @Test
+  public void testSelectionIsNotAppliedToOriginalVariant() {
+    assertThat(TestSelection.create(parent)).isNull();
+  }
+
+  @Test
+  public void testSelectionIsNotAppliedToChildOfStoppedVariant() {
+    // 親個体のテストが打ち切られた可能性がある場合は，結果を引き継がずに全テストを実行するはず
+    parent.getTestResults()
+        .setMayHaveStopped();
+    assertThat(TestSelection.create(child)).isNull();
+  }
+
+  @Test
+  public void testExecWithTestSelection() {
+    final Configuration config = new Configuration.Builder(targetProject).setTestSelection(true)
+        .build();
+    final TestResults result = new LocalTestExecutor(config).exec(child);
+
+    // 選択されなかったテストの結果も引き継がれているはず
+    assertThat(result.getExecutedTestFQNs()).containsExactlyInAnyOrder( //
+        FOO_TEST01, FOO_TEST02, FOO_TEST03, FOO_TEST04);
+    assertThat(result.getTestResult(FOO_TEST01).failed).isFalse();
+    assertThat(result.getTestResult(FOO_TEST02).failed).isFalse();
+    assertThat(result.getTestResult(FOO_TEST03).failed).isFalse();
+    assertThat(result.getTestResult(FOO_TEST04).failed).isTrue();
+
+    // 引き継いだカバレッジは，全テストを実行した場合と同じ行番号にずらされているはず
+    final Configuration fullConfig = new Configuration.Builder(targetProject).build();
+    final TestResults fullResult = new LocalTestExecutor(fullConfig).exec(child);
+    assertThat(result.getTestResult(FOO_TEST01)
+        .getCoverages(FOO).statuses).isEqualTo(
+            fullResult.getTestResult(FOO_TEST01)
+                .getCoverages(FOO).statuses);
+  }
+}
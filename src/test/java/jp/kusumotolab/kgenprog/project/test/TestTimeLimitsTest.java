@@ -0,0 +1,54 @@
+package jp.kusumotolab.kgenprog.project.test;
+
+import static jp.kusumotolab.kgenprog.testutil.ExampleAlias.Fqn.FOO_TEST01;
+import static jp.kusumotolab.kgenprog.testutil.ExampleAlias.Fqn.FOO_TEST02;
+import static jp.kusumotolab.kgenprog.testutil.ExampleAlias.Fqn.FOO_TEST03;
+import static jp.kusumotolab.kgenprog.testutil.ExampleAlias.Fqn.FOO_TEST04;
+import static org.assertj.core.api.Assertions.assertThat;
+import java.time.Duration;
+import java.util.Collections;
+import org.junit.Test;
+
+public class TestTimeLimitsTest {
+
+  @Test
+  public void testCreate() {
+    final TestResults baseline = new TestResults();
+    baseline.add(new TestResult(FOO_TEST01, false, Collections.emptyMap(), Duration.ofMillis(5)));
+    baseline.add(new TestResult(FOO_TEST02, true, Collections.emptyMap(), Duration.ofSeconds(2)));
+    baseline.add(new TestResult(FOO_TEST03, false, Collections.emptyMap()));
+
+    final TestTimeLimits limits = TestTimeLimits.create(baseline, Duration.ofSeconds(10));
+
+    // 計測した時間の10倍に猶予を加えた時間
+    assertThat(limits.get(FOO_TEST01)).isEqualTo(Duration.ofMillis(250));
+    // 上限を超える場合は上限
+    assertThat(limits.get(FOO_TEST02)).isEqualTo(Duration.ofSeconds(10));
+    // 計測していないテストや初期個体で実行されなかったテストは上限
+    assertThat(limits.get(FOO_TEST03)).isEqualTo(Duration.ofSeconds(10));
+    assertThat(limits.get(FOO_TEST04)).isEqualTo(Duration.ofSeconds(10));
+    assertThat(limits.isLimited()).isTrue();
+  }
+
+  @Test
+  public void testUniform() {
+    final TestTimeLimits limits = TestTimeLimits.uniform(Duration.ofSeconds(3));
+    assertThat(limits.get(FOO_TEST01)).isEqualTo(Duration.ofSeconds(3));
+    assertThat(limits.isLimited()).isTrue();
+
+    final TestTimeLimits unlimited = TestTimeLimits.uniform(null);
+    assertThat(unlimited.get(FOO_TEST01)).isNull();
+    assertThat(unlimited.isLimited()).isFalse();
+  }
+
+  @Test
+  public void testDurationIsKeptInTestResults() {
+    final TestResults results = new TestResults();
+    results.add(new TestResult(FOO_TEST01, false, Collections.emptyMap(), Duration.ofMillis(5)));
+
+    assertThat(results.getDuration(FOO_TEST01)).isEqualTo(Duration.ofMillis(5));
+    assertThat(results.getTestResult(FOO_TEST01)
+        .getDuration()).isEqualTo(Duration.ofMillis(5));
+    assertThat(results.getDuration(FOO_TEST02)).isNull();
+  }
+}
@@ -0,0 +1,65 @@
+package jp.kusumotolab.kgenprog.project.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+public class TestWatchdogTest {
+
+  @Test
+  public void testCallReusesThread() throws Exception {
+    try (final TestWatchdog watchdog = new TestWatchdog("test-watchdog")) {
+      final Thread thread1 = watchdog.call(Thread::currentThread, Duration.ofSeconds(10));
+      final Thread thread2 = watchdog.call(Thread::currentThread, Duration.ofSeconds(10));
+
+      // 同じスレッドで順に実行する
+      assertThat(thread1).isNotSameAs(Thread.currentThread());
+      assertThat(thread2).isSameAs(thread1);
+      assertThat(watchdog.hasAbandoned()).isFalse();
+    }
+  }
+
+  @Test
+  public void testCallInterruptsThread() throws Exception {
+    try (final TestWatchdog watchdog = new TestWatchdog("test-watchdog")) {
+      final Thread thread1 = watchdog.call(Thread::currentThread, Duration.ofSeconds(10));
+
+      // 割り込みに応じる処理は打ち切り，スレッドを使い回す
+      assertThatThrownBy(() -> watchdog.call(() -> {
+        Thread.sleep(10000);
+        return null;
+      }, Duration.ofMillis(100))).isInstanceOf(TimeoutException.class);
+      final Thread thread2 = watchdog.call(Thread::currentThread, Duration.ofSeconds(10));
+      assertThat(thread2).isSameAs(thread1);
+      assertThat(watchdog.hasAbandoned()).isFalse();
+    }
+  }
+
+  @Test
+  public void testCallAbandonsThread() throws Exception {
+    final AtomicBoolean running = new AtomicBoolean(true);
+    try (final TestWatchdog watchdog = new TestWatchdog("test-watchdog")) {
+      final Thread thread1 = watchdog.call(Thread::currentThread, Duration.ofSeconds(10));
+
+      // 割り込みに応じない処理は見捨て，以降は新たなスレッドで実行する
+      assertThatThrownBy(() -> watchdog.call(() -> {
+        while (running.get()) {
+          Thread.interrupted();
+        }
+        return null;
+      }, Duration.ofMillis(100))).isInstanceOf(TimeoutException.class);
+      assertThat(watchdog.hasAbandoned()).isTrue();
+      final Thread thread2 = watchdog.call(Thread::currentThread, Duration.ofSeconds(10));
+      assertThat(thread2).isNotSameAs(thread1);
+
+      // 強制停止を許可していないJVMでは，見捨てたスレッドを停止しない
+      assertThat(thread1.isAlive()).isTrue();
+      assertThat(TestWatchdog.hasForcedStop()).isFalse();
+    } finally {
+      running.set(false);
+    }
+  }
+}